@@ -0,0 +1,305 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A class implementing a point-to-point destination for the broker that is safe to use from many request threads.
+ * <p>
+ * Messages are held in a lock-free linked deque, and consumer/producer membership in lock-free sets, so producers
+ * adding messages and consumers taking messages never block each other. Each message added wakes one receiver parked
+ * on the queue, if there is one, or every parked receiver while a consumer has a selector.
+ * <p>
+ * Each message is queued in an entry that the first consumer to claim it takes. A consumer with a selector walks the
+ * queue for the first message it selects, claims its entry, and only then unlinks it through the same iterator, so it
+ * never walks the queue again from the head. If another consumer claimed it first, it carries on walking.
+ * <p>
+ * Every message is written to the queue's {@link MessageStore} before it can be delivered, and removed from it once a
+ * consumer acknowledges it. Storing a message and adding it to the queue are separate steps, so that concurrent sends
+ * can wait for the store together. So each producer's messages, and each batch, are in the same order in the store and
+ * the queue, but the messages of concurrent producers may be stored in a different order to the one they are
+ * delivered in, and be delivered in that order after a restart.
+ */
+public class ConcurrentQueueService implements SingleDestinationService {
+
+    private final Destination destination;
+    private final Map<UUID, Selector> consumers;
+    private final Set<UUID> producers;
+    private final Deque<QueuedMessage> messages;
+    private final MessageStore messageStore;
+    private final MessageIdGenerator messageIdGenerator;
+    private final MessageWaiters waiters;
+    private final AtomicInteger selectiveConsumers;
+
+    ConcurrentQueueService(UUID id) {
+        this(id, new NoOpMessageStore(), new MessageIdGenerator());
+    }
+
+    ConcurrentQueueService(UUID id, MessageStore messageStore, MessageIdGenerator messageIdGenerator) {
+        this.destination = new Destination(DestinationType.QUEUE, id);
+        this.messageStore = messageStore;
+        this.messageIdGenerator = messageIdGenerator;
+        consumers = new ConcurrentHashMap<>();
+        selectiveConsumers = new AtomicInteger();
+        producers = ConcurrentHashMap.newKeySet();
+        waiters = new MessageWaiters();
+        messages = new ConcurrentLinkedDeque<>();
+    }
+
+    @Override
+    public void addConsumer(UUID consumerId, Selector selector) {
+        if (consumers.putIfAbsent(consumerId, selector) != null) {
+            throw new IllegalStateException("Consumer " + consumerId + " already consuming from queue");
+        }
+        if (selector != Selector.ALL) {
+            selectiveConsumers.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void addProducer(UUID producerId) {
+        if (!producers.add(producerId)) {
+            throw new IllegalStateException("Producer " + producerId + " already producing to queue");
+        }
+    }
+
+    @Override
+    public void removeConsumer(UUID consumerId) {
+        Selector selector = consumers.remove(consumerId);
+        if (selector == null) {
+            throw new ConsumerDoesNotExistException();
+        }
+        if (selector != Selector.ALL) {
+            selectiveConsumers.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void removeProducer(UUID producerId) {
+        if (!producers.remove(producerId)) {
+            throw new ProducerDoesNotExistException();
+        }
+    }
+
+    @Override
+    public void addMessage(UUID producerId, Message message) {
+        verifyProducerExists(producerId);
+        message.setDestination(destination);
+        message.setId(messageIdGenerator.nextId());
+        message.makeReadOnly();
+        messageStore.addMessage(destination.getId(), message);
+        messages.add(new QueuedMessage(message));
+        wakeWaiters(1);
+    }
+
+    /**
+     * The whole batch is linked onto the end of the queue with a single compare-and-set, so it is never interleaved
+     * with another producer's messages.
+     */
+    @Override
+    public void addMessages(UUID producerId, List<Message> batch) {
+        verifyProducerExists(producerId);
+        for (Message message : batch) {
+            message.setDestination(destination);
+            message.setId(messageIdGenerator.nextId());
+            message.makeReadOnly();
+        }
+        messageStore.addMessages(destination.getId(), batch);
+        messages.addAll(queue(batch));
+        wakeWaiters(batch.size());
+    }
+
+    @Override
+    public Optional<Message> deliverMessage(UUID consumerId) {
+        Selector selector = findSelector(consumerId);
+        if (selector == Selector.ALL) {
+            return Optional.ofNullable(poll());
+        }
+        Iterator<QueuedMessage> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            QueuedMessage queued = iterator.next();
+            if (selector.matches(queued.message) && queued.claim()) {
+                iterator.remove();
+                return Optional.of(queued.message);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Message> deliverMessages(UUID consumerId, int max) {
+        Selector selector = findSelector(consumerId);
+        List<Message> delivered = new ArrayList<>();
+        if (selector == Selector.ALL) {
+            Message message;
+            while (delivered.size() < max && (message = poll()) != null) {
+                delivered.add(message);
+            }
+            return delivered;
+        }
+        Iterator<QueuedMessage> iterator = messages.iterator();
+        while (delivered.size() < max && iterator.hasNext()) {
+            QueuedMessage queued = iterator.next();
+            if (selector.matches(queued.message) && queued.claim()) {
+                iterator.remove();
+                delivered.add(queued.message);
+            }
+        }
+        return delivered;
+    }
+
+    @Override
+    public void acknowledgeMessage(UUID consumerId, Message message) {
+        verifyConsumerExists(consumerId);
+        messageStore.acknowledgeMessage(message.getId());
+    }
+
+    /**
+     * The messages are pushed onto the front of the queue one at a time, last first, so a consumer taking one while
+     * they are being pushed may receive them out of order.
+     */
+    @Override
+    public void requeueMessages(List<Message> requeued) {
+        for (ListIterator<Message> iterator = requeued.listIterator(requeued.size()); iterator.hasPrevious(); ) {
+            messages.addFirst(new QueuedMessage(iterator.previous()));
+        }
+        wakeWaiters(requeued.size());
+    }
+
+    @Override
+    public void addWaiter(MessageWaiters.Waiter waiter) {
+        waiters.add(waiter);
+    }
+
+    @Override
+    public void removeWaiter(MessageWaiters.Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    /**
+     * Put back the messages recovered from the message store when the broker started, without storing them again.
+     * <p>
+     * Each message is made read-only, as a sent message is, since it is shared by every delivery of it.
+     *
+     * @param recovered the unacknowledged messages, in the order they were stored
+     */
+    void restoreMessages(List<Message> recovered) {
+        recovered.forEach(Message::makeReadOnly);
+        messages.addAll(queue(recovered));
+    }
+
+    MessageWaiters getWaiters() {
+        return waiters;
+    }
+
+    Set<UUID> getConsumers() {
+        return consumers.keySet();
+    }
+
+    Set<UUID> getProducers() {
+        return producers;
+    }
+
+    /**
+     * @return the messages on the queue that no consumer has claimed, in order
+     */
+    List<Message> getMessages() {
+        List<Message> unclaimed = new ArrayList<>();
+        for (QueuedMessage queued : messages) {
+            if (!queued.isClaimed()) {
+                unclaimed.add(queued.message);
+            }
+        }
+        return unclaimed;
+    }
+
+    /**
+     * Take the message at the head of the queue, skipping any entry a consumer with a selector has claimed but not yet
+     * unlinked.
+     */
+    private Message poll() {
+        QueuedMessage queued;
+        while ((queued = messages.poll()) != null) {
+            if (queued.claim()) {
+                return queued.message;
+            }
+        }
+        return null;
+    }
+
+    private static List<QueuedMessage> queue(List<Message> messages) {
+        List<QueuedMessage> queued = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            queued.add(new QueuedMessage(message));
+        }
+        return queued;
+    }
+
+    private void wakeWaiters(int messageCount) {
+        if (selectiveConsumers.get() > 0) {
+            waiters.wakeAll();
+            return;
+        }
+        for (int i = 0; i < messageCount; i++) {
+            waiters.wakeOne();
+        }
+    }
+
+    private Selector findSelector(UUID consumerId) {
+        Selector selector = consumers.get(consumerId);
+        if (selector == null) {
+            throw new ConsumerDoesNotExistException();
+        }
+        return selector;
+    }
+
+    private void verifyConsumerExists(UUID consumerId) {
+        if (!consumers.containsKey(consumerId)) {
+            throw new ConsumerDoesNotExistException();
+        }
+    }
+
+    private void verifyProducerExists(UUID producerId) {
+        if (!producers.contains(producerId)) {
+            throw new ProducerDoesNotExistException();
+        }
+    }
+
+    /**
+     * A message on the queue, delivered to whichever consumer claims it first.
+     * <p>
+     * Unlinking a node through the deque's iterator doesn't report whether another thread took it first, so the claim
+     * decides which consumer gets the message, and the node is unlinked afterwards.
+     */
+    private static final class QueuedMessage {
+
+        private static final AtomicIntegerFieldUpdater<QueuedMessage> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(QueuedMessage.class, "claimed");
+
+        private final Message message;
+        private volatile int claimed;
+
+        private QueuedMessage(Message message) {
+            this.message = message;
+        }
+
+        /**
+         * @return <code>true</code> if this call claimed the message, or <code>false</code> if it was already claimed
+         */
+        private boolean claim() {
+            return CLAIMED.compareAndSet(this, 0, 1);
+        }
+
+        private boolean isClaimed() {
+            return claimed != 0;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package kitchen.josh.simplejms.broker;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import kitchen.josh.simplejms.common.message.MessageFactory;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import kitchen.josh.simplejms.common.message.body.BodyFactory;
@@ -8,10 +10,14 @@ import kitchen.josh.simplejms.common.message.headers.HeadersFactory;
 import kitchen.josh.simplejms.common.message.headers.HeadersModelFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertiesFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertyModelFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.IOException;
+
 @Configuration
+@EnableConfigurationProperties(JournalProperties.class)
 public class Config {
 
     @Bean
@@ -53,4 +59,13 @@ public class Config {
     public MessageFactory messageFactory() {
         return new MessageFactory(headersFactory(), propertiesFactory(), bodyFactory());
     }
+
+    @Bean
+    public MessageStore messageStore(JournalProperties journalProperties, MeterRegistry meterRegistry,
+                                     ObjectMapper objectMapper) throws IOException {
+        if (!journalProperties.isEnabled()) {
+            return new NoOpMessageStore();
+        }
+        return new JournalMessageStore(journalProperties, meterRegistry, messageModelFactory(), messageFactory(), objectMapper);
+    }
 }
@@ -1,18 +1,29 @@
 package kitchen.josh.simplejms.broker;
 
-import kitchen.josh.simplejms.common.DestinationModel;
+import kitchen.josh.simplejms.broker.selector.InvalidSelectorException;
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.common.ConsumerModel;
+import kitchen.josh.simplejms.common.CreditModel;
 import kitchen.josh.simplejms.common.ErrorModel;
 import kitchen.josh.simplejms.common.IdModel;
 import kitchen.josh.simplejms.common.message.MessageIdModel;
-import kitchen.josh.simplejms.common.message.MessageModel;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
-
-import static java.util.Collections.emptyList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 public class ConsumerController {
@@ -22,16 +33,35 @@ public class ConsumerController {
     private static final String FAILED_RECEIVE_MESSAGE = "Failed to receive message";
     private static final String FAILED_ACKNOWLEDGE_MESSAGE = "Failed to acknowledge message";
     private static final String FAILED_RECOVER_CONSUMER = "Failed to recover consumer";
+    private static final String FAILED_STREAM_MESSAGES = "Failed to stream messages";
+    private static final String FAILED_ADD_CREDIT = "Failed to add credit";
+    private static final String FAILED_CLOSE_STREAM = "Failed to close stream";
 
     private static final String DESTINATION_DOES_NOT_EXIST = "the destination does not exist";
     private static final String CONSUMER_DOES_NOT_EXIST = "the consumer does not exist";
+    private static final String MAX_NOT_POSITIVE = "the max must be positive";
+    private static final String TIMEOUT_NOT_POSITIVE = "the timeout must be positive";
+    private static final String MAX_WITH_TIMEOUT = "the max and timeout can't be combined";
+    private static final String CREDIT_NEGATIVE = "the credit must not be negative";
+    private static final String CREDIT_NOT_POSITIVE = "the credit must be positive";
+    private static final String CONSUMER_NOT_STREAMING = "the consumer is not streaming";
+    private static final String SELECTOR_INVALID = "the selector is invalid";
+
+    private static final int STREAM_WRITERS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
 
     private final ConsumerManager consumerManager;
-    private final MessageModelFactory messageModelFactory;
+    private final DeliveredMessages deliveredMessages;
+    private final ExecutorService streamWriters;
 
     public ConsumerController(ConsumerManager consumerManager, MessageModelFactory messageModelFactory) {
         this.consumerManager = consumerManager;
-        this.messageModelFactory = messageModelFactory;
+        this.deliveredMessages = new DeliveredMessages(messageModelFactory);
+        this.streamWriters = createStreamWriters();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamWriters.shutdown();
     }
 
     /**
@@ -41,9 +71,12 @@ public class ConsumerController {
      * @return the id of the created consumer
      */
     @PostMapping(path = "/consumer")
-    public IdModel createConsumer(@RequestBody DestinationModel model) {
+    public IdModel createConsumer(@RequestBody ConsumerModel model) {
         try {
-            return new IdModel(consumerManager.createConsumer(model.getDestination()));
+            Selector selector = Selector.parse(model.getSelector());
+            return new IdModel(consumerManager.createConsumer(model.getDestination(), selector));
+        } catch (InvalidSelectorException e) {
+            throw createError(FAILED_CREATE_CONSUMER, SELECTOR_INVALID);
         } catch (DestinationDoesNotExistException e) {
             throw createError(FAILED_CREATE_CONSUMER, DESTINATION_DOES_NOT_EXIST);
         }
@@ -65,17 +98,147 @@ public class ConsumerController {
 
     /**
      * Receive a message for a consumer from a destination.
+     * <p>
+     * A topic message is encoded for the first subscriber to receive it, and the same bytes are returned to the rest.
      *
      * @param consumerId the id of the consumer
      * @return the message received from the destination
      */
     @PostMapping(path = "/consumer/{consumerId}/receive")
-    public MessageModel receiveMessage(@PathVariable UUID consumerId) {
+    public DeliveredMessage receiveMessage(@PathVariable UUID consumerId) {
         return consumerManager.findConsumer(consumerId)
                 .orElseThrow(() -> createError(FAILED_RECEIVE_MESSAGE, CONSUMER_DOES_NOT_EXIST))
                 .receive()
-                .map(messageModelFactory::create)
-                .orElse(new MessageModel(null, emptyList(), null));
+                .map(deliveredMessages::deliver)
+                .orElse(deliveredMessages.none());
+    }
+
+    /**
+     * Receive up to <code>max</code> messages for a consumer in a single request.
+     * <p>
+     * The messages are received in order, and are all unacknowledged until acknowledged, so acknowledging the last one
+     * acknowledges the whole batch. A topic message shares its encoding with its other deliveries, as it does when
+     * received on its own.
+     *
+     * @param consumerId the id of the consumer
+     * @param max        the most messages to receive
+     * @return the messages received from the destination, empty if there weren't any
+     */
+    @PostMapping(path = "/consumer/{consumerId}/receive", params = {"max", "!timeout"})
+    public DeliveredMessageList receiveMessages(@PathVariable UUID consumerId, @RequestParam int max) {
+        if (max <= 0) {
+            throw createError(FAILED_RECEIVE_MESSAGE, MAX_NOT_POSITIVE);
+        }
+        List<Delivery> received = consumerManager.findConsumer(consumerId)
+                .orElseThrow(() -> createError(FAILED_RECEIVE_MESSAGE, CONSUMER_DOES_NOT_EXIST))
+                .receive(max);
+        return deliveredMessages.deliver(received);
+    }
+
+    /**
+     * Receive a message for a consumer, waiting for one to be sent to the destination if there isn't one yet.
+     * <p>
+     * The request is parked on the destination without holding a thread, and completed by the next message sent to
+     * it, or with no message once the timeout elapses.
+     *
+     * @param consumerId the id of the consumer
+     * @param timeout    the longest time to wait for a message, in milliseconds
+     * @return the message received from the destination
+     */
+    @PostMapping(path = "/consumer/{consumerId}/receive", params = {"timeout", "!max"})
+    public DeferredResult<DeliveredMessage> receiveMessage(@PathVariable UUID consumerId, @RequestParam long timeout) {
+        if (timeout <= 0) {
+            throw createError(FAILED_RECEIVE_MESSAGE, TIMEOUT_NOT_POSITIVE);
+        }
+        SingleConsumerService consumer = consumerManager.findConsumer(consumerId)
+                .orElseThrow(() -> createError(FAILED_RECEIVE_MESSAGE, CONSUMER_DOES_NOT_EXIST));
+
+        DeferredResult<DeliveredMessage> result = new DeferredResult<>(timeout);
+        PendingReceive pendingReceive = consumer.receiveWhenAvailable(
+                delivery -> result.setResult(deliveredMessages.deliver(delivery)),
+                exception -> result.setErrorResult(exception instanceof ConsumerDoesNotExistException
+                        ? createError(FAILED_RECEIVE_MESSAGE, CONSUMER_DOES_NOT_EXIST)
+                        : exception));
+        result.onTimeout(() -> {
+            // A message received as the timeout elapsed has already been set as the result.
+            if (pendingReceive.cancel()) {
+                result.setResult(deliveredMessages.none());
+            }
+        });
+        result.onCompletion(pendingReceive::cancel);
+        return result;
+    }
+
+    /**
+     * Reject a receive asking for both a batch and a wait, as a long-poll only ever receives one message.
+     */
+    @PostMapping(path = "/consumer/{consumerId}/receive", params = {"timeout", "max"})
+    public void receiveMessagesWithTimeout() {
+        throw createError(FAILED_RECEIVE_MESSAGE, MAX_WITH_TIMEOUT);
+    }
+
+    /**
+     * Stream the messages a consumer receives as server-sent events, pushing each message as soon as it is sent to the
+     * destination.
+     * <p>
+     * Each message pushed uses one credit, and nothing more is pushed once the credit runs out, until more is added.
+     * Opening a new stream for the consumer ends the one already open.
+     * <p>
+     * The messages are written to the response by a fixed pool of writer threads, each stream using at most one at a
+     * time. A client that reads slowly holds a writer while its writes block, so once every writer is held the other
+     * streams' writes wait in the pool's queue until one is free.
+     *
+     * @param consumerId the id of the consumer
+     * @param credit     the number of messages the client is ready to be sent straight away
+     * @return the stream of <code>message</code> events
+     */
+    @GetMapping(path = "/consumer/{consumerId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessages(@PathVariable UUID consumerId, @RequestParam(defaultValue = "0") int credit) {
+        if (credit < 0) {
+            throw createError(FAILED_STREAM_MESSAGES, CREDIT_NEGATIVE);
+        }
+        SingleConsumerService consumer = consumerManager.findConsumer(consumerId)
+                .orElseThrow(() -> createError(FAILED_STREAM_MESSAGES, CONSUMER_DOES_NOT_EXIST));
+
+        // The stream only ends when the client disconnects or the consumer is removed.
+        SseEmitter emitter = new SseEmitter(0L);
+        MessageStream stream = consumer.openStream(new EmitterSink(emitter), streamWriters);
+        emitter.onCompletion(stream::close);
+        emitter.onTimeout(stream::close);
+        if (credit > 0) {
+            stream.addCredit(credit);
+        }
+        return emitter;
+    }
+
+    /**
+     * End a consumer's stream, if it has one open.
+     *
+     * @param consumerId the id of the consumer
+     */
+    @DeleteMapping(path = "/consumer/{consumerId}/stream")
+    public void closeStream(@PathVariable UUID consumerId) {
+        consumerManager.findConsumer(consumerId)
+                .orElseThrow(() -> createError(FAILED_CLOSE_STREAM, CONSUMER_DOES_NOT_EXIST))
+                .closeStream();
+    }
+
+    /**
+     * Allow a consumer's stream to push more messages.
+     *
+     * @param consumerId  the id of the consumer
+     * @param creditModel the number of further messages the client is ready for
+     */
+    @PostMapping(path = "/consumer/{consumerId}/credit")
+    public void addCredit(@PathVariable UUID consumerId, @RequestBody CreditModel creditModel) {
+        if (creditModel.getCredit() <= 0) {
+            throw createError(FAILED_ADD_CREDIT, CREDIT_NOT_POSITIVE);
+        }
+        consumerManager.findConsumer(consumerId)
+                .orElseThrow(() -> createError(FAILED_ADD_CREDIT, CONSUMER_DOES_NOT_EXIST))
+                .findStream()
+                .orElseThrow(() -> createError(FAILED_ADD_CREDIT, CONSUMER_NOT_STREAMING))
+                .addCredit(creditModel.getCredit());
     }
 
     @PostMapping(path = "/consumer/{consumerId}/acknowledge")
@@ -113,4 +276,46 @@ public class ConsumerController {
     private static ApiException createError(String problem, String cause) {
         return new ApiException(problem + ": " + cause);
     }
+
+    private static ExecutorService createStreamWriters() {
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor writers = new ThreadPoolExecutor(STREAM_WRITERS, STREAM_WRITERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "message-stream-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        writers.allowCoreThreadTimeOut(true);
+        return writers;
+    }
+
+    /**
+     * Pushes a stream's messages to the client as <code>message</code> events, identified by the message id.
+     */
+    private final class EmitterSink implements MessageStream.Sink {
+
+        private final SseEmitter emitter;
+
+        private EmitterSink(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void send(Delivery delivery) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .name("message")
+                    .id(delivery.getMessage().getId())
+                    .data(deliveredMessages.deliver(delivery), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void complete() {
+            emitter.complete();
+        }
+
+        @Override
+        public void fail(Exception exception) {
+            emitter.completeWithError(exception);
+        }
+    }
 }
@@ -1,10 +1,9 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
 import kitchen.josh.simplejms.common.Destination;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,28 +11,32 @@ import java.util.UUID;
 public class ConsumerManager {
 
     private final DestinationService destinationService;
-    private final Map<UUID, SingleConsumerService> consumers;
+    private final Registry<UUID, SingleConsumerService> consumers;
 
     public ConsumerManager(DestinationService destinationService) {
         this.destinationService = destinationService;
-        this.consumers = new HashMap<>();
+        this.consumers = new Registry<>();
     }
 
     public UUID createConsumer(Destination destination) {
+        return createConsumer(destination, Selector.ALL);
+    }
+
+    public UUID createConsumer(Destination destination, Selector selector) {
         SingleDestinationService singleDestinationService = destinationService.findDestination(destination)
                 .orElseThrow(DestinationDoesNotExistException::new);
         UUID consumerId = UUID.randomUUID();
-        singleDestinationService.addConsumer(consumerId);
-        consumers.put(consumerId, new SingleConsumerService(consumerId, singleDestinationService));
+        singleDestinationService.addConsumer(consumerId, selector);
+        consumers.register(consumerId, new SingleConsumerService(consumerId, singleDestinationService));
         return consumerId;
     }
 
     public Optional<SingleConsumerService> findConsumer(UUID consumerId) {
-        return Optional.ofNullable(consumers.get(consumerId));
+        return consumers.find(consumerId);
     }
 
     public void removeConsumer(UUID consumerId) {
-        SingleConsumerService consumerService = Optional.ofNullable(consumers.remove(consumerId))
+        SingleConsumerService consumerService = consumers.remove(consumerId)
                 .orElseThrow(ConsumerDoesNotExistException::new);
         consumerService.close();
     }
@@ -0,0 +1,142 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageModel;
+import kitchen.josh.simplejms.common.message.MessageModelFactory;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * A message as it is written in the response to a consumer, by {@link DeliveredMessageConverter}.
+ * <p>
+ * The message is only turned into a {@link MessageModel} and encoded when the response is written, and the encoded
+ * bytes are kept in its {@link Encodings}. Deliveries of the same topic message share their encodings, so the message
+ * is encoded once per media type however many consumers it is delivered to.
+ * <p>
+ * A redelivery is encoded with the <code>JMSRedelivered</code> header set, which can't be set on the message as it is
+ * shared and read-only, so it is only set on the message's model.
+ */
+class DeliveredMessage {
+
+    private static final MessageModel NO_MESSAGE = new MessageModel(null, emptyList(), null);
+
+    private final Message message;
+    private final MessageModelFactory messageModelFactory;
+    private final Encodings encodings;
+    private final boolean redelivered;
+
+    DeliveredMessage(Message message, MessageModelFactory messageModelFactory, Encodings encodings) {
+        this(message, messageModelFactory, encodings, false);
+    }
+
+    /**
+     * @param redelivered whether the consumer has received the message before, in which case the encodings mustn't be
+     *                    shared with other deliveries
+     */
+    DeliveredMessage(Message message, MessageModelFactory messageModelFactory, Encodings encodings, boolean redelivered) {
+        this.message = message;
+        this.messageModelFactory = messageModelFactory;
+        this.encodings = encodings;
+        this.redelivered = redelivered;
+    }
+
+    /**
+     * Get the message encoded as a media type, encoding it if it hasn't been encoded as that type yet, or if its
+     * headers have changed since.
+     *
+     * @param mediaType the media type the encoder writes
+     * @param encoder   encodes the message's model as the media type
+     * @return the encoded message
+     */
+    byte[] encode(MediaType mediaType, Encoder encoder) throws IOException {
+        return encodings.get(message, mediaType, () -> encoder.encode(toModel()));
+    }
+
+    /**
+     * @return <code>null</code> if the consumer received no message
+     */
+    Message getMessage() {
+        return message;
+    }
+
+    Encodings getEncodings() {
+        return encodings;
+    }
+
+    private MessageModel toModel() {
+        if (message == null) {
+            return NO_MESSAGE;
+        }
+        MessageModel model = messageModelFactory.create(message);
+        if (!redelivered) {
+            return model;
+        }
+        HeadersModel headers = model.getHeaders();
+        return new MessageModel(new HeadersModel(headers.getId(), headers.getDestination(), true),
+                model.getProperties(), model.getBody());
+    }
+
+    @FunctionalInterface
+    interface Encoder {
+
+        byte[] encode(MessageModel messageModel) throws IOException;
+    }
+
+    /**
+     * The bytes a message has been encoded as, for each media type.
+     * <p>
+     * Each encoding remembers the message's id and destination when it was encoded, and is replaced if either has
+     * changed, as the broker sets both when the message is sent. Two threads encoding the same message at once may
+     * both encode it, which is harmless as the results are the same.
+     */
+    static final class Encodings {
+
+        private final Map<MediaType, Encoding> encodings = new ConcurrentHashMap<>();
+
+        private byte[] get(Message message, MediaType mediaType, EncodingSupplier supplier) throws IOException {
+            String id = message == null ? null : message.getId();
+            Destination destination = message == null ? null : message.getDestination();
+            Encoding encoding = encodings.get(mediaType);
+            if (encoding == null || !encoding.isFor(id, destination)) {
+                encoding = new Encoding(id, destination, supplier.get());
+                encodings.put(mediaType, encoding);
+            }
+            return encoding.bytes;
+        }
+
+        int size() {
+            return encodings.size();
+        }
+    }
+
+    @FunctionalInterface
+    private interface EncodingSupplier {
+
+        byte[] get() throws IOException;
+    }
+
+    private static final class Encoding {
+
+        private final String id;
+        private final Destination destination;
+        private final byte[] bytes;
+
+        private Encoding(String id, Destination destination, byte[] bytes) {
+            this.id = id;
+            this.destination = destination;
+            this.bytes = bytes;
+        }
+
+        private boolean isFor(String id, Destination destination) {
+            return Objects.equals(this.id, id) && Objects.equals(this.destination, destination);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.message.BinaryMessageCodec;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a {@link DeliveredMessage} or {@link DeliveredMessageList} as JSON or in the {@link BinaryMessageCodec}
+ * encoding, using the bytes each message was already encoded as where it has been.
+ * <p>
+ * JSON is written with the same {@link ObjectMapper} as every other response, so the body is the same as if the
+ * message's model, or a list of the models, had been returned. A list is written by joining the encodings of its
+ * messages, so each message is only encoded on its own.
+ */
+class DeliveredMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private static final byte[] JSON_START = {'['};
+    private static final byte[] JSON_SEPARATOR = {','};
+    private static final byte[] JSON_END = {']'};
+
+    private final ObjectMapper objectMapper;
+    private final BinaryMessageCodec binaryMessageCodec;
+
+    DeliveredMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON_UTF8, BinaryMessageConverter.MEDIA_TYPE);
+        this.objectMapper = objectMapper;
+        this.binaryMessageCodec = new BinaryMessageCodec();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return DeliveredMessage.class == clazz || DeliveredMessageList.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Delivered messages are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object delivered, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        boolean binary = contentType != null && BinaryMessageConverter.MEDIA_TYPE.isCompatibleWith(contentType);
+        OutputStream body = outputMessage.getBody();
+        if (delivered instanceof DeliveredMessage) {
+            body.write(encode((DeliveredMessage) delivered, binary));
+            return;
+        }
+        List<DeliveredMessage> messages = ((DeliveredMessageList) delivered).getMessages();
+        if (binary) {
+            List<byte[]> encoded = new ArrayList<>(messages.size());
+            for (DeliveredMessage message : messages) {
+                encoded.add(encode(message, true));
+            }
+            body.write(binaryMessageCodec.join(encoded));
+            return;
+        }
+        body.write(JSON_START);
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                body.write(JSON_SEPARATOR);
+            }
+            body.write(encode(messages.get(i), false));
+        }
+        body.write(JSON_END);
+    }
+
+    private byte[] encode(DeliveredMessage message, boolean binary) throws IOException {
+        return binary
+                ? message.encode(BinaryMessageConverter.MEDIA_TYPE, binaryMessageCodec::encode)
+                : message.encode(MediaType.APPLICATION_JSON, objectMapper::writeValueAsBytes);
+    }
+}
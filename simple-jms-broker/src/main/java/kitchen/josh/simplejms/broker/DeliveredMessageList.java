@@ -0,0 +1,20 @@
+package kitchen.josh.simplejms.broker;
+
+import java.util.List;
+
+/**
+ * The messages delivered to a consumer in a single response, written by {@link DeliveredMessageConverter} as a list
+ * made from each message's own encoding, so a topic message in a batch shares its encoding with every other delivery.
+ */
+class DeliveredMessageList {
+
+    private final List<DeliveredMessage> messages;
+
+    DeliveredMessageList(List<DeliveredMessage> messages) {
+        this.messages = messages;
+    }
+
+    List<DeliveredMessage> getMessages() {
+        return messages;
+    }
+}
@@ -0,0 +1,94 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageModelFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Creates the {@link DeliveredMessage}s written to consumers, sharing the encodings of each topic message between every
+ * consumer it is delivered to.
+ * <p>
+ * A topic message is delivered to every subscriber, so it is encoded for the first and the same bytes are written to
+ * the rest. The encodings are held weakly by the message, so they are dropped once the topic has released the message
+ * and no consumer is still waiting to acknowledge it. A queue message is only delivered to one consumer, so its
+ * encodings aren't kept, and neither are a redelivery's, which differ from the other deliveries'.
+ * <p>
+ * The topic encodings are split across {@value #STRIPES} maps by the message's hash, each with a lock of its own, so
+ * deliveries of different topic messages rarely wait for each other.
+ */
+class DeliveredMessages {
+
+    private static final int STRIPES = 16;
+
+    private final MessageModelFactory messageModelFactory;
+    private final List<Map<Message, DeliveredMessage.Encodings>> topicEncodings;
+    private final DeliveredMessage noMessage;
+
+    DeliveredMessages(MessageModelFactory messageModelFactory) {
+        this.messageModelFactory = messageModelFactory;
+        topicEncodings = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            topicEncodings.add(Collections.synchronizedMap(new WeakHashMap<>()));
+        }
+        noMessage = new DeliveredMessage(null, messageModelFactory, new DeliveredMessage.Encodings());
+    }
+
+    /**
+     * @param delivery the delivery of a message to a consumer
+     * @return the response for a consumer that received the message
+     */
+    DeliveredMessage deliver(Delivery delivery) {
+        if (delivery.isRedelivered()) {
+            return new DeliveredMessage(delivery.getMessage(), messageModelFactory, new DeliveredMessage.Encodings(), true);
+        }
+        return deliver(delivery.getMessage());
+    }
+
+    DeliveredMessage deliver(Message message) {
+        if (message.getDestination() == null || message.getDestination().getType() != DestinationType.TOPIC) {
+            return new DeliveredMessage(message, messageModelFactory, new DeliveredMessage.Encodings());
+        }
+        return new DeliveredMessage(message, messageModelFactory,
+                stripe(message).computeIfAbsent(message, m -> new DeliveredMessage.Encodings()));
+    }
+
+    /**
+     * @param deliveries the messages delivered to a consumer together, in order
+     * @return the response for a consumer that received a batch of messages
+     */
+    DeliveredMessageList deliver(List<Delivery> deliveries) {
+        List<DeliveredMessage> delivered = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            delivered.add(deliver(delivery));
+        }
+        return new DeliveredMessageList(delivered);
+    }
+
+    /**
+     * @return the response for a consumer that received no message
+     */
+    DeliveredMessage none() {
+        return noMessage;
+    }
+
+    /**
+     * @return a copy of the encodings kept for every topic message
+     */
+    Map<Message, DeliveredMessage.Encodings> getTopicEncodings() {
+        Map<Message, DeliveredMessage.Encodings> encodings = new HashMap<>();
+        topicEncodings.forEach(encodings::putAll);
+        return encodings;
+    }
+
+    private Map<Message, DeliveredMessage.Encodings> stripe(Message message) {
+        int hash = message.hashCode();
+        return topicEncodings.get(Math.floorMod(hash ^ (hash >>> 16), STRIPES));
+    }
+}
@@ -0,0 +1,40 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * A delivery of a message to a consumer.
+ * <p>
+ * A message is read-only once it is sent, and the same instance is delivered to every consumer that receives it, so
+ * anything that belongs to a single delivery is held here instead of on the message.
+ */
+class Delivery {
+
+    private final Message message;
+    private final int deliveryCount;
+
+    /**
+     * @param message       the message delivered
+     * @param deliveryCount how many times the message has been delivered to the consumer, including this time
+     */
+    Delivery(Message message, int deliveryCount) {
+        this.message = message;
+        this.deliveryCount = deliveryCount;
+    }
+
+    Message getMessage() {
+        return message;
+    }
+
+    int getDeliveryCount() {
+        return deliveryCount;
+    }
+
+    /**
+     * @return <code>true</code> if the consumer has received the message before, and is receiving it again after
+     * recovering, which is written to the consumer as the message's <code>JMSRedelivered</code> header
+     */
+    boolean isRedelivered() {
+        return deliveryCount > 1;
+    }
+}
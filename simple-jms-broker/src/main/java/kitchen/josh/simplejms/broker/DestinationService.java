@@ -2,6 +2,7 @@ package kitchen.josh.simplejms.broker;
 
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -14,16 +15,29 @@ import static java.util.stream.Collectors.toMap;
 
 /**
  * A service for creating, looking up and maintaining the lifetimes of destinations in the broker.
+ * <p>
+ * Queues are recorded in the broker's {@link MessageStore}, and any queues stored before the broker was last stopped
+ * are recreated with their unacknowledged messages when the service is created.
  */
 @Component
 public class DestinationService {
 
-    private static final Map<DestinationType, Function<UUID, SingleDestinationService>> SERVICE_SUPPLIERS = createServiceSupplierMap();
-
-    private final Map<Destination, SingleDestinationService> destinations;
+    private final Map<DestinationType, Function<UUID, SingleDestinationService>> serviceSuppliers;
+    private final Registry<Destination, SingleDestinationService> destinations;
 
     DestinationService() {
-        destinations = new HashMap<>();
+        this(new NoOpMessageStore(), new MessageIdGenerator());
+    }
+
+    @Autowired
+    DestinationService(MessageStore messageStore, MessageIdGenerator messageIdGenerator) {
+        serviceSuppliers = createServiceSupplierMap(messageStore, messageIdGenerator);
+        destinations = new Registry<>();
+        messageStore.recover().forEach((queueId, messages) -> {
+            ConcurrentQueueService queue = new ConcurrentQueueService(queueId, messageStore, messageIdGenerator);
+            queue.restoreMessages(messages);
+            destinations.register(new Destination(DestinationType.QUEUE, queueId), queue);
+        });
     }
 
     /**
@@ -34,7 +48,7 @@ public class DestinationService {
      */
     public UUID createDestination(DestinationType destinationType) {
         Destination destination = new Destination(destinationType, UUID.randomUUID());
-        destinations.put(destination, createService(destination));
+        destinations.register(destination, createService(destination));
         return destination.getId();
     }
 
@@ -45,29 +59,35 @@ public class DestinationService {
      * @return the destination searched for, or <code>Optional.empty()</code> if it doesn't exist
      */
     public Optional<SingleDestinationService> findDestination(Destination destination) {
-        return Optional.ofNullable(destinations.get(destination));
+        return destinations.find(destination);
     }
 
     Map<UUID, SingleDestinationService> getQueues() {
-        return destinations.keySet().stream()
-                .filter(destination -> destination.getType() == DestinationType.QUEUE)
-                .collect(toMap(Destination::getId, destinations::get));
+        return getDestinations(DestinationType.QUEUE);
     }
 
     Map<UUID, SingleDestinationService> getTopics() {
-        return destinations.keySet().stream()
-                .filter(destination -> destination.getType() == DestinationType.TOPIC)
-                .collect(toMap(Destination::getId, destinations::get));
+        return getDestinations(DestinationType.TOPIC);
+    }
+
+    private Map<UUID, SingleDestinationService> getDestinations(DestinationType destinationType) {
+        return destinations.snapshot().entrySet().stream()
+                .filter(entry -> entry.getKey().getType() == destinationType)
+                .collect(toMap(entry -> entry.getKey().getId(), Map.Entry::getValue));
     }
 
-    private static Map<DestinationType, Function<UUID, SingleDestinationService>> createServiceSupplierMap() {
+    private static Map<DestinationType, Function<UUID, SingleDestinationService>> createServiceSupplierMap(
+            MessageStore messageStore, MessageIdGenerator messageIdGenerator) {
         Map<DestinationType, Function<UUID, SingleDestinationService>> suppliers = new HashMap<>();
-        suppliers.put(DestinationType.TOPIC, TopicService::new);
-        suppliers.put(DestinationType.QUEUE, QueueService::new);
+        suppliers.put(DestinationType.TOPIC, id -> new TopicService(id, messageIdGenerator));
+        suppliers.put(DestinationType.QUEUE, id -> {
+            messageStore.addQueue(id);
+            return new ConcurrentQueueService(id, messageStore, messageIdGenerator);
+        });
         return suppliers;
     }
 
-    private static SingleDestinationService createService(Destination destination) {
-        return SERVICE_SUPPLIERS.get(destination.getType()).apply(destination.getId());
+    private SingleDestinationService createService(Destination destination) {
+        return serviceSuppliers.get(destination.getType()).apply(destination.getId());
     }
 }
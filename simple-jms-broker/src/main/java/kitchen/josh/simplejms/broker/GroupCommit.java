@@ -0,0 +1,221 @@
+package kitchen.josh.simplejms.broker;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.Closeable;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Makes appends to a journal durable in batches, rather than forcing the journal once per append.
+ * <p>
+ * Threads append to the journal as normal, then wait for the position of their record to become durable. A single
+ * flusher thread forces the journal once the oldest waiting record has waited for the flush interval, or as soon as
+ * the waiting records add up to the batch size, and every waiting thread covered by the flush is released together.
+ * <p>
+ * The number of waiting threads and bytes covered by each flush are recorded as the
+ * <code>simplejms.journal.commit.sends</code> and <code>simplejms.journal.commit.bytes</code> metrics.
+ */
+class GroupCommit implements Closeable {
+
+    private final Journal journal;
+    private final long intervalNanos;
+    private final long batchBytes;
+    private final DistributionSummary batchSends;
+    private final DistributionSummary batchSize;
+    private final Timer forceTime;
+    private final Lock lock;
+    private final Condition work;
+    private final Condition flushed;
+    private final Queue<Long> waiting;
+    private final Thread flusher;
+    private long requested;
+    private long durable;
+    private boolean closed;
+    private boolean stopped;
+    private RuntimeException failure;
+
+    /**
+     * Start flushing a journal.
+     *
+     * @param journal        the journal to flush
+     * @param intervalMicros the longest time in microseconds a waiting record is held back to batch it with others
+     * @param batchBytes     the number of bytes waiting that causes a flush without waiting for the interval
+     * @param meterRegistry  the registry to record the batch metrics in
+     */
+    GroupCommit(Journal journal, long intervalMicros, long batchBytes, MeterRegistry meterRegistry) {
+        this.journal = journal;
+        this.intervalNanos = TimeUnit.MICROSECONDS.toNanos(intervalMicros);
+        this.batchBytes = batchBytes;
+        this.batchSends = DistributionSummary.builder("simplejms.journal.commit.sends")
+                .description("The number of sends made durable by a single flush of the journal")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("simplejms.journal.commit.bytes")
+                .description("The number of bytes made durable by a single flush of the journal")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.forceTime = Timer.builder("simplejms.journal.commit.force")
+                .description("The time taken to force the journal to the storage device")
+                .register(meterRegistry);
+        this.lock = new ReentrantLock();
+        this.work = lock.newCondition();
+        this.flushed = lock.newCondition();
+        this.waiting = new PriorityQueue<>();
+        this.durable = journal.getPosition();
+        this.requested = durable;
+        this.flusher = new Thread(this::run, "journal-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Wait until the journal is durable up to a position.
+     *
+     * @param position the position just after the record that must be durable
+     * @throws IllegalStateException if the group commit has been closed, or the journal couldn't be forced, before the
+     *                               position became durable
+     */
+    void awaitDurable(long position) {
+        lock.lock();
+        try {
+            if (position <= durable) {
+                return;
+            }
+            verifyFlushing(position);
+            waiting.add(position);
+            requested = Math.max(requested, position);
+            if (waiting.size() == 1 || requested - durable >= batchBytes) {
+                work.signal();
+            }
+            while (durable < position) {
+                flushed.awaitUninterruptibly();
+                if (durable < position) {
+                    verifyFlushing(position);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the flusher thread, after a final flush releases every thread still waiting.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            work.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getDurable() {
+        lock.lock();
+        try {
+            return durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaitingCount() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void verifyFlushing(long position) {
+        if (failure != null) {
+            throw new IllegalStateException("Journal could not be forced", failure);
+        }
+        if (stopped) {
+            throw new IllegalStateException("Journal closed before position " + position + " was durable");
+        }
+    }
+
+    private void run() {
+        lock.lock();
+        try {
+            while (!closed) {
+                if (waiting.isEmpty()) {
+                    work.awaitUninterruptibly();
+                    continue;
+                }
+                awaitBatch();
+                flush();
+            }
+            if (failure == null) {
+                flush();
+            }
+            stopped = true;
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hold back the waiting records until the flush interval has passed or there are enough of them to fill a batch.
+     */
+    private void awaitBatch() {
+        long deadline = System.nanoTime() + intervalNanos;
+        long remaining = intervalNanos;
+        while (!closed && requested - durable < batchBytes && remaining > 0) {
+            try {
+                work.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                // Only close stops the flusher, waiting threads still need to be released.
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Force the journal without holding the lock, so more records can be appended and queued for the next batch.
+     * <p>
+     * If the journal can't be forced, nothing more can be made durable, so the group commit closes and every waiting
+     * thread is released with the failure.
+     */
+    private void flush() {
+        lock.unlock();
+        long position;
+        try {
+            position = forceTime.record(journal::force);
+        } catch (RuntimeException e) {
+            lock.lock();
+            failure = e;
+            closed = true;
+            flushed.signalAll();
+            return;
+        }
+        lock.lock();
+        int sends = 0;
+        while (!waiting.isEmpty() && waiting.peek() <= position) {
+            waiting.poll();
+            sends++;
+        }
+        if (position > durable) {
+            batchSends.record(sends);
+            batchSize.record(position - durable);
+            durable = position;
+        }
+        flushed.signalAll();
+    }
+}
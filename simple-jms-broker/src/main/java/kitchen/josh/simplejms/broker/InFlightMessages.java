@@ -0,0 +1,162 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The messages delivered to a consumer that it hasn't acknowledged yet, in the order they were delivered.
+ * <p>
+ * Every delivery is given the next sequence number, and the messages are held in a ring buffer indexed by sequence
+ * number, with a map from message id to sequence number, and a parallel ring of how many times each has been
+ * delivered. Adding a message, looking a message up by id or sequence
+ * number, and acknowledging the oldest k messages are O(1), O(1) and O(k), with no copying of the other messages.
+ * <p>
+ * This class is not thread-safe, callers are responsible for guarding access to it.
+ */
+class InFlightMessages {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Long> sequences;
+    private Message[] ring;
+    private int[] deliveryCounts;
+    private long firstSequence;
+    private long endSequence;
+
+    InFlightMessages() {
+        sequences = new HashMap<>();
+        ring = new Message[INITIAL_CAPACITY];
+        deliveryCounts = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a newly delivered message.
+     *
+     * @param message the message delivered
+     * @return the sequence number of the delivery
+     */
+    long add(Message message) {
+        if (size() == ring.length) {
+            grow();
+        }
+        ring[index(endSequence)] = message;
+        deliveryCounts[index(endSequence)] = 1;
+        sequences.put(message.getId(), endSequence);
+        return endSequence++;
+    }
+
+    /**
+     * Get the delivery of an in-flight message.
+     *
+     * @param sequence the sequence number of the delivery
+     * @return the message, with how many times it has been delivered
+     * @throws IndexOutOfBoundsException if the message isn't in flight
+     */
+    Delivery getDelivery(long sequence) {
+        Message message = get(sequence);
+        return new Delivery(message, deliveryCounts[index(sequence)]);
+    }
+
+    /**
+     * Deliver an in-flight message again, keeping its sequence number.
+     *
+     * @param sequence the sequence number of the delivery
+     * @return the message, with how many times it has now been delivered
+     * @throws IndexOutOfBoundsException if the message isn't in flight
+     */
+    Delivery redeliver(long sequence) {
+        Message message = get(sequence);
+        return new Delivery(message, ++deliveryCounts[index(sequence)]);
+    }
+
+    /**
+     * Get an in-flight message.
+     *
+     * @param sequence the sequence number of the delivery
+     * @return the message
+     * @throws IndexOutOfBoundsException if the message isn't in flight
+     */
+    Message get(long sequence) {
+        if (sequence < firstSequence || sequence >= endSequence) {
+            throw new IndexOutOfBoundsException("Sequence " + sequence + " not in [" + firstSequence + ", " + endSequence + ")");
+        }
+        return ring[index(sequence)];
+    }
+
+    /**
+     * Find the sequence number of an in-flight message.
+     *
+     * @param messageId the id of the message
+     * @return the sequence number of the delivery, or <code>-1</code> if the message isn't in flight
+     */
+    long find(String messageId) {
+        Long sequence = sequences.get(messageId);
+        return sequence == null ? -1 : sequence;
+    }
+
+    /**
+     * Remove every message up to and including a sequence number, oldest first.
+     * <p>
+     * Each message is only removed once <code>acknowledged</code> has returned, so if it throws, that message and the
+     * ones after it are left in flight.
+     *
+     * @param sequence     the sequence number of the last message to remove
+     * @param acknowledged called with each message before it is removed
+     */
+    void acknowledgeUpTo(long sequence, Consumer<Message> acknowledged) {
+        for (; firstSequence <= sequence && firstSequence < endSequence; firstSequence++) {
+            int index = index(firstSequence);
+            Message message = ring[index];
+            acknowledged.accept(message);
+            ring[index] = null;
+            sequences.remove(message.getId());
+        }
+    }
+
+    /**
+     * Remove every message, oldest first, without acknowledging them.
+     *
+     * @return the messages removed
+     */
+    List<Message> removeAll() {
+        List<Message> removed = new ArrayList<>(size());
+        acknowledgeUpTo(endSequence - 1, removed::add);
+        return removed;
+    }
+
+    long getFirstSequence() {
+        return firstSequence;
+    }
+
+    long getEndSequence() {
+        return endSequence;
+    }
+
+    int size() {
+        return (int) (endSequence - firstSequence);
+    }
+
+    boolean isEmpty() {
+        return firstSequence == endSequence;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence & (ring.length - 1));
+    }
+
+    private void grow() {
+        Message[] grown = new Message[ring.length * 2];
+        int[] grownCounts = new int[grown.length];
+        for (long sequence = firstSequence; sequence < endSequence; sequence++) {
+            grown[(int) (sequence & (grown.length - 1))] = ring[index(sequence)];
+            grownCounts[(int) (sequence & (grown.length - 1))] = deliveryCounts[index(sequence)];
+        }
+        ring = grown;
+        deliveryCounts = grownCounts;
+    }
+}
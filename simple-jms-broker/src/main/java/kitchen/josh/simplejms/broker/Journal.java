@@ -0,0 +1,238 @@
+package kitchen.josh.simplejms.broker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A segmented, append-only journal of records on disk.
+ * <p>
+ * Each segment is a pre-allocated file that is memory-mapped and written sequentially, so appending a record is a copy
+ * into the page cache rather than a system call. A record is written as its length, its type and its payload, and the
+ * length is written last, so a record that was interrupted part way through reads back as the end of the segment.
+ * <p>
+ * Records are only ever appended to a new segment, the segments found when the journal is opened are read-only and
+ * can only be replayed or deleted.
+ * <p>
+ * This class is thread-safe.
+ */
+class Journal implements Closeable {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final NavigableSet<Long> segments;
+    private long currentIndex;
+    private long position;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Open the journal in a directory, creating the directory if it doesn't exist.
+     *
+     * @param directory   the directory holding the segments
+     * @param segmentSize the size in bytes of each new segment
+     * @throws IOException if the directory can't be read
+     */
+    Journal(Path directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be larger than " + HEADER_SIZE + " bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.segments = findSegments(directory);
+        this.currentIndex = segments.isEmpty() ? -1 : segments.last();
+    }
+
+    /**
+     * Read every record in the journal, oldest first.
+     *
+     * @param handler the handler called for each record
+     * @throws IOException if a segment can't be read
+     */
+    synchronized void replay(RecordHandler handler) throws IOException {
+        for (long index : segments) {
+            if (index == currentIndex && buffer != null) {
+                replay(index, written(buffer), handler);
+            } else {
+                try (FileChannel segment = FileChannel.open(segmentPath(index), READ)) {
+                    replay(index, segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size()), handler);
+                }
+            }
+        }
+    }
+
+    /**
+     * Append a record to the end of the journal, starting a new segment if the current one is full.
+     *
+     * @param type    the type of the record
+     * @param payload the content of the record
+     * @return the index of the segment the record was written to
+     * @throws UncheckedIOException if a new segment can't be created
+     */
+    synchronized long append(byte type, byte[] payload) {
+        int recordSize = HEADER_SIZE + payload.length;
+        if (buffer == null || buffer.remaining() < recordSize) {
+            startSegment(recordSize);
+        }
+        int start = buffer.position();
+        ((Buffer) buffer).position(start + Integer.BYTES);
+        buffer.put(type);
+        buffer.put(payload);
+        buffer.putInt(start, Byte.BYTES + payload.length);
+        position += recordSize;
+        return currentIndex;
+    }
+
+    /**
+     * Force everything appended so far out to the storage device.
+     * <p>
+     * Appending isn't blocked while the journal is being forced, and records appended in the meantime may or may not
+     * be forced with it. A segment is always forced before a new one is started.
+     *
+     * @return the position of the journal that is now durable
+     */
+    long force() {
+        MappedByteBuffer unforced;
+        long forced;
+        synchronized (this) {
+            unforced = buffer;
+            forced = position;
+        }
+        if (unforced != null) {
+            unforced.force();
+        }
+        return forced;
+    }
+
+    /**
+     * Get the number of bytes appended to the journal since it was opened.
+     *
+     * @return the position just after the last record appended
+     */
+    synchronized long getPosition() {
+        return position;
+    }
+
+    /**
+     * Delete a segment that is no longer needed.
+     *
+     * @param index the index of the segment
+     * @throws IllegalArgumentException if the segment is the one being appended to
+     * @throws UncheckedIOException     if the segment can't be deleted
+     */
+    synchronized void delete(long index) {
+        if (index == currentIndex && buffer != null) {
+            throw new IllegalArgumentException("Cannot delete segment " + index + " while it is being appended to");
+        }
+        try {
+            Files.deleteIfExists(segmentPath(index));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.remove(index);
+    }
+
+    /**
+     * Get the index of the segment records are being appended to.
+     *
+     * @return the index of the current segment, or <code>-1</code> if nothing has been written
+     */
+    synchronized long getCurrentIndex() {
+        return buffer == null ? -1 : currentIndex;
+    }
+
+    synchronized NavigableSet<Long> getSegments() {
+        return new TreeSet<>(segments);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+            channel.close();
+        }
+    }
+
+    private void startSegment(int recordSize) {
+        try {
+            close();
+            long index = currentIndex + 1;
+            channel = FileChannel.open(segmentPath(index), CREATE_NEW, READ, WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, recordSize));
+            currentIndex = index;
+            segments.add(index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static void replay(long index, ByteBuffer segment, RecordHandler handler) {
+        while (segment.remaining() >= HEADER_SIZE) {
+            int length = segment.getInt();
+            if (length <= 0 || length > segment.remaining()) {
+                // The unwritten tail of the segment, or a record that was never completed.
+                return;
+            }
+            byte type = segment.get();
+            ByteBuffer payload = segment.slice();
+            ((Buffer) payload).limit(length - Byte.BYTES);
+            handler.handle(index, type, payload);
+            ((Buffer) segment).position(segment.position() + length - Byte.BYTES);
+        }
+    }
+
+    /**
+     * A view of the part of a segment that has been written so far.
+     */
+    private static ByteBuffer written(ByteBuffer segment) {
+        ByteBuffer written = segment.duplicate();
+        ((Buffer) written).flip();
+        return written;
+    }
+
+    private static NavigableSet<Long> findSegments(Path directory) throws IOException {
+        NavigableSet<Long> segments = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * A callback for reading the records of the journal.
+     */
+    @FunctionalInterface
+    interface RecordHandler {
+
+        /**
+         * Handle a single record.
+         *
+         * @param segment the index of the segment holding the record
+         * @param type    the type of the record
+         * @param payload the content of the record, only valid for the duration of the call
+         */
+        void handle(long segment, byte type, ByteBuffer payload);
+    }
+}
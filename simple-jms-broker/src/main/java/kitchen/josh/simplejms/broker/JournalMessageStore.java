@@ -0,0 +1,260 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageFactory;
+import kitchen.josh.simplejms.common.message.MessageModel;
+import kitchen.josh.simplejms.common.message.MessageModelFactory;
+
+import javax.jms.MessageFormatException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A message store that writes the broker's queues to journals on disk.
+ * <p>
+ * Queues are recorded in a small journal of their own that is never cleaned up. Messages are recorded in a second
+ * journal as they are sent, and acknowledgements are recorded there as tombstones. Every segment of the message
+ * journal keeps a count of the messages in it that haven't been acknowledged, and once the oldest segments have no
+ * live messages left they are deleted.
+ * <p>
+ * Storing a message only returns once the message is durable. Concurrent sends are flushed to disk together by a
+ * {@link GroupCommit}, while acknowledgements are made durable by whichever flush comes next, since losing one only
+ * means a message is delivered again.
+ * <p>
+ * The journals are replayed when the store is opened, and the unacknowledged messages are kept until the broker asks
+ * to {@link #recover()} them.
+ */
+public class JournalMessageStore implements MessageStore, Closeable {
+
+    static final String QUEUES_DIRECTORY = "queues";
+    static final String MESSAGES_DIRECTORY = "messages";
+
+    private static final int QUEUE_SEGMENT_SIZE = 64 * 1024;
+    private static final byte QUEUE = 1;
+    private static final byte MESSAGE = 2;
+    private static final byte ACKNOWLEDGEMENT = 3;
+
+    private final MessageModelFactory messageModelFactory;
+    private final ObjectMapper objectMapper;
+    private final Journal queues;
+    private final Journal messages;
+    private final GroupCommit groupCommit;
+    private final Map<String, Long> messageSegments;
+    private final NavigableMap<Long, Integer> liveMessages;
+    private final Map<UUID, List<Message>> recovered;
+
+    /**
+     * Open the store, replaying any journals already in the directory.
+     *
+     * @param properties          the location and settings of the journals
+     * @param meterRegistry       the registry to record the group commit metrics in
+     * @param messageModelFactory the factory used to serialize messages
+     * @param messageFactory      the factory used to deserialize recovered messages
+     * @param objectMapper        the mapper used to serialize messages
+     * @throws IOException if the journals can't be read
+     */
+    public JournalMessageStore(JournalProperties properties, MeterRegistry meterRegistry,
+                               MessageModelFactory messageModelFactory, MessageFactory messageFactory,
+                               ObjectMapper objectMapper) throws IOException {
+        Path directory = Paths.get(properties.getDirectory());
+        this.messageModelFactory = messageModelFactory;
+        this.objectMapper = objectMapper;
+        this.queues = new Journal(directory.resolve(QUEUES_DIRECTORY), QUEUE_SEGMENT_SIZE);
+        this.messages = new Journal(directory.resolve(MESSAGES_DIRECTORY), properties.getSegmentSize());
+        this.messageSegments = new HashMap<>();
+        this.liveMessages = new TreeMap<>();
+        this.recovered = replay(messageFactory);
+        releaseAcknowledgedSegments();
+        this.groupCommit = new GroupCommit(messages, properties.getFlushInterval(), properties.getFlushBytes(), meterRegistry);
+    }
+
+    @Override
+    public void addQueue(UUID queueId) {
+        queues.append(QUEUE, writeUuid(ByteBuffer.allocate(2 * Long.BYTES), queueId).array());
+        queues.force();
+    }
+
+    @Override
+    public void addMessage(UUID queueId, Message message) {
+        byte[] payload = createPayload(queueId, message);
+        long position;
+        synchronized (this) {
+            position = appendMessage(message, payload);
+        }
+        groupCommit.awaitDurable(position);
+    }
+
+    /**
+     * The batch is serialized before taking the lock, and appended as one run of records that is only waited on once.
+     */
+    @Override
+    public void addMessages(UUID queueId, List<Message> batch) {
+        List<byte[]> payloads = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            payloads.add(createPayload(queueId, message));
+        }
+        long position;
+        synchronized (this) {
+            position = messages.getPosition();
+            for (int i = 0; i < batch.size(); i++) {
+                position = appendMessage(batch.get(i), payloads.get(i));
+            }
+        }
+        groupCommit.awaitDurable(position);
+    }
+
+    @Override
+    public synchronized void acknowledgeMessage(String messageId) {
+        Long messageSegment = messageSegments.remove(messageId);
+        if (messageSegment == null) {
+            return;
+        }
+        long segment = messages.append(ACKNOWLEDGEMENT, messageId.getBytes(UTF_8));
+        liveMessages.putIfAbsent(segment, 0);
+        liveMessages.merge(messageSegment, -1, Integer::sum);
+        releaseAcknowledgedSegments();
+    }
+
+    @Override
+    public synchronized Map<UUID, List<Message>> recover() {
+        Map<UUID, List<Message>> recoveredQueues = new LinkedHashMap<>(recovered);
+        recovered.clear();
+        return recoveredQueues;
+    }
+
+    @Override
+    public void close() throws IOException {
+        groupCommit.close();
+        try {
+            queues.close();
+        } finally {
+            messages.close();
+        }
+    }
+
+    Journal getMessages() {
+        return messages;
+    }
+
+    GroupCommit getGroupCommit() {
+        return groupCommit;
+    }
+
+    synchronized NavigableMap<Long, Integer> getLiveMessages() {
+        return new TreeMap<>(liveMessages);
+    }
+
+    private byte[] createPayload(UUID queueId, Message message) {
+        byte[] id = message.getId().getBytes(UTF_8);
+        byte[] model = serialize(message);
+        ByteBuffer payload = ByteBuffer.allocate(2 * Long.BYTES + Short.BYTES + id.length + model.length);
+        return writeUuid(payload, queueId).putShort((short) id.length).put(id).put(model).array();
+    }
+
+    /**
+     * @return the position in the journal just after the message
+     */
+    private long appendMessage(Message message, byte[] payload) {
+        long segment = messages.append(MESSAGE, payload);
+        messageSegments.put(message.getId(), segment);
+        liveMessages.merge(segment, 1, Integer::sum);
+        return messages.getPosition();
+    }
+
+    private Map<UUID, List<Message>> replay(MessageFactory messageFactory) throws IOException {
+        Map<UUID, List<Message>> queueMessages = new LinkedHashMap<>();
+        queues.replay((segment, type, payload) -> queueMessages.put(readUuid(payload), new ArrayList<>()));
+
+        Map<String, StoredMessage> unacknowledged = new LinkedHashMap<>();
+        messages.getSegments().forEach(segment -> liveMessages.put(segment, 0));
+        messages.replay((segment, type, payload) -> {
+            if (type == MESSAGE) {
+                UUID queueId = readUuid(payload);
+                String id = readString(payload, payload.getShort());
+                unacknowledged.put(id, new StoredMessage(queueId, segment, readString(payload, payload.remaining())));
+            } else if (type == ACKNOWLEDGEMENT) {
+                unacknowledged.remove(readString(payload, payload.remaining()));
+            }
+        });
+
+        for (Map.Entry<String, StoredMessage> entry : unacknowledged.entrySet()) {
+            StoredMessage stored = entry.getValue();
+            queueMessages.computeIfAbsent(stored.queueId, id -> new ArrayList<>())
+                    .add(deserialize(messageFactory, entry.getKey(), stored.model));
+            messageSegments.put(entry.getKey(), stored.segment);
+            liveMessages.merge(stored.segment, 1, Integer::sum);
+        }
+        return queueMessages;
+    }
+
+    /**
+     * Delete the oldest segments of the message journal for as long as they have no unacknowledged messages.
+     */
+    private void releaseAcknowledgedSegments() {
+        long current = messages.getCurrentIndex();
+        Iterator<Map.Entry<Long, Integer>> segments = liveMessages.entrySet().iterator();
+        while (segments.hasNext()) {
+            Map.Entry<Long, Integer> segment = segments.next();
+            if (segment.getKey() == current || segment.getValue() > 0) {
+                return;
+            }
+            messages.delete(segment.getKey());
+            segments.remove();
+        }
+    }
+
+    private byte[] serialize(Message message) {
+        try {
+            return objectMapper.writeValueAsBytes(messageModelFactory.create(message));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Message deserialize(MessageFactory messageFactory, String id, String model) throws IOException {
+        try {
+            return messageFactory.create(objectMapper.readValue(model, MessageModel.class));
+        } catch (MessageFormatException e) {
+            throw new IOException("Message " + id + " in the journal is corrupt", e);
+        }
+    }
+
+    private static ByteBuffer writeUuid(ByteBuffer buffer, UUID uuid) {
+        return buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * An unacknowledged message found while replaying the journal.
+     */
+    private static final class StoredMessage {
+
+        private final UUID queueId;
+        private final long segment;
+        private final String model;
+
+        private StoredMessage(UUID queueId, long segment, String model) {
+            this.queueId = queueId;
+            this.segment = segment;
+            this.model = model;
+        }
+    }
+}
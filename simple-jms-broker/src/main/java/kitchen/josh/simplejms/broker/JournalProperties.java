@@ -0,0 +1,76 @@
+package kitchen.josh.simplejms.broker;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The settings of the broker's journal, bound from the <code>simplejms.journal</code> properties.
+ */
+@ConfigurationProperties("simplejms.journal")
+public class JournalProperties {
+
+    /**
+     * Whether queues and their messages are written to a journal on disk.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The directory holding the journal.
+     */
+    private String directory = "journal";
+
+    /**
+     * The size in bytes of each segment of the journal.
+     */
+    private int segmentSize = 64 * 1024 * 1024;
+
+    /**
+     * The longest time in microseconds a send waits for other sends to be flushed with it. At <code>0</code> the
+     * journal is flushed as soon as the previous flush completes, batching the sends that arrived in the meantime.
+     */
+    private long flushInterval = 0;
+
+    /**
+     * The number of bytes waiting to be flushed that causes a flush without waiting for the flush interval.
+     */
+    private long flushBytes = 256 * 1024;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public long getFlushBytes() {
+        return flushBytes;
+    }
+
+    public void setFlushBytes(long flushBytes) {
+        this.flushBytes = flushBytes;
+    }
+}
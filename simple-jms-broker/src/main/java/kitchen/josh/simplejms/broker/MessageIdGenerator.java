@@ -0,0 +1,98 @@
+package kitchen.josh.simplejms.broker;
+
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the ids of the messages sent to the broker.
+ * <p>
+ * An id has the form <code>ID:&lt;node&gt;-&lt;time&gt;-&lt;stripe&gt;-&lt;sequence&gt;</code>, all in hex. The node
+ * is chosen at random once per generator, so ids from different brokers, or from before a restart, never collide.
+ * Every thread that generates ids is given its own stripe with its own sequence, so generating an id needs no lock
+ * and no shared counter, and the fixed width time in milliseconds keeps ids roughly ordered by the time they were
+ * generated.
+ * <p>
+ * This class is thread-safe.
+ */
+@Component
+public class MessageIdGenerator {
+
+    private static final String PREFIX = "ID:";
+    private static final int NODE_DIGITS = 12;
+    private static final int TIME_DIGITS = 11;
+
+    private final String node;
+    private final AtomicInteger stripes;
+    private final ThreadLocal<Stripe> stripe;
+
+    public MessageIdGenerator() {
+        this(new SecureRandom().nextLong() & 0xFFFFFFFFFFFFL);
+    }
+
+    MessageIdGenerator(long node) {
+        this.node = PREFIX + pad(Long.toHexString(node), NODE_DIGITS) + "-";
+        this.stripes = new AtomicInteger();
+        this.stripe = ThreadLocal.withInitial(() -> new Stripe(this.node, stripes.getAndIncrement()));
+    }
+
+    /**
+     * Generate the id for a message.
+     *
+     * @return a unique, JMS compliant, message id
+     */
+    public String nextId() {
+        return stripe.get().nextId();
+    }
+
+    private static String pad(String hex, int digits) {
+        StringBuilder padded = new StringBuilder(digits);
+        for (int i = hex.length(); i < digits; i++) {
+            padded.append('0');
+        }
+        return padded.append(hex).toString();
+    }
+
+    /**
+     * The sequence of ids generated by a single thread.
+     * <p>
+     * Each id is written into a buffer that already holds the node and stripe, so only the final string is allocated.
+     */
+    private static final class Stripe {
+
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+        private static final int SEQUENCE_DIGITS = 16;
+
+        private final char[] buffer;
+        private final int timeStart;
+        private final int sequenceStart;
+        private long sequence;
+
+        private Stripe(String node, int id) {
+            String stripe = Integer.toHexString(id);
+            timeStart = node.length();
+            sequenceStart = timeStart + TIME_DIGITS + 1 + stripe.length() + 1;
+            buffer = new char[sequenceStart + SEQUENCE_DIGITS];
+            node.getChars(0, node.length(), buffer, 0);
+            buffer[timeStart + TIME_DIGITS] = '-';
+            stripe.getChars(0, stripe.length(), buffer, timeStart + TIME_DIGITS + 1);
+            buffer[sequenceStart - 1] = '-';
+        }
+
+        private String nextId() {
+            writeHex(System.currentTimeMillis(), timeStart, TIME_DIGITS);
+            long next = sequence++;
+            int digits = Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(next) + 3) / 4);
+            writeHex(next, sequenceStart, digits);
+            return new String(buffer, 0, sequenceStart + digits);
+        }
+
+        private void writeHex(long value, int start, int digits) {
+            for (int i = start + digits - 1; i >= start; i--) {
+                buffer[i] = HEX_DIGITS[(int) (value & 0xF)];
+                value >>>= 4;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An in-memory, append-only log of messages, addressed by a monotonically increasing offset.
+ * <p>
+ * The log is stored as a list of fixed size segments, so appending is O(1) and a whole segment can be released once
+ * every reader has moved past it.
+ * <p>
+ * This class is not thread-safe, callers are responsible for guarding access to it.
+ */
+class MessageLog {
+
+    static final int DEFAULT_SEGMENT_SIZE = 1024;
+
+    private final int segmentSize;
+    private final List<Message[]> segments;
+    private long startOffset;
+    private long endOffset;
+
+    MessageLog() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    MessageLog(int segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segment size must be positive");
+        }
+        this.segmentSize = segmentSize;
+        this.segments = new ArrayList<>();
+    }
+
+    /**
+     * Append a message to the end of the log.
+     *
+     * @param message the message to append
+     * @return the offset of the appended message
+     */
+    long append(Message message) {
+        int index = (int) (endOffset - startOffset);
+        if (index / segmentSize == segments.size()) {
+            segments.add(new Message[segmentSize]);
+        }
+        segments.get(index / segmentSize)[index % segmentSize] = message;
+        return endOffset++;
+    }
+
+    /**
+     * Get the message at an offset.
+     *
+     * @param offset the offset of the message
+     * @return the message at the offset
+     * @throws IndexOutOfBoundsException if the offset has been released or not yet written
+     */
+    Message get(long offset) {
+        if (offset < startOffset || offset >= endOffset) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " not in [" + startOffset + ", " + endOffset + ")");
+        }
+        int index = (int) (offset - startOffset);
+        return segments.get(index / segmentSize)[index % segmentSize];
+    }
+
+    /**
+     * Release every whole segment that lies entirely before an offset.
+     *
+     * @param offset the lowest offset that must still be readable
+     */
+    void releaseBefore(long offset) {
+        long limit = Math.min(offset, endOffset);
+        int released = (int) ((limit - startOffset) / segmentSize);
+        if (released > 0) {
+            segments.subList(0, released).clear();
+            startOffset += (long) released * segmentSize;
+        }
+    }
+
+    /**
+     * Whether appending the next message will need to allocate a new segment.
+     *
+     * @return <code>true</code> if the next append starts a new segment
+     */
+    boolean isAtSegmentBoundary() {
+        return (endOffset - startOffset) % segmentSize == 0;
+    }
+
+    long getStartOffset() {
+        return startOffset;
+    }
+
+    long getEndOffset() {
+        return endOffset;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+}
@@ -0,0 +1,54 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Storage for the state of the broker's queues that must survive a restart.
+ */
+public interface MessageStore {
+
+    /**
+     * Record that a queue has been created.
+     *
+     * @param queueId the id of the queue
+     */
+    void addQueue(UUID queueId);
+
+    /**
+     * Record a message that has been sent to a queue, before it can be delivered.
+     *
+     * @param queueId the id of the queue
+     * @param message the message, with its id already assigned
+     */
+    void addMessage(UUID queueId, Message message);
+
+    /**
+     * Record a batch of messages that have been sent to a queue together, in order, before any of them can be
+     * delivered.
+     *
+     * @param queueId the id of the queue
+     * @param batch   the messages, with their ids already assigned
+     */
+    void addMessages(UUID queueId, List<Message> batch);
+
+    /**
+     * Record that a message has been acknowledged, so it will never need to be delivered again.
+     *
+     * @param messageId the id of the message
+     */
+    void acknowledgeMessage(String messageId);
+
+    /**
+     * Read back the queues and unacknowledged messages that were stored before the broker was last stopped.
+     * <p>
+     * Each producer's messages are recovered in the order it sent them, but messages sent by different producers at
+     * the same time are recovered in the order they were stored, which may differ from the order they were queued in.
+     *
+     * @return the unacknowledged messages of every queue in the order they were stored, including empty queues
+     */
+    Map<UUID, List<Message>> recover();
+}
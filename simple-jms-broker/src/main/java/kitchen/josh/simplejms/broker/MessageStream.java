@@ -0,0 +1,223 @@
+package kitchen.josh.simplejms.broker;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pushes the messages a consumer receives down a single long-lived response, as they are sent to its destination.
+ * <p>
+ * The stream is flow controlled by credit: the client grants credit for the number of messages it is ready to be sent,
+ * and each message pushed uses one credit. Once the credit is used up, the stream stops receiving messages, leaving
+ * them on the destination for other consumers, until the client grants more.
+ * <p>
+ * While the stream has credit but nothing to push, it is parked on the destination with a {@link PendingReceive}, so
+ * the next message is received by the thread that sends it. That thread only queues the message for the stream, and
+ * the messages are written to the sink in order by a task on the stream's executor, so a slow client never holds up a
+ * producer, or the other subscribers of a topic.
+ * <p>
+ * This class is thread-safe.
+ */
+class MessageStream implements Closeable {
+
+    private final SingleConsumerService consumerService;
+    private final Sink sink;
+    private final Executor executor;
+    private final Queue<Delivery> outbox;
+    private long credit;
+    private PendingReceive pendingReceive;
+    private boolean pumping;
+    private boolean received;
+    private boolean closed;
+    private boolean writing;
+    private Runnable end;
+
+    /**
+     * @param consumerService the consumer whose messages are pushed
+     * @param sink            where to push the messages
+     * @param executor        runs the writes to the sink, one at a time for the stream
+     */
+    MessageStream(SingleConsumerService consumerService, Sink sink, Executor executor) {
+        this.consumerService = consumerService;
+        this.sink = sink;
+        this.executor = executor;
+        this.outbox = new ArrayDeque<>();
+    }
+
+    /**
+     * Allow the stream to push more messages, pushing any that can be received straight away.
+     *
+     * @param credit the number of further messages the client is ready for
+     * @throws IllegalArgumentException if the credit isn't positive
+     */
+    synchronized void addCredit(int credit) {
+        if (credit <= 0) {
+            throw new IllegalArgumentException("Credit must be positive: " + credit);
+        }
+        this.credit += credit;
+        pump();
+    }
+
+    /**
+     * Stop pushing messages and end the response, once any write already under way has finished.
+     * <p>
+     * A message received for the stream but not yet written stays unacknowledged, to be redelivered on recovery.
+     */
+    @Override
+    public void close() {
+        PendingReceive parked;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            parked = pendingReceive;
+            pendingReceive = null;
+            end(sink::complete);
+        }
+        // Cancelled outside the lock, a thread completing the receive holds its lock while it pushes to this stream.
+        if (parked != null) {
+            parked.cancel();
+        }
+        endIfIdle();
+    }
+
+    synchronized long getCredit() {
+        return credit;
+    }
+
+    synchronized boolean isParked() {
+        return pendingReceive != null;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Receive and push messages until the credit runs out or there is nothing left to receive.
+     * <p>
+     * A receive can complete on the calling thread, calling back into {@link #push(Delivery)}, so pushing only pumps
+     * again when it is called by a woken receive.
+     */
+    private void pump() {
+        if (pumping) {
+            return;
+        }
+        pumping = true;
+        try {
+            while (!closed && credit > 0 && pendingReceive == null) {
+                received = false;
+                PendingReceive receive = consumerService.receiveWhenAvailable(this::push, this::fail);
+                if (!received && !closed) {
+                    pendingReceive = receive;
+                }
+            }
+        } finally {
+            pumping = false;
+        }
+    }
+
+    /**
+     * Queue a received message to be written, starting a write task if there isn't one already.
+     */
+    private synchronized void push(Delivery delivery) {
+        received = true;
+        pendingReceive = null;
+        if (closed) {
+            return;
+        }
+        credit--;
+        outbox.add(delivery);
+        if (!writing) {
+            writing = true;
+            try {
+                executor.execute(this::write);
+            } catch (RejectedExecutionException e) {
+                writing = false;
+                end(() -> sink.fail(e));
+                endIfIdle();
+                return;
+            }
+        }
+        pump();
+    }
+
+    private void fail(RuntimeException exception) {
+        synchronized (this) {
+            received = true;
+            pendingReceive = null;
+            if (closed) {
+                return;
+            }
+            end(() -> sink.fail(exception));
+        }
+        endIfIdle();
+    }
+
+    /**
+     * Write the queued messages to the sink in order, outside the lock, until there are none left or the stream closes.
+     */
+    private void write() {
+        while (true) {
+            Delivery delivery;
+            synchronized (this) {
+                delivery = closed ? null : outbox.poll();
+                if (delivery == null) {
+                    writing = false;
+                    break;
+                }
+            }
+            try {
+                sink.send(delivery);
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    writing = false;
+                    if (!closed) {
+                        end(() -> sink.fail(e));
+                    }
+                }
+                break;
+            }
+        }
+        endIfIdle();
+    }
+
+    /**
+     * Close the stream, leaving the response to be ended once no write is under way.
+     */
+    private void end(Runnable end) {
+        closed = true;
+        outbox.clear();
+        this.end = end;
+    }
+
+    /**
+     * End the response of a closed stream, unless a write is under way, which ends it once it has finished.
+     */
+    private void endIfIdle() {
+        Runnable ending;
+        synchronized (this) {
+            if (writing || end == null) {
+                return;
+            }
+            ending = end;
+            end = null;
+        }
+        ending.run();
+    }
+
+    /**
+     * Where a stream pushes its messages, such as the response to a client.
+     */
+    interface Sink {
+
+        void send(Delivery delivery) throws IOException;
+
+        void complete();
+
+        void fail(Exception exception);
+    }
+}
@@ -0,0 +1,70 @@
+package kitchen.josh.simplejms.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The receivers parked on a destination, waiting for a message to be sent to it.
+ * <p>
+ * Waiters are woken by the thread sending the message, so a parked receive costs nothing until there is something to
+ * receive. A waiter is removed when it is woken, so it must add itself again if it still has nothing to receive.
+ * <p>
+ * This class is thread-safe.
+ */
+class MessageWaiters {
+
+    private final Queue<Waiter> waiters;
+
+    MessageWaiters() {
+        waiters = new ConcurrentLinkedQueue<>();
+    }
+
+    void add(Waiter waiter) {
+        waiters.add(waiter);
+    }
+
+    void remove(Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    /**
+     * Wake the longest waiting receiver that is still waiting, for a message only one consumer can receive.
+     */
+    void wakeOne() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.wake()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Wake every waiting receiver, for a message every consumer can receive.
+     */
+    void wakeAll() {
+        List<Waiter> woken = new ArrayList<>();
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            woken.add(waiter);
+        }
+        woken.forEach(Waiter::wake);
+    }
+
+    int size() {
+        return waiters.size();
+    }
+
+    @FunctionalInterface
+    interface Waiter {
+
+        /**
+         * Called when a message has been sent to the destination.
+         *
+         * @return <code>true</code> if the waiter was still waiting, <code>false</code> if it had already given up
+         */
+        boolean wake();
+    }
+}
@@ -0,0 +1,35 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A message store that stores nothing, for a broker whose queues only live as long as the broker does.
+ */
+public class NoOpMessageStore implements MessageStore {
+
+    @Override
+    public void addQueue(UUID queueId) {
+    }
+
+    @Override
+    public void addMessage(UUID queueId, Message message) {
+    }
+
+    @Override
+    public void addMessages(UUID queueId, List<Message> batch) {
+    }
+
+    @Override
+    public void acknowledgeMessage(String messageId) {
+    }
+
+    @Override
+    public Map<UUID, List<Message>> recover() {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,98 @@
+package kitchen.josh.simplejms.broker;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A receive parked on a destination until a message can be received or the receiver gives up.
+ * <p>
+ * The receive is completed at most once, either with a message, with an error, or by being cancelled. Receiving and
+ * cancelling are done under the same lock, so a message is never taken from the destination for a receiver that has
+ * already given up waiting for it.
+ */
+class PendingReceive implements MessageWaiters.Waiter {
+
+    private final SingleConsumerService consumerService;
+    private final SingleDestinationService destinationService;
+    private final Consumer<Delivery> received;
+    private final Consumer<RuntimeException> failed;
+    private boolean done;
+
+    PendingReceive(SingleConsumerService consumerService, SingleDestinationService destinationService,
+                   Consumer<Delivery> received, Consumer<RuntimeException> failed) {
+        this.consumerService = consumerService;
+        this.destinationService = destinationService;
+        this.received = received;
+        this.failed = failed;
+    }
+
+    /**
+     * Receive a message now if there is one, otherwise park on the destination until one is sent.
+     * <p>
+     * The receive is parked before trying the destination, so a message sent in between always wakes it.
+     */
+    synchronized void start() {
+        destinationService.addWaiter(this);
+        if (tryReceive() != Attempt.NOTHING_TO_RECEIVE) {
+            destinationService.removeWaiter(this);
+        }
+    }
+
+    /**
+     * Stop waiting for a message.
+     *
+     * @return <code>true</code> if the receive was cancelled, <code>false</code> if it had already completed
+     */
+    synchronized boolean cancel() {
+        if (done) {
+            return false;
+        }
+        done = true;
+        destinationService.removeWaiter(this);
+        return true;
+    }
+
+    /**
+     * Try to receive the message that was just sent, parking again if another consumer got to it first.
+     *
+     * @return <code>false</code> if the message is still there for another receiver to take
+     */
+    @Override
+    public synchronized boolean wake() {
+        if (done) {
+            return false;
+        }
+        switch (tryReceive()) {
+            case NOTHING_TO_RECEIVE:
+                destinationService.addWaiter(this);
+                return true;
+            case RECEIVED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Attempt tryReceive() {
+        Optional<Delivery> delivery;
+        try {
+            delivery = consumerService.receive();
+        } catch (RuntimeException e) {
+            done = true;
+            failed.accept(e);
+            return Attempt.FAILED;
+        }
+        if (!delivery.isPresent()) {
+            return Attempt.NOTHING_TO_RECEIVE;
+        }
+        done = true;
+        received.accept(delivery.get());
+        return Attempt.RECEIVED;
+    }
+
+    private enum Attempt {
+        RECEIVED,
+        NOTHING_TO_RECEIVE,
+        FAILED
+    }
+}
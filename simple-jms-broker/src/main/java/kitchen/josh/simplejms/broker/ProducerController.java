@@ -3,6 +3,7 @@ package kitchen.josh.simplejms.broker;
 import kitchen.josh.simplejms.common.DestinationModel;
 import kitchen.josh.simplejms.common.ErrorModel;
 import kitchen.josh.simplejms.common.IdModel;
+import kitchen.josh.simplejms.common.message.Message;
 import kitchen.josh.simplejms.common.message.MessageFactory;
 import kitchen.josh.simplejms.common.message.MessageModel;
 import org.springframework.http.HttpStatus;
@@ -10,6 +11,8 @@ import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.web.bind.annotation.*;
 
 import javax.jms.MessageFormatException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -18,6 +21,7 @@ public class ProducerController {
     private static final String FAILED_CREATE_PRODUCER = "Failed to create producer";
     private static final String FAILED_DELETE_PRODUCER = "Failed to delete producer";
     private static final String FAILED_SEND_MESSAGE = "Failed to send message";
+    private static final String FAILED_SEND_MESSAGES = "Failed to send messages";
 
     private static final String DESTINATION_DOES_NOT_EXIST = "the destination does not exist";
     private static final String PRODUCER_DOES_NOT_EXIST = "the producer does not exist";
@@ -74,6 +78,27 @@ public class ProducerController {
         }
     }
 
+    /**
+     * Send a batch of messages from a producer to a destination.
+     * <p>
+     * The messages are added to the destination atomically, in order.
+     *
+     * @param producerId the id of the producer
+     * @param messages   the messages to send to the destination
+     */
+    @PostMapping(path = "/producer/{producerId}/send-batch")
+    public void sendMessages(@PathVariable UUID producerId, @RequestBody List<MessageModel> messages) throws MessageFormatException {
+        List<Message> batch = new ArrayList<>(messages.size());
+        for (MessageModel message : messages) {
+            batch.add(messageFactory.create(message));
+        }
+        try {
+            producerService.sendMessages(producerId, batch);
+        } catch (ProducerDoesNotExistException e) {
+            throw createError(FAILED_SEND_MESSAGES, PRODUCER_DOES_NOT_EXIST);
+        }
+    }
+
     /**
      * Handle an {@link ApiException} by returning 400 and the exception's message.
      *
@@ -4,20 +4,18 @@ import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.message.Message;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
 
 @Component
 public class ProducerService {
 
     private final DestinationService destinationService;
-    private final Map<UUID, Destination> producers;
+    private final Registry<UUID, SingleDestinationService> producers;
 
     public ProducerService(DestinationService destinationService) {
         this.destinationService = destinationService;
-        this.producers = new HashMap<>();
+        this.producers = new Registry<>();
     }
 
     public UUID createProducer(Destination destination) {
@@ -25,7 +23,7 @@ public class ProducerService {
                 .orElseThrow(DestinationDoesNotExistException::new);
         UUID producerId = UUID.randomUUID();
         singleDestinationService.addProducer(producerId);
-        producers.put(producerId, destination);
+        producers.register(producerId, singleDestinationService);
         return producerId;
     }
 
@@ -33,14 +31,27 @@ public class ProducerService {
         findDestination(producerId).addMessage(producerId, message);
     }
 
+    /**
+     * Send a batch of messages, resolving the producer's destination once for the whole batch.
+     *
+     * @param producerId the id of the producer
+     * @param batch      the messages to send, in order
+     */
+    public void sendMessages(UUID producerId, List<Message> batch) {
+        findDestination(producerId).addMessages(producerId, batch);
+    }
+
     public void removeProducer(UUID producerId) {
-        findDestination(producerId).removeProducer(producerId);
-        producers.remove(producerId);
+        SingleDestinationService singleDestinationService = producers.remove(producerId)
+                .orElseThrow(ProducerDoesNotExistException::new);
+        singleDestinationService.removeProducer(producerId);
     }
 
+    /**
+     * The producer's destination is resolved when the producer is created, so sending only needs a single lookup.
+     */
     private SingleDestinationService findDestination(UUID producerId) {
-        return Optional.ofNullable(producers.get(producerId))
-                .flatMap(destinationService::findDestination)
+        return producers.find(producerId)
                 .orElseThrow(ProducerDoesNotExistException::new);
     }
 }
@@ -0,0 +1,69 @@
+package kitchen.josh.simplejms.broker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * A thread-safe registry of the broker's resources by id.
+ * <p>
+ * Lookups never lock, registration and removal only contend with writers to the same bin, so the registry can be used
+ * on the hot path of every request while other threads are creating and removing resources.
+ *
+ * @param <K> the type of the id
+ * @param <V> the type of the registered resource
+ */
+class Registry<K, V> {
+
+    private final ConcurrentMap<K, V> entries;
+
+    Registry() {
+        entries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Register a resource.
+     *
+     * @param key   the id of the resource
+     * @param value the resource
+     * @throws IllegalStateException if a resource is already registered with the id
+     */
+    void register(K key, V value) {
+        if (entries.putIfAbsent(key, value) != null) {
+            throw new IllegalStateException(key + " is already registered");
+        }
+    }
+
+    /**
+     * Find a registered resource.
+     *
+     * @param key the id of the resource
+     * @return the resource, or <code>Optional.empty()</code> if it isn't registered
+     */
+    Optional<V> find(K key) {
+        return Optional.ofNullable(entries.get(key));
+    }
+
+    /**
+     * Remove a registered resource.
+     *
+     * @param key the id of the resource
+     * @return the removed resource, or <code>Optional.empty()</code> if it wasn't registered
+     */
+    Optional<V> remove(K key) {
+        return Optional.ofNullable(entries.remove(key));
+    }
+
+    /**
+     * Take a point in time copy of the registry.
+     *
+     * @return an unmodifiable copy of the registered resources
+     */
+    Map<K, V> snapshot() {
+        return unmodifiableMap(new HashMap<>(entries));
+    }
+}
@@ -3,37 +3,132 @@ package kitchen.josh.simplejms.broker;
 import kitchen.josh.simplejms.common.message.Message;
 
 import java.io.Closeable;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 
+/**
+ * A consumer of a destination, tracking the messages it has received but not yet acknowledged.
+ * <p>
+ * This class is thread-safe, a parked receive is completed by whichever thread sends the next message.
+ */
 public class SingleConsumerService implements Closeable {
 
+    private static final AtomicReferenceFieldUpdater<SingleConsumerService, MessageStream> STREAM =
+            AtomicReferenceFieldUpdater.newUpdater(SingleConsumerService.class, MessageStream.class, "stream");
+
     private final UUID consumerId;
     private final SingleDestinationService destinationService;
+    private final InFlightMessages unacknowledged;
+
+    /**
+     * While recovering, the sequence number of the next unacknowledged message to redeliver, and the end of the
+     * messages that were unacknowledged when {@link #recover()} was called.
+     */
+    private long redeliverySequence;
+    private long redeliveryEnd;
 
-    private Queue<Message> unacknowledged;
-    private boolean inRecovery;
+    private volatile MessageStream stream;
 
     public SingleConsumerService(UUID consumerId, SingleDestinationService destinationService) {
         this.consumerId = consumerId;
         this.destinationService = destinationService;
-        this.unacknowledged = new LinkedList<>();
-        this.inRecovery = false;
+        this.unacknowledged = new InFlightMessages();
     }
 
     /**
      * Get the next message the consumer should receive.
      * <p>
      * If {@link SingleConsumerService#recover()} has been called, the message may be an old message that the consumer
-     * failed to acknowledge.
+     * failed to acknowledge, redelivered.
+     *
+     * @return the delivery of the next message, or <code>Optional.empty()</code> if the consumer has no further
+     * messages currently.
+     */
+    public synchronized Optional<Delivery> receive() {
+        redeliverySequence = Math.max(redeliverySequence, unacknowledged.getFirstSequence());
+        if (redeliverySequence < redeliveryEnd) {
+            return Optional.of(unacknowledged.redeliver(redeliverySequence++));
+        }
+        return destinationService.deliverMessage(consumerId).map(this::deliver);
+    }
+
+    /**
+     * Get up to <code>max</code> of the next messages the consumer should receive, in order.
+     * <p>
+     * Any messages being redelivered after {@link SingleConsumerService#recover()} come first, and every message
+     * received is unacknowledged until it, or a later message, is acknowledged.
      *
-     * @return the next message, or <code>Optional.empty()</code> if the consumer has no further messages currently.
+     * @param max the most messages to receive
+     * @return the deliveries of the next messages, empty if the consumer has no further messages currently
+     * @throws IllegalArgumentException if max isn't positive
      */
-    public Optional<Message> receive() {
-        checkInRecovery();
-        if (inRecovery) {
-            return nextUnacknowledged();
+    public synchronized List<Delivery> receive(int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Max must be positive: " + max);
+        }
+        redeliverySequence = Math.max(redeliverySequence, unacknowledged.getFirstSequence());
+        List<Delivery> received = new ArrayList<>();
+        while (redeliverySequence < redeliveryEnd && received.size() < max) {
+            received.add(unacknowledged.redeliver(redeliverySequence++));
         }
-        return nextDelivered();
+        if (received.size() < max) {
+            for (Message message : destinationService.deliverMessages(consumerId, max - received.size())) {
+                received.add(deliver(message));
+            }
+        }
+        return received;
+    }
+
+    /**
+     * Receive the next message as soon as there is one, without blocking the calling thread.
+     * <p>
+     * If there isn't a message yet, the receive is parked on the destination and completed by the thread that sends
+     * the next message.
+     *
+     * @param received called with the delivery once the message has been received
+     * @param failed   called with the exception if the message can't be received, e.g. the consumer has been removed
+     * @return the pending receive, to cancel once the caller stops waiting
+     */
+    public PendingReceive receiveWhenAvailable(Consumer<Delivery> received, Consumer<RuntimeException> failed) {
+        PendingReceive pendingReceive = new PendingReceive(this, destinationService, received, failed);
+        pendingReceive.start();
+        return pendingReceive;
+    }
+
+    /**
+     * Start pushing the messages this consumer receives to a sink, replacing any stream that is already open.
+     * <p>
+     * The stream pushes nothing until it is given credit.
+     *
+     * @param sink     where to push the messages
+     * @param executor runs the writes to the sink, so the threads sending messages don't wait on them
+     * @return the stream, to give credit to
+     */
+    public MessageStream openStream(MessageStream.Sink sink, Executor executor) {
+        MessageStream opened = new MessageStream(this, sink, executor);
+        close(STREAM.getAndSet(this, opened));
+        return opened;
+    }
+
+    /**
+     * Close the stream currently open for this consumer, if there is one.
+     */
+    public void closeStream() {
+        close(STREAM.getAndSet(this, null));
+    }
+
+    /**
+     * Find the stream currently open for this consumer.
+     *
+     * @return the stream, or <code>Optional.empty()</code> if there isn't one
+     */
+    public Optional<MessageStream> findStream() {
+        return Optional.ofNullable(stream);
     }
 
     /**
@@ -41,54 +136,60 @@ public class SingleConsumerService implements Closeable {
      *
      * @param messageId the id of message to acknowledge
      */
-    public void acknowledge(String messageId) {
-        Optional<Integer> messageIndex = indexOfMessageById(unacknowledged, messageId);
-        messageIndex.ifPresent(index -> {
-            unacknowledged = filterAfter(unacknowledged, index);
-        });
+    public synchronized void acknowledge(String messageId) {
+        long sequence = unacknowledged.find(messageId);
+        if (sequence >= 0) {
+            unacknowledged.acknowledgeUpTo(sequence, message -> destinationService.acknowledgeMessage(consumerId, message));
+        }
     }
 
     /**
      * Reset the consumer to receive all unacknowledged messages it has previously received.
+     * <p>
+     * Redelivered messages stay unacknowledged until they are acknowledged again.
      */
-    public void recover() {
-        inRecovery = true;
+    public synchronized void recover() {
+        redeliverySequence = unacknowledged.getFirstSequence();
+        redeliveryEnd = unacknowledged.getEndSequence();
     }
 
     /**
-     * Remove the consumer.
+     * Remove the consumer, putting back the messages it hasn't acknowledged for the destination's other consumers.
+     * <p>
+     * The consumer is removed from the destination first, so it can't be delivered any of them again, under the same
+     * lock as acknowledging, so every message is either acknowledged or put back. They are put back after the lock is
+     * released, as putting them back wakes receivers that take their own consumer's lock.
      */
     @Override
     public void close() {
-        destinationService.removeConsumer(consumerId);
-    }
-
-    private void checkInRecovery() {
-        // Cannot recover messages that don't exist.
-        inRecovery = inRecovery && unacknowledged.size() > 0;
-    }
-
-    private Optional<Message> nextUnacknowledged() {
-        return Optional.of(unacknowledged.poll());
+        closeStream();
+        List<Message> unacknowledgedMessages;
+        synchronized (this) {
+            destinationService.removeConsumer(consumerId);
+            unacknowledgedMessages = unacknowledged.removeAll();
+            redeliverySequence = 0;
+            redeliveryEnd = 0;
+        }
+        if (!unacknowledgedMessages.isEmpty()) {
+            destinationService.requeueMessages(unacknowledgedMessages);
+        }
     }
 
-    private Optional<Message> nextDelivered() {
-        Optional<Message> delivered = destinationService.deliverMessage(consumerId);
-        delivered.ifPresent(unacknowledged::add);
-        return delivered;
+    InFlightMessages getUnacknowledged() {
+        return unacknowledged;
     }
 
-    private static Optional<Integer> indexOfMessageById(Queue<Message> queue, String messageId) {
-        List<Message> messages = new ArrayList<>(queue);
-        for (int i = 0; i < messages.size(); i++) {
-            if (messages.get(i).getId().equals(messageId)) {
-                return Optional.of(i);
-            }
+    /**
+     * Streams are closed without holding this consumer's lock, as a receive completing into a stream takes the locks in
+     * the opposite order.
+     */
+    private static void close(MessageStream closed) {
+        if (closed != null) {
+            closed.close();
         }
-        return Optional.empty();
     }
 
-    private static Queue<Message> filterAfter(Queue<Message> messages, int n) {
-        return new LinkedList<>(new ArrayList<>(messages).subList(n + 1, messages.size()));
+    private Delivery deliver(Message message) {
+        return unacknowledged.getDelivery(unacknowledged.add(message));
     }
 }
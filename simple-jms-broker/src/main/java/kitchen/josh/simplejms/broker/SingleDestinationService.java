@@ -1,7 +1,9 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
 import kitchen.josh.simplejms.common.message.Message;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,12 +13,25 @@ import java.util.UUID;
 public interface SingleDestinationService {
 
     /**
-     * Allocate resources for the consumer to start consuming from this destination.
+     * Allocate resources for the consumer to start consuming every message from this destination.
      *
      * @param consumerId the id of the consumer to add
      * @throws IllegalStateException if the consumer is already connected to the destination
      */
-    void addConsumer(UUID consumerId);
+    default void addConsumer(UUID consumerId) {
+        addConsumer(consumerId, Selector.ALL);
+    }
+
+    /**
+     * Allocate resources for the consumer to start consuming the messages its selector selects from this destination.
+     * <p>
+     * A queue leaves the messages a consumer's selector doesn't select for its other consumers, a topic skips them.
+     *
+     * @param consumerId the id of the consumer to add
+     * @param selector   the selector choosing which messages the consumer receives
+     * @throws IllegalStateException if the consumer is already connected to the destination
+     */
+    void addConsumer(UUID consumerId, Selector selector);
 
     /**
      * Allocate resources for the producer to start sending messages to this destination.
@@ -52,7 +67,19 @@ public interface SingleDestinationService {
     void addMessage(UUID producerId, Message message);
 
     /**
-     * Deliver the next message for the consumer.
+     * Send a batch of messages to the destination from a producer.
+     * <p>
+     * The batch is added atomically: the messages are added in order, with no other producer's messages between them,
+     * and either all of them are added or none are.
+     *
+     * @param producerId the id of the producer sending the messages
+     * @param batch      the messages sent to the destination, in order
+     * @throws ProducerDoesNotExistException if the producer doesn't exist
+     */
+    void addMessages(UUID producerId, List<Message> batch);
+
+    /**
+     * Deliver the next message for the consumer that its selector selects.
      * <p>
      * Once a message has been delivered, it is the responsibility of the caller to handle message redelivery and
      * message acknowledgement.
@@ -62,4 +89,56 @@ public interface SingleDestinationService {
      * @throws ConsumerDoesNotExistException if the consumer doesn't exist
      */
     Optional<Message> deliverMessage(UUID consumerId);
+
+    /**
+     * Deliver up to <code>max</code> of the next messages for the consumer that its selector selects, in the order
+     * they were sent.
+     * <p>
+     * Once the messages have been delivered, it is the responsibility of the caller to handle message redelivery and
+     * message acknowledgement.
+     *
+     * @param consumerId the id of the consumer to deliver the messages to
+     * @param max        the most messages to deliver
+     * @return the messages delivered from the destination, empty if there aren't any
+     * @throws ConsumerDoesNotExistException if the consumer doesn't exist
+     */
+    List<Message> deliverMessages(UUID consumerId, int max);
+
+    /**
+     * Acknowledge a message that was delivered to a consumer, so the destination never has to deliver it again.
+     *
+     * @param consumerId the id of the consumer acknowledging the message
+     * @param message    the message being acknowledged
+     * @throws ConsumerDoesNotExistException if the consumer doesn't exist
+     */
+    void acknowledgeMessage(UUID consumerId, Message message);
+
+    /**
+     * Put back the messages a removed consumer was delivered but never acknowledged, so other consumers can receive
+     * them.
+     * <p>
+     * A queue puts them back in front of its other messages, in the order they were delivered. A topic drops them, as
+     * no other consumer was going to receive them from this consumer.
+     *
+     * @param messages the unacknowledged messages, in the order they were delivered
+     */
+    void requeueMessages(List<Message> messages);
+
+    /**
+     * Park a receiver on this destination until the next message is sent to it.
+     * <p>
+     * Each message sent to a queue wakes one waiting receiver, each message sent to a topic wakes every waiting
+     * receiver. A queue with a consumer that has a selector wakes every waiting receiver as well, as it can't tell
+     * which of them can receive the message. A woken receiver is no longer parked.
+     *
+     * @param waiter the receiver to wake
+     */
+    void addWaiter(MessageWaiters.Waiter waiter);
+
+    /**
+     * Stop a receiver waiting on this destination, if it is still parked.
+     *
+     * @param waiter the receiver to remove
+     */
+    void removeWaiter(MessageWaiters.Waiter waiter);
 }
@@ -1,5 +1,7 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.broker.selector.SelectorIndex;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
 import kitchen.josh.simplejms.common.message.Message;
@@ -8,29 +10,61 @@ import java.util.*;
 
 /**
  * A class implementing a publish-subscribe model of destination.
+ * <p>
+ * Every published message is appended once to a log shared by all consumers without a selector, and each of those
+ * consumers is only a cursor into that log. Segments of the log are released once the slowest of them has read past
+ * them.
+ * <p>
+ * A consumer with a selector doesn't read the log. The consumers with selectors are kept in a {@link SelectorIndex},
+ * and each published message is routed into the pending queue of each consumer that selects it, so publishing only
+ * evaluates the selectors that could select the message.
  */
 public class TopicService implements SingleDestinationService {
 
-    private final UUID id;
-    private final Map<UUID, Queue<Message>> consumerQueues;
+    private final Destination destination;
+    private final MessageLog log;
+    private final Map<UUID, Cursor> cursors;
+    private final SelectorIndex<Cursor> selectiveCursors;
     private final Set<UUID> producers;
+    private final MessageIdGenerator messageIdGenerator;
+    private final MessageWaiters waiters;
 
     TopicService(UUID id) {
-        this.id = id;
-        consumerQueues = new HashMap<>();
+        this(id, new MessageIdGenerator());
+    }
+
+    TopicService(UUID id, MessageIdGenerator messageIdGenerator) {
+        this(id, MessageLog.DEFAULT_SEGMENT_SIZE, messageIdGenerator);
+    }
+
+    TopicService(UUID id, int segmentSize) {
+        this(id, segmentSize, new MessageIdGenerator());
+    }
+
+    TopicService(UUID id, int segmentSize, MessageIdGenerator messageIdGenerator) {
+        this.destination = new Destination(DestinationType.TOPIC, id);
+        this.messageIdGenerator = messageIdGenerator;
+        log = new MessageLog(segmentSize);
+        cursors = new HashMap<>();
+        selectiveCursors = new SelectorIndex<>();
         producers = new HashSet<>();
+        waiters = new MessageWaiters();
     }
 
     @Override
-    public void addConsumer(UUID consumerId) {
-        if (consumerQueues.containsKey(consumerId)) {
+    public synchronized void addConsumer(UUID consumerId, Selector selector) {
+        if (cursors.containsKey(consumerId)) {
             throw new IllegalStateException("Consumer " + consumerId + " already consuming from topic");
         }
-        consumerQueues.put(consumerId, new LinkedList<>());
+        Cursor cursor = new Cursor(log.getEndOffset(), selector);
+        if (cursor.pending != null) {
+            selectiveCursors.add(cursor, selector);
+        }
+        cursors.put(consumerId, cursor);
     }
 
     @Override
-    public void addProducer(UUID producerId) {
+    public synchronized void addProducer(UUID producerId) {
         if (producers.contains(producerId)) {
             throw new IllegalStateException("Producer " + producerId + " already producing to topic");
         }
@@ -38,39 +72,169 @@ public class TopicService implements SingleDestinationService {
     }
 
     @Override
-    public void removeConsumer(UUID consumerId) {
+    public synchronized void removeConsumer(UUID consumerId) {
         verifyConsumerExists(consumerId);
-        consumerQueues.remove(consumerId);
+        Cursor cursor = cursors.remove(consumerId);
+        if (cursor.pending != null) {
+            selectiveCursors.remove(cursor, cursor.selector);
+        }
+        releaseConsumedSegments();
     }
 
     @Override
-    public void removeProducer(UUID producerId) {
+    public synchronized void removeProducer(UUID producerId) {
         verifyProducerExists(producerId);
         producers.remove(producerId);
     }
 
     @Override
     public void addMessage(UUID producer, Message message) {
-        verifyProducerExists(producer);
-        message.setDestination(new Destination(DestinationType.TOPIC, id));
-        message.setId("ID:" + UUID.randomUUID());
-        consumerQueues.values().forEach(queue -> queue.add(message));
+        if (appendMessage(producer, message)) {
+            // Woken receivers take the lock again to read the message, so they must be woken after it is released.
+            waiters.wakeAll();
+        }
+    }
+
+    @Override
+    public void addMessages(UUID producerId, List<Message> batch) {
+        if (appendMessages(producerId, batch)) {
+            waiters.wakeAll();
+        }
     }
 
     @Override
-    public Optional<Message> deliverMessage(UUID consumerId) {
+    public synchronized Optional<Message> deliverMessage(UUID consumerId) {
         verifyConsumerExists(consumerId);
-        return Optional.ofNullable(consumerQueues.get(consumerId).poll());
+        Cursor cursor = cursors.get(consumerId);
+        if (cursor.pending != null) {
+            return Optional.ofNullable(cursor.pending.poll());
+        }
+        if (cursor.offset == log.getEndOffset()) {
+            return Optional.empty();
+        }
+        return Optional.of(log.get(cursor.offset++));
+    }
+
+    @Override
+    public synchronized List<Message> deliverMessages(UUID consumerId, int max) {
+        verifyConsumerExists(consumerId);
+        Cursor cursor = cursors.get(consumerId);
+        if (cursor.pending != null) {
+            List<Message> delivered = new ArrayList<>(Math.min(max, cursor.pending.size()));
+            while (delivered.size() < max && !cursor.pending.isEmpty()) {
+                delivered.add(cursor.pending.poll());
+            }
+            return delivered;
+        }
+        int count = (int) Math.min(max, log.getEndOffset() - cursor.offset);
+        List<Message> delivered = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            delivered.add(log.get(cursor.offset++));
+        }
+        return delivered;
     }
 
-    Map<UUID, Queue<Message>> getConsumerQueues() {
-        return consumerQueues;
+    @Override
+    public synchronized void acknowledgeMessage(UUID consumerId, Message message) {
+        // Topic messages are not stored, the cursor has already moved past the message.
+        verifyConsumerExists(consumerId);
+    }
+
+    @Override
+    public void requeueMessages(List<Message> requeued) {
+        // The other subscribers have their own copies of the messages.
+    }
+
+    @Override
+    public void addWaiter(MessageWaiters.Waiter waiter) {
+        waiters.add(waiter);
+    }
+
+    @Override
+    public void removeWaiter(MessageWaiters.Waiter waiter) {
+        waiters.remove(waiter);
+    }
+
+    /**
+     * Get a snapshot of the messages each consumer has yet to receive.
+     *
+     * @return the pending messages for each consumer
+     */
+    synchronized Map<UUID, Queue<Message>> getConsumerQueues() {
+        Map<UUID, Queue<Message>> queues = new HashMap<>();
+        cursors.forEach((consumerId, cursor) -> {
+            Queue<Message> queue = new LinkedList<>();
+            if (cursor.pending != null) {
+                queue.addAll(cursor.pending);
+            } else {
+                for (long offset = cursor.offset; offset < log.getEndOffset(); offset++) {
+                    queue.add(log.get(offset));
+                }
+            }
+            queues.put(consumerId, queue);
+        });
+        return queues;
     }
 
     Set<UUID> getProducers() {
         return producers;
     }
 
+    MessageLog getLog() {
+        return log;
+    }
+
+    MessageWaiters getWaiters() {
+        return waiters;
+    }
+
+    /**
+     * @return <code>true</code> if the message was appended to the log or routed to a consumer, <code>false</code> if
+     * nobody will receive it
+     */
+    private synchronized boolean appendMessage(UUID producer, Message message) {
+        return appendMessages(producer, Collections.singletonList(message));
+    }
+
+    /**
+     * @return <code>true</code> if any message was appended to the log or routed to a consumer, <code>false</code> if
+     * nobody will receive them
+     */
+    private synchronized boolean appendMessages(UUID producer, List<Message> batch) {
+        verifyProducerExists(producer);
+        for (Message message : batch) {
+            message.setDestination(destination);
+            message.setId(messageIdGenerator.nextId());
+            message.makeReadOnly();
+        }
+        if (cursors.isEmpty()) {
+            // Nobody is subscribed, so nobody can ever read these messages.
+            return false;
+        }
+        boolean logRead = cursors.size() > selectiveCursors.size();
+        int routed = 0;
+        for (Message message : batch) {
+            if (logRead) {
+                if (log.isAtSegmentBoundary()) {
+                    releaseConsumedSegments();
+                }
+                log.append(message);
+            }
+            routed += selectiveCursors.forEachMatch(message, cursor -> cursor.pending.add(message));
+        }
+        return logRead || routed > 0;
+    }
+
+    private void releaseConsumedSegments() {
+        long slowest = log.getEndOffset();
+        for (Cursor cursor : cursors.values()) {
+            if (cursor.pending == null) {
+                slowest = Math.min(slowest, cursor.offset);
+            }
+        }
+        log.releaseBefore(slowest);
+    }
+
     private void verifyProducerExists(UUID producerId) {
         if (!producers.contains(producerId)) {
             throw new ProducerDoesNotExistException();
@@ -78,8 +242,26 @@ public class TopicService implements SingleDestinationService {
     }
 
     private void verifyConsumerExists(UUID consumerId) {
-        if (!consumerQueues.containsKey(consumerId)) {
+        if (!cursors.containsKey(consumerId)) {
             throw new ConsumerDoesNotExistException();
         }
     }
+
+    /**
+     * A consumer's position in the log, the offset of the next message it will read.
+     * <p>
+     * A consumer with a selector has a queue of the messages routed to it instead.
+     */
+    private static final class Cursor {
+
+        private final Selector selector;
+        private final Queue<Message> pending;
+        private long offset;
+
+        private Cursor(long offset, Selector selector) {
+            this.offset = offset;
+            this.selector = selector;
+            this.pending = selector == Selector.ALL ? null : new ArrayDeque<>();
+        }
+    }
 }
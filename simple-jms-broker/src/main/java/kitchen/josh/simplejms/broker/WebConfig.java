@@ -0,0 +1,34 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets clients send and receive messages in the compact binary encoding, as well as JSON.
+ * <p>
+ * The binary converter is added after the JSON converter, so JSON is still used unless a client asks for the binary
+ * media type in its <code>Accept</code> header, or sends it as the <code>Content-Type</code>.
+ * <p>
+ * Messages delivered to consumers are written by a {@link DeliveredMessageConverter}, added first so that JSON isn't
+ * written by the JSON converter instead.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+
+    public WebConfig(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new DeliveredMessageConverter(objectMapper));
+        converters.add(new BinaryMessageConverter());
+    }
+}
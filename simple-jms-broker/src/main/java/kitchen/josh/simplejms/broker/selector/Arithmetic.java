@@ -0,0 +1,85 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * Adding, subtracting, multiplying or dividing two numbers.
+ * <p>
+ * Two exact numbers give an exact result, otherwise both are converted to doubles. Exact division by zero, and any
+ * operand that isn't a number, gives <code>NULL</code>.
+ */
+final class Arithmetic extends Expression {
+
+    enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE
+    }
+
+    private final Operator operator;
+    private final Expression left;
+    private final Expression right;
+
+    Arithmetic(Operator operator, Expression left, Expression right) {
+        super(Kind.NUMBER);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        left.evaluate(message, result);
+        if (!result.isNumber()) {
+            result.setNull();
+            return;
+        }
+        byte leftType = result.type;
+        long leftLong = result.longValue;
+        double leftDouble = result.toDouble();
+        right.evaluate(message, result);
+        if (!result.isNumber()) {
+            result.setNull();
+            return;
+        }
+        if (leftType == Value.LONG && result.type == Value.LONG) {
+            evaluateLong(leftLong, result.longValue, result);
+        } else {
+            evaluateDouble(leftDouble, result.toDouble(), result);
+        }
+    }
+
+    private void evaluateLong(long left, long right, Value result) {
+        switch (operator) {
+            case ADD:
+                result.setLong(left + right);
+                break;
+            case SUBTRACT:
+                result.setLong(left - right);
+                break;
+            case MULTIPLY:
+                result.setLong(left * right);
+                break;
+            default:
+                if (right == 0) {
+                    result.setNull();
+                } else {
+                    result.setLong(left / right);
+                }
+        }
+    }
+
+    private void evaluateDouble(double left, double right, Value result) {
+        switch (operator) {
+            case ADD:
+                result.setDouble(left + right);
+                break;
+            case SUBTRACT:
+                result.setDouble(left - right);
+                break;
+            case MULTIPLY:
+                result.setDouble(left * right);
+                break;
+            default:
+                result.setDouble(left / right);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * <code>value [NOT] BETWEEN low AND high</code>, the same as <code>low &lt;= value AND value &lt;= high</code>.
+ */
+final class Between extends Expression {
+
+    private final Expression value;
+    private final Expression low;
+    private final Expression high;
+    private final boolean negated;
+
+    Between(Expression value, Expression low, Expression high, boolean negated) {
+        super(Kind.BOOLEAN);
+        this.value = value;
+        this.low = low;
+        this.high = high;
+        this.negated = negated;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        value.evaluate(message, result);
+        byte type = result.type;
+        long longValue = result.longValue;
+        double doubleValue = result.doubleValue;
+        low.evaluate(message, result);
+        int aboveLow = Comparison.compare(Comparison.Operator.GREATER_OR_EQUAL, type, longValue, doubleValue, null, result);
+        if (aboveLow == Value.FALSE) {
+            result.setBoolean(negated);
+            return;
+        }
+        high.evaluate(message, result);
+        int belowHigh = Comparison.compare(Comparison.Operator.LESS_OR_EQUAL, type, longValue, doubleValue, null, result);
+        int between = Logical.and(aboveLow, belowHigh);
+        result.setLogical(negated ? Logical.not(between) : between);
+    }
+}
@@ -0,0 +1,112 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Collections;
+
+/**
+ * Comparing two values.
+ * <p>
+ * Numbers can be compared with any operator, exact numbers being converted to doubles when compared with approximate
+ * ones. Strings and booleans can only be compared for equality. Comparing <code>NULL</code>, or values of different
+ * types, is unknown.
+ */
+final class Comparison extends Expression {
+
+    enum Operator {
+        EQUAL, NOT_EQUAL, LESS, LESS_OR_EQUAL, GREATER, GREATER_OR_EQUAL;
+
+        boolean isEquality() {
+            return this == EQUAL || this == NOT_EQUAL;
+        }
+    }
+
+    private final Operator operator;
+    private final Expression left;
+    private final Expression right;
+
+    Comparison(Operator operator, Expression left, Expression right) {
+        super(Kind.BOOLEAN);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * <code>property = 'value'</code>, with the literal on either side, is only true when the property is that string.
+     */
+    @Override
+    IndexTerm getIndexTerm() {
+        if (operator != Operator.EQUAL) {
+            return null;
+        }
+        String value = left instanceof Literal ? ((Literal) left).getString() : null;
+        Expression other = right;
+        if (value == null) {
+            value = right instanceof Literal ? ((Literal) right).getString() : null;
+            other = left;
+        }
+        if (value == null || !(other instanceof Identifier) || !((Identifier) other).isProperty()) {
+            return null;
+        }
+        return new IndexTerm(this, ((Identifier) other).getName(), Collections.singleton(value));
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        left.evaluate(message, result);
+        byte leftType = result.type;
+        long leftLong = result.longValue;
+        double leftDouble = result.doubleValue;
+        String leftString = result.stringValue;
+        right.evaluate(message, result);
+        result.setLogical(compare(operator, leftType, leftLong, leftDouble, leftString, result));
+    }
+
+    /**
+     * Compare a value held in locals with the value in <code>right</code>.
+     *
+     * @return {@link Value#TRUE}, {@link Value#FALSE} or {@link Value#UNKNOWN}
+     */
+    static int compare(Operator operator, byte leftType, long leftLong, double leftDouble, String leftString,
+                       Value right) {
+        if (leftType == Value.NULL || right.type == Value.NULL) {
+            return Value.UNKNOWN;
+        }
+        int comparison;
+        if (leftType == Value.LONG && right.type == Value.LONG) {
+            comparison = Long.compare(leftLong, right.longValue);
+        } else if ((leftType == Value.LONG || leftType == Value.DOUBLE) && right.isNumber()) {
+            double leftNumber = leftType == Value.LONG ? leftLong : leftDouble;
+            double rightNumber = right.toDouble();
+            if (Double.isNaN(leftNumber) || Double.isNaN(rightNumber)) {
+                return operator == Operator.NOT_EQUAL ? Value.TRUE : Value.FALSE;
+            }
+            comparison = leftNumber < rightNumber ? -1 : leftNumber > rightNumber ? 1 : 0;
+        } else if (leftType == right.type && operator.isEquality()) {
+            comparison = leftType == Value.STRING
+                    ? (leftString.equals(right.stringValue) ? 0 : 1)
+                    : (leftLong == right.longValue ? 0 : 1);
+        } else {
+            return Value.UNKNOWN;
+        }
+        return test(operator, comparison) ? Value.TRUE : Value.FALSE;
+    }
+
+    private static boolean test(Operator operator, int comparison) {
+        switch (operator) {
+            case EQUAL:
+                return comparison == 0;
+            case NOT_EQUAL:
+                return comparison != 0;
+            case LESS:
+                return comparison < 0;
+            case LESS_OR_EQUAL:
+                return comparison <= 0;
+            case GREATER:
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
+}
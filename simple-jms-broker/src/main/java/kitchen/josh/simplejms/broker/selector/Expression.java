@@ -0,0 +1,44 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * A node of a compiled selector.
+ */
+abstract class Expression {
+
+    /**
+     * The type an expression is known to have when the selector is parsed, used to reject selectors that could never
+     * be true. A property can hold any type, so an identifier's kind is <code>ANY</code>.
+     */
+    enum Kind {
+        BOOLEAN, NUMBER, STRING, ANY
+    }
+
+    private final Kind kind;
+
+    Expression(Kind kind) {
+        this.kind = kind;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Get a condition that must hold for this expression to be true, that a property has one of some string values.
+     *
+     * @return the condition, or <code>null</code> if there isn't one
+     */
+    IndexTerm getIndexTerm() {
+        return null;
+    }
+
+    /**
+     * Evaluate the expression against a message.
+     *
+     * @param message the message to evaluate against
+     * @param result  the value to put the result in
+     */
+    abstract void evaluate(Message message, Value result);
+}
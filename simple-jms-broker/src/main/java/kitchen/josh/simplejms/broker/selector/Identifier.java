@@ -0,0 +1,53 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A reference to a message property, or to a header that selectors can refer to.
+ * <p>
+ * <code>JMSMessageID</code> is the only such header the broker keeps; the others are never set, so they are always
+ * <code>NULL</code>.
+ */
+final class Identifier extends Expression {
+
+    private static final String MESSAGE_ID = "JMSMessageID";
+    private static final Set<String> UNSET_HEADERS = new HashSet<>(Arrays.asList(
+            "JMSDeliveryMode", "JMSPriority", "JMSTimestamp", "JMSCorrelationID", "JMSType"));
+
+    private final String name;
+    private final boolean messageId;
+    private final boolean unset;
+
+    Identifier(String name) {
+        super(MESSAGE_ID.equals(name) ? Kind.STRING : Kind.ANY);
+        this.name = name;
+        this.messageId = MESSAGE_ID.equals(name);
+        this.unset = UNSET_HEADERS.contains(name);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return <code>true</code> if the identifier is a message property, rather than a header
+     */
+    boolean isProperty() {
+        return !messageId && !unset;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        if (messageId) {
+            result.setString(message.getId());
+        } else if (unset) {
+            result.setNull();
+        } else {
+            message.visitProperty(name, result);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Set;
+
+/**
+ * <code>identifier [NOT] IN ('a', 'b', ...)</code>, unknown if the property isn't a string.
+ */
+final class In extends Expression {
+
+    private final Identifier identifier;
+    private final Set<String> values;
+    private final boolean negated;
+
+    In(Identifier identifier, Set<String> values, boolean negated) {
+        super(Kind.BOOLEAN);
+        this.identifier = identifier;
+        this.values = values;
+        this.negated = negated;
+    }
+
+    @Override
+    IndexTerm getIndexTerm() {
+        return negated || !identifier.isProperty() ? null : new IndexTerm(this, identifier.getName(), values);
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        identifier.evaluate(message, result);
+        if (result.type != Value.STRING) {
+            result.setNull();
+        } else {
+            result.setBoolean(values.contains(result.stringValue) != negated);
+        }
+    }
+}
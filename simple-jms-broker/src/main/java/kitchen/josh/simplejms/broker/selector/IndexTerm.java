@@ -0,0 +1,37 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import java.util.Set;
+
+/**
+ * A condition that must hold for a selector to be true: a property is a string with one of a set of values.
+ * <p>
+ * A {@link SelectorIndex} files the selector under each of those values, so it is only evaluated for messages whose
+ * property has one of them.
+ */
+final class IndexTerm {
+
+    private final Expression condition;
+    private final String property;
+    private final Set<String> values;
+
+    IndexTerm(Expression condition, String property, Set<String> values) {
+        this.condition = condition;
+        this.property = property;
+        this.values = values;
+    }
+
+    /**
+     * @return the <code>=</code> or <code>IN</code> condition the term was taken from
+     */
+    Expression getCondition() {
+        return condition;
+    }
+
+    String getProperty() {
+        return property;
+    }
+
+    Set<String> getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,11 @@
+package kitchen.josh.simplejms.broker.selector;
+
+/**
+ * Thrown when a message selector isn't valid JMS selector syntax, or could never select a message.
+ */
+public class InvalidSelectorException extends RuntimeException {
+
+    public InvalidSelectorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * <code>identifier IS [NOT] NULL</code>, whether the message has the property.
+ */
+final class IsNull extends Expression {
+
+    private final Identifier identifier;
+    private final boolean negated;
+
+    IsNull(Identifier identifier, boolean negated) {
+        super(Kind.BOOLEAN);
+        this.identifier = identifier;
+        this.negated = negated;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        identifier.evaluate(message, result);
+        result.setBoolean((result.type == Value.NULL) != negated);
+    }
+}
@@ -0,0 +1,86 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Arrays;
+
+/**
+ * <code>identifier [NOT] LIKE 'pattern' [ESCAPE 'c']</code>, unknown if the property isn't a string.
+ * <p>
+ * In the pattern <code>_</code> matches any one character and <code>%</code> matches any run of characters,
+ * including none. The pattern is split into literal characters and wildcards once, when the selector is parsed, and
+ * matched by walking the string, backtracking only to the last <code>%</code>.
+ */
+final class Like extends Expression {
+
+    private static final byte LITERAL = 0;
+    private static final byte ANY_ONE = 1;
+    private static final byte ANY_RUN = 2;
+
+    private final Identifier identifier;
+    private final char[] characters;
+    private final byte[] kinds;
+    private final boolean negated;
+
+    /**
+     * @throws InvalidSelectorException if the escape character ends the pattern
+     */
+    Like(Identifier identifier, String pattern, Character escape, boolean negated) {
+        super(Kind.BOOLEAN);
+        this.identifier = identifier;
+        this.negated = negated;
+        char[] parsedCharacters = new char[pattern.length()];
+        byte[] parsedKinds = new byte[pattern.length()];
+        int length = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (escape != null && c == escape) {
+                if (++i == pattern.length()) {
+                    throw new InvalidSelectorException("LIKE pattern ends with its escape character");
+                }
+                parsedCharacters[length] = pattern.charAt(i);
+                parsedKinds[length++] = LITERAL;
+            } else {
+                parsedCharacters[length] = c;
+                parsedKinds[length++] = c == '_' ? ANY_ONE : c == '%' ? ANY_RUN : LITERAL;
+            }
+        }
+        this.characters = Arrays.copyOf(parsedCharacters, length);
+        this.kinds = Arrays.copyOf(parsedKinds, length);
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        identifier.evaluate(message, result);
+        if (result.type != Value.STRING) {
+            result.setNull();
+        } else {
+            result.setBoolean(matches(result.stringValue) != negated);
+        }
+    }
+
+    boolean matches(String value) {
+        int s = 0;
+        int p = 0;
+        int lastRun = -1;
+        int lastRunStart = 0;
+        while (s < value.length()) {
+            if (p < kinds.length && (kinds[p] == ANY_ONE || (kinds[p] == LITERAL && characters[p] == value.charAt(s)))) {
+                s++;
+                p++;
+            } else if (p < kinds.length && kinds[p] == ANY_RUN) {
+                lastRun = p++;
+                lastRunStart = s;
+            } else if (lastRun >= 0) {
+                p = lastRun + 1;
+                s = ++lastRunStart;
+            } else {
+                return false;
+            }
+        }
+        while (p < kinds.length && kinds[p] == ANY_RUN) {
+            p++;
+        }
+        return p == kinds.length;
+    }
+}
@@ -0,0 +1,57 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * A string, numeric or boolean literal.
+ */
+final class Literal extends Expression {
+
+    private final byte type;
+    private final long longValue;
+    private final double doubleValue;
+    private final String stringValue;
+
+    private Literal(Kind kind, byte type, long longValue, double doubleValue, String stringValue) {
+        super(kind);
+        this.type = type;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.stringValue = stringValue;
+    }
+
+    static Literal ofBoolean(boolean value) {
+        return new Literal(Kind.BOOLEAN, Value.BOOLEAN, value ? 1 : 0, 0, null);
+    }
+
+    static Literal ofLong(long value) {
+        return new Literal(Kind.NUMBER, Value.LONG, value, 0, null);
+    }
+
+    static Literal ofDouble(double value) {
+        return new Literal(Kind.NUMBER, Value.DOUBLE, 0, value, null);
+    }
+
+    static Literal ofString(String value) {
+        return new Literal(Kind.STRING, Value.STRING, 0, 0, value);
+    }
+
+    static Literal ofNull() {
+        return new Literal(Kind.ANY, Value.NULL, 0, 0, null);
+    }
+
+    /**
+     * @return the value of a string literal, <code>null</code> if the literal isn't a string
+     */
+    String getString() {
+        return stringValue;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        result.type = type;
+        result.longValue = longValue;
+        result.doubleValue = doubleValue;
+        result.stringValue = stringValue;
+    }
+}
@@ -0,0 +1,69 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * <code>AND</code> or <code>OR</code> of two conditions, with SQL's three-valued logic.
+ * <p>
+ * The right condition isn't evaluated if the left one decides the result.
+ */
+final class Logical extends Expression {
+
+    enum Operator {
+        AND, OR
+    }
+
+    private final Operator operator;
+    private final Expression left;
+    private final Expression right;
+
+    Logical(Operator operator, Expression left, Expression right) {
+        super(Kind.BOOLEAN);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * Both sides of an <code>AND</code> must be true, so a term of either side is a term of the whole condition.
+     */
+    @Override
+    IndexTerm getIndexTerm() {
+        if (operator != Operator.AND) {
+            return null;
+        }
+        IndexTerm term = left.getIndexTerm();
+        return term != null ? term : right.getIndexTerm();
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        left.evaluate(message, result);
+        int leftLogical = result.toLogical();
+        if (operator == Operator.AND ? leftLogical == Value.FALSE : leftLogical == Value.TRUE) {
+            result.setLogical(leftLogical);
+            return;
+        }
+        right.evaluate(message, result);
+        int rightLogical = result.toLogical();
+        result.setLogical(operator == Operator.AND ? and(leftLogical, rightLogical) : or(leftLogical, rightLogical));
+    }
+
+    static int and(int left, int right) {
+        if (left == Value.FALSE || right == Value.FALSE) {
+            return Value.FALSE;
+        }
+        return left == Value.TRUE && right == Value.TRUE ? Value.TRUE : Value.UNKNOWN;
+    }
+
+    static int or(int left, int right) {
+        if (left == Value.TRUE || right == Value.TRUE) {
+            return Value.TRUE;
+        }
+        return left == Value.FALSE && right == Value.FALSE ? Value.FALSE : Value.UNKNOWN;
+    }
+
+    static int not(int logical) {
+        return logical == Value.UNKNOWN ? Value.UNKNOWN : Value.TRUE - logical;
+    }
+}
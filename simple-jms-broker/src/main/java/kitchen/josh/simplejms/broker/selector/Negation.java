@@ -0,0 +1,28 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * A unary minus, <code>NULL</code> if the operand isn't a number.
+ */
+final class Negation extends Expression {
+
+    private final Expression operand;
+
+    Negation(Expression operand) {
+        super(Kind.NUMBER);
+        this.operand = operand;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        operand.evaluate(message, result);
+        if (result.type == Value.LONG) {
+            result.setLong(-result.longValue);
+        } else if (result.type == Value.DOUBLE) {
+            result.setDouble(-result.doubleValue);
+        } else {
+            result.setNull();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * <code>NOT</code> of a condition, unknown if the condition is unknown.
+ */
+final class Not extends Expression {
+
+    private final Expression operand;
+
+    Not(Expression operand) {
+        super(Kind.BOOLEAN);
+        this.operand = operand;
+    }
+
+    @Override
+    void evaluate(Message message, Value result) {
+        operand.evaluate(message, result);
+        result.setLogical(Logical.not(result.toLogical()));
+    }
+}
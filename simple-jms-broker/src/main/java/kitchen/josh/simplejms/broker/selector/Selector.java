@@ -0,0 +1,82 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * A JMS message selector, choosing which messages a consumer receives by their properties and headers.
+ * <p>
+ * The selector is parsed once into a tree of typed expressions. Properties are read through
+ * {@link kitchen.josh.simplejms.common.message.properties.PropertyVisitor} into a single {@link Value} kept for each
+ * thread, so matching a message doesn't box values or allocate.
+ */
+public final class Selector {
+
+    /**
+     * The selector of a consumer that didn't give one, which selects every message.
+     */
+    public static final Selector ALL = new Selector("", null);
+
+    private static final ThreadLocal<Value> VALUES = ThreadLocal.withInitial(Value::new);
+
+    private final String selector;
+    private final Expression expression;
+    private final IndexTerm indexTerm;
+
+    private Selector(String selector, Expression expression) {
+        this.selector = selector;
+        this.expression = expression;
+        this.indexTerm = expression == null ? null : expression.getIndexTerm();
+    }
+
+    /**
+     * Parse a message selector.
+     *
+     * @param selector the selector, <code>null</code> or blank if every message should be selected
+     * @return the parsed selector
+     * @throws InvalidSelectorException if the selector isn't valid
+     */
+    public static Selector parse(String selector) {
+        if (selector == null || selector.trim().isEmpty()) {
+            return ALL;
+        }
+        return new Selector(selector, SelectorParser.parse(selector));
+    }
+
+    /**
+     * Whether the selector selects a message, the selector being true for the message's properties and headers.
+     *
+     * @param message the message to test
+     * @return <code>true</code> if the selector is true, <code>false</code> if it is false or unknown
+     */
+    public boolean matches(Message message) {
+        if (expression == null) {
+            return true;
+        }
+        Value value = VALUES.get();
+        expression.evaluate(message, value);
+        boolean matches = value.isTrue();
+        value.stringValue = null;
+        return matches;
+    }
+
+    /**
+     * @return a condition the selector is only true under, or <code>null</code> if it has none a message can be looked
+     * up by
+     */
+    IndexTerm getIndexTerm() {
+        return indexTerm;
+    }
+
+    /**
+     * @return <code>true</code> if the selector is exactly its index term, so a message with one of the term's values
+     * always matches
+     */
+    boolean isIndexTerm() {
+        return indexTerm != null && indexTerm.getCondition() == expression;
+    }
+
+    @Override
+    public String toString() {
+        return selector;
+    }
+}
@@ -0,0 +1,133 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * An index of subscribers by their selectors, finding the subscribers that select a message without evaluating every
+ * selector.
+ * <p>
+ * A selector with an {@link IndexTerm}, such as <code>region = 'EU'</code> or
+ * <code>region IN ('EU', 'US') AND size &gt; 10</code>, is filed under each value of the term's property. A message
+ * only looks up its own value of each indexed property, and only evaluates the selectors filed under it, not even
+ * that when the selector is just the term. Any other selector is evaluated for every message.
+ * <p>
+ * This class is not thread-safe, callers are responsible for guarding access to it.
+ *
+ * @param <T> the type of subscriber
+ */
+public final class SelectorIndex<T> {
+
+    private final Map<String, Map<String, List<Entry<T>>>> indexed;
+    private final List<Entry<T>> unindexed;
+    private final Value value;
+    private int size;
+
+    public SelectorIndex() {
+        indexed = new HashMap<>();
+        unindexed = new ArrayList<>();
+        value = new Value();
+    }
+
+    /**
+     * Add a subscriber.
+     *
+     * @param subscriber the subscriber to add
+     * @param selector   the subscriber's selector
+     */
+    public void add(T subscriber, Selector selector) {
+        Entry<T> entry = new Entry<>(subscriber, selector);
+        IndexTerm term = selector.getIndexTerm();
+        if (term == null) {
+            unindexed.add(entry);
+        } else {
+            Map<String, List<Entry<T>>> byValue = indexed.computeIfAbsent(term.getProperty(), property -> new HashMap<>());
+            for (String termValue : term.getValues()) {
+                byValue.computeIfAbsent(termValue, v -> new ArrayList<>()).add(entry);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * Remove a subscriber.
+     *
+     * @param subscriber the subscriber to remove
+     * @param selector   the selector the subscriber was added with
+     */
+    public void remove(T subscriber, Selector selector) {
+        IndexTerm term = selector.getIndexTerm();
+        if (term == null) {
+            unindexed.removeIf(entry -> entry.subscriber.equals(subscriber));
+        } else {
+            Map<String, List<Entry<T>>> byValue = indexed.get(term.getProperty());
+            for (String termValue : term.getValues()) {
+                List<Entry<T>> entries = byValue.get(termValue);
+                entries.removeIf(entry -> entry.subscriber.equals(subscriber));
+                if (entries.isEmpty()) {
+                    byValue.remove(termValue);
+                }
+            }
+            if (byValue.isEmpty()) {
+                indexed.remove(term.getProperty());
+            }
+        }
+        size--;
+    }
+
+    /**
+     * Pass every subscriber whose selector selects a message to an action.
+     *
+     * @param message the message
+     * @param action  the action to take for each subscriber that selects the message
+     * @return the number of subscribers that select the message
+     */
+    public int forEachMatch(Message message, Consumer<? super T> action) {
+        int matched = 0;
+        for (Map.Entry<String, Map<String, List<Entry<T>>>> property : indexed.entrySet()) {
+            message.visitProperty(property.getKey(), value);
+            if (value.type != Value.STRING) {
+                continue;
+            }
+            List<Entry<T>> entries = property.getValue().get(value.stringValue);
+            if (entries != null) {
+                matched += forEachMatch(entries, message, action);
+            }
+        }
+        value.stringValue = null;
+        return matched + forEachMatch(unindexed, message, action);
+    }
+
+    /**
+     * @return the number of subscribers in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    private static <T> int forEachMatch(List<Entry<T>> entries, Message message, Consumer<? super T> action) {
+        int matched = 0;
+        for (Entry<T> entry : entries) {
+            if (entry.exact || entry.selector.matches(message)) {
+                action.accept(entry.subscriber);
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static final class Entry<T> {
+
+        private final T subscriber;
+        private final Selector selector;
+        private final boolean exact;
+
+        private Entry(T subscriber, Selector selector) {
+            this.subscriber = subscriber;
+            this.selector = selector;
+            this.exact = selector.isIndexTerm();
+        }
+    }
+}
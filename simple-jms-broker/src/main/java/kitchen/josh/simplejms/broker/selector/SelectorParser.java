@@ -0,0 +1,435 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Parses a JMS message selector into a tree of {@link Expression}s.
+ * <p>
+ * The grammar is the SQL-92 conditional expression subset from the JMS specification, from lowest to highest
+ * precedence:
+ * <pre>
+ * or         := and (OR and)*
+ * and        := not (AND not)*
+ * not        := NOT not | predicate
+ * predicate  := sum [comparison-operator sum
+ *                   | [NOT] BETWEEN sum AND sum
+ *                   | [NOT] LIKE string [ESCAPE string]
+ *                   | [NOT] IN (string, ...)
+ *                   | IS [NOT] NULL]
+ * sum        := product ((+ | -) product)*
+ * product    := unary ((* | /) unary)*
+ * unary      := (+ | -) unary | primary
+ * primary    := literal | identifier | ( or )
+ * </pre>
+ * Keywords are case insensitive, identifiers are case sensitive.
+ */
+final class SelectorParser {
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "NOT", "AND", "OR", "BETWEEN", "LIKE", "ESCAPE", "IN", "IS", "NULL", "TRUE", "FALSE"));
+
+    private enum TokenType {
+        IDENTIFIER, KEYWORD, STRING, LONG, DOUBLE, SYMBOL, END
+    }
+
+    private final String selector;
+    private int position;
+    private TokenType tokenType;
+    private String token;
+    private int tokenStart;
+
+    private SelectorParser(String selector) {
+        this.selector = selector;
+    }
+
+    /**
+     * Parse a selector.
+     *
+     * @param selector the selector to parse
+     * @return the root of the parsed expression
+     * @throws InvalidSelectorException if the selector isn't valid
+     */
+    static Expression parse(String selector) {
+        SelectorParser parser = new SelectorParser(selector);
+        parser.next();
+        Expression expression = parser.parseOr();
+        if (parser.tokenType != TokenType.END) {
+            throw parser.error("Unexpected '" + parser.token + "'");
+        }
+        if (!isCondition(expression)) {
+            throw parser.error("Selector is not a condition");
+        }
+        return expression;
+    }
+
+    private Expression parseOr() {
+        Expression left = parseAnd();
+        while (acceptKeyword("OR")) {
+            left = new Logical(Logical.Operator.OR, condition(left), condition(parseAnd()));
+        }
+        return left;
+    }
+
+    private Expression parseAnd() {
+        Expression left = parseNot();
+        while (acceptKeyword("AND")) {
+            left = new Logical(Logical.Operator.AND, condition(left), condition(parseNot()));
+        }
+        return left;
+    }
+
+    private Expression parseNot() {
+        if (acceptKeyword("NOT")) {
+            return new Not(condition(parseNot()));
+        }
+        return parsePredicate();
+    }
+
+    private Expression parsePredicate() {
+        Expression left = parseSum();
+        Comparison.Operator operator = comparisonOperator();
+        if (operator != null) {
+            next();
+            return comparison(operator, left, parseSum());
+        }
+        if (acceptKeyword("IS")) {
+            boolean negated = acceptKeyword("NOT");
+            expectKeyword("NULL");
+            return new IsNull(identifier(left, "IS NULL"), negated);
+        }
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("BETWEEN")) {
+            Expression low = parseSum();
+            expectKeyword("AND");
+            Expression high = parseSum();
+            return new Between(number(left), number(low), number(high), negated);
+        }
+        if (acceptKeyword("LIKE")) {
+            Identifier identifier = identifier(left, "LIKE");
+            String pattern = expectString();
+            Character escape = null;
+            if (acceptKeyword("ESCAPE")) {
+                String escapeString = expectString();
+                if (escapeString.length() != 1) {
+                    throw error("ESCAPE must be a single character");
+                }
+                escape = escapeString.charAt(0);
+            }
+            return new Like(identifier, pattern, escape, negated);
+        }
+        if (acceptKeyword("IN")) {
+            Identifier identifier = identifier(left, "IN");
+            expectSymbol("(");
+            Set<String> values = new HashSet<>();
+            do {
+                values.add(expectString());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return new In(identifier, values, negated);
+        }
+        if (negated) {
+            throw error("Expected BETWEEN, LIKE or IN after NOT");
+        }
+        return left;
+    }
+
+    private Expression parseSum() {
+        Expression left = parseProduct();
+        while (true) {
+            if (acceptSymbol("+")) {
+                left = new Arithmetic(Arithmetic.Operator.ADD, number(left), number(parseProduct()));
+            } else if (acceptSymbol("-")) {
+                left = new Arithmetic(Arithmetic.Operator.SUBTRACT, number(left), number(parseProduct()));
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseProduct() {
+        Expression left = parseUnary();
+        while (true) {
+            if (acceptSymbol("*")) {
+                left = new Arithmetic(Arithmetic.Operator.MULTIPLY, number(left), number(parseUnary()));
+            } else if (acceptSymbol("/")) {
+                left = new Arithmetic(Arithmetic.Operator.DIVIDE, number(left), number(parseUnary()));
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Expression parseUnary() {
+        if (acceptSymbol("+")) {
+            return number(parseUnary());
+        }
+        if (acceptSymbol("-")) {
+            return new Negation(number(parseUnary()));
+        }
+        return parsePrimary();
+    }
+
+    private Expression parsePrimary() {
+        switch (tokenType) {
+            case STRING: {
+                Literal literal = Literal.ofString(token);
+                next();
+                return literal;
+            }
+            case LONG: {
+                Literal literal;
+                try {
+                    literal = Literal.ofLong(Long.parseLong(token));
+                } catch (NumberFormatException e) {
+                    throw error("Number out of range '" + token + "'");
+                }
+                next();
+                return literal;
+            }
+            case DOUBLE: {
+                Literal literal = Literal.ofDouble(Double.parseDouble(token));
+                next();
+                return literal;
+            }
+            case IDENTIFIER: {
+                Identifier identifier = new Identifier(token);
+                next();
+                return identifier;
+            }
+            case KEYWORD:
+                if (acceptKeyword("TRUE")) {
+                    return Literal.ofBoolean(true);
+                }
+                if (acceptKeyword("FALSE")) {
+                    return Literal.ofBoolean(false);
+                }
+                if (acceptKeyword("NULL")) {
+                    return Literal.ofNull();
+                }
+                break;
+            case SYMBOL:
+                if (acceptSymbol("(")) {
+                    Expression expression = parseOr();
+                    expectSymbol(")");
+                    return expression;
+                }
+                break;
+            default:
+                throw error("Unexpected end of selector");
+        }
+        throw error("Unexpected '" + token + "'");
+    }
+
+    private Expression comparison(Comparison.Operator operator, Expression left, Expression right) {
+        Expression.Kind leftKind = left.getKind();
+        Expression.Kind rightKind = right.getKind();
+        if (leftKind != Expression.Kind.ANY && rightKind != Expression.Kind.ANY && leftKind != rightKind) {
+            throw error("Cannot compare " + leftKind + " with " + rightKind);
+        }
+        if (!operator.isEquality() && (isKind(left, Expression.Kind.STRING) || isKind(left, Expression.Kind.BOOLEAN)
+                || isKind(right, Expression.Kind.STRING) || isKind(right, Expression.Kind.BOOLEAN))) {
+            throw error("Only = and <> can compare strings and booleans");
+        }
+        return new Comparison(operator, left, right);
+    }
+
+    private Comparison.Operator comparisonOperator() {
+        if (tokenType != TokenType.SYMBOL) {
+            return null;
+        }
+        switch (token) {
+            case "=":
+                return Comparison.Operator.EQUAL;
+            case "<>":
+                return Comparison.Operator.NOT_EQUAL;
+            case "<":
+                return Comparison.Operator.LESS;
+            case "<=":
+                return Comparison.Operator.LESS_OR_EQUAL;
+            case ">":
+                return Comparison.Operator.GREATER;
+            case ">=":
+                return Comparison.Operator.GREATER_OR_EQUAL;
+            default:
+                return null;
+        }
+    }
+
+    private Expression condition(Expression expression) {
+        if (!isCondition(expression)) {
+            throw error("Expected a condition");
+        }
+        return expression;
+    }
+
+    private Expression number(Expression expression) {
+        if (!isKind(expression, Expression.Kind.NUMBER) && !isKind(expression, Expression.Kind.ANY)) {
+            throw error("Expected a number");
+        }
+        return expression;
+    }
+
+    private Identifier identifier(Expression expression, String operator) {
+        if (!(expression instanceof Identifier)) {
+            throw error(operator + " must follow an identifier");
+        }
+        return (Identifier) expression;
+    }
+
+    private static boolean isCondition(Expression expression) {
+        return isKind(expression, Expression.Kind.BOOLEAN) || isKind(expression, Expression.Kind.ANY);
+    }
+
+    private static boolean isKind(Expression expression, Expression.Kind kind) {
+        return expression.getKind() == kind;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (tokenType == TokenType.KEYWORD && token.equals(keyword)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword);
+        }
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        if (tokenType == TokenType.SYMBOL && token.equals(symbol)) {
+            next();
+            return true;
+        }
+        return false;
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "'");
+        }
+    }
+
+    private String expectString() {
+        if (tokenType != TokenType.STRING) {
+            throw error("Expected a string literal");
+        }
+        String value = token;
+        next();
+        return value;
+    }
+
+    /**
+     * Read the next token.
+     */
+    private void next() {
+        while (position < selector.length() && Character.isWhitespace(selector.charAt(position))) {
+            position++;
+        }
+        tokenStart = position;
+        if (position == selector.length()) {
+            tokenType = TokenType.END;
+            token = "";
+            return;
+        }
+        char c = selector.charAt(position);
+        if (c == '\'') {
+            readString();
+        } else if (Character.isDigit(c) || (c == '.' && position + 1 < selector.length()
+                && Character.isDigit(selector.charAt(position + 1)))) {
+            readNumber();
+        } else if (Character.isJavaIdentifierStart(c)) {
+            while (position < selector.length() && Character.isJavaIdentifierPart(selector.charAt(position))) {
+                position++;
+            }
+            String word = selector.substring(tokenStart, position);
+            String upper = word.toUpperCase();
+            if (KEYWORDS.contains(upper)) {
+                tokenType = TokenType.KEYWORD;
+                token = upper;
+            } else {
+                tokenType = TokenType.IDENTIFIER;
+                token = word;
+            }
+        } else {
+            readSymbol(c);
+        }
+    }
+
+    private void readString() {
+        StringBuilder builder = new StringBuilder();
+        position++;
+        while (true) {
+            if (position == selector.length()) {
+                throw error("Unterminated string literal");
+            }
+            char c = selector.charAt(position++);
+            if (c == '\'') {
+                if (position < selector.length() && selector.charAt(position) == '\'') {
+                    builder.append('\'');
+                    position++;
+                } else {
+                    break;
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        tokenType = TokenType.STRING;
+        token = builder.toString();
+    }
+
+    private void readNumber() {
+        boolean exact = true;
+        while (position < selector.length() && Character.isDigit(selector.charAt(position))) {
+            position++;
+        }
+        if (position < selector.length() && selector.charAt(position) == '.') {
+            exact = false;
+            position++;
+            while (position < selector.length() && Character.isDigit(selector.charAt(position))) {
+                position++;
+            }
+        }
+        if (position < selector.length() && Character.toUpperCase(selector.charAt(position)) == 'E') {
+            exact = false;
+            position++;
+            if (position < selector.length() && (selector.charAt(position) == '+' || selector.charAt(position) == '-')) {
+                position++;
+            }
+            int digits = position;
+            while (position < selector.length() && Character.isDigit(selector.charAt(position))) {
+                position++;
+            }
+            if (digits == position) {
+                throw error("Invalid number '" + selector.substring(tokenStart, position) + "'");
+            }
+        }
+        if (position < selector.length() && Character.isJavaIdentifierPart(selector.charAt(position))) {
+            throw error("Invalid number '" + selector.substring(tokenStart, position + 1) + "'");
+        }
+        tokenType = exact ? TokenType.LONG : TokenType.DOUBLE;
+        token = selector.substring(tokenStart, position);
+    }
+
+    private void readSymbol(char c) {
+        position++;
+        if ((c == '<' || c == '>') && position < selector.length() && selector.charAt(position) == '=') {
+            position++;
+        } else if (c == '<' && position < selector.length() && selector.charAt(position) == '>') {
+            position++;
+        } else if ("=()+-*/,".indexOf(c) < 0 && c != '<' && c != '>') {
+            throw error("Unexpected character '" + c + "'");
+        }
+        tokenType = TokenType.SYMBOL;
+        token = selector.substring(tokenStart, position);
+    }
+
+    private InvalidSelectorException error(String problem) {
+        return new InvalidSelectorException(problem + " at position " + tokenStart + " in selector: " + selector);
+    }
+}
@@ -0,0 +1,122 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.properties.PropertyVisitor;
+
+/**
+ * The result of evaluating an expression, held as its primitive type.
+ * <p>
+ * One value is reused for the whole evaluation of a selector: each expression evaluates its operands into it, keeping
+ * what it needs of the first in locals while it evaluates the next, so evaluating a selector allocates nothing.
+ * <code>NULL</code> is also the unknown result of a comparison, so a boolean expression is either true, false or
+ * <code>NULL</code>.
+ */
+final class Value implements PropertyVisitor {
+
+    static final byte NULL = 0;
+    static final byte BOOLEAN = 1;
+    static final byte LONG = 2;
+    static final byte DOUBLE = 3;
+    static final byte STRING = 4;
+
+    /**
+     * The results of a comparison, so that the three-valued logic can be worked out in locals.
+     */
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    byte type;
+    long longValue;
+    double doubleValue;
+    String stringValue;
+
+    void setNull() {
+        type = NULL;
+        stringValue = null;
+    }
+
+    void setBoolean(boolean value) {
+        type = BOOLEAN;
+        longValue = value ? 1 : 0;
+        stringValue = null;
+    }
+
+    void setLong(long value) {
+        type = LONG;
+        longValue = value;
+        stringValue = null;
+    }
+
+    void setDouble(double value) {
+        type = DOUBLE;
+        doubleValue = value;
+        stringValue = null;
+    }
+
+    void setString(String value) {
+        if (value == null) {
+            setNull();
+        } else {
+            type = STRING;
+            stringValue = value;
+        }
+    }
+
+    /**
+     * Set a boolean from the result of a comparison, <code>NULL</code> if it is unknown.
+     */
+    void setLogical(int logical) {
+        if (logical == UNKNOWN) {
+            setNull();
+        } else {
+            setBoolean(logical == TRUE);
+        }
+    }
+
+    /**
+     * @return the value as the result of a comparison, unknown if it isn't a boolean
+     */
+    int toLogical() {
+        if (type != BOOLEAN) {
+            return UNKNOWN;
+        }
+        return longValue != 0 ? TRUE : FALSE;
+    }
+
+    boolean isTrue() {
+        return type == BOOLEAN && longValue != 0;
+    }
+
+    boolean isNumber() {
+        return type == LONG || type == DOUBLE;
+    }
+
+    double toDouble() {
+        return type == LONG ? longValue : doubleValue;
+    }
+
+    @Override
+    public void visitNull() {
+        setNull();
+    }
+
+    @Override
+    public void visitBoolean(boolean value) {
+        setBoolean(value);
+    }
+
+    @Override
+    public void visitLong(long value) {
+        setLong(value);
+    }
+
+    @Override
+    public void visitDouble(double value) {
+        setDouble(value);
+    }
+
+    @Override
+    public void visitString(String value) {
+        setString(value);
+    }
+}
@@ -0,0 +1,126 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures acknowledgement by a consumer that holds 100,000 unacknowledged messages.
+ * <p>
+ * Each <code>receiveAndAcknowledgeOldest</code> receives a new message and acknowledges the oldest, so the number of
+ * messages in flight stays the same. <code>acknowledgeUnknown</code> acknowledges a message the consumer never
+ * received, and <code>recoverAndRedeliver</code> recovers and redelivers the oldest message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AcknowledgeBenchmark {
+
+    private static final int IN_FLIGHT = 100_000;
+
+    private SingleConsumerService consumerService;
+    private long received;
+    private long acknowledged;
+
+    @Setup
+    public void setUp() {
+        consumerService = new SingleConsumerService(UUID.randomUUID(), new MessageSource());
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            consumerService.receive();
+            received++;
+        }
+    }
+
+    @Benchmark
+    public Optional<Delivery> receiveAndAcknowledgeOldest() {
+        Optional<Delivery> message = consumerService.receive();
+        received++;
+        consumerService.acknowledge(id(acknowledged++));
+        return message;
+    }
+
+    @Benchmark
+    public void acknowledgeUnknown() {
+        consumerService.acknowledge(id(-1));
+    }
+
+    @Benchmark
+    public Optional<Delivery> recoverAndRedeliver() {
+        consumerService.recover();
+        return consumerService.receive();
+    }
+
+    private static String id(long sequence) {
+        return "ID:" + sequence;
+    }
+
+    /**
+     * A destination that always has another message to deliver.
+     */
+    private final class MessageSource implements SingleDestinationService {
+
+        @Override
+        public void addConsumer(UUID consumerId, Selector selector) {
+        }
+
+        @Override
+        public void addProducer(UUID producerId) {
+        }
+
+        @Override
+        public void removeConsumer(UUID consumerId) {
+        }
+
+        @Override
+        public void removeProducer(UUID producerId) {
+        }
+
+        @Override
+        public void addMessage(UUID producerId, Message message) {
+        }
+
+        @Override
+        public void addMessages(UUID producerId, List<Message> batch) {
+        }
+
+        @Override
+        public Optional<Message> deliverMessage(UUID consumerId) {
+            Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world"));
+            message.setId(id(received));
+            return Optional.of(message);
+        }
+
+        @Override
+        public List<Message> deliverMessages(UUID consumerId, int max) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void acknowledgeMessage(UUID consumerId, Message message) {
+        }
+
+        @Override
+        public void requeueMessages(List<Message> messages) {
+        }
+
+        @Override
+        public void addWaiter(MessageWaiters.Waiter waiter) {
+        }
+
+        @Override
+        public void removeWaiter(MessageWaiters.Waiter waiter) {
+        }
+    }
+}
@@ -0,0 +1,732 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.ObjectMessage;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.ObjectBody;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.MessageNotWriteableRuntimeException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+public class ConcurrentQueueServiceTest {
+
+    private static final UUID ID = UUID.randomUUID();
+    private static final UUID CONSUMER_ID = UUID.randomUUID();
+    private static final UUID CONSUMER_ID_1 = UUID.randomUUID();
+    private static final UUID CONSUMER_ID_2 = UUID.randomUUID();
+    private static final UUID PRODUCER_ID = UUID.randomUUID();
+    private static final UUID PRODUCER_ID_1 = UUID.randomUUID();
+    private static final UUID PRODUCER_ID_2 = UUID.randomUUID();
+
+    private Message[] messages;
+
+    private ConcurrentQueueService queueService;
+
+    @Before
+    public void setUp() {
+        messages = createMessages();
+        queueService = new ConcurrentQueueService(ID);
+    }
+
+    @Test
+    public void addConsumer_addsConsumerToConsumers() {
+        queueService.addConsumer(ID);
+
+        assertThat(queueService.getConsumers()).containsExactly(ID);
+        assertThat(queueService.getProducers()).isEmpty();
+        assertThat(queueService.getMessages()).isEmpty();
+    }
+
+    @Test
+    public void addConsumer_consumerAlreadyExists_throwsIllegalState() {
+        queueService.addConsumer(ID);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> queueService.addConsumer(ID));
+    }
+
+    @Test
+    public void addProducer_addsProducerToProducers() {
+        queueService.addProducer(ID);
+
+        assertThat(queueService.getConsumers()).isEmpty();
+        assertThat(queueService.getProducers()).containsExactly(ID);
+        assertThat(queueService.getMessages()).isEmpty();
+    }
+
+    @Test
+    public void addProducer_producerAlreadyExists_throwsIllegalState() {
+        queueService.addProducer(ID);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> queueService.addProducer(ID));
+    }
+
+    @Test
+    public void removeConsumer_removesConsumer() {
+        queueService.addConsumer(CONSUMER_ID);
+
+        queueService.removeConsumer(CONSUMER_ID);
+
+        assertThat(queueService.getConsumers()).isEmpty();
+    }
+
+    @Test
+    public void removeConsumer_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.removeConsumer(UUID.randomUUID()));
+
+        assertThat(queueService.getMessages()).isEmpty();
+        assertThat(queueService.getConsumers()).isEmpty();
+        assertThat(queueService.getProducers()).isEmpty();
+    }
+
+    @Test
+    public void removeProducer_removesProducer() {
+        queueService.addProducer(PRODUCER_ID);
+
+        queueService.removeProducer(PRODUCER_ID);
+
+        assertThat(queueService.getProducers()).isEmpty();
+    }
+
+    @Test
+    public void removeProducer_producerDoesNotExist_throwsProducerDoesNotExist() {
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.removeProducer(UUID.randomUUID()));
+
+        assertThat(queueService.getMessages()).isEmpty();
+        assertThat(queueService.getConsumers()).isEmpty();
+        assertThat(queueService.getProducers()).isEmpty();
+    }
+
+    @Test
+    public void addMessage_producerDoesNotExist_throwsProducerDoesNotExist() {
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.addMessage(UUID.randomUUID(), messages[0]));
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.addMessage(UUID.randomUUID(), messages[1]));
+
+        assertThat(queueService.getMessages()).isEmpty();
+        assertThat(queueService.getConsumers()).isEmpty();
+        assertThat(queueService.getProducers()).isEmpty();
+    }
+
+    @Test
+    public void addMessage_appendsMessageToMessages() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+
+        assertThat(queueService.getMessages()).containsExactly(messages[0], messages[1]);
+    }
+
+    @Test
+    public void addMessage_setsDestinationToThis() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+
+        assertThat(queueService.getMessages())
+                .extracting(Message::getDestination)
+                .containsExactly(new Destination(DestinationType.QUEUE, ID), new Destination(DestinationType.QUEUE, ID));
+    }
+
+    @Test
+    public void addMessage_makesMessageReadOnly() {
+        queueService.addProducer(PRODUCER_ID);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> messages[0].setId("ID:other"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> messages[0].setBooleanProperty("a", true));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(messages[0]::clearBody);
+    }
+
+    @Test
+    public void addMessage_setsMessageId() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID_1);
+        queueService.addConsumer(CONSUMER_ID_2);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+
+        List<Message> messages = new ArrayList<>(queueService.getMessages());
+
+        // IDs should be unique
+        assertThat(messages.get(0).getId()).isNotEqualTo(messages.get(1).getId());
+
+        // IDs should be ID:<node>-<time>-<stripe>-<sequence> format.
+        assertThat(messages)
+                .extracting(Message::getId)
+                .allSatisfy(id -> assertThat(id).matches("ID:[0-9a-f]{12}-[0-9a-f]{11}-[0-9a-f]+-[0-9a-f]+"));
+    }
+
+    @Test
+    public void addMessages_appendsBatchInOrderWithIds() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        queueService.addMessages(PRODUCER_ID, Arrays.asList(messages[1], messages[2], messages[3]));
+
+        assertThat(queueService.getMessages()).containsExactly(messages);
+        assertThat(queueService.getMessages())
+                .extracting(Message::getDestination)
+                .containsOnly(new Destination(DestinationType.QUEUE, ID));
+        assertThat(queueService.getMessages())
+                .extracting(Message::getId)
+                .doesNotContainNull()
+                .doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void addMessages_producerDoesNotExist_addsNothing() {
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.addMessages(PRODUCER_ID, Arrays.asList(messages[0], messages[1])));
+
+        assertThat(queueService.getMessages()).isEmpty();
+    }
+
+    @Test
+    public void addMessages_storesBatchTogether() {
+        MessageStore messageStore = mock(MessageStore.class);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+        queueService.addProducer(PRODUCER_ID);
+        List<Message> batch = Arrays.asList(messages[0], messages[1]);
+
+        queueService.addMessages(PRODUCER_ID, batch);
+
+        verify(messageStore).addMessages(ID, batch);
+        verifyNoMoreInteractions(messageStore);
+    }
+
+    @Test
+    public void addMessages_wakesOneWaiterPerMessage() {
+        MessageWaiters.Waiter first = mock(MessageWaiters.Waiter.class);
+        MessageWaiters.Waiter second = mock(MessageWaiters.Waiter.class);
+        MessageWaiters.Waiter third = mock(MessageWaiters.Waiter.class);
+        when(first.wake()).thenReturn(true);
+        when(second.wake()).thenReturn(true);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addWaiter(first);
+        queueService.addWaiter(second);
+        queueService.addWaiter(third);
+
+        queueService.addMessages(PRODUCER_ID, Arrays.asList(messages[0], messages[1]));
+
+        verify(first).wake();
+        verify(second).wake();
+        verifyZeroInteractions(third);
+    }
+
+    @Test
+    public void addMessages_concurrentProducers_neverInterleavesBatches() throws Exception {
+        int producerCount = 4;
+        int batches = 200;
+        int batchSize = 10;
+        UUID[] producers = createIds(producerCount);
+        Arrays.stream(producers).forEach(queueService::addProducer);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producerCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (UUID producer : producers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < batches; i++) {
+                        List<Message> batch = new ArrayList<>();
+                        for (int j = 0; j < batchSize; j++) {
+                            Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(producer.toString()));
+                            message.setIntProperty("index", j);
+                            batch.add(message);
+                        }
+                        queueService.addMessages(producer, batch);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Message> added = new ArrayList<>(queueService.getMessages());
+        assertThat(added).hasSize(producerCount * batches * batchSize);
+        for (int i = 0; i < added.size(); i += batchSize) {
+            String producer = added.get(i).getBody(String.class);
+            for (int j = 0; j < batchSize; j++) {
+                assertThat(added.get(i + j).getBody(String.class)).isEqualTo(producer);
+                assertThat(added.get(i + j).getIntProperty("index")).isEqualTo(j);
+            }
+        }
+    }
+
+    @Test
+    public void deliverMessages_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.deliverMessages(UUID.randomUUID(), 2));
+
+        assertThat(queueService.getMessages()).containsExactly(messages[0]);
+    }
+
+    @Test
+    public void deliverMessages_moreThanMax_popsFirstMaxInOrder() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+        queueService.addMessage(PRODUCER_ID, messages[2]);
+
+        List<Message> read = queueService.deliverMessages(CONSUMER_ID, 2);
+
+        assertThat(read).containsExactly(messages[0], messages[1]);
+        assertThat(queueService.getMessages()).containsExactly(messages[2]);
+    }
+
+    @Test
+    public void deliverMessages_fewerThanMax_popsAll() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        List<Message> read = queueService.deliverMessages(CONSUMER_ID, 5);
+
+        assertThat(read).containsExactly(messages[0]);
+        assertThat(queueService.getMessages()).isEmpty();
+        assertThat(queueService.deliverMessages(CONSUMER_ID, 5)).isEmpty();
+    }
+
+    @Test
+    public void deliverMessage_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.deliverMessage(UUID.randomUUID()));
+
+        assertThat(queueService.getConsumers()).isEmpty();
+        assertThat(queueService.getMessages()).containsExactly(messages[0]);
+        assertThat(queueService.getProducers()).containsOnly(PRODUCER_ID);
+    }
+
+    @Test
+    public void deliverMessage_consumerExistsNoMessages_returnsEmpty() {
+        queueService.addConsumer(CONSUMER_ID);
+
+        Optional<Message> read = queueService.deliverMessage(CONSUMER_ID);
+
+        assertThat(read).isEmpty();
+        assertThat(queueService.getConsumers()).containsExactly(CONSUMER_ID);
+        assertThat(queueService.getProducers()).isEmpty();
+        assertThat(queueService.getMessages()).isEmpty();
+    }
+
+    @Test
+    public void deliverMessage_consumerExistsWithMessages_popsFirst() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+
+        Optional<Message> read = queueService.deliverMessage(CONSUMER_ID);
+
+        assertThat(read).contains(messages[0]);
+        assertThat(queueService.getConsumers()).containsExactly(CONSUMER_ID);
+        assertThat(queueService.getProducers()).containsOnly(PRODUCER_ID);
+        assertThat(queueService.getMessages()).containsExactly(messages[1]);
+    }
+
+    @Test
+    public void deliverMessage_multipleConsumers_popFromSameQueue() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        queueService.addMessage(PRODUCER_ID, messages[1]);
+        queueService.addMessage(PRODUCER_ID, messages[2]);
+        queueService.addMessage(PRODUCER_ID, messages[3]);
+
+        queueService.addConsumer(CONSUMER_ID_1);
+        queueService.addConsumer(CONSUMER_ID_2);
+
+        Optional<Message> read1 = queueService.deliverMessage(CONSUMER_ID_1);
+        Optional<Message> read2 = queueService.deliverMessage(CONSUMER_ID_2);
+        Optional<Message> read3 = queueService.deliverMessage(CONSUMER_ID_1);
+        Optional<Message> read4 = queueService.deliverMessage(CONSUMER_ID_2);
+        Optional<Message> read5 = queueService.deliverMessage(CONSUMER_ID_2);
+        Optional<Message> read6 = queueService.deliverMessage(CONSUMER_ID_1);
+
+        assertThat(read1).contains(messages[0]);
+        assertThat(read2).contains(messages[1]);
+        assertThat(read3).contains(messages[2]);
+        assertThat(read4).contains(messages[3]);
+        assertThat(read5).isEmpty();
+        assertThat(read6).isEmpty();
+    }
+
+    @Test
+    public void addMessage_storesMessageBeforeItCanBeDelivered() {
+        MessageStore messageStore = mock(MessageStore.class);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+        queueService.addProducer(PRODUCER_ID);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        verify(messageStore).addMessage(ID, messages[0]);
+        verifyNoMoreInteractions(messageStore);
+        assertThat(messages[0].getId()).isNotNull();
+        assertThat(queueService.getMessages()).containsExactly(messages[0]);
+    }
+
+    @Test
+    public void acknowledgeMessage_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        MessageStore messageStore = mock(MessageStore.class);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> queueService.acknowledgeMessage(CONSUMER_ID, messages[0]));
+
+        verifyZeroInteractions(messageStore);
+    }
+
+    @Test
+    public void acknowledgeMessage_removesMessageFromStore() {
+        MessageStore messageStore = mock(MessageStore.class);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+        Message delivered = queueService.deliverMessage(CONSUMER_ID).get();
+
+        queueService.acknowledgeMessage(CONSUMER_ID, delivered);
+
+        verify(messageStore).acknowledgeMessage(delivered.getId());
+    }
+
+    @Test
+    public void restoreMessages_deliversRestoredMessagesFirstWithoutStoringThem() {
+        MessageStore messageStore = mock(MessageStore.class);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+
+        queueService.restoreMessages(Arrays.asList(messages[0], messages[1]));
+        queueService.addMessage(PRODUCER_ID, messages[2]);
+
+        assertThat(queueService.deliverMessage(CONSUMER_ID)).contains(messages[0]);
+        assertThat(queueService.deliverMessage(CONSUMER_ID)).contains(messages[1]);
+        assertThat(queueService.deliverMessage(CONSUMER_ID)).contains(messages[2]);
+        verify(messageStore).addMessage(ID, messages[2]);
+        verifyNoMoreInteractions(messageStore);
+    }
+
+    @Test
+    public void restoreMessages_makesMessagesReadOnly() {
+        queueService.restoreMessages(Collections.singletonList(messages[0]));
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> messages[0].setId("ID:other"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(messages[0]::clearBody);
+    }
+
+    @Test
+    public void requeueMessages_deliversRequeuedMessagesFirstInOrderWithoutStoringThem() {
+        MessageStore messageStore = mock(MessageStore.class);
+        MessageWaiters.Waiter waiter = mock(MessageWaiters.Waiter.class);
+        when(waiter.wake()).thenReturn(true);
+        queueService = new ConcurrentQueueService(ID, messageStore, new MessageIdGenerator());
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        queueService.addMessage(PRODUCER_ID, messages[2]);
+        queueService.addWaiter(waiter);
+
+        queueService.requeueMessages(Arrays.asList(messages[0], messages[1]));
+
+        assertThat(queueService.deliverMessages(CONSUMER_ID, 3)).containsExactly(messages[0], messages[1], messages[2]);
+        verify(waiter).wake();
+        verify(messageStore).addMessage(ID, messages[2]);
+        verifyNoMoreInteractions(messageStore);
+    }
+
+    @Test
+    public void addMessage_waitersParked_wakesLongestWaitingReceiver() {
+        MessageWaiters.Waiter first = mock(MessageWaiters.Waiter.class);
+        MessageWaiters.Waiter second = mock(MessageWaiters.Waiter.class);
+        when(first.wake()).thenReturn(true);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addWaiter(first);
+        queueService.addWaiter(second);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        verify(first).wake();
+        verifyZeroInteractions(second);
+        assertThat(queueService.getWaiters().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void addMessage_waiterRemoved_isNotWoken() {
+        MessageWaiters.Waiter waiter = mock(MessageWaiters.Waiter.class);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addWaiter(waiter);
+        queueService.removeWaiter(waiter);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        verifyZeroInteractions(waiter);
+    }
+
+    @Test
+    public void addMessageAndDeliverMessage_concurrentProducersAndConsumers_deliversEachMessageOnceInProducerOrder() throws Exception {
+        int producerCount = 4;
+        int consumerCount = 4;
+        int messagesPerProducer = 10_000;
+        UUID[] producers = createIds(producerCount);
+        UUID[] consumers = createIds(consumerCount);
+        Arrays.stream(producers).forEach(queueService::addProducer);
+        Arrays.stream(consumers).forEach(queueService::addConsumer);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producerCount + consumerCount);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger remaining = new AtomicInteger(producerCount * messagesPerProducer);
+        try {
+            List<Future<?>> sent = new ArrayList<>();
+            for (int p = 0; p < producerCount; p++) {
+                int producer = p;
+                sent.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < messagesPerProducer; i++) {
+                        queueService.addMessage(producers[producer], new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(producer + ":" + i)));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<List<String>>> received = new ArrayList<>();
+            for (UUID consumer : consumers) {
+                received.add(executor.submit(() -> {
+                    start.await();
+                    List<String> texts = new ArrayList<>();
+                    while (remaining.get() > 0) {
+                        queueService.deliverMessage(consumer).ifPresent(message -> {
+                            texts.add(((TextMessage) message).getText());
+                            remaining.decrementAndGet();
+                        });
+                    }
+                    return texts;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : sent) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : received) {
+                List<String> texts = future.get(30, TimeUnit.SECONDS);
+                assertThat(texts).allSatisfy(text -> assertThat(all.add(text)).isTrue());
+                assertInProducerOrder(texts, producerCount);
+            }
+            assertThat(all).hasSize(producerCount * messagesPerProducer);
+            assertThat(queueService.getMessages()).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void addConsumerAndRemoveConsumer_concurrentThreads_tracksEveryConsumer() throws Exception {
+        int threadCount = 8;
+        int consumersPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<UUID[]>> added = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                added.add(executor.submit(() -> {
+                    UUID[] consumers = createIds(consumersPerThread);
+                    start.await();
+                    Arrays.stream(consumers).forEach(queueService::addConsumer);
+                    Arrays.stream(consumers).limit(consumersPerThread / 2).forEach(queueService::removeConsumer);
+                    return consumers;
+                }));
+            }
+
+            start.countDown();
+            Set<UUID> expected = new HashSet<>();
+            for (Future<UUID[]> future : added) {
+                UUID[] consumers = future.get(30, TimeUnit.SECONDS);
+                expected.addAll(Arrays.asList(consumers).subList(consumersPerThread / 2, consumersPerThread));
+            }
+            assertThat(queueService.getConsumers()).containsExactlyInAnyOrderElementsOf(expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertInProducerOrder(List<String> texts, int producerCount) {
+        int[] last = new int[producerCount];
+        Arrays.fill(last, -1);
+        for (String text : texts) {
+            String[] parts = text.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            int sequence = Integer.parseInt(parts[1]);
+            assertThat(sequence).isGreaterThan(last[producer]);
+            last[producer] = sequence;
+        }
+    }
+
+    private static UUID[] createIds(int count) {
+        UUID[] ids = new UUID[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+        return ids;
+    }
+
+    @Test
+    public void deliverMessage_consumerWithSelector_popsFirstSelected() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID, Selector.parse("prop1 > 2"));
+        Arrays.stream(messages).forEach(message -> queueService.addMessage(PRODUCER_ID, message));
+
+        Optional<Message> read = queueService.deliverMessage(CONSUMER_ID);
+
+        assertThat(read).contains(messages[1]);
+        assertThat(queueService.getMessages()).containsExactly(messages[0], messages[2], messages[3]);
+        assertThat(queueService.deliverMessage(CONSUMER_ID)).isEmpty();
+    }
+
+    @Test
+    public void deliverMessages_consumerWithSelector_popsSelectedInOrderLeavingOthers() {
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID_1, Selector.parse("prop1 IS NOT NULL"));
+        queueService.addConsumer(CONSUMER_ID_2);
+        Arrays.stream(messages).forEach(message -> queueService.addMessage(PRODUCER_ID, message));
+
+        List<Message> read = queueService.deliverMessages(CONSUMER_ID_1, 5);
+
+        assertThat(read).containsExactly(messages[0], messages[1]);
+        assertThat(queueService.deliverMessages(CONSUMER_ID_2, 5)).containsExactly(messages[2], messages[3]);
+    }
+
+    @Test
+    public void deliverMessage_concurrentConsumersWithAndWithoutSelectors_deliversEachMessageOnce() throws Exception {
+        int messageCount = 20_000;
+        UUID[] consumers = createIds(4);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(consumers[0], Selector.parse("n >= 0"));
+        queueService.addConsumer(consumers[1], Selector.parse("n >= 0"));
+        queueService.addConsumer(consumers[2], Selector.parse("n >= 0"));
+        queueService.addConsumer(consumers[3]);
+        for (int i = 0; i < messageCount; i++) {
+            Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(String.valueOf(i)));
+            message.setIntProperty("n", i);
+            queueService.addMessage(PRODUCER_ID, message);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(consumers.length);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Message>>> received = new ArrayList<>();
+            for (int c = 0; c < consumers.length; c++) {
+                UUID consumer = consumers[c];
+                boolean batches = c % 2 == 0;
+                received.add(executor.submit(() -> {
+                    start.await();
+                    List<Message> taken = new ArrayList<>();
+                    while (true) {
+                        List<Message> next = batches
+                                ? queueService.deliverMessages(consumer, 3)
+                                : queueService.deliverMessage(consumer).map(Collections::singletonList).orElse(Collections.emptyList());
+                        if (next.isEmpty()) {
+                            return taken;
+                        }
+                        taken.addAll(next);
+                    }
+                }));
+            }
+
+            start.countDown();
+            Set<Message> all = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<List<Message>> future : received) {
+                assertThat(future.get(30, TimeUnit.SECONDS)).allSatisfy(message -> assertThat(all.add(message)).isTrue());
+            }
+            assertThat(all).hasSize(messageCount);
+            assertThat(queueService.getMessages()).isEmpty();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void addMessage_consumerWithSelector_wakesEveryWaiter() {
+        MessageWaiters.Waiter first = mock(MessageWaiters.Waiter.class);
+        MessageWaiters.Waiter second = mock(MessageWaiters.Waiter.class);
+        when(first.wake()).thenReturn(true);
+        when(second.wake()).thenReturn(true);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID, Selector.parse("prop1 > 2"));
+        queueService.addWaiter(first);
+        queueService.addWaiter(second);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        verify(first).wake();
+        verify(second).wake();
+    }
+
+    @Test
+    public void removeConsumer_lastConsumerWithSelector_wakesOneWaiterAgain() {
+        MessageWaiters.Waiter first = mock(MessageWaiters.Waiter.class);
+        MessageWaiters.Waiter second = mock(MessageWaiters.Waiter.class);
+        when(first.wake()).thenReturn(true);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID, Selector.parse("prop1 > 2"));
+        queueService.removeConsumer(CONSUMER_ID);
+        queueService.addWaiter(first);
+        queueService.addWaiter(second);
+
+        queueService.addMessage(PRODUCER_ID, messages[0]);
+
+        verify(first).wake();
+        verifyZeroInteractions(second);
+    }
+
+    private static Message[] createMessages() {
+        TextMessage message1 = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world"));
+        ObjectMessage message2 = new ObjectMessage(new HeadersImpl(), new PropertiesImpl(), new ObjectBody(2));
+        TextMessage message3 = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("abcd"));
+        ObjectMessage message4 = new ObjectMessage(new HeadersImpl(), new PropertiesImpl(), new ObjectBody(12.3));
+
+        message1.setIntProperty("prop1", 2);
+        message1.setFloatProperty("prop2", 2.3f);
+
+        message2.setDoubleProperty("prop1", 2.3);
+        message2.setShortProperty("prop", (short) 12);
+
+        message3.setBooleanProperty("a", false);
+        message3.setStringProperty("b", "hello");
+
+        message4.setObject(12.3);
+
+        return new Message[]{message1, message2, message3, message4};
+    }
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.BinaryMessageCodec;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
 import kitchen.josh.simplejms.common.message.Message;
 import kitchen.josh.simplejms.common.message.MessageModel;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
@@ -19,17 +22,29 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -45,6 +60,12 @@ public class ConsumerControllerIntegrationTest {
     @Mock
     private SingleConsumerService singleConsumerService;
 
+    @Mock
+    private PendingReceive pendingReceive;
+
+    @Mock
+    private MessageStream messageStream;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -56,7 +77,7 @@ public class ConsumerControllerIntegrationTest {
 
     @Test
     public void createConsumer_returnsOkAndId() throws Exception {
-        when(consumerManager.createConsumer(any())).thenReturn(CONSUMER_ID);
+        when(consumerManager.createConsumer(any(), any())).thenReturn(CONSUMER_ID);
 
         mockMvc.perform(post("/consumer")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
@@ -65,7 +86,7 @@ public class ConsumerControllerIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(content().json("{\"id\": \"" + CONSUMER_ID + "\"}", true));
 
-        verify(consumerManager).createConsumer(new Destination(DestinationType.TOPIC, DESTINATION_ID));
+        verify(consumerManager).createConsumer(new Destination(DestinationType.TOPIC, DESTINATION_ID), Selector.ALL);
         verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
     }
 
@@ -83,7 +104,7 @@ public class ConsumerControllerIntegrationTest {
 
     @Test
     public void createConsumer_destinationDoesNotExist_returnsBadRequest() throws Exception {
-        when(consumerManager.createConsumer(any())).thenThrow(DestinationDoesNotExistException.class);
+        when(consumerManager.createConsumer(any(), any())).thenThrow(DestinationDoesNotExistException.class);
 
         mockMvc.perform(post("/consumer")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
@@ -92,10 +113,38 @@ public class ConsumerControllerIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(content().json("{\"message\": \"Failed to create consumer: the destination does not exist\"}", true));
 
-        verify(consumerManager).createConsumer(new Destination(DestinationType.TOPIC, DESTINATION_ID));
+        verify(consumerManager).createConsumer(new Destination(DestinationType.TOPIC, DESTINATION_ID), Selector.ALL);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void createConsumer_withSelector_createsConsumerWithParsedSelector() throws Exception {
+        when(consumerManager.createConsumer(any(), any())).thenReturn(CONSUMER_ID);
+
+        mockMvc.perform(post("/consumer")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"destination\": \"topic:" + DESTINATION_ID + "\", \"selector\": \"colour = 'red'\"}"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"id\": \"" + CONSUMER_ID + "\"}", true));
+
+        verify(consumerManager).createConsumer(eq(new Destination(DestinationType.TOPIC, DESTINATION_ID)),
+                argThat(selector -> selector.toString().equals("colour = 'red'")));
         verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
     }
 
+    @Test
+    public void createConsumer_invalidSelector_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/consumer")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"destination\": \"topic:" + DESTINATION_ID + "\", \"selector\": \"colour =\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"message\": \"Failed to create consumer: the selector is invalid\"}", true));
+
+        verifyZeroInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
     @Test
     public void deleteConsumer_returnsOk() throws Exception {
         mockMvc.perform(delete("/consumer/" + CONSUMER_ID))
@@ -135,7 +184,7 @@ public class ConsumerControllerIntegrationTest {
     @Test
     public void receiveMessage_message_returnsMessage() throws Exception {
         when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
-        when(singleConsumerService.receive()).thenReturn(Optional.of(MESSAGE));
+        when(singleConsumerService.receive()).thenReturn(Optional.of(new Delivery(MESSAGE, 1)));
         when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT)));
 
         mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive"))
@@ -148,6 +197,65 @@ public class ConsumerControllerIntegrationTest {
         verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
     }
 
+    @Test
+    public void receiveMessage_topicMessageReceivedByTwoConsumers_createsModelOnce() throws Exception {
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+        message.setDestination(new Destination(DestinationType.TOPIC, DESTINATION_ID));
+        message.setId(MESSAGE_ID);
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive()).thenReturn(Optional.of(new Delivery(message, 1)));
+        when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(MESSAGE_ID, null), emptyList(), new TextBodyModel(TEXT)));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive"))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(content().json("{\"headers\": {\"JMSMessageID\": \"" + MESSAGE_ID + "\"}, \"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []}"));
+        }
+
+        verify(consumerManager, times(2)).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService, times(2)).receive();
+        verify(messageModelFactory).create(message);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessage_redelivered_returnsRedeliveredMessage() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive()).thenReturn(Optional.of(new Delivery(MESSAGE, 2)));
+        when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(MESSAGE_ID, null), emptyList(), new TextBodyModel(TEXT)));
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"headers\": {\"JMSMessageID\": \"" + MESSAGE_ID + "\", \"JMSRedelivered\": true}, \"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []}"));
+
+        verify(messageModelFactory).create(MESSAGE);
+    }
+
+    @Test
+    public void receiveMessage_acceptsBinary_returnsBinaryMessage() throws Exception {
+        MessageModel model = new MessageModel(new HeadersModel("ID:1234", null), emptyList(), new TextBodyModel(TEXT));
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive()).thenReturn(Optional.of(new Delivery(MESSAGE, 1)));
+        when(messageModelFactory.create(any())).thenReturn(model);
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive")
+                .accept(BinaryMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryMessageConverter.MEDIA_TYPE))
+                .andExpect(content().bytes(new BinaryMessageCodec().encode(model)));
+    }
+
+    @Test
+    public void receiveMessage_acceptsBinaryConsumerDoesNotExist_returnsJsonError() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive")
+                .accept(BinaryMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the consumer does not exist\"}"));
+    }
+
     @Test
     public void receiveMessage_consumerDoesNotExist_returnsBadRequest() throws Exception {
         when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
@@ -161,6 +269,307 @@ public class ConsumerControllerIntegrationTest {
         verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
     }
 
+    @Test
+    public void receiveMessages_returnsArrayOfMessages() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive(anyInt())).thenReturn(asList(new Delivery(MESSAGE, 1), new Delivery(MESSAGE, 1)));
+        when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT)));
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("max", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[" +
+                        "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []}," +
+                        "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []}]"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).receive(10);
+        verify(messageModelFactory, times(2)).create(MESSAGE);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessages_acceptsBinary_returnsBinaryList() throws Exception {
+        MessageModel model = new MessageModel(new HeadersModel("ID:1234", null), emptyList(), new TextBodyModel(TEXT));
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive(anyInt())).thenReturn(asList(new Delivery(MESSAGE, 1), new Delivery(MESSAGE, 1)));
+        when(messageModelFactory.create(any())).thenReturn(model);
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("max", "10")
+                .accept(BinaryMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryMessageConverter.MEDIA_TYPE))
+                .andExpect(content().bytes(new BinaryMessageCodec().encode(asList(model, model))));
+    }
+
+    @Test
+    public void receiveMessages_noMessages_returnsEmptyArray() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receive(anyInt())).thenReturn(emptyList());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("max", "10"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]", true));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).receive(10);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessages_consumerDoesNotExist_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("max", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the consumer does not exist\"}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessages_maxNotPositive_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("max", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the max must be positive\"}"));
+
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_message_returnsMessage() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receiveWhenAvailable(any(), any())).then(invocation -> {
+            invocation.<Consumer<Delivery>>getArgument(0).accept(new Delivery(MESSAGE, 1));
+            return pendingReceive;
+        });
+        when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT)));
+
+        MvcResult result = mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).receiveWhenAvailable(any(), any());
+        verify(messageModelFactory).create(MESSAGE);
+        verify(pendingReceive).cancel();
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory, pendingReceive);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_timeoutElapses_cancelsAndReturnsNull() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receiveWhenAvailable(any(), any())).thenReturn(pendingReceive);
+        when(pendingReceive.cancel()).thenReturn(true, false);
+
+        MvcResult result = mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"body\": null, \"properties\": [], headers: null}", true));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).receiveWhenAvailable(any(), any());
+        verify(pendingReceive, atLeastOnce()).cancel();
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory, pendingReceive);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_consumerRemovedWhileWaiting_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.receiveWhenAvailable(any(), any())).then(invocation -> {
+            invocation.<Consumer<RuntimeException>>getArgument(1).accept(new ConsumerDoesNotExistException());
+            return pendingReceive;
+        });
+
+        MvcResult result = mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "1000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the consumer does not exist\"}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).receiveWhenAvailable(any(), any());
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_consumerDoesNotExist_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "1000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the consumer does not exist\"}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_timeoutNotPositive_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the timeout must be positive\"}"));
+
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_withMax_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/receive").param("timeout", "1000").param("max", "10"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"message\": \"Failed to receive message: the max and timeout can't be combined\"}"));
+
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void streamMessages_opensStreamAndAddsCredit() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.openStream(any(), any())).thenReturn(messageStream);
+
+        mockMvc.perform(get("/consumer/" + CONSUMER_ID + "/stream").param("credit", "16"))
+                .andExpect(request().asyncStarted());
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).openStream(any(), any());
+        verify(messageStream).addCredit(16);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory, messageStream);
+    }
+
+    @Test
+    public void streamMessages_pushesMessageEvents() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(messageModelFactory.create(any())).thenReturn(new MessageModel(new HeadersModel(MESSAGE_ID, null), emptyList(), new TextBodyModel(TEXT)));
+        when(singleConsumerService.openStream(any(), any())).then(invocation -> {
+            MessageStream.Sink sink = invocation.getArgument(0);
+            Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+            message.setId(MESSAGE_ID);
+            sink.send(new Delivery(message, 1));
+            sink.complete();
+            return messageStream;
+        });
+
+        MvcResult result = mockMvc.perform(get("/consumer/" + CONSUMER_ID + "/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getResponse().getContentAsString())
+                .startsWith("event:message\nid:" + MESSAGE_ID + "\ndata:{")
+                .contains("\"text\":\"" + TEXT + "\"")
+                .endsWith("}\n\n");
+        verify(singleConsumerService).openStream(any(), any());
+        verify(messageStream, never()).addCredit(anyInt());
+    }
+
+    @Test
+    public void streamMessages_consumerDoesNotExist_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/consumer/" + CONSUMER_ID + "/stream"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to stream messages: the consumer does not exist\"}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void streamMessages_negativeCredit_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/consumer/" + CONSUMER_ID + "/stream").param("credit", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to stream messages: the credit must not be negative\"}"));
+
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void closeStream_callsConsumerCloseStream() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+
+        mockMvc.perform(delete("/consumer/" + CONSUMER_ID + "/stream"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).closeStream();
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void closeStream_consumerDoesNotExist_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(delete("/consumer/" + CONSUMER_ID + "/stream"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to close stream: the consumer does not exist\"}"));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
+    @Test
+    public void addCredit_callsStreamAddCredit() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.findStream()).thenReturn(Optional.of(messageStream));
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/credit")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"credit\": 32}"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(consumerManager).findConsumer(CONSUMER_ID);
+        verify(singleConsumerService).findStream();
+        verify(messageStream).addCredit(32);
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory, messageStream);
+    }
+
+    @Test
+    public void addCredit_notStreaming_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
+        when(singleConsumerService.findStream()).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/credit")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"credit\": 32}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to add credit: the consumer is not streaming\"}"));
+    }
+
+    @Test
+    public void addCredit_consumerDoesNotExist_returnsBadRequest() throws Exception {
+        when(consumerManager.findConsumer(any())).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/credit")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"credit\": 32}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to add credit: the consumer does not exist\"}"));
+    }
+
+    @Test
+    public void addCredit_notPositive_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/consumer/" + CONSUMER_ID + "/credit")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"credit\": 0}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Failed to add credit: the credit must be positive\"}"));
+
+        verifyNoMoreInteractions(consumerManager, singleConsumerService, messageModelFactory);
+    }
+
     @Test
     public void acknowledge_callsConsumerAcknowledge() throws Exception {
         when(consumerManager.findConsumer(any())).thenReturn(Optional.of(singleConsumerService));
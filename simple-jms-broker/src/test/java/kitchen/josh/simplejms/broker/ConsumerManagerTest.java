@@ -1,5 +1,6 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
 import org.junit.Before;
@@ -43,7 +44,20 @@ public class ConsumerManagerTest {
 
         assertThat(consumerId).isNotNull();
         verify(destinationService).findDestination(DESTINATION);
-        verify(singleDestinationService).addConsumer(consumerId);
+        verify(singleDestinationService).addConsumer(consumerId, Selector.ALL);
+        verifyNoMoreInteractions(destinationService, singleDestinationService);
+    }
+
+    @Test
+    public void createConsumer_withSelector_addsConsumerWithSelector() {
+        when(destinationService.findDestination(any())).thenReturn(Optional.of(singleDestinationService));
+        Selector selector = Selector.parse("colour = 'red'");
+
+        UUID consumerId = consumerManager.createConsumer(DESTINATION, selector);
+
+        assertThat(consumerId).isNotNull();
+        verify(destinationService).findDestination(DESTINATION);
+        verify(singleDestinationService).addConsumer(consumerId, selector);
         verifyNoMoreInteractions(destinationService, singleDestinationService);
     }
 
@@ -72,7 +86,7 @@ public class ConsumerManagerTest {
 
         Optional<SingleConsumerService> consumerService = consumerManager.findConsumer(consumerId);
 
-        assertThat(consumerService).get().isEqualToComparingFieldByField(new SingleConsumerService(consumerId, singleDestinationService));
+        assertThat(consumerService).get().isEqualToComparingFieldByFieldRecursively(new SingleConsumerService(consumerId, singleDestinationService));
         verifyZeroInteractions(destinationService);
     }
 
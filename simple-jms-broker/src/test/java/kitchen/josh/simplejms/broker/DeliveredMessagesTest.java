@@ -0,0 +1,185 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageModel;
+import kitchen.josh.simplejms.common.message.MessageModelFactory;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.body.TextBodyModel;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeliveredMessagesTest {
+
+    private static final Destination TOPIC = new Destination(DestinationType.TOPIC, UUID.randomUUID());
+    private static final Destination QUEUE = new Destination(DestinationType.QUEUE, UUID.randomUUID());
+    private static final MediaType BINARY = MediaType.APPLICATION_OCTET_STREAM;
+
+    @Mock
+    private MessageModelFactory messageModelFactory;
+
+    private DeliveredMessages deliveredMessages;
+    private AtomicInteger encoded;
+
+    @Before
+    public void setUp() {
+        deliveredMessages = new DeliveredMessages(messageModelFactory);
+        encoded = new AtomicInteger();
+    }
+
+    @Test
+    public void deliver_topicMessageToManyConsumers_encodesOnce() throws IOException {
+        Message message = createMessage(TOPIC, "ID:1");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"));
+
+        for (int i = 0; i < 500; i++) {
+            assertThat(encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON)).isEqualTo("ID:1");
+        }
+
+        assertThat(encoded.get()).isEqualTo(1);
+        verify(messageModelFactory).create(message);
+        verifyNoMoreInteractions(messageModelFactory);
+    }
+
+    @Test
+    public void deliver_topicMessage_encodesOncePerMediaType() throws IOException {
+        Message message = createMessage(TOPIC, "ID:1");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"));
+
+        encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON);
+        encode(deliveredMessages.deliver(message), BINARY);
+        encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON);
+        encode(deliveredMessages.deliver(message), BINARY);
+
+        assertThat(encoded.get()).isEqualTo(2);
+        assertThat(deliveredMessages.getTopicEncodings().get(message).size()).isEqualTo(2);
+    }
+
+    @Test
+    public void deliver_topicMessageHeadersChanged_encodesAgain() throws IOException {
+        Message message = createMessage(TOPIC, "ID:1");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"), createModel("ID:2"));
+        encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON);
+
+        message.setId("ID:2");
+
+        assertThat(encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON)).isEqualTo("ID:2");
+        assertThat(encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON)).isEqualTo("ID:2");
+        assertThat(encoded.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void deliver_differentTopicMessages_encodesEach() throws IOException {
+        Message first = createMessage(TOPIC, "ID:1");
+        Message second = createMessage(TOPIC, "ID:2");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"), createModel("ID:2"));
+
+        assertThat(encode(deliveredMessages.deliver(first), MediaType.APPLICATION_JSON)).isEqualTo("ID:1");
+        assertThat(encode(deliveredMessages.deliver(second), MediaType.APPLICATION_JSON)).isEqualTo("ID:2");
+        assertThat(deliveredMessages.getTopicEncodings()).containsOnlyKeys(first, second);
+    }
+
+    @Test
+    public void deliver_queueMessage_encodesEachDelivery() throws IOException {
+        Message message = createMessage(QUEUE, "ID:1");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"));
+
+        encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON);
+        encode(deliveredMessages.deliver(message), MediaType.APPLICATION_JSON);
+
+        assertThat(encoded.get()).isEqualTo(2);
+        assertThat(deliveredMessages.getTopicEncodings()).isEmpty();
+        verify(messageModelFactory, times(2)).create(message);
+    }
+
+    @Test
+    public void deliverList_topicMessage_sharesEncodingWithOtherDeliveries() throws IOException {
+        Message topicMessage = createMessage(TOPIC, "ID:1");
+        Message queueMessage = createMessage(QUEUE, "ID:2");
+        when(messageModelFactory.create(topicMessage)).thenReturn(createModel("ID:1"));
+        when(messageModelFactory.create(queueMessage)).thenReturn(createModel("ID:2"));
+        encode(deliveredMessages.deliver(topicMessage), MediaType.APPLICATION_JSON);
+
+        DeliveredMessageList batch = deliveredMessages.deliver(asList(new Delivery(topicMessage, 1), new Delivery(queueMessage, 1)));
+
+        assertThat(batch.getMessages()).extracting(DeliveredMessage::getMessage).containsExactly(topicMessage, queueMessage);
+        assertThat(encode(batch.getMessages().get(0), MediaType.APPLICATION_JSON)).isEqualTo("ID:1");
+        assertThat(encode(batch.getMessages().get(1), MediaType.APPLICATION_JSON)).isEqualTo("ID:2");
+        assertThat(encoded.get()).isEqualTo(2);
+        verify(messageModelFactory).create(topicMessage);
+    }
+
+    @Test
+    public void deliver_redeliveredTopicMessage_encodesRedeliveredWithoutSharing() throws IOException {
+        Message message = createMessage(TOPIC, "ID:1");
+        when(messageModelFactory.create(any())).thenReturn(createModel("ID:1"));
+        encode(deliveredMessages.deliver(new Delivery(message, 1)), MediaType.APPLICATION_JSON);
+
+        MessageModel[] written = new MessageModel[1];
+        deliveredMessages.deliver(new Delivery(message, 2)).encode(MediaType.APPLICATION_JSON, model -> {
+            written[0] = model;
+            return new byte[0];
+        });
+
+        assertThat(written[0].getHeaders()).isEqualTo(new HeadersModel("ID:1", null, true));
+        assertThat(written[0].getBody()).isEqualTo(new TextBodyModel("hello world"));
+        assertThat(encode(deliveredMessages.deliver(new Delivery(message, 1)), MediaType.APPLICATION_JSON)).isEqualTo("ID:1");
+        assertThat(encoded.get()).isEqualTo(1);
+        assertThat(message.isRedelivered()).isFalse();
+    }
+
+    @Test
+    public void none_encodesNoMessage() throws IOException {
+        DeliveredMessage none = deliveredMessages.none();
+
+        assertThat(none.getMessage()).isNull();
+        assertThat(encode(none, MediaType.APPLICATION_JSON)).isEqualTo("null");
+        assertThat(encode(deliveredMessages.none(), MediaType.APPLICATION_JSON)).isEqualTo("null");
+        assertThat(encoded.get()).isEqualTo(1);
+        verifyZeroInteractions(messageModelFactory);
+    }
+
+    /**
+     * Encodes a message as its id, counting each time it is encoded.
+     */
+    private String encode(DeliveredMessage deliveredMessage, MediaType mediaType) throws IOException {
+        byte[] bytes = deliveredMessage.encode(mediaType, model -> {
+            encoded.incrementAndGet();
+            return String.valueOf(model.getHeaders() == null ? null : model.getHeaders().getId())
+                    .getBytes(StandardCharsets.UTF_8);
+        });
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Message createMessage(Destination destination, String id) {
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world"));
+        message.setDestination(destination);
+        message.setId(id);
+        return message;
+    }
+
+    private static MessageModel createModel(String id) {
+        return new MessageModel(new HeadersModel(id, null), emptyList(), new TextBodyModel("hello world"));
+    }
+}
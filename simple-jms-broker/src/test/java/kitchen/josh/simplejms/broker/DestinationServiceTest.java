@@ -2,13 +2,21 @@ package kitchen.josh.simplejms.broker;
 
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 public class DestinationServiceTest {
 
@@ -25,7 +33,7 @@ public class DestinationServiceTest {
 
         assertThat(queueId).isNotNull();
         assertThat(destinationService.getQueues()).containsOnlyKeys(queueId);
-        assertThat(destinationService.getQueues().get(queueId)).isInstanceOf(QueueService.class);
+        assertThat(destinationService.getQueues().get(queueId)).isInstanceOf(ConcurrentQueueService.class);
         assertThat(destinationService.getTopics()).isEmpty();
     }
 
@@ -68,4 +76,48 @@ public class DestinationServiceTest {
         assertThat(destinationService.findDestination(new Destination(DestinationType.TOPIC, UUID.randomUUID()))).isEmpty();
         assertThat(destinationService.findDestination(new Destination(DestinationType.QUEUE, topicId))).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void createDestination_QUEUE_storesQueue() {
+        MessageStore messageStore = mock(MessageStore.class);
+        destinationService = new DestinationService(messageStore, new MessageIdGenerator());
+
+        UUID queueId = destinationService.createDestination(DestinationType.QUEUE);
+
+        verify(messageStore).recover();
+        verify(messageStore).addQueue(queueId);
+        verifyNoMoreInteractions(messageStore);
+    }
+
+    @Test
+    public void createDestination_TOPIC_doesNotStoreTopic() {
+        MessageStore messageStore = mock(MessageStore.class);
+        destinationService = new DestinationService(messageStore, new MessageIdGenerator());
+
+        destinationService.createDestination(DestinationType.TOPIC);
+
+        verify(messageStore).recover();
+        verifyNoMoreInteractions(messageStore);
+    }
+
+    @Test
+    public void constructor_recoversStoredQueuesWithTheirMessages() {
+        UUID emptyQueueId = UUID.randomUUID();
+        UUID queueId = UUID.randomUUID();
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello"));
+        Map<UUID, List<Message>> stored = new HashMap<>();
+        stored.put(emptyQueueId, emptyList());
+        stored.put(queueId, singletonList(message));
+        MessageStore messageStore = mock(MessageStore.class);
+        when(messageStore.recover()).thenReturn(stored);
+
+        destinationService = new DestinationService(messageStore, new MessageIdGenerator());
+
+        assertThat(destinationService.getQueues()).containsOnlyKeys(emptyQueueId, queueId);
+        ConcurrentQueueService queue = (ConcurrentQueueService) destinationService.getQueues().get(queueId);
+        assertThat(queue.getMessages()).containsExactly(message);
+        assertThat(((ConcurrentQueueService) destinationService.getQueues().get(emptyQueueId)).getMessages()).isEmpty();
+        verify(messageStore, never()).addQueue(any());
+        verify(messageStore, never()).addMessage(any(), any());
+    }
+}
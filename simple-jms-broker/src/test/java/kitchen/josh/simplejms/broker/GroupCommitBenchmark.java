@@ -0,0 +1,79 @@
+package kitchen.josh.simplejms.broker;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures durable appends to the journal from many concurrent senders.
+ * <p>
+ * <code>groupCommit</code> appends a record then waits for a shared flush by the {@link GroupCommit}, while
+ * <code>forceEachSend</code> appends the same record and forces the journal itself, as every send would without group
+ * commit. The average number of sends per flush is printed at the end of each iteration.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class GroupCommitBenchmark {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"0", "500"})
+    private long flushInterval;
+
+    private Path directory;
+    private SimpleMeterRegistry meterRegistry;
+    private Journal journal;
+    private GroupCommit groupCommit;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("group-commit-benchmark");
+        meterRegistry = new SimpleMeterRegistry();
+        journal = new Journal(directory, SEGMENT_SIZE);
+        groupCommit = new GroupCommit(journal, flushInterval, 256 * 1024, meterRegistry);
+        payload = new byte[256];
+    }
+
+    @TearDown(Level.Iteration)
+    public void printBatchSize() {
+        DistributionSummary sends = meterRegistry.find("simplejms.journal.commit.sends").summary();
+        if (sends != null && sends.count() > 0) {
+            System.out.printf("%n%.1f sends per flush over %d flushes%n", sends.mean(), sends.count());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        groupCommit.close();
+        journal.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void groupCommit() {
+        long position;
+        synchronized (journal) {
+            journal.append((byte) 1, payload);
+            position = journal.getPosition();
+        }
+        groupCommit.awaitDurable(position);
+    }
+
+    @Benchmark
+    public long forceEachSend() {
+        journal.append((byte) 1, payload);
+        return journal.force();
+    }
+}
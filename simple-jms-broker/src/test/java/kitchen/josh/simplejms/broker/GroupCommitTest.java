@@ -0,0 +1,145 @@
+package kitchen.josh.simplejms.broker;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class GroupCommitTest {
+
+    private static final long NEVER = TimeUnit.MINUTES.toMicros(10);
+    private static final byte[] PAYLOAD = new byte[11];
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SimpleMeterRegistry meterRegistry;
+    private Journal journal;
+    private GroupCommit groupCommit;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        journal = new Journal(folder.getRoot().toPath(), 1024);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        groupCommit.close();
+        journal.close();
+    }
+
+    @Test
+    public void awaitDurable_positionAlreadyDurable_returnsWithoutFlushing() {
+        groupCommit = new GroupCommit(journal, NEVER, Long.MAX_VALUE, meterRegistry);
+
+        groupCommit.awaitDurable(0);
+
+        assertThat(sends().count()).isZero();
+    }
+
+    @Test
+    public void awaitDurable_flushIntervalPassed_returnsOnceDurable() {
+        groupCommit = new GroupCommit(journal, 100, Long.MAX_VALUE, meterRegistry);
+        long position = append();
+
+        groupCommit.awaitDurable(position);
+
+        assertThat(groupCommit.getDurable()).isEqualTo(position);
+        assertThat(sends().count()).isEqualTo(1);
+        assertThat(sends().totalAmount()).isEqualTo(1);
+        assertThat(bytes().totalAmount()).isEqualTo(position);
+    }
+
+    @Test
+    public void awaitDurable_batchFull_flushesWithoutWaitingForInterval() throws Exception {
+        groupCommit = new GroupCommit(journal, NEVER, 1, meterRegistry);
+        long position = append();
+
+        executor.submit(() -> groupCommit.awaitDurable(position)).get(10, TimeUnit.SECONDS);
+
+        assertThat(groupCommit.getDurable()).isEqualTo(position);
+    }
+
+    @Test
+    public void awaitDurable_concurrentSenders_releasesEverySenderOnce() throws Exception {
+        groupCommit = new GroupCommit(journal, 1000, Long.MAX_VALUE, meterRegistry);
+        int senders = 8;
+        int sendsPerSender = 100;
+        CyclicBarrier start = new CyclicBarrier(senders);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < senders; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < sendsPerSender; j++) {
+                    long position = append();
+                    groupCommit.awaitDurable(position);
+                    assertThat(groupCommit.getDurable()).isGreaterThanOrEqualTo(position);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        // A send already covered by a flush in progress when it starts waiting returns without being counted.
+        assertThat(sends().totalAmount()).isLessThanOrEqualTo(senders * sendsPerSender).isPositive();
+        assertThat(sends().count()).isLessThanOrEqualTo(senders * sendsPerSender);
+        assertThat(bytes().totalAmount()).isEqualTo(journal.getPosition());
+    }
+
+    @Test
+    public void close_waitingSender_flushesAndReleasesSender() throws Exception {
+        groupCommit = new GroupCommit(journal, NEVER, Long.MAX_VALUE, meterRegistry);
+        long position = append();
+        Future<?> sender = executor.submit(() -> groupCommit.awaitDurable(position));
+        while (groupCommit.getWaitingCount() == 0) {
+            Thread.yield();
+        }
+
+        groupCommit.close();
+
+        sender.get(10, TimeUnit.SECONDS);
+        assertThat(groupCommit.getDurable()).isEqualTo(position);
+    }
+
+    @Test
+    public void awaitDurable_closed_throwsIllegalState() {
+        groupCommit = new GroupCommit(journal, NEVER, Long.MAX_VALUE, meterRegistry);
+        groupCommit.close();
+        long position = append();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> groupCommit.awaitDurable(position));
+    }
+
+    private long append() {
+        synchronized (journal) {
+            journal.append((byte) 1, PAYLOAD);
+            return journal.getPosition();
+        }
+    }
+
+    private DistributionSummary sends() {
+        return meterRegistry.get("simplejms.journal.commit.sends").summary();
+    }
+
+    private DistributionSummary bytes() {
+        return meterRegistry.get("simplejms.journal.commit.bytes").summary();
+    }
+}
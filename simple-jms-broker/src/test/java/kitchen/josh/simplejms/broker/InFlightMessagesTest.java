@@ -0,0 +1,179 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class InFlightMessagesTest {
+
+    private InFlightMessages inFlight;
+
+    @Before
+    public void setUp() {
+        inFlight = new InFlightMessages();
+    }
+
+    @Test
+    public void add_returnsIncreasingSequenceNumbers() {
+        assertThat(inFlight.add(createMessage())).isEqualTo(0);
+        assertThat(inFlight.add(createMessage())).isEqualTo(1);
+        assertThat(inFlight.add(createMessage())).isEqualTo(2);
+
+        assertThat(inFlight.size()).isEqualTo(3);
+        assertThat(inFlight.getFirstSequence()).isEqualTo(0);
+        assertThat(inFlight.getEndSequence()).isEqualTo(3);
+    }
+
+    @Test
+    public void get_returnsMessageAtSequence() {
+        Message first = createMessage();
+        Message second = createMessage();
+        inFlight.add(first);
+        inFlight.add(second);
+
+        assertThat(inFlight.get(0)).isSameAs(first);
+        assertThat(inFlight.get(1)).isSameAs(second);
+    }
+
+    @Test
+    public void get_sequenceNotInFlight_throwsIndexOutOfBounds() {
+        inFlight.add(createMessage());
+        inFlight.add(createMessage());
+        inFlight.acknowledgeUpTo(0, message -> {
+        });
+
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> inFlight.get(0));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> inFlight.get(2));
+    }
+
+    @Test
+    public void find_returnsSequenceOfMessage() {
+        Message first = createMessage();
+        Message second = createMessage();
+        inFlight.add(first);
+        inFlight.add(second);
+
+        assertThat(inFlight.find(first.getId())).isEqualTo(0);
+        assertThat(inFlight.find(second.getId())).isEqualTo(1);
+        assertThat(inFlight.find("ID:" + UUID.randomUUID())).isEqualTo(-1);
+    }
+
+    @Test
+    public void acknowledgeUpTo_removesOldestMessagesInOrder() {
+        Message[] messages = {createMessage(), createMessage(), createMessage()};
+        for (Message message : messages) {
+            inFlight.add(message);
+        }
+        List<Message> acknowledged = new ArrayList<>();
+
+        inFlight.acknowledgeUpTo(1, acknowledged::add);
+
+        assertThat(acknowledged).containsExactly(messages[0], messages[1]);
+        assertThat(inFlight.size()).isEqualTo(1);
+        assertThat(inFlight.getFirstSequence()).isEqualTo(2);
+        assertThat(inFlight.get(2)).isSameAs(messages[2]);
+        assertThat(inFlight.find(messages[0].getId())).isEqualTo(-1);
+        assertThat(inFlight.find(messages[1].getId())).isEqualTo(-1);
+    }
+
+    @Test
+    public void acknowledgeUpTo_alreadyAcknowledged_doesNothing() {
+        inFlight.add(createMessage());
+        inFlight.add(createMessage());
+        inFlight.acknowledgeUpTo(1, message -> {
+        });
+        List<Message> acknowledged = new ArrayList<>();
+
+        inFlight.acknowledgeUpTo(0, acknowledged::add);
+
+        assertThat(acknowledged).isEmpty();
+        assertThat(inFlight.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void acknowledgeUpTo_acknowledgedThrows_leavesThatMessageAndLaterOnesInFlight() {
+        Message[] messages = {createMessage(), createMessage(), createMessage()};
+        for (Message message : messages) {
+            inFlight.add(message);
+        }
+
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class).isThrownBy(() -> inFlight.acknowledgeUpTo(2, message -> {
+            if (message == messages[1]) {
+                throw new ConsumerDoesNotExistException();
+            }
+        }));
+
+        assertThat(inFlight.getFirstSequence()).isEqualTo(1);
+        assertThat(inFlight.find(messages[1].getId())).isEqualTo(1);
+        assertThat(inFlight.removeAll()).containsExactly(messages[1], messages[2]);
+    }
+
+    @Test
+    public void redeliver_countsEachDeliveryOfMessage() {
+        Message message = createMessage();
+        long sequence = inFlight.add(message);
+
+        Delivery first = inFlight.getDelivery(sequence);
+        Delivery second = inFlight.redeliver(sequence);
+        Delivery third = inFlight.redeliver(sequence);
+
+        assertThat(first.getMessage()).isSameAs(message);
+        assertThat(first.getDeliveryCount()).isEqualTo(1);
+        assertThat(first.isRedelivered()).isFalse();
+        assertThat(second.getMessage()).isSameAs(message);
+        assertThat(second.getDeliveryCount()).isEqualTo(2);
+        assertThat(second.isRedelivered()).isTrue();
+        assertThat(third.getDeliveryCount()).isEqualTo(3);
+        assertThat(inFlight.getDelivery(sequence).getDeliveryCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void add_moreThanCapacity_keepsDeliveryCounts() {
+        long redelivered = inFlight.add(createMessage());
+        inFlight.redeliver(redelivered);
+        for (int i = 0; i < 100; i++) {
+            inFlight.add(createMessage());
+        }
+
+        assertThat(inFlight.getDelivery(redelivered).getDeliveryCount()).isEqualTo(2);
+        assertThat(inFlight.getDelivery(redelivered + 1).getDeliveryCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void add_moreThanCapacityAfterWrappingAround_keepsEveryMessageInOrder() {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            messages.add(createMessage());
+            inFlight.add(messages.get(i));
+        }
+        inFlight.acknowledgeUpTo(9, message -> {
+        });
+        for (int i = 10; i < 100; i++) {
+            messages.add(createMessage());
+            inFlight.add(messages.get(i));
+        }
+
+        assertThat(inFlight.size()).isEqualTo(90);
+        for (int i = 10; i < 100; i++) {
+            assertThat(inFlight.get(i)).isSameAs(messages.get(i));
+            assertThat(inFlight.find(messages.get(i).getId())).isEqualTo(i);
+        }
+    }
+
+    private static Message createMessage() {
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody());
+        message.setId("ID:" + UUID.randomUUID());
+        return message;
+    }
+}
@@ -0,0 +1,59 @@
+package kitchen.josh.simplejms.broker;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sustained append throughput of the {@link Journal}, writing raw records of a fixed size.
+ * <p>
+ * Old segments are deleted as the benchmark goes, so the journal stays the same size however long it runs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class JournalBenchmark {
+
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    @Param({"64", "256", "1024"})
+    private int recordSize;
+
+    private Path directory;
+    private Journal journal;
+    private byte[] payload;
+    private long lastSegment;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        journal = new Journal(directory, SEGMENT_SIZE);
+        payload = new byte[recordSize];
+        lastSegment = -1;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public long append() {
+        long segment = journal.append((byte) 1, payload);
+        if (segment != lastSegment) {
+            if (lastSegment >= 0) {
+                journal.delete(lastSegment);
+            }
+            lastSegment = segment;
+        }
+        return segment;
+    }
+}
@@ -0,0 +1,253 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.*;
+import kitchen.josh.simplejms.common.message.body.BodyFactory;
+import kitchen.josh.simplejms.common.message.body.BodyModelFactory;
+import kitchen.josh.simplejms.common.message.body.ObjectBody;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersFactory;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.headers.HeadersModelFactory;
+import kitchen.josh.simplejms.common.message.properties.PropertiesFactory;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertyModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class JournalMessageStoreTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final UUID QUEUE_ID = UUID.randomUUID();
+    private static final UUID QUEUE_ID_2 = UUID.randomUUID();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MessageModelFactory messageModelFactory;
+    private Path directory;
+    private JournalMessageStore messageStore;
+
+    @Before
+    public void setUp() throws IOException {
+        messageModelFactory = new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory());
+        directory = folder.getRoot().toPath();
+        messageStore = open();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        messageStore.close();
+    }
+
+    @Test
+    public void recover_empty_returnsNoQueues() {
+        assertThat(messageStore.recover()).isEmpty();
+    }
+
+    @Test
+    public void recover_reopened_returnsQueuesAndMessagesInOrder() throws Exception {
+        Message text = createTextMessage(QUEUE_ID, "hello");
+        Message object = createObjectMessage(QUEUE_ID, 42);
+        Message other = createTextMessage(QUEUE_ID_2, "world");
+        UUID emptyQueueId = UUID.randomUUID();
+        messageStore.addQueue(QUEUE_ID);
+        messageStore.addQueue(QUEUE_ID_2);
+        messageStore.addQueue(emptyQueueId);
+        messageStore.addMessage(QUEUE_ID, text);
+        messageStore.addMessage(QUEUE_ID_2, other);
+        messageStore.addMessage(QUEUE_ID, object);
+
+        Map<UUID, List<Message>> recovered = reopen().recover();
+
+        assertThat(recovered).containsOnlyKeys(QUEUE_ID, QUEUE_ID_2, emptyQueueId);
+        assertThat(models(recovered.get(QUEUE_ID)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(model(text), model(object));
+        assertThat(models(recovered.get(QUEUE_ID_2)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(model(other));
+        assertThat(recovered.get(emptyQueueId)).isEmpty();
+    }
+
+    @Test
+    public void recover_acknowledgedMessages_areNotRecovered() throws Exception {
+        Message first = createTextMessage(QUEUE_ID, "first");
+        Message second = createTextMessage(QUEUE_ID, "second");
+        Message third = createTextMessage(QUEUE_ID, "third");
+        messageStore.addQueue(QUEUE_ID);
+        messageStore.addMessage(QUEUE_ID, first);
+        messageStore.addMessage(QUEUE_ID, second);
+        messageStore.addMessage(QUEUE_ID, third);
+
+        messageStore.acknowledgeMessage(first.getId());
+        messageStore.acknowledgeMessage(third.getId());
+
+        assertThat(models(reopen().recover().get(QUEUE_ID)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(model(second));
+    }
+
+    @Test
+    public void recover_calledTwice_onlyReturnsMessagesOnce() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+        messageStore.addMessage(QUEUE_ID, createTextMessage(QUEUE_ID, "hello"));
+        reopen();
+
+        assertThat(messageStore.recover().get(QUEUE_ID)).hasSize(1);
+        assertThat(messageStore.recover()).isEmpty();
+    }
+
+    @Test
+    public void addMessage_returnsOnceMessageIsDurable() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+
+        messageStore.addMessage(QUEUE_ID, createTextMessage(QUEUE_ID, "hello"));
+
+        assertThat(messageStore.getGroupCommit().getDurable()).isEqualTo(messageStore.getMessages().getPosition());
+    }
+
+    @Test
+    public void addMessages_returnsOnceBatchIsDurable() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+
+        messageStore.addMessages(QUEUE_ID, Arrays.asList(createTextMessage(QUEUE_ID, "first"), createTextMessage(QUEUE_ID, "second")));
+
+        assertThat(messageStore.getGroupCommit().getDurable()).isEqualTo(messageStore.getMessages().getPosition());
+    }
+
+    @Test
+    public void recover_batchSent_returnsBatchInOrder() throws Exception {
+        Message first = createTextMessage(QUEUE_ID, "first");
+        Message second = createObjectMessage(QUEUE_ID, 2);
+        Message third = createTextMessage(QUEUE_ID, "third");
+        messageStore.addQueue(QUEUE_ID);
+        messageStore.addMessage(QUEUE_ID, first);
+
+        messageStore.addMessages(QUEUE_ID, Arrays.asList(second, third));
+        messageStore.acknowledgeMessage(second.getId());
+
+        assertThat(models(reopen().recover().get(QUEUE_ID)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(model(first), model(third));
+    }
+
+    @Test
+    public void acknowledgeMessage_unknownMessage_writesNothing() throws Exception {
+        messageStore.acknowledgeMessage("ID:" + UUID.randomUUID());
+
+        assertThat(messageStore.getMessages().getSegments()).isEmpty();
+    }
+
+    @Test
+    public void acknowledgeMessage_everyMessageInOldSegmentsAcknowledged_deletesOldSegments() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+        Message[] messages = new Message[20];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = createTextMessage(QUEUE_ID, "message " + i);
+            messageStore.addMessage(QUEUE_ID, messages[i]);
+        }
+        assertThat(messageStore.getMessages().getSegments().size()).isGreaterThan(2);
+        long current = messageStore.getMessages().getCurrentIndex();
+
+        for (Message message : messages) {
+            messageStore.acknowledgeMessage(message.getId());
+        }
+
+        assertThat(messageStore.getMessages().getSegments()).containsExactly(messageStore.getMessages().getCurrentIndex());
+        assertThat(messageStore.getLiveMessages()).containsOnly(entry(messageStore.getMessages().getCurrentIndex(), 0));
+        assertThat(messageStore.getMessages().getCurrentIndex()).isGreaterThanOrEqualTo(current);
+    }
+
+    @Test
+    public void acknowledgeMessage_oldestMessageUnacknowledged_keepsEverySegment() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+        Message[] messages = new Message[20];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = createTextMessage(QUEUE_ID, "message " + i);
+            messageStore.addMessage(QUEUE_ID, messages[i]);
+        }
+        int segments = messageStore.getMessages().getSegments().size();
+
+        for (int i = 1; i < messages.length; i++) {
+            messageStore.acknowledgeMessage(messages[i].getId());
+        }
+
+        assertThat(messageStore.getMessages().getSegments()).contains(0L);
+        assertThat(messageStore.getMessages().getSegments().size()).isGreaterThanOrEqualTo(segments);
+        assertThat(models(reopen().recover().get(QUEUE_ID)))
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactly(model(messages[0]));
+    }
+
+    @Test
+    public void open_journalFullyAcknowledged_deletesEveryOldSegment() throws Exception {
+        messageStore.addQueue(QUEUE_ID);
+        Message message = createTextMessage(QUEUE_ID, "hello");
+        messageStore.addMessage(QUEUE_ID, message);
+        messageStore.acknowledgeMessage(message.getId());
+
+        reopen();
+
+        assertThat(messageStore.getMessages().getSegments()).isEmpty();
+        assertThat(messageStore.recover()).containsOnlyKeys(QUEUE_ID);
+    }
+
+    private JournalMessageStore open() throws IOException {
+        JournalProperties properties = new JournalProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(SEGMENT_SIZE);
+        properties.setFlushInterval(100);
+        MessageFactory messageFactory = new MessageFactory(new HeadersFactory(), new PropertiesFactory(), new BodyFactory());
+        return new JournalMessageStore(properties, new SimpleMeterRegistry(), messageModelFactory, messageFactory, new ObjectMapper());
+    }
+
+    private JournalMessageStore reopen() throws IOException {
+        messageStore.close();
+        messageStore = open();
+        return messageStore;
+    }
+
+    private List<MessageModel> models(List<Message> messages) {
+        return messages.stream().map(this::model).collect(toList());
+    }
+
+    private MessageModel model(Message message) {
+        return messageModelFactory.create(message);
+    }
+
+    private static Message createTextMessage(UUID queueId, String text) throws Exception {
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(text));
+        message.setStringProperty("text", text);
+        return withHeaders(queueId, message);
+    }
+
+    private static Message createObjectMessage(UUID queueId, int value) throws Exception {
+        Message message = new ObjectMessage(new HeadersImpl(), new PropertiesImpl(), new ObjectBody(value));
+        message.setIntProperty("value", value);
+        return withHeaders(queueId, message);
+    }
+
+    private static Message withHeaders(UUID queueId, Message message) {
+        message.setDestination(new Destination(DestinationType.QUEUE, queueId));
+        message.setId("ID:" + UUID.randomUUID());
+        return message;
+    }
+}
@@ -0,0 +1,187 @@
+package kitchen.josh.simplejms.broker;
+
+import org.assertj.core.groups.Tuple;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class JournalTest {
+
+    private static final int SEGMENT_SIZE = 32;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private Journal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.getRoot().toPath().resolve("journal");
+        journal = new Journal(directory, SEGMENT_SIZE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    public void constructor_segmentSmallerThanRecordHeader_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new Journal(directory, 5));
+    }
+
+    @Test
+    public void constructor_createsDirectory() {
+        assertThat(directory).isDirectory();
+        assertThat(journal.getSegments()).isEmpty();
+        assertThat(journal.getCurrentIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    public void append_replay_readsRecordsInOrder() throws IOException {
+        journal.append((byte) 1, bytes("a"));
+        journal.append((byte) 2, bytes("bb"));
+        journal.append((byte) 3, new byte[0]);
+
+        assertThat(replay(journal)).containsExactly(
+                tuple(0L, (byte) 1, "a"),
+                tuple(0L, (byte) 2, "bb"),
+                tuple(0L, (byte) 3, ""));
+    }
+
+    @Test
+    public void append_segmentFull_startsNewSegment() throws IOException {
+        // Each record takes 5 bytes of header and 10 bytes of payload, so only two fit in a segment.
+        assertThat(journal.append((byte) 1, bytes("0123456789"))).isEqualTo(0);
+        assertThat(journal.append((byte) 1, bytes("abcdefghij"))).isEqualTo(0);
+        assertThat(journal.append((byte) 1, bytes("ABCDEFGHIJ"))).isEqualTo(1);
+
+        assertThat(journal.getSegments()).containsExactly(0L, 1L);
+        assertThat(journal.getCurrentIndex()).isEqualTo(1);
+        assertThat(replay(journal)).containsExactly(
+                tuple(0L, (byte) 1, "0123456789"),
+                tuple(0L, (byte) 1, "abcdefghij"),
+                tuple(1L, (byte) 1, "ABCDEFGHIJ"));
+    }
+
+    @Test
+    public void append_recordLargerThanSegment_writesRecordToItsOwnSegment() throws IOException {
+        String large = new String(new char[100]).replace('\0', 'x');
+
+        journal.append((byte) 1, bytes("a"));
+        journal.append((byte) 2, bytes(large));
+        journal.append((byte) 3, bytes("b"));
+
+        assertThat(journal.getSegments()).containsExactly(0L, 1L, 2L);
+        assertThat(replay(journal)).containsExactly(
+                tuple(0L, (byte) 1, "a"),
+                tuple(1L, (byte) 2, large),
+                tuple(2L, (byte) 3, "b"));
+    }
+
+    @Test
+    public void replay_reopened_readsExistingSegmentsAndAppendsToNewSegment() throws IOException {
+        journal.append((byte) 1, bytes("a"));
+        journal.close();
+
+        journal = new Journal(directory, SEGMENT_SIZE);
+        assertThat(journal.getSegments()).containsExactly(0L);
+        assertThat(replay(journal)).containsExactly(tuple(0L, (byte) 1, "a"));
+
+        assertThat(journal.append((byte) 2, bytes("b"))).isEqualTo(1);
+        assertThat(replay(journal)).containsExactly(
+                tuple(0L, (byte) 1, "a"),
+                tuple(1L, (byte) 2, "b"));
+    }
+
+    @Test
+    public void replay_incompleteRecord_stopsAtIncompleteRecord() throws IOException {
+        journal.append((byte) 1, bytes("a"));
+        journal.append((byte) 2, bytes("b"));
+        journal.close();
+
+        // Clear the length of the second record, as if the broker stopped before the record was completed.
+        try (FileChannel segment = FileChannel.open(onlySegment(), WRITE)) {
+            segment.write(ByteBuffer.allocate(Integer.BYTES), 6);
+        }
+
+        journal = new Journal(directory, SEGMENT_SIZE);
+        assertThat(replay(journal)).containsExactly(tuple(0L, (byte) 1, "a"));
+    }
+
+    @Test
+    public void force_returnsPositionAfterLastRecord() {
+        assertThat(journal.force()).isEqualTo(0);
+
+        journal.append((byte) 1, bytes("0123456789"));
+        journal.append((byte) 1, bytes("abcdefghij"));
+        journal.append((byte) 1, bytes("a"));
+
+        assertThat(journal.getPosition()).isEqualTo(36);
+        assertThat(journal.force()).isEqualTo(36);
+    }
+
+    @Test
+    public void delete_removesSegment() throws IOException {
+        journal.append((byte) 1, bytes("0123456789"));
+        journal.append((byte) 1, bytes("abcdefghij"));
+        journal.append((byte) 1, bytes("ABCDEFGHIJ"));
+
+        journal.delete(0);
+
+        assertThat(journal.getSegments()).containsExactly(1L);
+        assertThat(replay(journal)).containsExactly(tuple(1L, (byte) 1, "ABCDEFGHIJ"));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    public void delete_currentSegment_throwsIllegalArgument() {
+        journal.append((byte) 1, bytes("a"));
+
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> journal.delete(0));
+
+        assertThat(journal.getSegments()).containsExactly(0L);
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.findFirst().orElseThrow(AssertionError::new);
+        }
+    }
+
+    private static List<Tuple> replay(Journal journal) throws IOException {
+        List<Tuple> records = new ArrayList<>();
+        journal.replay((segment, type, payload) -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            records.add(tuple(segment, type, new String(bytes, UTF_8)));
+        });
+        return records;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,93 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.message.BinaryMessageCodec;
+import kitchen.josh.simplejms.common.message.MessageModel;
+import kitchen.josh.simplejms.common.message.body.ObjectBodyModel;
+import kitchen.josh.simplejms.common.message.body.TextBodyModel;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import kitchen.josh.simplejms.common.message.properties.PropertyModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding a message as JSON with the compact binary encoding.
+ * <p>
+ * The message has the broker's headers and eight properties, one of each type, and either a short text body or a
+ * 1KB object body. The encoded size of each is printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageCodecBenchmark {
+
+    @Param({"text", "object"})
+    private String body;
+
+    private ObjectMapper objectMapper;
+    private BinaryMessageCodec codec;
+    private MessageModel message;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        codec = new BinaryMessageCodec();
+        message = new MessageModel(
+                new HeadersModel("ID:" + UUID.randomUUID(), "queue:" + UUID.randomUUID()),
+                properties(),
+                "text".equals(body) ? new TextBodyModel("hello world, this is a message") : new ObjectBodyModel(objectBytes()));
+        json = objectMapper.writeValueAsBytes(message);
+        binary = codec.encode(message);
+        System.out.println("\n" + body + " message: json " + json.length + " bytes, binary " + binary.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return codec.encode(message);
+    }
+
+    @Benchmark
+    public MessageModel decodeJson() throws IOException {
+        return objectMapper.readValue(json, MessageModel.class);
+    }
+
+    @Benchmark
+    public MessageModel decodeBinary() throws IOException {
+        return codec.decode(new ByteArrayInputStream(binary));
+    }
+
+    private static List<PropertyModel> properties() {
+        return Arrays.asList(
+                new PropertyModel("boolean", "Boolean", true),
+                new PropertyModel("byte", "Byte", (byte) 12),
+                new PropertyModel("short", "Short", (short) 1234),
+                new PropertyModel("integer", "Integer", 123456),
+                new PropertyModel("long", "Long", 12345678901L),
+                new PropertyModel("float", "Float", 1.5f),
+                new PropertyModel("double", "Double", 2.25),
+                new PropertyModel("string", "String", "property value"));
+    }
+
+    private static byte[] objectBytes() {
+        byte[] bytes = new byte[1024];
+        new Random(0).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,37 @@
+package kitchen.josh.simplejms.broker;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating message ids from many producer threads at once, with the {@link MessageIdGenerator} and with a
+ * random UUID per message.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MessageIdBenchmark {
+
+    private MessageIdGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new MessageIdGenerator();
+    }
+
+    @Benchmark
+    public String generator() {
+        return generator.nextId();
+    }
+
+    @Benchmark
+    public String randomUuid() {
+        return "ID:" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,96 @@
+package kitchen.josh.simplejms.broker;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageIdGeneratorTest {
+
+    private static final String ID_FORMAT = "ID:[0-9a-f]{12}-[0-9a-f]{11}-[0-9a-f]+-[0-9a-f]+";
+
+    @Test
+    public void nextId_hasJmsPrefixAndNode() {
+        MessageIdGenerator generator = new MessageIdGenerator(0xabcL);
+
+        String id = generator.nextId();
+
+        assertThat(id).matches(ID_FORMAT);
+        assertThat(id).startsWith("ID:000000000abc-");
+    }
+
+    @Test
+    public void nextId_randomNode_differsBetweenGenerators() {
+        String first = new MessageIdGenerator().nextId();
+        String second = new MessageIdGenerator().nextId();
+
+        assertThat(first).matches(ID_FORMAT);
+        assertThat(node(first)).isNotEqualTo(node(second));
+    }
+
+    @Test
+    public void nextId_containsCurrentTime() {
+        MessageIdGenerator generator = new MessageIdGenerator(1);
+        long before = System.currentTimeMillis();
+
+        String id = generator.nextId();
+
+        long time = Long.parseLong(id.split("-")[1], 16);
+        assertThat(time).isBetween(before, System.currentTimeMillis());
+    }
+
+    @Test
+    public void nextId_sameThread_incrementsSequenceOnSameStripe() {
+        MessageIdGenerator generator = new MessageIdGenerator(1);
+
+        String[] first = generator.nextId().split("-");
+        String[] second = generator.nextId().split("-");
+
+        assertThat(second[2]).isEqualTo(first[2]);
+        assertThat(Long.parseLong(second[3], 16)).isEqualTo(Long.parseLong(first[3], 16) + 1);
+    }
+
+    @Test
+    public void nextId_differentThreads_useDifferentStripes() throws Exception {
+        MessageIdGenerator generator = new MessageIdGenerator(1);
+        String mine = generator.nextId();
+
+        String other = CompletableFuture.supplyAsync(generator::nextId, Executors.newSingleThreadExecutor()).get();
+
+        assertThat(mine.split("-")[2]).isNotEqualTo(other.split("-")[2]);
+    }
+
+    @Test
+    public void nextId_concurrentThreads_generatesUniqueIds() throws Exception {
+        MessageIdGenerator generator = new MessageIdGenerator(1);
+        int threads = 8;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    List<String> ids = new ArrayList<>();
+                    for (int j = 0; j < idsPerThread; j++) {
+                        ids.add(generator.nextId());
+                    }
+                    return ids;
+                }));
+            }
+            Set<String> ids = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                ids.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+
+            assertThat(ids).hasSize(threads * idsPerThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String node(String id) {
+        return id.split("-")[0];
+    }
+}
@@ -0,0 +1,106 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MessageLogTest {
+
+    private static final Message[] MESSAGES = {
+            new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("a")),
+            new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("b")),
+            new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("c")),
+            new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("d")),
+            new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("e"))
+    };
+
+    private MessageLog log;
+
+    @Before
+    public void setUp() {
+        log = new MessageLog(2);
+    }
+
+    @Test
+    public void constructor_nonPositiveSegmentSize_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new MessageLog(0));
+    }
+
+    @Test
+    public void append_returnsIncreasingOffsets() {
+        assertThat(log.append(MESSAGES[0])).isEqualTo(0);
+        assertThat(log.append(MESSAGES[1])).isEqualTo(1);
+        assertThat(log.append(MESSAGES[2])).isEqualTo(2);
+
+        assertThat(log.getStartOffset()).isEqualTo(0);
+        assertThat(log.getEndOffset()).isEqualTo(3);
+        assertThat(log.getSegmentCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void get_returnsMessageAtOffset() {
+        for (Message message : MESSAGES) {
+            log.append(message);
+        }
+
+        for (int i = 0; i < MESSAGES.length; i++) {
+            assertThat(log.get(i)).isSameAs(MESSAGES[i]);
+        }
+    }
+
+    @Test
+    public void get_offsetNotWritten_throwsIndexOutOfBounds() {
+        log.append(MESSAGES[0]);
+
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> log.get(1));
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> log.get(-1));
+    }
+
+    @Test
+    public void releaseBefore_releasesOnlyWholeSegments() {
+        for (Message message : MESSAGES) {
+            log.append(message);
+        }
+
+        log.releaseBefore(3);
+
+        assertThat(log.getStartOffset()).isEqualTo(2);
+        assertThat(log.getSegmentCount()).isEqualTo(2);
+        assertThat(log.get(2)).isSameAs(MESSAGES[2]);
+        assertThat(log.get(4)).isSameAs(MESSAGES[4]);
+        assertThatExceptionOfType(IndexOutOfBoundsException.class).isThrownBy(() -> log.get(1));
+    }
+
+    @Test
+    public void releaseBefore_pastEnd_keepsPartialSegment() {
+        for (Message message : MESSAGES) {
+            log.append(message);
+        }
+
+        log.releaseBefore(100);
+
+        assertThat(log.getStartOffset()).isEqualTo(4);
+        assertThat(log.getSegmentCount()).isEqualTo(1);
+        assertThat(log.get(4)).isSameAs(MESSAGES[4]);
+    }
+
+    @Test
+    public void append_afterRelease_continuesOffsets() {
+        log.append(MESSAGES[0]);
+        log.append(MESSAGES[1]);
+        log.releaseBefore(2);
+
+        assertThat(log.isAtSegmentBoundary()).isTrue();
+        assertThat(log.append(MESSAGES[2])).isEqualTo(2);
+        assertThat(log.isAtSegmentBoundary()).isFalse();
+        assertThat(log.get(2)).isSameAs(MESSAGES[2]);
+        assertThat(log.getSegmentCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,287 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MessageStreamTest {
+
+    private static final UUID QUEUE_ID = UUID.randomUUID();
+    private static final UUID PRODUCER_ID = UUID.randomUUID();
+    private static final UUID CONSUMER_ID = UUID.randomUUID();
+
+    private ConcurrentQueueService queueService;
+    private SingleConsumerService consumerService;
+    private RecordingSink sink;
+    private MessageStream stream;
+
+    @Before
+    public void setUp() {
+        queueService = new ConcurrentQueueService(QUEUE_ID);
+        queueService.addProducer(PRODUCER_ID);
+        queueService.addConsumer(CONSUMER_ID);
+        consumerService = new SingleConsumerService(CONSUMER_ID, queueService);
+        sink = new RecordingSink();
+        stream = new MessageStream(consumerService, sink, Runnable::run);
+    }
+
+    @Test
+    public void addCredit_messagesWaiting_pushesUpToCredit() {
+        List<Message> sent = send(3);
+
+        stream.addCredit(2);
+
+        assertThat(sink.sent).containsExactly(sent.get(0), sent.get(1));
+        assertThat(stream.getCredit()).isZero();
+        assertThat(stream.isParked()).isFalse();
+        assertThat(queueService.getMessages()).containsExactly(sent.get(2));
+    }
+
+    @Test
+    public void addCredit_creditUsedUp_pushesRestOnceCreditAdded() {
+        List<Message> sent = send(3);
+        stream.addCredit(1);
+
+        stream.addCredit(5);
+
+        assertThat(sink.sent).containsExactlyElementsOf(sent);
+        assertThat(stream.getCredit()).isEqualTo(3);
+        assertThat(stream.isParked()).isTrue();
+    }
+
+    @Test
+    public void addCredit_noMessages_parksAndPushesMessagesAsTheyAreSent() {
+        stream.addCredit(2);
+        assertThat(stream.isParked()).isTrue();
+        assertThat(queueService.getWaiters().size()).isEqualTo(1);
+
+        List<Message> sent = send(3);
+
+        assertThat(sink.sent).containsExactly(sent.get(0), sent.get(1));
+        assertThat(stream.isParked()).isFalse();
+        assertThat(queueService.getWaiters().size()).isZero();
+        assertThat(queueService.getMessages()).containsExactly(sent.get(2));
+    }
+
+    @Test
+    public void addCredit_pushedMessagesAreUnacknowledged() {
+        List<Message> sent = send(2);
+
+        stream.addCredit(2);
+        consumerService.acknowledge(sent.get(0).getId());
+
+        assertThat(consumerService.getUnacknowledged().size()).isEqualTo(1);
+        assertThat(consumerService.getUnacknowledged().get(1)).isEqualTo(sent.get(1));
+    }
+
+    @Test
+    public void addCredit_notPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> stream.addCredit(0));
+    }
+
+    @Test
+    public void close_parked_leavesNextMessageOnDestination() {
+        stream.addCredit(1);
+
+        stream.close();
+        List<Message> sent = send(1);
+
+        assertThat(sink.sent).isEmpty();
+        assertThat(sink.completed).isTrue();
+        assertThat(stream.isClosed()).isTrue();
+        assertThat(queueService.getWaiters().size()).isZero();
+        assertThat(queueService.getMessages()).containsExactlyElementsOf(sent);
+    }
+
+    @Test
+    public void close_calledTwice_completesOnce() {
+        stream.close();
+        sink.completed = false;
+
+        stream.close();
+
+        assertThat(sink.completed).isFalse();
+    }
+
+    @Test
+    public void addCredit_afterClose_pushesNothing() {
+        send(1);
+        stream.close();
+
+        stream.addCredit(1);
+
+        assertThat(sink.sent).isEmpty();
+    }
+
+    @Test
+    public void addCredit_sendFails_failsStream() {
+        sink.failure = new IOException("connection reset");
+        List<Message> sent = send(2);
+
+        stream.addCredit(2);
+
+        assertThat(sink.sent).containsExactly(sent.get(0));
+        assertThat(sink.failed).isSameAs(sink.failure);
+        assertThat(stream.isClosed()).isTrue();
+        assertThat(queueService.getMessages()).containsExactly(sent.get(1));
+    }
+
+    @Test
+    public void addCredit_consumerRemovedWhileParked_failsStream() {
+        stream.addCredit(1);
+        queueService.removeConsumer(CONSUMER_ID);
+
+        send(1);
+
+        assertThat(sink.failed).isInstanceOf(ConsumerDoesNotExistException.class);
+        assertThat(stream.isClosed()).isTrue();
+    }
+
+    @Test
+    public void push_sinkBlocked_doesNotHoldUpSender() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            List<Message> written = new CopyOnWriteArrayList<>();
+            CountDownLatch allWritten = new CountDownLatch(2);
+            stream = new MessageStream(consumerService, new BlockingSink(release, written, allWritten), executor);
+            stream.addCredit(2);
+
+            List<Message> sent = send(2);
+
+            assertThat(written).isEmpty();
+            assertThat(consumerService.getUnacknowledged().size()).isEqualTo(2);
+            release.countDown();
+            assertThat(allWritten.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(written).containsExactlyElementsOf(sent);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void close_whileWriting_completesOnceWriteFinishes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch writing = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            List<Message> writtenWhenCompleted = new CopyOnWriteArrayList<>();
+            CountDownLatch completed = new CountDownLatch(1);
+            List<Message> written = new CopyOnWriteArrayList<>();
+            stream = new MessageStream(consumerService, new BlockingSink(release, written, new CountDownLatch(2)) {
+                @Override
+                public void send(Delivery delivery) throws IOException {
+                    writing.countDown();
+                    super.send(delivery);
+                }
+
+                @Override
+                public void complete() {
+                    writtenWhenCompleted.addAll(written);
+                    completed.countDown();
+                }
+            }, executor);
+            stream.addCredit(2);
+            List<Message> sent = send(2);
+            assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+
+            stream.close();
+            assertThat(completed.getCount()).isEqualTo(1);
+            release.countDown();
+
+            assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(writtenWhenCompleted).containsExactly(sent.get(0));
+            assertThat(written).containsExactly(sent.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Message> send(int count) {
+        List<Message> sent = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("message " + i));
+            queueService.addMessage(PRODUCER_ID, message);
+            sent.add(message);
+        }
+        return sent;
+    }
+
+    /**
+     * Blocks writing until released, counting down once for each message written.
+     */
+    private static class BlockingSink implements MessageStream.Sink {
+
+        private final CountDownLatch release;
+        private final List<Message> written;
+        private final CountDownLatch writes;
+
+        private BlockingSink(CountDownLatch release, List<Message> written, CountDownLatch writes) {
+            this.release = release;
+            this.written = written;
+            this.writes = writes;
+        }
+
+        @Override
+        public void send(Delivery delivery) throws IOException {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            written.add(delivery.getMessage());
+            writes.countDown();
+        }
+
+        @Override
+        public void complete() {
+        }
+
+        @Override
+        public void fail(Exception exception) {
+        }
+    }
+
+    private static final class RecordingSink implements MessageStream.Sink {
+
+        private final List<Message> sent = new ArrayList<>();
+        private IOException failure;
+        private boolean completed;
+        private Exception failed;
+
+        @Override
+        public void send(Delivery delivery) throws IOException {
+            sent.add(delivery.getMessage());
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public void fail(Exception exception) {
+            failed = exception;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package kitchen.josh.simplejms.broker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageWaitersTest {
+
+    private MessageWaiters waiters;
+    private List<String> woken;
+
+    @Before
+    public void setUp() {
+        waiters = new MessageWaiters();
+        woken = new ArrayList<>();
+    }
+
+    @Test
+    public void wakeOne_noWaiters_doesNothing() {
+        waiters.wakeOne();
+
+        assertThat(waiters.size()).isZero();
+    }
+
+    @Test
+    public void wakeOne_wakesLongestWaitingAndRemovesIt() {
+        waiters.add(waiter("first", true));
+        waiters.add(waiter("second", true));
+
+        waiters.wakeOne();
+
+        assertThat(woken).containsExactly("first");
+        assertThat(waiters.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void wakeOne_waiterGaveUp_wakesNextWaiter() {
+        waiters.add(waiter("gave up", false));
+        waiters.add(waiter("waiting", true));
+        waiters.add(waiter("also waiting", true));
+
+        waiters.wakeOne();
+
+        assertThat(woken).containsExactly("gave up", "waiting");
+        assertThat(waiters.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void wakeAll_wakesEveryWaiterInOrder() {
+        waiters.add(waiter("first", true));
+        waiters.add(waiter("gave up", false));
+        waiters.add(waiter("third", true));
+
+        waiters.wakeAll();
+
+        assertThat(woken).containsExactly("first", "gave up", "third");
+        assertThat(waiters.size()).isZero();
+    }
+
+    @Test
+    public void wakeAll_waiterParksAgain_isNotWokenTwice() {
+        waiters.add(new MessageWaiters.Waiter() {
+            @Override
+            public boolean wake() {
+                woken.add("parks again");
+                waiters.add(this);
+                return true;
+            }
+        });
+
+        waiters.wakeAll();
+
+        assertThat(woken).containsExactly("parks again");
+        assertThat(waiters.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void remove_waiterIsNotWoken() {
+        MessageWaiters.Waiter removed = waiter("removed", true);
+        waiters.add(removed);
+        waiters.add(waiter("waiting", true));
+
+        waiters.remove(removed);
+        waiters.wakeAll();
+
+        assertThat(woken).containsExactly("waiting");
+    }
+
+    private MessageWaiters.Waiter waiter(String name, boolean waiting) {
+        return () -> {
+            woken.add(name);
+            return waiting;
+        };
+    }
+}
@@ -2,6 +2,8 @@ package kitchen.josh.simplejms.broker;
 
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.BinaryMessageCodec;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
 import kitchen.josh.simplejms.common.message.Message;
 import kitchen.josh.simplejms.common.message.MessageFactory;
 import kitchen.josh.simplejms.common.message.MessageModel;
@@ -23,7 +25,9 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.UUID;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
@@ -39,6 +43,8 @@ public class ProducerControllerIntegrationTest {
     private static final UUID PRODUCER_ID = UUID.randomUUID();
     private static final String TEXT = "hello world";
     private static final Message MESSAGE = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+    private static final String TEXT_2 = "goodbye world";
+    private static final Message MESSAGE_2 = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT_2));
 
     @Autowired
     private MockMvc mockMvc;
@@ -130,6 +136,21 @@ public class ProducerControllerIntegrationTest {
         verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
     }
 
+    @Test
+    public void sendMessage_binary_returnsOk() throws Exception {
+        MessageModel model = new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT));
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+
+        mockMvc.perform(post("/producer/" + PRODUCER_ID + "/send")
+                .contentType(BinaryMessageConverter.MEDIA_TYPE)
+                .content(new BinaryMessageCodec().encode(model)))
+                .andExpect(status().isOk());
+
+        verify(producerService).sendMessage(PRODUCER_ID, MESSAGE);
+        verify(messageFactory).create(model);
+        verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
+    }
+
     @Test
     public void sendMessage_producerDoesNotExist_returnsBadRequest() throws Exception {
         when(messageFactory.create(any())).thenReturn(MESSAGE);
@@ -146,4 +167,66 @@ public class ProducerControllerIntegrationTest {
         verify(producerService).sendMessage(PRODUCER_ID, MESSAGE);
         verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
     }
+
+    @Test
+    public void sendMessages_returnsOk() throws Exception {
+        when(messageFactory.create(any())).thenReturn(MESSAGE, MESSAGE_2);
+
+        mockMvc.perform(post("/producer/" + PRODUCER_ID + "/send-batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("[{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": [], \"headers\": {}}," +
+                        "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT_2 + "\"}, \"properties\": [], \"headers\": {}}]"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+
+        verify(producerService).sendMessages(PRODUCER_ID, asList(MESSAGE, MESSAGE_2));
+        verify(messageFactory).create(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT)));
+        verify(messageFactory).create(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT_2)));
+        verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
+    }
+
+    @Test
+    public void sendMessages_binary_returnsOk() throws Exception {
+        MessageModel model = new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT));
+        MessageModel model2 = new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT_2));
+        when(messageFactory.create(any())).thenReturn(MESSAGE, MESSAGE_2);
+
+        mockMvc.perform(post("/producer/" + PRODUCER_ID + "/send-batch")
+                .contentType(BinaryMessageConverter.MEDIA_TYPE)
+                .content(new BinaryMessageCodec().encode(asList(model, model2))))
+                .andExpect(status().isOk());
+
+        verify(producerService).sendMessages(PRODUCER_ID, asList(MESSAGE, MESSAGE_2));
+        verify(messageFactory).create(model);
+        verify(messageFactory).create(model2);
+        verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
+    }
+
+    @Test
+    public void sendMessages_producerDoesNotExist_returnsBadRequest() throws Exception {
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+        doThrow(ProducerDoesNotExistException.class).when(producerService).sendMessages(any(), any());
+
+        mockMvc.perform(post("/producer/" + PRODUCER_ID + "/send-batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("[{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": [], \"headers\": {}}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("{\"message\": \"Failed to send messages: the producer does not exist\"}", true));
+
+        verify(messageFactory).create(new MessageModel(new HeadersModel(null, null), emptyList(), new TextBodyModel(TEXT)));
+        verify(producerService).sendMessages(PRODUCER_ID, singletonList(MESSAGE));
+        verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
+    }
+
+    @Test
+    public void sendMessages_notAnArray_returnsBadRequest() throws Exception {
+        mockMvc.perform(post("/producer/" + PRODUCER_ID + "/send-batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": [], \"headers\": {}}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("{\"message\": \"Malformed JSON\"}", true));
+
+        verifyNoMoreInteractions(producerService, singleDestinationService, messageFactory);
+    }
 }
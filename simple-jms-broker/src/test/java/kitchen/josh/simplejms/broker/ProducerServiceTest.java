@@ -16,6 +16,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Optional;
 import java.util.UUID;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -82,6 +83,27 @@ public class ProducerServiceTest {
         verifyNoMoreInteractions(destinationService, singleDestinationService);
     }
 
+    @Test
+    public void sendMessages_producerDoesNotExist_throwsProducerDoesNotExist() {
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> producerService.sendMessages(UUID.randomUUID(), singletonList(MESSAGE)));
+
+        verifyZeroInteractions(destinationService, singleDestinationService);
+    }
+
+    @Test
+    public void sendMessages_producerExists_sendsBatch() {
+        when(destinationService.findDestination(any())).thenReturn(Optional.of(singleDestinationService));
+        UUID producerId = producerService.createProducer(DESTINATION);
+        reset(singleDestinationService);
+
+        producerService.sendMessages(producerId, singletonList(MESSAGE));
+
+        verify(singleDestinationService).addMessages(producerId, singletonList(MESSAGE));
+        verify(destinationService, atLeastOnce()).findDestination(DESTINATION);
+        verifyNoMoreInteractions(destinationService, singleDestinationService);
+    }
+
     @Test
     public void removeProducer_producerDoesNotExist_throwsProducerDoesNotExist() {
         assertThatExceptionOfType(ProducerDoesNotExistException.class)
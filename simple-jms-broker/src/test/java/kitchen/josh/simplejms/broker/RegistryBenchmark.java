@@ -0,0 +1,77 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the broker's producer, consumer and destination registries while producers and consumers are constantly
+ * being created and removed on other threads.
+ * <p>
+ * Each <code>traffic</code> thread sends a message through its own producer and receives one through its own consumer,
+ * so the queue stays short, while the <code>churn</code> threads create and remove a producer and consumer per
+ * operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class RegistryBenchmark {
+
+    private DestinationService destinationService;
+    private ProducerService producerService;
+    private ConsumerManager consumerManager;
+    private Destination destination;
+
+    @Setup
+    public void setUp() {
+        destinationService = new DestinationService();
+        producerService = new ProducerService(destinationService);
+        consumerManager = new ConsumerManager(destinationService);
+        destination = new Destination(DestinationType.QUEUE, destinationService.createDestination(DestinationType.QUEUE));
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private UUID producerId;
+        private UUID consumerId;
+
+        @Setup
+        public void setUp(RegistryBenchmark benchmark) {
+            producerId = benchmark.producerService.createProducer(benchmark.destination);
+            consumerId = benchmark.consumerManager.createConsumer(benchmark.destination);
+        }
+    }
+
+    @Benchmark
+    @Group("traffic")
+    @GroupThreads(6)
+    public Optional<Delivery> sendAndReceive(Client client) {
+        producerService.sendMessage(client.producerId, new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world")));
+        return consumerManager.findConsumer(client.consumerId)
+                .orElseThrow(ConsumerDoesNotExistException::new)
+                .receive();
+    }
+
+    @Benchmark
+    @Group("traffic")
+    @GroupThreads(2)
+    public void churn() {
+        UUID producerId = producerService.createProducer(destination);
+        UUID consumerId = consumerManager.createConsumer(destination);
+        producerService.removeProducer(producerId);
+        consumerManager.removeConsumer(consumerId);
+    }
+}
@@ -0,0 +1,105 @@
+package kitchen.josh.simplejms.broker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class RegistryTest {
+
+    private static final UUID KEY = UUID.randomUUID();
+    private static final String VALUE = "value";
+
+    private Registry<UUID, String> registry;
+
+    @Before
+    public void setUp() {
+        registry = new Registry<>();
+    }
+
+    @Test
+    public void find_notRegistered_returnsEmpty() {
+        assertThat(registry.find(KEY)).isEmpty();
+    }
+
+    @Test
+    public void register_canBeFound() {
+        registry.register(KEY, VALUE);
+
+        assertThat(registry.find(KEY)).contains(VALUE);
+        assertThat(registry.snapshot()).containsOnly(new AbstractMap.SimpleEntry<>(KEY, VALUE));
+    }
+
+    @Test
+    public void register_alreadyRegistered_throwsIllegalStateAndKeepsValue() {
+        registry.register(KEY, VALUE);
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> registry.register(KEY, "other"));
+        assertThat(registry.find(KEY)).contains(VALUE);
+    }
+
+    @Test
+    public void remove_notRegistered_returnsEmpty() {
+        assertThat(registry.remove(KEY)).isEmpty();
+    }
+
+    @Test
+    public void remove_registered_returnsAndRemovesValue() {
+        registry.register(KEY, VALUE);
+
+        assertThat(registry.remove(KEY)).contains(VALUE);
+        assertThat(registry.find(KEY)).isEmpty();
+        assertThat(registry.snapshot()).isEmpty();
+    }
+
+    @Test
+    public void snapshot_isNotAffectedByLaterChanges() {
+        registry.register(KEY, VALUE);
+        Map<UUID, String> snapshot = registry.snapshot();
+
+        registry.remove(KEY);
+
+        assertThat(snapshot).containsOnlyKeys(KEY);
+        assertThatExceptionOfType(UnsupportedOperationException.class).isThrownBy(() -> snapshot.remove(KEY));
+    }
+
+    @Test
+    public void registerAndRemove_concurrentThreads_tracksEveryEntry() throws Exception {
+        int threadCount = 8;
+        int entriesPerThread = 1_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<UUID>>> kept = new ArrayList<>();
+            for (int t = 0; t < threadCount; t++) {
+                kept.add(executor.submit(() -> {
+                    start.await();
+                    List<UUID> keys = new ArrayList<>();
+                    for (int i = 0; i < entriesPerThread; i++) {
+                        UUID key = UUID.randomUUID();
+                        registry.register(key, VALUE);
+                        if (i % 2 == 0) {
+                            assertThat(registry.remove(key)).contains(VALUE);
+                        } else {
+                            keys.add(key);
+                        }
+                    }
+                    return keys;
+                }));
+            }
+
+            start.countDown();
+            Set<UUID> expected = new HashSet<>();
+            for (Future<List<UUID>> future : kept) {
+                expected.addAll(future.get(30, TimeUnit.SECONDS));
+            }
+            assertThat(registry.snapshot().keySet()).containsExactlyInAnyOrderElementsOf(expected);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
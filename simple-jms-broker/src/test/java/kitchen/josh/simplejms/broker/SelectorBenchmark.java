@@ -0,0 +1,81 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.CompactPropertiesImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a topic with 200 subscribers that each select the messages of one region above a priority.
+ * <p>
+ * <code>matchEverySubscriber</code> evaluates every subscriber's selector against one message,
+ * <code>publishAndDeliver</code> publishes a message and has every subscriber take its next message. Run with
+ * <code>-prof gc</code> to see that evaluating selectors doesn't allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SelectorBenchmark {
+
+    private static final int SUBSCRIBERS = 200;
+    private static final int REGIONS = 20;
+
+    private Selector[] selectors;
+    private UUID[] consumerIds;
+    private UUID producerId;
+    private TopicService topicService;
+    private Message message;
+    private int published;
+
+    @Setup
+    public void setUp() {
+        selectors = new Selector[SUBSCRIBERS];
+        consumerIds = new UUID[SUBSCRIBERS];
+        producerId = UUID.randomUUID();
+        topicService = new TopicService(UUID.randomUUID());
+        topicService.addProducer(producerId);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            selectors[i] = Selector.parse("region = 'region-" + (i % REGIONS) + "' AND priority > " + (i / REGIONS));
+            consumerIds[i] = UUID.randomUUID();
+            topicService.addConsumer(consumerIds[i], selectors[i]);
+        }
+        message = createMessage(7);
+    }
+
+    @Benchmark
+    public int matchEverySubscriber() {
+        int matched = 0;
+        for (Selector selector : selectors) {
+            if (selector.matches(message)) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public void publishAndDeliver(Blackhole blackhole) {
+        topicService.addMessage(producerId, createMessage(published++));
+        for (UUID consumerId : consumerIds) {
+            blackhole.consume(topicService.deliverMessage(consumerId));
+        }
+    }
+
+    private static Message createMessage(int sequence) {
+        Message message = new TextMessage(new HeadersImpl(), new CompactPropertiesImpl(), new TextBody("hello world"));
+        message.setStringProperty("region", "region-" + (sequence % REGIONS));
+        message.setIntProperty("priority", sequence % 10);
+        message.setLongProperty("sequence", sequence);
+        return message;
+    }
+}
@@ -10,14 +10,22 @@ import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -52,7 +60,7 @@ public class SingleConsumerServiceTest {
     public void receive_message_returnsMessage() {
         when(destinationService.deliverMessage(any())).thenReturn(Optional.of(NEW_MESSAGES[0]));
 
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
 
         verify(destinationService).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
@@ -73,10 +81,10 @@ public class SingleConsumerServiceTest {
         consumerService.recover();
 
         // Receives unacknowledged messages, then new messages.
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[0]);
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[1]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[1]);
         assertThat(consumerService.receive()).isEmpty();
         verify(destinationService, times(3)).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
@@ -105,22 +113,97 @@ public class SingleConsumerServiceTest {
         consumerService.recover();
 
         // Receives unacknowledged messages, then new messages.
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[0]);
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[1]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[1]);
         assertThat(consumerService.receive()).isEmpty();
+        verify(destinationService).acknowledgeMessage(CONSUMER_ID, ACKNOWLEDGED[0]);
+        verify(destinationService).acknowledgeMessage(CONSUMER_ID, ACKNOWLEDGED[1]);
         verify(destinationService, times(3)).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
     }
 
+    @Test
+    public void acknowledge_acknowledgesEveryMessageUpToAndIncludingMessageInOrder() {
+        when(destinationService.deliverMessage(any())).thenReturn(
+                Optional.of(ACKNOWLEDGED[0]), Optional.of(ACKNOWLEDGED[1]), Optional.of(UNACKNOWLEDGED[0]));
+        consumerService.receive();
+        consumerService.receive();
+        consumerService.receive();
+
+        consumerService.acknowledge(ACKNOWLEDGED[1].getId());
+
+        InOrder inOrder = inOrder(destinationService);
+        inOrder.verify(destinationService).acknowledgeMessage(CONSUMER_ID, ACKNOWLEDGED[0]);
+        inOrder.verify(destinationService).acknowledgeMessage(CONSUMER_ID, ACKNOWLEDGED[1]);
+        verify(destinationService, never()).acknowledgeMessage(CONSUMER_ID, UNACKNOWLEDGED[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void recover_twice_redeliversUnacknowledgedMessagesAgain() {
+        when(destinationService.deliverMessage(any())).thenReturn(
+                Optional.of(UNACKNOWLEDGED[0]), Optional.of(UNACKNOWLEDGED[1]), Optional.empty());
+        consumerService.receive();
+        consumerService.receive();
+
+        consumerService.recover();
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        consumerService.recover();
+
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[1]);
+        assertThat(consumerService.receive()).isEmpty();
+        assertThat(consumerService.getUnacknowledged().size()).isEqualTo(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void recover_redeliversSameMessageWithIncreasingDeliveryCount() {
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.of(UNACKNOWLEDGED[0]), Optional.empty());
+        Delivery first = consumerService.receive().orElseThrow(AssertionError::new);
+
+        consumerService.recover();
+        Delivery second = consumerService.receive().orElseThrow(AssertionError::new);
+        consumerService.recover();
+        Delivery third = consumerService.receive().orElseThrow(AssertionError::new);
+
+        assertThat(first.getMessage()).isSameAs(UNACKNOWLEDGED[0]);
+        assertThat(second.getMessage()).isSameAs(UNACKNOWLEDGED[0]);
+        assertThat(third.getMessage()).isSameAs(UNACKNOWLEDGED[0]);
+        assertThat(first.isRedelivered()).isFalse();
+        assertThat(second.isRedelivered()).isTrue();
+        assertThat(third.getDeliveryCount()).isEqualTo(3);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void acknowledge_duringRecovery_skipsAcknowledgedMessages() {
+        when(destinationService.deliverMessage(any())).thenReturn(
+                Optional.of(UNACKNOWLEDGED[0]), Optional.of(UNACKNOWLEDGED[1]), Optional.of(UNACKNOWLEDGED[2]),
+                Optional.empty());
+        consumerService.receive();
+        consumerService.receive();
+        consumerService.receive();
+
+        consumerService.recover();
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        consumerService.acknowledge(UNACKNOWLEDGED[1].getId());
+
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[2]);
+        assertThat(consumerService.receive()).isEmpty();
+        verify(destinationService).acknowledgeMessage(CONSUMER_ID, UNACKNOWLEDGED[0]);
+        verify(destinationService).acknowledgeMessage(CONSUMER_ID, UNACKNOWLEDGED[1]);
+    }
+
     @Test
     public void acknowledge_noMessages_doesNothing() {
         when(destinationService.deliverMessage(any())).thenReturn(Optional.of(NEW_MESSAGES[0]));
 
         consumerService.acknowledge("ID:" + UUID.randomUUID());
 
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
         verify(destinationService).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
     }
@@ -142,10 +225,10 @@ public class SingleConsumerServiceTest {
         consumerService.recover();
 
         // Doesn't impact recover behaviour.
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[0]);
-        assertThat(consumerService.receive()).contains(UNACKNOWLEDGED[1]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(UNACKNOWLEDGED[1]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[1]);
         assertThat(consumerService.receive()).isEmpty();
         verify(destinationService, times(3)).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
@@ -157,11 +240,175 @@ public class SingleConsumerServiceTest {
 
         consumerService.recover();
 
-        assertThat(consumerService.receive()).contains(NEW_MESSAGES[0]);
+        assertThat(consumerService.receive().map(Delivery::getMessage)).contains(NEW_MESSAGES[0]);
         verify(destinationService).deliverMessage(CONSUMER_ID);
         verifyNoMoreInteractions(destinationService);
     }
 
+    @Test
+    public void receiveMax_deliversBatchAndTracksItAsUnacknowledged() {
+        when(destinationService.deliverMessages(any(), anyInt())).thenReturn(asList(NEW_MESSAGES[0], NEW_MESSAGES[1]));
+
+        assertThat(consumerService.receive(3)).extracting(Delivery::getMessage).containsExactly(NEW_MESSAGES[0], NEW_MESSAGES[1]);
+
+        verify(destinationService).deliverMessages(CONSUMER_ID, 3);
+        verifyNoMoreInteractions(destinationService);
+        assertThat(consumerService.getUnacknowledged().size()).isEqualTo(2);
+        assertThat(consumerService.getUnacknowledged().get(0)).isEqualTo(NEW_MESSAGES[0]);
+        assertThat(consumerService.getUnacknowledged().get(1)).isEqualTo(NEW_MESSAGES[1]);
+    }
+
+    @Test
+    public void receiveMax_acknowledgeLastMessage_acknowledgesWholeBatch() {
+        when(destinationService.deliverMessages(any(), anyInt())).thenReturn(asList(NEW_MESSAGES[0], NEW_MESSAGES[1]));
+        consumerService.receive(2);
+
+        consumerService.acknowledge(NEW_MESSAGES[1].getId());
+
+        InOrder inOrder = inOrder(destinationService);
+        inOrder.verify(destinationService).acknowledgeMessage(CONSUMER_ID, NEW_MESSAGES[0]);
+        inOrder.verify(destinationService).acknowledgeMessage(CONSUMER_ID, NEW_MESSAGES[1]);
+        assertThat(consumerService.getUnacknowledged().size()).isZero();
+    }
+
+    @Test
+    public void receiveMax_recovering_redeliversBeforeDeliveringNewMessages() {
+        when(destinationService.deliverMessages(any(), anyInt())).thenReturn(
+                asList(UNACKNOWLEDGED[0], UNACKNOWLEDGED[1], UNACKNOWLEDGED[2]), singletonList(NEW_MESSAGES[0]));
+        consumerService.receive(3);
+        consumerService.recover();
+
+        assertThat(consumerService.receive(2)).extracting(Delivery::getMessage).containsExactly(UNACKNOWLEDGED[0], UNACKNOWLEDGED[1]);
+        assertThat(consumerService.receive(2)).extracting(Delivery::getMessage).containsExactly(UNACKNOWLEDGED[2], NEW_MESSAGES[0]);
+
+        verify(destinationService).deliverMessages(CONSUMER_ID, 3);
+        verify(destinationService).deliverMessages(CONSUMER_ID, 1);
+        verifyNoMoreInteractions(destinationService);
+    }
+
+    @Test
+    public void receiveMax_notPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> consumerService.receive(0));
+
+        verifyZeroInteractions(destinationService);
+    }
+
+    @Test
+    public void receiveWhenAvailable_message_receivesWithoutParking() {
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.of(NEW_MESSAGES[0]));
+        List<Message> received = new ArrayList<>();
+
+        PendingReceive pendingReceive = consumerService.receiveWhenAvailable(d -> received.add(d.getMessage()), e -> fail("receive failed", e));
+
+        assertThat(received).containsExactly(NEW_MESSAGES[0]);
+        assertThat(pendingReceive.cancel()).isFalse();
+        InOrder inOrder = inOrder(destinationService);
+        inOrder.verify(destinationService).addWaiter(pendingReceive);
+        inOrder.verify(destinationService).deliverMessage(CONSUMER_ID);
+        inOrder.verify(destinationService).removeWaiter(pendingReceive);
+        verifyNoMoreInteractions(destinationService);
+    }
+
+    @Test
+    public void receiveWhenAvailable_noMessage_receivesWhenWoken() {
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.empty(), Optional.of(NEW_MESSAGES[0]));
+        List<Message> received = new ArrayList<>();
+
+        PendingReceive pendingReceive = consumerService.receiveWhenAvailable(d -> received.add(d.getMessage()), e -> fail("receive failed", e));
+        assertThat(received).isEmpty();
+
+        assertThat(pendingReceive.wake()).isTrue();
+        assertThat(received).containsExactly(NEW_MESSAGES[0]);
+        assertThat(consumerService.getUnacknowledged().size()).isEqualTo(1);
+        verify(destinationService).addWaiter(pendingReceive);
+        verify(destinationService, times(2)).deliverMessage(CONSUMER_ID);
+        verifyNoMoreInteractions(destinationService);
+    }
+
+    @Test
+    public void receiveWhenAvailable_wokenButMessageTaken_parksAgain() {
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.empty());
+
+        PendingReceive pendingReceive = consumerService.receiveWhenAvailable(d -> fail("received " + d.getMessage()), e -> fail("receive failed", e));
+
+        assertThat(pendingReceive.wake()).isTrue();
+        verify(destinationService, times(2)).addWaiter(pendingReceive);
+    }
+
+    @Test
+    public void receiveWhenAvailable_cancelled_isNotReceivedWhenWoken() {
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.empty());
+
+        PendingReceive pendingReceive = consumerService.receiveWhenAvailable(d -> fail("received " + d.getMessage()), e -> fail("receive failed", e));
+
+        assertThat(pendingReceive.cancel()).isTrue();
+        assertThat(pendingReceive.wake()).isFalse();
+        verify(destinationService).removeWaiter(pendingReceive);
+        verify(destinationService).deliverMessage(CONSUMER_ID);
+    }
+
+    @Test
+    public void receiveWhenAvailable_consumerRemovedWhileParked_fails() {
+        ConsumerDoesNotExistException removed = new ConsumerDoesNotExistException();
+        when(destinationService.deliverMessage(any())).thenReturn(Optional.empty()).thenThrow(removed);
+        List<RuntimeException> failures = new ArrayList<>();
+
+        PendingReceive pendingReceive = consumerService.receiveWhenAvailable(d -> fail("received " + d.getMessage()), failures::add);
+
+        assertThat(pendingReceive.wake()).isFalse();
+        assertThat(failures).containsExactly(removed);
+        assertThat(pendingReceive.cancel()).isFalse();
+    }
+
+    @Test
+    public void openStream_noStream_opensStream() {
+        MessageStream stream = consumerService.openStream(mock(MessageStream.Sink.class), Runnable::run);
+
+        assertThat(consumerService.findStream()).containsSame(stream);
+        assertThat(stream.isClosed()).isFalse();
+        verifyZeroInteractions(destinationService);
+    }
+
+    @Test
+    public void openStream_streamOpen_closesOldStream() {
+        MessageStream.Sink oldSink = mock(MessageStream.Sink.class);
+        MessageStream oldStream = consumerService.openStream(oldSink, Runnable::run);
+
+        MessageStream stream = consumerService.openStream(mock(MessageStream.Sink.class), Runnable::run);
+
+        assertThat(consumerService.findStream()).containsSame(stream);
+        assertThat(oldStream.isClosed()).isTrue();
+        verify(oldSink).complete();
+    }
+
+    @Test
+    public void closeStream_streamOpen_closesStream() {
+        MessageStream stream = consumerService.openStream(mock(MessageStream.Sink.class), Runnable::run);
+
+        consumerService.closeStream();
+
+        assertThat(consumerService.findStream()).isEmpty();
+        assertThat(stream.isClosed()).isTrue();
+    }
+
+    @Test
+    public void closeStream_noStream_doesNothing() {
+        consumerService.closeStream();
+
+        assertThat(consumerService.findStream()).isEmpty();
+        verifyZeroInteractions(destinationService);
+    }
+
+    @Test
+    public void close_streamOpen_closesStream() {
+        MessageStream stream = consumerService.openStream(mock(MessageStream.Sink.class), Runnable::run);
+
+        consumerService.close();
+
+        assertThat(stream.isClosed()).isTrue();
+        verify(destinationService).removeConsumer(CONSUMER_ID);
+    }
+
     @Test
     public void close() {
         consumerService.close();
@@ -170,6 +417,34 @@ public class SingleConsumerServiceTest {
         verifyNoMoreInteractions(destinationService);
     }
 
+    @Test
+    public void close_unacknowledgedMessages_requeuesThemAfterRemovingConsumer() {
+        when(destinationService.deliverMessages(any(), anyInt())).thenReturn(asList(ACKNOWLEDGED[0], UNACKNOWLEDGED[0], UNACKNOWLEDGED[1]));
+        consumerService.receive(3);
+        consumerService.acknowledge(ACKNOWLEDGED[0].getId());
+
+        consumerService.close();
+
+        InOrder inOrder = inOrder(destinationService);
+        inOrder.verify(destinationService).removeConsumer(CONSUMER_ID);
+        inOrder.verify(destinationService).requeueMessages(asList(UNACKNOWLEDGED[0], UNACKNOWLEDGED[1]));
+        assertThat(consumerService.getUnacknowledged().isEmpty()).isTrue();
+    }
+
+    @Test
+    public void close_afterAcknowledgeFailed_requeuesMessagesItDidNotAcknowledge() {
+        when(destinationService.deliverMessages(any(), anyInt())).thenReturn(asList(UNACKNOWLEDGED[0], UNACKNOWLEDGED[1]));
+        doThrow(ConsumerDoesNotExistException.class).when(destinationService).acknowledgeMessage(CONSUMER_ID, UNACKNOWLEDGED[0]);
+        consumerService.receive(2);
+
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> consumerService.acknowledge(UNACKNOWLEDGED[1].getId()));
+        consumerService.close();
+
+        verify(destinationService).requeueMessages(asList(UNACKNOWLEDGED[0], UNACKNOWLEDGED[1]));
+        assertThat(consumerService.getUnacknowledged().isEmpty()).isTrue();
+    }
+
     private static Message[] createRandomMessages() {
         Message[] messages = {
                 new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody()),
@@ -0,0 +1,75 @@
+package kitchen.josh.simplejms.broker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageModelFactory;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.BodyModelFactory;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.headers.HeadersModelFactory;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertyModelFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing one topic message as JSON to each of 500 subscribers, encoding it once with
+ * {@link DeliveredMessages} against creating its model and encoding it for every subscriber.
+ * <p>
+ * Each invocation publishes a new message, so the shared encoding is made once per invocation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicFanOutBenchmark {
+
+    private static final int SUBSCRIBERS = 500;
+    private static final Destination TOPIC = new Destination(DestinationType.TOPIC, UUID.randomUUID());
+
+    private ObjectMapper objectMapper;
+    private MessageModelFactory messageModelFactory;
+    private DeliveredMessages deliveredMessages;
+    private MessageIdGenerator messageIdGenerator;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        messageModelFactory = new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory());
+        deliveredMessages = new DeliveredMessages(messageModelFactory);
+        messageIdGenerator = new MessageIdGenerator();
+    }
+
+    @Benchmark
+    public void encodeOnce(Blackhole blackhole) throws IOException {
+        Message message = publish();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            blackhole.consume(deliveredMessages.deliver(message).encode(MediaType.APPLICATION_JSON, objectMapper::writeValueAsBytes));
+        }
+    }
+
+    @Benchmark
+    public void encodeForEachSubscriber(Blackhole blackhole) throws IOException {
+        Message message = publish();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            blackhole.consume(objectMapper.writeValueAsBytes(messageModelFactory.create(message)));
+        }
+    }
+
+    private Message publish() {
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world, this is a message"));
+        message.setDestination(TOPIC);
+        message.setId(messageIdGenerator.nextId());
+        return message;
+    }
+}
@@ -0,0 +1,79 @@
+package kitchen.josh.simplejms.broker;
+
+import kitchen.josh.simplejms.broker.selector.Selector;
+import kitchen.josh.simplejms.broker.selector.SelectorIndex;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.CompactPropertiesImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding which of 10,000 subscribers to one topic select a published message, looking them up in a
+ * {@link SelectorIndex} against evaluating every subscriber's selector.
+ * <p>
+ * Every subscriber selects one of 1,000 regions, and every other one also selects a minimum priority, so about ten
+ * subscribers select each message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TopicRoutingBenchmark {
+
+    private static final int SUBSCRIBERS = 10_000;
+    private static final int REGIONS = 1_000;
+
+    private UUID[] subscribers;
+    private Selector[] selectors;
+    private SelectorIndex<UUID> index;
+    private Message[] messages;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        subscribers = new UUID[SUBSCRIBERS];
+        selectors = new Selector[SUBSCRIBERS];
+        index = new SelectorIndex<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            String region = "region = 'region-" + (i % REGIONS) + "'";
+            subscribers[i] = UUID.randomUUID();
+            selectors[i] = Selector.parse(i % 2 == 0 ? region : region + " AND priority > " + (i % 10));
+            index.add(subscribers[i], selectors[i]);
+        }
+        messages = new Message[REGIONS];
+        for (int i = 0; i < REGIONS; i++) {
+            messages[i] = new TextMessage(new HeadersImpl(), new CompactPropertiesImpl(), new TextBody("hello world"));
+            messages[i].setStringProperty("region", "region-" + i);
+            messages[i].setIntProperty("priority", i % 10);
+        }
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole) {
+        index.forEachMatch(nextMessage(), blackhole::consume);
+    }
+
+    @Benchmark
+    public void linear(Blackhole blackhole) {
+        Message message = nextMessage();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            if (selectors[i].matches(message)) {
+                blackhole.consume(subscribers[i]);
+            }
+        }
+    }
+
+    private Message nextMessage() {
+        Message message = messages[next];
+        next = (next + 1) % REGIONS;
+        return message;
+    }
+}
@@ -1,5 +1,6 @@
 package kitchen.josh.simplejms.broker;
 
+import kitchen.josh.simplejms.broker.selector.Selector;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
 import kitchen.josh.simplejms.common.message.Message;
@@ -12,6 +13,7 @@ import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -192,14 +194,38 @@ public class TopicServiceTest {
         // IDs should be unique
         assertThat(messages1.get(0).getId()).isNotEqualTo(messages1.get(1).getId());
 
-        // IDs should be ID:<UUID> format.
+        // IDs should be ID:<node>-<time>-<stripe>-<sequence> format.
         assertThat(messages1)
                 .extracting(Message::getId)
-                .allSatisfy(id -> {
-                    String[] parts = id.split(":");
-                    assertThat(parts[0]).isEqualTo("ID");
-                    assertThat(UUID.fromString(parts[1])).isNotNull();
-                });
+                .allSatisfy(id -> assertThat(id).matches("ID:[0-9a-f]{12}-[0-9a-f]{11}-[0-9a-f]+-[0-9a-f]+"));
+    }
+
+    @Test
+    public void addMessage_makesMessageReadOnly() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID);
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> messages[0].setId("ID:other"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> messages[0].setBooleanProperty("a", true));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(messages[0]::clearBody);
+    }
+
+    @Test
+    public void acknowledgeMessage_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> topicService.acknowledgeMessage(UUID.randomUUID(), messages[0]));
+    }
+
+    @Test
+    public void requeueMessages_dropsMessages() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID);
+
+        topicService.requeueMessages(Arrays.asList(messages[0], messages[1]));
+
+        assertThat(topicService.deliverMessage(CONSUMER_ID)).isEmpty();
     }
 
     @Test
@@ -250,6 +276,245 @@ public class TopicServiceTest {
         assertThat(topicService.getProducers()).containsOnly(PRODUCER_ID);
     }
 
+    @Test
+    public void deliverMessages_consumerDoesNotExist_throwsConsumerDoesNotExist() {
+        assertThatExceptionOfType(ConsumerDoesNotExistException.class)
+                .isThrownBy(() -> topicService.deliverMessages(UUID.randomUUID(), 2));
+    }
+
+    @Test
+    public void deliverMessages_advancesOnlyThisConsumerUpToMax() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+        topicService.addMessage(PRODUCER_ID, messages[1]);
+        topicService.addMessage(PRODUCER_ID, messages[2]);
+
+        List<Message> read = topicService.deliverMessages(CONSUMER_ID_1, 2);
+
+        assertThat(read).containsExactly(messages[0], messages[1]);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_1)).containsExactly(messages[2]);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages[0], messages[1], messages[2]);
+    }
+
+    @Test
+    public void deliverMessages_fewerThanMax_returnsRest() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID);
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThat(topicService.deliverMessages(CONSUMER_ID, 5)).containsExactly(messages[0]);
+        assertThat(topicService.deliverMessages(CONSUMER_ID, 5)).isEmpty();
+    }
+
+    @Test
+    public void addMessage_manyConsumers_appendsMessageToLogOnce() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+        topicService.addMessage(PRODUCER_ID, messages[1]);
+
+        assertThat(topicService.getLog().getEndOffset()).isEqualTo(2);
+    }
+
+    @Test
+    public void addMessage_waitersParked_wakesEveryWaiterOnce() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+        Map<UUID, Optional<Message>> woken = new HashMap<>();
+        for (UUID consumerId : Arrays.asList(CONSUMER_ID_1, CONSUMER_ID_2)) {
+            topicService.addWaiter(() -> {
+                woken.put(consumerId, topicService.deliverMessage(consumerId));
+                return true;
+            });
+        }
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThat(woken).containsOnlyKeys(CONSUMER_ID_1, CONSUMER_ID_2);
+        assertThat(woken.get(CONSUMER_ID_1)).contains(messages[0]);
+        assertThat(woken.get(CONSUMER_ID_2)).contains(messages[0]);
+        assertThat(topicService.getWaiters().size()).isZero();
+    }
+
+    @Test
+    public void addMessages_consumersExist_appendsBatchInOrderForEveryConsumer() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+
+        topicService.addMessages(PRODUCER_ID, Arrays.asList(messages));
+
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_1)).containsExactly(messages);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages);
+        assertThat(topicService.getLog().getEndOffset()).isEqualTo(messages.length);
+        assertThat(messages)
+                .extracting(Message::getDestination)
+                .containsOnly(new Destination(DestinationType.TOPIC, ID));
+    }
+
+    @Test
+    public void addMessages_noConsumers_doesNotAppendToLog() {
+        topicService.addProducer(PRODUCER_ID);
+
+        topicService.addMessages(PRODUCER_ID, Arrays.asList(messages));
+
+        assertThat(topicService.getLog().getEndOffset()).isZero();
+    }
+
+    @Test
+    public void addMessages_producerDoesNotExist_throwsProducerDoesNotExist() {
+        topicService.addConsumer(CONSUMER_ID);
+
+        assertThatExceptionOfType(ProducerDoesNotExistException.class)
+                .isThrownBy(() -> topicService.addMessages(PRODUCER_ID, Arrays.asList(messages)));
+        assertThat(topicService.getLog().getEndOffset()).isZero();
+    }
+
+    @Test
+    public void addMessages_waiterParked_wakesWaiterOnce() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID);
+        List<Integer> woken = new ArrayList<>();
+        topicService.addWaiter(() -> woken.add(woken.size()));
+
+        topicService.addMessages(PRODUCER_ID, Arrays.asList(messages));
+
+        assertThat(woken).hasSize(1);
+    }
+
+    @Test
+    public void addMessage_noConsumers_doesNotAppendToLog() {
+        topicService.addProducer(PRODUCER_ID);
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThat(topicService.getLog().getEndOffset()).isZero();
+    }
+
+    @Test
+    public void addConsumer_onlyReceivesMessagesAddedAfterSubscribing() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        topicService.addConsumer(CONSUMER_ID_2);
+        topicService.addMessage(PRODUCER_ID, messages[1]);
+
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_1)).containsExactly(messages[0], messages[1]);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages[1]);
+    }
+
+    @Test
+    public void addMessage_segmentsReadByAllConsumers_releasesSegments() {
+        topicService = new TopicService(ID, 2);
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+        for (Message message : messages) {
+            topicService.addMessage(PRODUCER_ID, message);
+        }
+
+        // Consumer 1 reads everything, consumer 2 only reads the first segment.
+        for (int i = 0; i < 4; i++) {
+            topicService.deliverMessage(CONSUMER_ID_1);
+        }
+        topicService.deliverMessage(CONSUMER_ID_2);
+        topicService.deliverMessage(CONSUMER_ID_2);
+        Message next = createMessages()[0];
+        topicService.addMessage(PRODUCER_ID, next);
+
+        assertThat(topicService.getLog().getStartOffset()).isEqualTo(2);
+        assertThat(topicService.getLog().getSegmentCount()).isEqualTo(2);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_1)).containsExactly(next);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages[2], messages[3], next);
+    }
+
+    @Test
+    public void removeConsumer_slowestConsumerRemoved_releasesSegments() {
+        topicService = new TopicService(ID, 2);
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1);
+        topicService.addConsumer(CONSUMER_ID_2);
+        for (Message message : messages) {
+            topicService.addMessage(PRODUCER_ID, message);
+        }
+        for (int i = 0; i < 4; i++) {
+            topicService.deliverMessage(CONSUMER_ID_1);
+        }
+
+        topicService.removeConsumer(CONSUMER_ID_2);
+
+        assertThat(topicService.getLog().getStartOffset()).isEqualTo(4);
+        assertThat(topicService.getLog().getSegmentCount()).isZero();
+        assertThat(topicService.deliverMessage(CONSUMER_ID_1)).isEmpty();
+    }
+
+    @Test
+    public void deliverMessage_consumerWithSelector_skipsMessagesNotSelected() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1, Selector.parse("prop1 > 2"));
+        topicService.addConsumer(CONSUMER_ID_2);
+        Arrays.stream(messages).forEach(message -> topicService.addMessage(PRODUCER_ID, message));
+
+        Optional<Message> read = topicService.deliverMessage(CONSUMER_ID_1);
+
+        assertThat(read).contains(messages[1]);
+        assertThat(topicService.deliverMessage(CONSUMER_ID_1)).isEmpty();
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages);
+    }
+
+    @Test
+    public void deliverMessages_consumerWithSelector_returnsSelectedUpToMax() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID, Selector.parse("prop1 IS NOT NULL OR b = 'hello'"));
+        Arrays.stream(messages).forEach(message -> topicService.addMessage(PRODUCER_ID, message));
+
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID)).containsExactly(messages[0], messages[1], messages[2]);
+        assertThat(topicService.deliverMessages(CONSUMER_ID, 2)).containsExactly(messages[0], messages[1]);
+        assertThat(topicService.deliverMessages(CONSUMER_ID, 2)).containsExactly(messages[2]);
+        assertThat(topicService.deliverMessages(CONSUMER_ID, 2)).isEmpty();
+    }
+
+    @Test
+    public void addMessage_onlyConsumersWithSelectors_doesNotAppendToLog() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID, Selector.parse("b = 'hello'"));
+
+        Arrays.stream(messages).forEach(message -> topicService.addMessage(PRODUCER_ID, message));
+
+        assertThat(topicService.getLog().getEndOffset()).isZero();
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID)).containsExactly(messages[2]);
+    }
+
+    @Test
+    public void addMessage_noConsumerSelectsMessage_doesNotWakeWaiters() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID, Selector.parse("b = 'hello'"));
+        topicService.addWaiter(() -> true);
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThat(topicService.getWaiters().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void removeConsumer_withSelector_stopsRoutingMessagesToIt() {
+        topicService.addProducer(PRODUCER_ID);
+        topicService.addConsumer(CONSUMER_ID_1, Selector.parse("prop1 IS NOT NULL"));
+        topicService.addConsumer(CONSUMER_ID_2, Selector.parse("prop1 IS NOT NULL"));
+        topicService.removeConsumer(CONSUMER_ID_1);
+
+        topicService.addMessage(PRODUCER_ID, messages[0]);
+
+        assertThat(topicService.getConsumerQueues()).containsOnlyKeys(CONSUMER_ID_2);
+        assertThat(topicService.getConsumerQueues().get(CONSUMER_ID_2)).containsExactly(messages[0]);
+    }
+
     private static Message[] createMessages() {
         TextMessage message1 = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("hello world"));
         ObjectMessage message2 = new ObjectMessage(new HeadersImpl(), new PropertiesImpl(), new ObjectBody(2));
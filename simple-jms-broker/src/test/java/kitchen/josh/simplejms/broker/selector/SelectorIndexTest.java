@@ -0,0 +1,109 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.CompactPropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SelectorIndexTest {
+
+    private SelectorIndex<String> index;
+
+    @Before
+    public void setUp() {
+        index = new SelectorIndex<>();
+    }
+
+    @Test
+    public void getIndexTerm_equalityOrInOnProperty_isIndexed() {
+        assertThat(Selector.parse("region = 'EU'").isIndexTerm()).isTrue();
+        assertThat(Selector.parse("'EU' = region").isIndexTerm()).isTrue();
+        assertThat(Selector.parse("region IN ('EU', 'US')").isIndexTerm()).isTrue();
+        assertThat(Selector.parse("region = 'EU' AND size > 1").getIndexTerm().getProperty()).isEqualTo("region");
+        assertThat(Selector.parse("size > 1 AND region = 'EU'").getIndexTerm().getProperty()).isEqualTo("region");
+        assertThat(Selector.parse("region = 'EU' AND size > 1").isIndexTerm()).isFalse();
+    }
+
+    @Test
+    public void getIndexTerm_otherConditions_areNotIndexed() {
+        assertThat(Selector.parse("region <> 'EU'").getIndexTerm()).isNull();
+        assertThat(Selector.parse("region NOT IN ('EU')").getIndexTerm()).isNull();
+        assertThat(Selector.parse("region = 'EU' OR size > 1").getIndexTerm()).isNull();
+        assertThat(Selector.parse("NOT region = 'EU'").getIndexTerm()).isNull();
+        assertThat(Selector.parse("size = 1").getIndexTerm()).isNull();
+        assertThat(Selector.parse("JMSMessageID = 'ID:1'").getIndexTerm()).isNull();
+        assertThat(Selector.ALL.getIndexTerm()).isNull();
+    }
+
+    @Test
+    public void forEachMatch_returnsSubscribersThatSelectMessage() {
+        index.add("eu", Selector.parse("region = 'EU'"));
+        index.add("us", Selector.parse("region = 'US'"));
+        index.add("euOrUs", Selector.parse("region IN ('EU', 'US')"));
+        index.add("euLarge", Selector.parse("region = 'EU' AND size > 10"));
+        index.add("euSmall", Selector.parse("region = 'EU' AND size <= 10"));
+        index.add("large", Selector.parse("size > 10"));
+        index.add("all", Selector.ALL);
+
+        assertThat(matches(createMessage("EU", 20))).containsExactlyInAnyOrder("eu", "euOrUs", "euLarge", "large", "all");
+        assertThat(matches(createMessage("US", 5))).containsExactlyInAnyOrder("us", "euOrUs", "all");
+        assertThat(matches(createMessage("ASIA", 20))).containsExactlyInAnyOrder("large", "all");
+    }
+
+    @Test
+    public void forEachMatch_propertyNotString_matchesNoIndexedSubscriber() {
+        index.add("eu", Selector.parse("region = 'EU'"));
+        Message message = createMessage("EU", 1);
+        message.clearProperties();
+        message.setIntProperty("region", 1);
+
+        assertThat(matches(message)).isEmpty();
+        assertThat(matches(new TextMessage(new HeadersImpl(), new CompactPropertiesImpl(), new TextBody()))).isEmpty();
+    }
+
+    @Test
+    public void forEachMatch_returnsNumberOfMatches() {
+        index.add("eu", Selector.parse("region = 'EU'"));
+        index.add("large", Selector.parse("size > 10"));
+
+        assertThat(index.forEachMatch(createMessage("EU", 20), subscriber -> {})).isEqualTo(2);
+        assertThat(index.forEachMatch(createMessage("US", 1), subscriber -> {})).isZero();
+    }
+
+    @Test
+    public void remove_stopsMatchingSubscriber() {
+        Selector euOrUs = Selector.parse("region IN ('EU', 'US')");
+        Selector large = Selector.parse("size > 10");
+        index.add("euOrUs", euOrUs);
+        index.add("eu", Selector.parse("region = 'EU'"));
+        index.add("large", large);
+
+        index.remove("euOrUs", euOrUs);
+        index.remove("large", large);
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(matches(createMessage("EU", 20))).containsExactly("eu");
+        assertThat(matches(createMessage("US", 20))).isEmpty();
+    }
+
+    private List<String> matches(Message message) {
+        List<String> matched = new ArrayList<>();
+        index.forEachMatch(message, matched::add);
+        return matched;
+    }
+
+    private static Message createMessage(String region, int size) {
+        Message message = new TextMessage(new HeadersImpl(), new CompactPropertiesImpl(), new TextBody());
+        message.setStringProperty("region", region);
+        message.setIntProperty("size", size);
+        return message;
+    }
+}
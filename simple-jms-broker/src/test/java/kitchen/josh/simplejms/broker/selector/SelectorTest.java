@@ -0,0 +1,159 @@
+package kitchen.josh.simplejms.broker.selector;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.CompactPropertiesImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class SelectorTest {
+
+    private Message message;
+
+    @Before
+    public void setUp() {
+        message = new TextMessage(new HeadersImpl(), new CompactPropertiesImpl(), new TextBody("hello"));
+        message.setId("ID:1234");
+        message.setStringProperty("colour", "red");
+        message.setStringProperty("name", "50% off_sale");
+        message.setIntProperty("size", 10);
+        message.setLongProperty("big", 5_000_000_000L);
+        message.setDoubleProperty("weight", 2.5);
+        message.setFloatProperty("ratio", 0.5f);
+        message.setBooleanProperty("urgent", true);
+        message.setByteProperty("small", (byte) 3);
+    }
+
+    @Test
+    public void parse_nullOrBlank_selectsEveryMessage() {
+        assertThat(Selector.parse(null)).isSameAs(Selector.ALL);
+        assertThat(Selector.parse("  ")).isSameAs(Selector.ALL);
+        assertThat(Selector.ALL.matches(message)).isTrue();
+    }
+
+    @Test
+    public void matches_comparisons() {
+        assertMatches(
+                "colour = 'red'", "colour <> 'blue'", "size = 10", "size > 9", "size >= 10", "size < 11",
+                "size <= 10", "size <> 11", "weight = 2.5", "weight > 2", "size > weight", "small < size",
+                "big > 4000000000", "ratio = 0.5", "urgent = TRUE", "urgent", "urgent <> FALSE",
+                "JMSMessageID = 'ID:1234'");
+        assertDoesNotMatch(
+                "colour = 'blue'", "colour <> 'red'", "size = 11", "size < 10", "weight < 2.5", "urgent = FALSE",
+                "JMSMessageID = 'ID:1'");
+    }
+
+    @Test
+    public void matches_arithmetic() {
+        assertMatches(
+                "size + 1 = 11", "size - 11 = -1", "size * 2 = 20", "size / 3 = 3", "size / 4.0 = 2.5",
+                "weight * 2 = 5", "-size = -10", "+size = 10", "2 + 3 * 4 = 14", "(2 + 3) * 4 = 20", "1.5E1 = 15",
+                ".5 = ratio");
+        assertDoesNotMatch("size / 0 = 0", "size / 0 <> 0", "NOT (size / (small - 3) = 0)");
+    }
+
+    @Test
+    public void matches_logic() {
+        assertMatches(
+                "colour = 'red' AND size = 10", "colour = 'blue' OR size = 10", "NOT colour = 'blue'",
+                "NOT (colour = 'blue' AND size = 10)", "colour = 'red' AND (size = 1 OR size = 10)",
+                "missing = 1 OR size = 10", "NOT (missing = 1 AND size = 1)");
+        assertDoesNotMatch(
+                "colour = 'red' AND size = 1", "colour = 'blue' OR size = 1", "NOT colour = 'red'",
+                "missing = 1 AND size = 10", "missing = 1 OR size = 1", "NOT missing = 1", "NOT (missing = 1)");
+    }
+
+    @Test
+    public void matches_between() {
+        assertMatches(
+                "size BETWEEN 5 AND 15", "size BETWEEN 10 AND 10", "weight BETWEEN 2 AND 3",
+                "size NOT BETWEEN 11 AND 20", "size BETWEEN small AND small * 4");
+        assertDoesNotMatch(
+                "size BETWEEN 11 AND 15", "size NOT BETWEEN 5 AND 15", "missing BETWEEN 1 AND 2",
+                "missing NOT BETWEEN 1 AND 2", "colour BETWEEN 1 AND 2");
+    }
+
+    @Test
+    public void matches_like() {
+        assertMatches(
+                "colour LIKE 'red'", "colour LIKE 'r%'", "colour LIKE '%d'", "colour LIKE '_e_'", "colour LIKE '%'",
+                "colour LIKE 'r%e%d'", "colour NOT LIKE 'b%'", "name LIKE '50\\% off\\_%' ESCAPE '\\'",
+                "name LIKE '%!%%' ESCAPE '!'", "name LIKE '%sale'");
+        assertDoesNotMatch(
+                "colour LIKE 'r'", "colour LIKE '_e'", "colour LIKE 're'", "colour NOT LIKE 'r%'",
+                "name LIKE '50!%x%' ESCAPE '!'", "missing LIKE '%'", "missing NOT LIKE '%'", "size LIKE '1%'");
+    }
+
+    @Test
+    public void matches_in() {
+        assertMatches("colour IN ('red', 'green')", "colour NOT IN ('blue', 'green')", "colour IN ('red')");
+        assertDoesNotMatch(
+                "colour IN ('blue', 'green')", "colour NOT IN ('red')", "missing IN ('red')",
+                "missing NOT IN ('red')", "size IN ('10')");
+    }
+
+    @Test
+    public void matches_isNull() {
+        assertMatches("missing IS NULL", "colour IS NOT NULL", "JMSPriority IS NULL", "JMSMessageID IS NOT NULL");
+        assertDoesNotMatch("colour IS NULL", "missing IS NOT NULL");
+    }
+
+    @Test
+    public void matches_differentTypes_isUnknown() {
+        assertDoesNotMatch(
+                "colour = 10", "size = 'red'", "urgent = 1", "colour > size", "NOT (colour = 10)", "size", "colour",
+                "missing", "NOT missing", "missing = NULL");
+    }
+
+    @Test
+    public void matches_keywordsAreCaseInsensitive() {
+        assertMatches("colour = 'red' and size between 5 and 15 or false", "colour not in ('blue') AND urgent = true");
+    }
+
+    @Test
+    public void matches_stringLiteralWithQuote() {
+        message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody());
+        message.setStringProperty("owner", "it's mine");
+
+        assertMatches("owner = 'it''s mine'");
+    }
+
+    @Test
+    public void parse_invalidSelector_throwsInvalidSelector() {
+        Stream.of(
+                "colour =", "= 'red'", "colour = 'red", "(colour = 'red'", "colour = 'red')", "size + 1", "'red'", "10",
+                "colour == 'red'", "colour LIKE red", "'red' LIKE 'r%'", "colour LIKE 'r%' ESCAPE 'ab'",
+                "colour LIKE 'r!' ESCAPE '!'", "colour IN ()", "colour IN (1)", "10 IS NULL", "size NOT 10",
+                "'a' > 'b'", "TRUE < FALSE", "'red' = 10", "'a' + 1 = 2", "size BETWEEN 'a' AND 'b'",
+                "NOT 10", "TRUE AND 10", "size = 99999999999999999999", "size = 1.5E", "size = 10abc",
+                "colour = 'red' # 1", "size BETWEEN 1 OR 2"
+        ).forEach(selector -> assertThatExceptionOfType(InvalidSelectorException.class)
+                .as(selector)
+                .isThrownBy(() -> Selector.parse(selector)));
+    }
+
+    @Test
+    public void toString_returnsSelector() {
+        assertThat(Selector.parse("colour = 'red'").toString()).isEqualTo("colour = 'red'");
+    }
+
+    private void assertMatches(String... selectors) {
+        for (String selector : selectors) {
+            assertThat(Selector.parse(selector).matches(message)).as(selector).isTrue();
+        }
+    }
+
+    private void assertDoesNotMatch(String... selectors) {
+        for (String selector : selectors) {
+            assertThat(Selector.parse(selector).matches(message)).as(selector).isFalse();
+        }
+    }
+}
@@ -1,30 +1,130 @@
 package kitchen.josh.simplejms.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.CreditModel;
 import kitchen.josh.simplejms.common.message.Message;
 import kitchen.josh.simplejms.common.message.MessageFactory;
 import kitchen.josh.simplejms.common.message.MessageIdModel;
 import kitchen.josh.simplejms.common.message.MessageModel;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import javax.jms.MessageFormatException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static java.util.Collections.singletonList;
 
 /**
  * A consumer for a destination, used for receiving messages.
+ * <p>
+ * A prefetching consumer receives up to <code>prefetch</code> messages ahead of time on a background thread, so
+ * receiving a message takes it from a local buffer instead of making a request. Prefetched messages are unacknowledged
+ * like any other received message. Recovering throws the buffer away, as the broker redelivers them, and closing the
+ * consumer has the broker put them back on the destination for its other consumers.
+ * <p>
+ * A consumer created by a session that dispatches listeners, see
+ * {@link Session#Session(String, RestTemplate, Executor, Executor, int)}, passes messages to its listener on the
+ * session's listener executor, instead of streaming them on a thread of its own.
  */
 public class Consumer implements AutoCloseable {
 
+    private static final long MAX_WAIT_PER_REQUEST = 30_000;
+    private static final int STREAM_WINDOW = 64;
+    static final long MIN_RECONNECT_DELAY = 100;
+    static final long MAX_RECONNECT_DELAY = 5_000;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     private final String brokerUrl;
     private final RestTemplate restTemplate;
     private final ConsumerId id;
     private final MessageFactory messageFactory;
+    private final Executor executor;
+    private final MessagePrefetcher prefetcher;
+    private final MessageDispatcher dispatcher;
+    private volatile MessageListener messageListener;
+    private Thread streamThread;
+    private MessageDispatcher.Registration registration;
 
     public Consumer(String brokerUrl, RestTemplate restTemplate, ConsumerId id, MessageFactory messageFactory) {
+        this(brokerUrl, restTemplate, id, messageFactory, DaemonThreads.SHARED);
+    }
+
+    /**
+     * Create a consumer whose asynchronous requests run on an executor.
+     *
+     * @param brokerUrl      the url of the broker
+     * @param restTemplate   the rest template to send requests with
+     * @param id             the id of the consumer
+     * @param messageFactory the factory for creating received messages
+     * @param executor       the executor to run asynchronous requests on
+     */
+    public Consumer(String brokerUrl, RestTemplate restTemplate, ConsumerId id, MessageFactory messageFactory,
+                    Executor executor) {
+        this.brokerUrl = brokerUrl;
+        this.restTemplate = restTemplate;
+        this.id = id;
+        this.messageFactory = messageFactory;
+        this.executor = executor;
+        this.prefetcher = null;
+        this.dispatcher = null;
+    }
+
+    /**
+     * Create a consumer whose listener is passed messages by a dispatcher.
+     *
+     * @param brokerUrl      the url of the broker
+     * @param restTemplate   the rest template to send requests with
+     * @param id             the id of the consumer
+     * @param messageFactory the factory for creating received messages
+     * @param executor       the executor to run asynchronous requests on
+     * @param dispatcher     the dispatcher to pass messages to the listener
+     */
+    Consumer(String brokerUrl, RestTemplate restTemplate, ConsumerId id, MessageFactory messageFactory,
+             Executor executor, MessageDispatcher dispatcher) {
         this.brokerUrl = brokerUrl;
         this.restTemplate = restTemplate;
         this.id = id;
         this.messageFactory = messageFactory;
+        this.executor = executor;
+        this.prefetcher = null;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * Create a prefetching consumer.
+     *
+     * @param brokerUrl      the url of the broker
+     * @param restTemplate   the rest template to send requests with
+     * @param id             the id of the consumer
+     * @param messageFactory the factory for creating received messages
+     * @param executor       the executor to run asynchronous requests on
+     * @param prefetch       the most messages to receive ahead of time
+     * @throws IllegalArgumentException if <code>prefetch</code> isn't positive
+     */
+    public Consumer(String brokerUrl, RestTemplate restTemplate, ConsumerId id, MessageFactory messageFactory,
+                    Executor executor, int prefetch) {
+        MessagePrefetcher.validate(prefetch);
+        this.brokerUrl = brokerUrl;
+        this.restTemplate = restTemplate;
+        this.id = id;
+        this.messageFactory = messageFactory;
+        this.executor = executor;
+        this.prefetcher = new MessagePrefetcher("simplejms-prefetch-" + id.getId(), prefetch,
+                this::requestMessages, this::requestMessage);
+        this.dispatcher = null;
     }
 
     /**
@@ -33,11 +133,126 @@ public class Consumer implements AutoCloseable {
      * @return the next message for the consumer, or <code>Optional.empty()</code> if there isn't a message
      */
     public Optional<Message> receiveMessage() {
-        String receiveUrl = brokerUrl + "/consumer/" + id.getId() + "/receive";
+        if (prefetcher != null) {
+            return prefetcher.poll();
+        }
+        return receive(brokerUrl + "/consumer/" + id.getId() + "/receive");
+    }
 
-        return Optional.ofNullable(restTemplate.postForEntity(receiveUrl, null, MessageModel.class))
-                .map(ResponseEntity::getBody)
-                .map(this::createMessage);
+    /**
+     * Receive a message from the consumer's destination without waiting for the broker.
+     *
+     * @return a future completed with the next message for the consumer, or <code>Optional.empty()</code> if there
+     * isn't a message, or completed exceptionally if receiving failed
+     */
+    public CompletableFuture<Optional<Message>> receiveMessageAsync() {
+        return CompletableFuture.supplyAsync(this::receiveMessage, executor);
+    }
+
+    /**
+     * Receive up to <code>max</code> messages from the consumer's destination in a single request.
+     * <p>
+     * The messages are all unacknowledged until acknowledged, so acknowledging the last one acknowledges every message
+     * in the batch. A prefetching consumer takes them from its buffer instead.
+     *
+     * @param max the most messages to receive
+     * @return the next messages for the consumer in order, empty if there aren't any
+     * @throws IllegalArgumentException if max isn't positive
+     */
+    public List<Message> receiveMessages(int max) {
+        if (max <= 0) {
+            throw new IllegalArgumentException("Max must be positive: " + max);
+        }
+        if (prefetcher != null) {
+            return prefetcher.poll(max);
+        }
+        return requestMessages(max);
+    }
+
+    private List<Message> requestMessages(int max) {
+        String receiveUrl = brokerUrl + "/consumer/" + id.getId() + "/receive?max=" + max;
+        MessageModel[] models = restTemplate.postForObject(receiveUrl, null, MessageModel[].class);
+        if (models == null) {
+            return new ArrayList<>();
+        }
+        List<Message> messages = new ArrayList<>(models.length);
+        for (MessageModel model : models) {
+            messages.add(createMessage(model));
+        }
+        return messages;
+    }
+
+    /**
+     * Receive a message from the consumer's destination, waiting for one to be sent if there isn't one yet.
+     * <p>
+     * The broker holds each request open until a message arrives, so waiting doesn't poll the broker. Longer waits are
+     * made as a series of requests of at most {@value #MAX_WAIT_PER_REQUEST} milliseconds.
+     *
+     * @param timeout the longest time to wait in milliseconds, or <code>0</code> to wait until a message arrives
+     * @return the next message for the consumer, or <code>Optional.empty()</code> if the timeout elapsed first
+     * @throws IllegalArgumentException if the timeout is negative
+     */
+    public Optional<Message> receiveMessage(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout must not be negative: " + timeout);
+        }
+        if (prefetcher != null) {
+            return prefetcher.poll(timeout);
+        }
+        String receiveUrl = brokerUrl + "/consumer/" + id.getId() + "/receive?timeout=";
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining = timeout == 0 ? MAX_WAIT_PER_REQUEST : timeout;
+        while (true) {
+            Optional<Message> message = receive(receiveUrl + Math.min(remaining, MAX_WAIT_PER_REQUEST));
+            if (message.isPresent()) {
+                return message;
+            }
+            if (timeout != 0) {
+                remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return message;
+                }
+            }
+        }
+    }
+
+    /**
+     * Have the broker push the consumer's messages to a listener as they are sent, instead of receiving them one at a
+     * time.
+     * <p>
+     * The messages are streamed over a single response, and passed to the listener in order on a background thread.
+     * The broker pushes at most {@value #STREAM_WINDOW} messages ahead of the listener, and is given more credit each
+     * time the listener has handled half of them.
+     * <p>
+     * Setting the listener to <code>null</code> ends the stream, any message already pushed but not yet handled is left
+     * unacknowledged, to be redelivered on {@link #recover()}.
+     * <p>
+     * If the stream ends, it is opened again while the listener is still set, after a delay doubling from
+     * {@value #MIN_RECONNECT_DELAY} up to {@value #MAX_RECONNECT_DELAY} milliseconds while it keeps failing. If it
+     * fails, or the listener throws, the error is first passed to the background thread's uncaught exception handler. If the
+     * broker rejects the stream, for instance because the consumer no longer exists, the error is passed to the handler
+     * and streaming stops.
+     * <p>
+     * A consumer with a dispatcher doesn't stream. The dispatcher receives its messages in batches instead, and passes
+     * them to the listener in order on the dispatcher's executor.
+     *
+     * @param listener the listener to pass each message to, or <code>null</code> to stop streaming
+     * @throws IllegalStateException if the consumer is prefetching
+     */
+    public synchronized void setMessageListener(MessageListener listener) {
+        if (prefetcher != null && listener != null) {
+            throw new IllegalStateException("A prefetching consumer can't have a message listener");
+        }
+        messageListener = listener;
+        if (dispatcher != null) {
+            dispatchTo(listener);
+        } else if (listener == null) {
+            stopStreaming();
+        } else if (streamThread == null) {
+            streamThread = new Thread(this::streamMessages, "simplejms-consumer-" + id.getId());
+            streamThread.setDaemon(true);
+            streamThread.start();
+        }
     }
 
     public void acknowledge(Message message) {
@@ -45,21 +260,234 @@ public class Consumer implements AutoCloseable {
         restTemplate.postForEntity(acknowledgeUrl, new MessageIdModel(message.getId()), Void.class);
     }
 
+    /**
+     * Acknowledge a message, and every message received before it, without waiting for the broker.
+     *
+     * @param message the message to acknowledge
+     * @return a future completed once the broker has acknowledged the message, or completed exceptionally if that
+     * failed
+     */
+    public CompletableFuture<Void> acknowledgeAsync(Message message) {
+        String acknowledgeUrl = brokerUrl + "/consumer/" + id.getId() + "/acknowledge";
+        MessageIdModel messageId = new MessageIdModel(message.getId());
+
+        return CompletableFuture.runAsync(() -> restTemplate.postForEntity(acknowledgeUrl, messageId, Void.class), executor);
+    }
+
+    /**
+     * Have the broker redeliver every message the consumer hasn't acknowledged.
+     * <p>
+     * A prefetching consumer throws away the messages it has prefetched first, as the broker redelivers them too.
+     */
     public void recover() {
         String recoverUrl = brokerUrl + "/consumer/" + id.getId() + "/recover";
-        restTemplate.postForEntity(recoverUrl, null, Void.class);
+        if (prefetcher != null) {
+            prefetcher.clear(() -> restTemplate.postForEntity(recoverUrl, null, Void.class));
+        } else {
+            restTemplate.postForEntity(recoverUrl, null, Void.class);
+        }
     }
 
     /**
      * Close the consumer, telling the broker to remove resources allocated for this consumer.
+     * <p>
+     * The broker puts back every message the consumer hasn't acknowledged, including any it prefetched.
      */
     @Override
     public void close() {
+        // Removing the consumer ends any stream, so the listener only needs clearing.
+        synchronized (this) {
+            messageListener = null;
+            notifyAll();
+            if (dispatcher != null) {
+                dispatchTo(null);
+            }
+        }
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
         String deleteUrl = brokerUrl + "/consumer/" + id.getId();
 
         restTemplate.delete(deleteUrl);
     }
 
+    /**
+     * Close the consumer without waiting for the broker.
+     *
+     * @return a future completed once the broker has removed the consumer, or completed exceptionally if that failed
+     */
+    public CompletableFuture<Void> closeAsync() {
+        return CompletableFuture.runAsync(this::close, executor);
+    }
+
+    private void dispatchTo(MessageListener listener) {
+        if (listener == null) {
+            if (registration != null) {
+                registration.cancel();
+                registration = null;
+            }
+        } else if (registration == null) {
+            registration = dispatcher.register(this::requestMessages, listener);
+        } else {
+            registration.setListener(listener);
+        }
+    }
+
+    private void streamMessages() {
+        String streamUrl = brokerUrl + "/consumer/" + id.getId() + "/stream?credit=" + STREAM_WINDOW;
+        long delay = MIN_RECONNECT_DELAY;
+        try {
+            while (isStreaming()) {
+                try {
+                    restTemplate.execute(streamUrl, HttpMethod.GET,
+                            request -> request.getHeaders().setAccept(singletonList(MediaType.TEXT_EVENT_STREAM)),
+                            response -> {
+                                try {
+                                    readEvents(response);
+                                } catch (IOException | RuntimeException e) {
+                                    abandonStream(e);
+                                    throw e;
+                                }
+                                return null;
+                            });
+                    delay = MIN_RECONNECT_DELAY;
+                } catch (HttpClientErrorException e) {
+                    if (isStreaming()) {
+                        report(e);
+                    }
+                    return;
+                } catch (RuntimeException e) {
+                    if (!isStreaming()) {
+                        // The stream was closed by stopping it.
+                        return;
+                    }
+                    report(e);
+                }
+                if (!awaitReconnect(delay)) {
+                    return;
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY);
+            }
+        } finally {
+            synchronized (this) {
+                if (streamThread == Thread.currentThread()) {
+                    streamThread = null;
+                }
+            }
+        }
+    }
+
+    private synchronized boolean isStreaming() {
+        return streamThread == Thread.currentThread() && messageListener != null;
+    }
+
+    /**
+     * Wait before opening the stream again, returning early if streaming is stopped.
+     *
+     * @return false if the thread was interrupted, so it should stop streaming
+     */
+    private synchronized boolean awaitReconnect(long delay) {
+        long deadline = System.currentTimeMillis() + delay;
+        long remaining = delay;
+        while (remaining > 0 && isStreaming()) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+        return true;
+    }
+
+    private static void report(RuntimeException error) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+
+    /**
+     * Read the <code>message</code> events from the stream until it ends, passing each to the listener and granting
+     * the broker more credit every half window.
+     */
+    private void readEvents(ClientHttpResponse response) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        int handled = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                MessageListener listener = messageListener;
+                if (listener == null) {
+                    return;
+                }
+                if ("message".equals(event) && data.length() > 0) {
+                    listener.onMessage(createMessage(OBJECT_MAPPER.readValue(data.toString(), MessageModel.class)));
+                    if (++handled == STREAM_WINDOW / 2) {
+                        addCredit(handled);
+                        handled = 0;
+                    }
+                }
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = fieldValue(line);
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(fieldValue(line));
+            }
+        }
+    }
+
+    /**
+     * Ask the broker to end a stream that is no longer being read, as closing the response reads the rest of it so its
+     * connection can be reused.
+     */
+    private void abandonStream(Exception cause) {
+        try {
+            restTemplate.delete(brokerUrl + "/consumer/" + id.getId() + "/stream");
+        } catch (RestClientException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void addCredit(int credit) {
+        String creditUrl = brokerUrl + "/consumer/" + id.getId() + "/credit";
+        restTemplate.postForEntity(creditUrl, new CreditModel(credit), Void.class);
+    }
+
+    /**
+     * Ask the broker to end the stream, so the background thread reads to the end of it and stops.
+     */
+    private void stopStreaming() {
+        if (streamThread != null) {
+            streamThread = null;
+            notifyAll();
+            restTemplate.delete(brokerUrl + "/consumer/" + id.getId() + "/stream");
+        }
+    }
+
+    private static String fieldValue(String line) {
+        int start = line.indexOf(':') + 1;
+        if (start < line.length() && line.charAt(start) == ' ') {
+            start++;
+        }
+        return line.substring(start);
+    }
+
+    private Optional<Message> requestMessage(long wait) {
+        return receive(brokerUrl + "/consumer/" + id.getId() + "/receive?timeout=" + wait);
+    }
+
+    private Optional<Message> receive(String receiveUrl) {
+        return Optional.ofNullable(restTemplate.postForEntity(receiveUrl, null, MessageModel.class))
+                .map(ResponseEntity::getBody)
+                .map(this::createMessage);
+    }
+
     private Message createMessage(MessageModel model) {
         try {
             return messageFactory.create(model);
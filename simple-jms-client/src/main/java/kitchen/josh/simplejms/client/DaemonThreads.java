@@ -0,0 +1,36 @@
+package kitchen.josh.simplejms.client;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for a client's background requests, which never keep the JVM running.
+ */
+final class DaemonThreads {
+
+    /**
+     * Runs the asynchronous requests of producers and consumers that aren't given their own executor. Threads that
+     * are idle for a minute end.
+     */
+    static final ExecutorService SHARED = Executors.newCachedThreadPool(factory("simplejms-client"));
+
+    private DaemonThreads() {
+    }
+
+    /**
+     * Create a factory of daemon threads, named with a prefix and a number.
+     *
+     * @param prefix the prefix of the threads' names
+     * @return the thread factory
+     */
+    static ThreadFactory factory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,246 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.MessageModel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects a producer's messages into batches, sent by a background thread.
+ * <p>
+ * A batch is sent once it holds <code>batchSize</code> messages, or its first message has waited
+ * <code>lingerMillis</code>, whichever comes first. Batches are sent one at a time in the order their messages were
+ * added, so the broker receives a producer's messages in order.
+ * <p>
+ * Once a batch fails to send, no later batch is sent until the error has been thrown by {@link #flush()} or
+ * {@link #close()}, so the broker never receives messages after a gap. The futures of the messages not sent are
+ * completed exceptionally with the same error.
+ * <p>
+ * At most {@value #MAX_PENDING_BATCHES} batches of messages wait to be sent. Adding a message when they are full
+ * waits for a batch to be sent.
+ */
+final class MessageBatcher implements AutoCloseable {
+
+    static final int MAX_PENDING_BATCHES = 16;
+
+    private final Consumer<MessageModel[]> sender;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int capacity;
+    private final Lock lock;
+    private final Condition notEmpty;
+    private final Condition notFull;
+    private final Condition sent;
+    private final Deque<Pending> pending;
+    private long added;
+    private long completed;
+    private long flushUpTo;
+    private RuntimeException failure;
+    private boolean closed;
+
+    /**
+     * Create a batcher, starting its sending thread.
+     *
+     * @param name         the name of the sending thread
+     * @param sender       sends a batch of messages, throwing if it couldn't
+     * @param batchSize    the most messages to send in a batch
+     * @param lingerMillis the longest time in milliseconds a message waits for others to share its batch
+     */
+    MessageBatcher(String name, Consumer<MessageModel[]> sender, int batchSize, long lingerMillis) {
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.capacity = batchSize * MAX_PENDING_BATCHES;
+        this.lock = new ReentrantLock();
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.sent = lock.newCondition();
+        this.pending = new ArrayDeque<>();
+        Thread thread = new Thread(this::sendBatches, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Check the settings of a batcher.
+     *
+     * @param batchSize    the most messages to send in a batch
+     * @param lingerMillis the longest time in milliseconds a message waits for others to share its batch
+     * @throws IllegalArgumentException if <code>batchSize</code> isn't positive, or <code>lingerMillis</code> is
+     *                                  negative
+     */
+    static void validate(int batchSize, long lingerMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("Linger time must not be negative: " + lingerMillis);
+        }
+    }
+
+    /**
+     * Add a message to the next batch, waiting for space if too many messages are waiting to be sent.
+     *
+     * @param message the message to send
+     * @return a future completed once the message's batch has been sent, or completed exceptionally if that or an
+     * earlier batch since the last flush failed
+     * @throws IllegalStateException if the batcher is closed
+     */
+    CompletableFuture<Void> add(MessageModel message) {
+        lock.lock();
+        try {
+            while (!closed && pending.size() >= capacity) {
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("The producer is closed");
+            }
+            Pending entry = new Pending(message);
+            pending.addLast(entry);
+            added++;
+            if (pending.size() == 1 || pending.size() >= batchSize) {
+                notEmpty.signal();
+            }
+            return entry.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send every message added so far without waiting for their batches to fill, and wait until they have been sent.
+     *
+     * @throws RuntimeException the first error sending a batch since the last flush
+     */
+    void flush() {
+        lock.lock();
+        try {
+            flushUpTo = added;
+            notEmpty.signal();
+            while (completed < flushUpTo) {
+                sent.awaitUninterruptibly();
+            }
+            RuntimeException error = failure;
+            failure = null;
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop adding messages, and send every message already added.
+     *
+     * @throws RuntimeException the first error sending a batch since the last flush
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flush();
+    }
+
+    private void sendBatches() {
+        Pending[] batch;
+        while ((batch = nextBatch()) != null) {
+            MessageModel[] messages = new MessageModel[batch.length];
+            for (int i = 0; i < batch.length; i++) {
+                messages[i] = batch[i].message;
+            }
+            RuntimeException error = getFailure();
+            if (error == null) {
+                try {
+                    sender.accept(messages);
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+            for (Pending entry : batch) {
+                if (error == null) {
+                    entry.future.complete(null);
+                } else {
+                    entry.future.completeExceptionally(error);
+                }
+            }
+            lock.lock();
+            try {
+                completed += batch.length;
+                if (error != null && failure == null) {
+                    failure = error;
+                }
+                sent.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private RuntimeException getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for the next batch to be full, to have lingered long enough, or to be flushed.
+     *
+     * @return the next batch, or <code>null</code> once the batcher is closed and every batch has been sent
+     */
+    private Pending[] nextBatch() {
+        lock.lock();
+        try {
+            while (pending.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+            long wait = pending.peekFirst().addedAt + lingerNanos - System.nanoTime();
+            while (wait > 0 && pending.size() < batchSize && !closed && completed >= flushUpTo) {
+                try {
+                    wait = notEmpty.awaitNanos(wait);
+                } catch (InterruptedException e) {
+                    // Nothing interrupts the sending thread, but if something does the batch is sent now.
+                    break;
+                }
+            }
+            Pending[] batch = new Pending[Math.min(batchSize, pending.size())];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = pending.pollFirst();
+            }
+            notFull.signalAll();
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Pending {
+
+        private final MessageModel message;
+        private final long addedAt;
+        private final CompletableFuture<Void> future;
+
+        private Pending(MessageModel message) {
+            this.message = message;
+            this.addedAt = System.nanoTime();
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Passes the messages of many consumers to their listeners on a shared executor, instead of a thread per consumer.
+ * <p>
+ * Each registered consumer is dispatched by receiving a batch of up to {@value #BATCH_SIZE} messages and passing them
+ * to its listener in order. A consumer is only dispatched once at a time, so its listener is passed its messages in
+ * order, and at most <code>maxConcurrency</code> consumers are dispatched at once, taking turns a batch at a time.
+ * <p>
+ * Receiving doesn't wait on the broker, so no thread is held by a consumer without messages. Instead an idle consumer
+ * is dispatched again after a delay, doubling from <code>minIdleDelay</code> up to <code>maxIdleDelay</code>
+ * milliseconds while it stays idle, by default {@value #DEFAULT_MIN_IDLE_DELAY} and {@value #DEFAULT_MAX_IDLE_DELAY}.
+ * So the next message of a consumer that has been idle for a while is passed to its listener up to
+ * <code>maxIdleDelay</code> late, and each idle consumer sends an empty receive to the broker every
+ * <code>maxIdleDelay</code>.
+ * <p>
+ * An error thrown by a listener, or receiving, is passed to the thread's uncaught exception handler. A message whose
+ * listener throws is left unacknowledged, and dispatching goes on with the next one. If receiving fails, the consumer
+ * is dispatched again after <code>maxIdleDelay</code>. If the executor rejects a dispatch, the error is reported the
+ * same way and the consumer is dispatched first once the executor is tried again, after <code>maxIdleDelay</code>.
+ */
+final class MessageDispatcher implements AutoCloseable {
+
+    static final int BATCH_SIZE = 16;
+    static final long DEFAULT_MIN_IDLE_DELAY = 10;
+    static final long DEFAULT_MAX_IDLE_DELAY = 1_000;
+
+    private final Executor executor;
+    private final int maxConcurrency;
+    private final long minIdleDelay;
+    private final long maxIdleDelay;
+    private final ScheduledExecutorService timer;
+    private final Deque<Registration> ready;
+    private int running;
+    private boolean retryScheduled;
+    private boolean closed;
+
+    /**
+     * Create a dispatcher with the default idle delays, starting the thread that times the delays of idle consumers.
+     *
+     * @param executor       the executor to receive messages and run listeners on, which shouldn't run them on the
+     *                       calling thread
+     * @param maxConcurrency the most consumers to dispatch at once
+     * @throws IllegalArgumentException if <code>maxConcurrency</code> isn't positive
+     */
+    MessageDispatcher(Executor executor, int maxConcurrency) {
+        this(executor, maxConcurrency, DEFAULT_MIN_IDLE_DELAY, DEFAULT_MAX_IDLE_DELAY);
+    }
+
+    /**
+     * Create a dispatcher with the bounds of the delay before an idle consumer is dispatched again, starting the thread
+     * that times the delays.
+     *
+     * @param executor       the executor to receive messages and run listeners on, which shouldn't run them on the
+     *                       calling thread
+     * @param maxConcurrency the most consumers to dispatch at once
+     * @param minIdleDelay   the delay in milliseconds after a consumer first finds no messages
+     * @param maxIdleDelay   the most the delay doubles to in milliseconds while a consumer stays idle
+     * @throws IllegalArgumentException if <code>maxConcurrency</code> or <code>minIdleDelay</code> isn't positive, or
+     *                                  <code>maxIdleDelay</code> is less than <code>minIdleDelay</code>
+     */
+    MessageDispatcher(Executor executor, int maxConcurrency, long minIdleDelay, long maxIdleDelay) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Max concurrency must be positive: " + maxConcurrency);
+        }
+        if (minIdleDelay <= 0) {
+            throw new IllegalArgumentException("Min idle delay must be positive: " + minIdleDelay);
+        }
+        if (maxIdleDelay < minIdleDelay) {
+            throw new IllegalArgumentException("Max idle delay must not be less than min idle delay: " + maxIdleDelay);
+        }
+        this.executor = executor;
+        this.maxConcurrency = maxConcurrency;
+        this.minIdleDelay = minIdleDelay;
+        this.maxIdleDelay = maxIdleDelay;
+        this.timer = Executors.newSingleThreadScheduledExecutor(DaemonThreads.factory("simplejms-dispatch-timer"));
+        this.ready = new ArrayDeque<>();
+    }
+
+    /**
+     * Start dispatching a consumer's messages to a listener.
+     *
+     * @param receiver receives up to the given number of the consumer's messages without waiting
+     * @param listener the listener to pass the messages to
+     * @return the registration, to change the listener or stop dispatching
+     * @throws IllegalStateException if the dispatcher is closed
+     */
+    synchronized Registration register(IntFunction<List<Message>> receiver, MessageListener listener) {
+        if (closed) {
+            throw new IllegalStateException("The dispatcher is closed");
+        }
+        Registration registration = new Registration(receiver, listener);
+        ready.add(registration);
+        dispatchReady();
+        return registration;
+    }
+
+    /**
+     * Stop dispatching every consumer, and the timer thread. Listeners already running are left to finish.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            ready.clear();
+        }
+        timer.shutdownNow();
+    }
+
+    /**
+     * Dispatch the consumers ready for it, while fewer than <code>maxConcurrency</code> are being dispatched.
+     * <p>
+     * If the executor rejects a dispatch, the consumer is put back at the front of the queue, the error is reported,
+     * and the consumers still ready are dispatched again after a delay.
+     */
+    private synchronized void dispatchReady() {
+        while (running < maxConcurrency && !ready.isEmpty()) {
+            Registration registration = ready.poll();
+            if (!registration.cancelled) {
+                running++;
+                try {
+                    executor.execute(() -> dispatch(registration));
+                } catch (RejectedExecutionException e) {
+                    running--;
+                    ready.addFirst(registration);
+                    retryLater();
+                    report(e);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void retryLater() {
+        if (!retryScheduled) {
+            retryScheduled = true;
+            timer.schedule(this::retry, maxIdleDelay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void retry() {
+        retryScheduled = false;
+        dispatchReady();
+    }
+
+    private void dispatch(Registration registration) {
+        long delay = 0;
+        try {
+            if (registration.cancelled) {
+                return;
+            }
+            List<Message> messages = registration.receiver.apply(BATCH_SIZE);
+            if (messages.isEmpty()) {
+                delay = registration.idleDelay == 0
+                        ? minIdleDelay
+                        : Math.min(registration.idleDelay * 2, maxIdleDelay);
+            }
+            for (Message message : messages) {
+                MessageListener listener = registration.listener;
+                if (registration.cancelled) {
+                    // The rest are left unacknowledged, to be redelivered on recover.
+                    break;
+                }
+                try {
+                    listener.onMessage(message);
+                } catch (RuntimeException e) {
+                    report(e);
+                }
+            }
+        } catch (RuntimeException e) {
+            delay = maxIdleDelay;
+            report(e);
+        } finally {
+            finished(registration, delay);
+        }
+    }
+
+    private synchronized void finished(Registration registration, long delay) {
+        running--;
+        registration.idleDelay = delay;
+        if (!closed && !registration.cancelled) {
+            if (delay == 0) {
+                // Behind the consumers already waiting, so they take turns.
+                ready.add(registration);
+            } else {
+                timer.schedule(() -> makeReady(registration), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        dispatchReady();
+    }
+
+    private synchronized void makeReady(Registration registration) {
+        if (!closed && !registration.cancelled) {
+            ready.add(registration);
+            dispatchReady();
+        }
+    }
+
+    private static void report(RuntimeException error) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+
+    /**
+     * A consumer whose messages are being dispatched to a listener.
+     */
+    static final class Registration {
+
+        private final IntFunction<List<Message>> receiver;
+        private volatile MessageListener listener;
+        private volatile boolean cancelled;
+        private long idleDelay;
+
+        private Registration(IntFunction<List<Message>> receiver, MessageListener listener) {
+            this.receiver = receiver;
+            this.listener = listener;
+        }
+
+        /**
+         * Pass the consumer's next messages to a different listener.
+         *
+         * @param listener the listener to pass the messages to
+         */
+        void setListener(MessageListener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Stop dispatching the consumer's messages. Any message of a batch being dispatched that hasn't been passed to
+         * the listener yet is left unacknowledged.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+/**
+ * Receives the messages pushed to a consumer, see {@link Consumer#setMessageListener(MessageListener)}.
+ */
+@FunctionalInterface
+public interface MessageListener {
+
+    /**
+     * Handle the next message for the consumer.
+     *
+     * @param message the message received
+     */
+    void onMessage(Message message);
+}
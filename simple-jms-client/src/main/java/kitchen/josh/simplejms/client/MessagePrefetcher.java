@@ -0,0 +1,223 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
+
+/**
+ * Receives a consumer's messages ahead of time into a local buffer, on a background thread.
+ * <p>
+ * The buffer holds at most <code>prefetch</code> messages. Whenever it has room the background thread receives as many
+ * messages as fit in a single request, or, if the broker has none, waits up to {@value #FETCH_WAIT} milliseconds for
+ * the next one. If receiving fails, the error is thrown to the next caller that finds the buffer empty, and the
+ * background thread tries again after {@value #RETRY_DELAY} milliseconds.
+ * <p>
+ * The broker counts every prefetched message as received, so they stay unacknowledged until the consumer, or the
+ * broker on closing the consumer, deals with them.
+ */
+final class MessagePrefetcher implements AutoCloseable {
+
+    static final long FETCH_WAIT = 1_000;
+    static final long RETRY_DELAY = 1_000;
+
+    private final IntFunction<List<Message>> receiver;
+    private final LongFunction<Optional<Message>> waitingReceiver;
+    private final BlockingQueue<Message> buffer;
+    private final Semaphore space;
+    private final Lock fetchLock;
+    private final Thread thread;
+    private volatile RuntimeException failure;
+    private volatile boolean closed;
+
+    /**
+     * Create a prefetcher, starting its background thread.
+     *
+     * @param name            the name of the background thread
+     * @param prefetch        the most messages to hold
+     * @param receiver        receives up to the given number of messages without waiting
+     * @param waitingReceiver receives a message, waiting up to the given number of milliseconds for one
+     */
+    MessagePrefetcher(String name, int prefetch, IntFunction<List<Message>> receiver,
+                      LongFunction<Optional<Message>> waitingReceiver) {
+        this.receiver = receiver;
+        this.waitingReceiver = waitingReceiver;
+        this.buffer = new LinkedBlockingQueue<>();
+        this.space = new Semaphore(prefetch);
+        this.fetchLock = new ReentrantLock(true);
+        this.thread = new Thread(this::fetchMessages, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Check the size of a prefetch buffer.
+     *
+     * @param prefetch the most messages to hold
+     * @throws IllegalArgumentException if <code>prefetch</code> isn't positive
+     */
+    static void validate(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("Prefetch must be positive: " + prefetch);
+        }
+    }
+
+    /**
+     * Take the next prefetched message, if there is one.
+     *
+     * @return the next message, or <code>Optional.empty()</code> if the buffer is empty
+     * @throws RuntimeException the error the background thread last had receiving messages, if the buffer is empty
+     */
+    Optional<Message> poll() {
+        Message message = buffer.poll();
+        if (message == null) {
+            throwFailure();
+            return Optional.empty();
+        }
+        space.release();
+        return Optional.of(message);
+    }
+
+    /**
+     * Take the next prefetched message, waiting for one if the buffer is empty.
+     *
+     * @param timeout the longest time to wait in milliseconds, or <code>0</code> to wait until there is a message
+     * @return the next message, or <code>Optional.empty()</code> if the timeout elapsed first, or the calling thread was
+     * interrupted
+     * @throws RuntimeException the error the background thread last had receiving messages, if no message came
+     */
+    Optional<Message> poll(long timeout) {
+        long deadline = System.currentTimeMillis() + timeout;
+        try {
+            while (true) {
+                // Wakes up at least once per retry, to throw an error receiving without waiting for the timeout.
+                long remaining = timeout == 0
+                        ? RETRY_DELAY
+                        : Math.min(RETRY_DELAY, deadline - System.currentTimeMillis());
+                Message message = remaining > 0 ? buffer.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (message != null) {
+                    space.release();
+                    return Optional.of(message);
+                }
+                throwFailure();
+                if (timeout != 0 && System.currentTimeMillis() >= deadline) {
+                    return Optional.empty();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Take up to <code>max</code> of the prefetched messages, in order.
+     *
+     * @param max the most messages to take
+     * @return the messages, empty if the buffer is empty
+     * @throws RuntimeException the error the background thread last had receiving messages, if the buffer is empty
+     */
+    List<Message> poll(int max) {
+        List<Message> messages = new ArrayList<>(Math.min(max, buffer.size()));
+        buffer.drainTo(messages, max);
+        if (messages.isEmpty()) {
+            throwFailure();
+        } else {
+            space.release(messages.size());
+        }
+        return messages;
+    }
+
+    /**
+     * Throw away every prefetched message, and run an action before any more are received.
+     * <p>
+     * Waits for a receive already in progress to finish first, so no message received before the action is kept.
+     *
+     * @param action the action to run with the buffer empty
+     */
+    void clear(Runnable action) {
+        fetchLock.lock();
+        try {
+            space.release(buffer.drainTo(new ArrayList<>()));
+            action.run();
+        } finally {
+            fetchLock.unlock();
+        }
+    }
+
+    /**
+     * Stop receiving messages, and throw away every prefetched message.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        buffer.clear();
+    }
+
+    private void fetchMessages() {
+        while (!closed) {
+            try {
+                space.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            int wanted = 1 + space.drainPermits();
+            int received = 0;
+            boolean failed = false;
+            // Fair, so a waiting clear goes before the next receive.
+            fetchLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                List<Message> messages = receiver.apply(wanted);
+                if (messages.isEmpty()) {
+                    messages = waitingReceiver.apply(FETCH_WAIT).map(Collections::singletonList).orElse(messages);
+                }
+                buffer.addAll(messages);
+                received = messages.size();
+                failure = null;
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                failure = e;
+                failed = true;
+            } finally {
+                fetchLock.unlock();
+            }
+            space.release(wanted - received);
+            if (failed && !sleep(RETRY_DELAY)) {
+                return;
+            }
+        }
+    }
+
+    private void throwFailure() {
+        RuntimeException error = failure;
+        if (error != null) {
+            failure = null;
+            throw error;
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
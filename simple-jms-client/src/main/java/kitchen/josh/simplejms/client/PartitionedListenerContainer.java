@@ -0,0 +1,292 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes a consumer's messages to a listener on several lanes in parallel, keeping the order of messages with the same
+ * key.
+ * <p>
+ * The key of a message is the value of a string property, such as <code>JMSXGroupID</code>. Each key is hashed onto
+ * one of the lanes, each of which passes its messages to the listener one at a time on a thread of its own, in the
+ * order they were received. So messages with the same key are handled in order, while messages with different keys
+ * can be handled at once. Messages without the key have no order to keep, and are spread across the lanes in turn.
+ * <p>
+ * A background thread receives the messages, at most {@value #LANE_CAPACITY} times the number of lanes ahead of the
+ * oldest message not yet handled. That limit is shared by the lanes rather than split between them, so a lane behind
+ * the others can be holding most of the messages received. As the broker acknowledges every message received before
+ * the one acknowledged, it only acknowledges up to the last message before the oldest one not yet handled, so a message
+ * is never acknowledged before it has been handled.
+ * <p>
+ * If the listener throws an error for a message, the error is passed to the lane's uncaught exception handler, and
+ * nothing from that message on is acknowledged. The lanes skip the messages received after it, so no message with the
+ * same key is handled before it, and once the messages before it have been handled they are acknowledged and the
+ * consumer is recovered, so the broker sends the failed message and those after it again. A message received after it
+ * that another lane had already handled is handled again.
+ * <p>
+ * The consumer shouldn't be used for anything else while the container is open.
+ */
+public final class PartitionedListenerContainer implements AutoCloseable {
+
+    /**
+     * The number of messages for each lane that can be received ahead of the oldest message not yet handled. They are
+     * shared by the lanes, so one lane can hold more than this.
+     */
+    public static final int LANE_CAPACITY = 64;
+
+    static final long FETCH_WAIT = 100;
+    static final long RETRY_DELAY = 1_000;
+
+    private final Consumer consumer;
+    private final String keyProperty;
+    private final MessageListener listener;
+    private final ExecutorService[] lanes;
+    private final Semaphore space;
+    private final Message[] pending;
+    private final boolean[] handled;
+    private final Thread thread;
+    private long received;
+    private int inLanes;
+    private long failedAt = -1;
+    private long handledUpTo;
+    private Message lastHandled;
+    private long acknowledgedUpTo;
+    private volatile boolean closed;
+
+    /**
+     * Create a container, starting to receive the consumer's messages.
+     *
+     * @param consumer    the consumer to receive messages from
+     * @param keyProperty the name of the string property holding each message's key
+     * @param lanes       the number of lanes to pass messages to the listener on
+     * @param listener    the listener to pass each message to
+     * @throws IllegalArgumentException if <code>lanes</code> isn't positive
+     */
+    public PartitionedListenerContainer(Consumer consumer, String keyProperty, int lanes, MessageListener listener) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("Lanes must be positive: " + lanes);
+        }
+        this.consumer = consumer;
+        this.keyProperty = keyProperty;
+        this.listener = listener;
+        this.lanes = new ExecutorService[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = Executors.newSingleThreadExecutor(DaemonThreads.factory("simplejms-lane-" + i));
+        }
+        this.space = new Semaphore(lanes * LANE_CAPACITY);
+        this.pending = new Message[lanes * LANE_CAPACITY];
+        this.handled = new boolean[lanes * LANE_CAPACITY];
+        this.thread = new Thread(this::receiveMessages, "simplejms-partitioned-receiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop receiving messages, wait for the messages already received to be handled, and acknowledge them.
+     * <p>
+     * The consumer is left open. If the listener threw an error for a message that hasn't been recovered yet, that
+     * message and those after it are left unacknowledged.
+     *
+     * @throws RuntimeException if acknowledging failed
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        boolean interrupted = false;
+        try {
+            thread.join();
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+            for (ExecutorService lane : lanes) {
+                while (!lane.awaitTermination(1, TimeUnit.MINUTES)) {
+                    // Keep waiting for the listener.
+                }
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        acknowledgeHandled();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The lane a key is hashed onto.
+     *
+     * @param key   the key of a message
+     * @param lanes the number of lanes
+     * @return the index of the lane
+     */
+    static int lane(String key, int lanes) {
+        int hash = key.hashCode();
+        // Spread the high bits, as a map does, so keys differing only there don't share a lane.
+        return Math.floorMod(hash ^ (hash >>> 16), lanes);
+    }
+
+    private void receiveMessages() {
+        while (!closed) {
+            try {
+                recoverFailed();
+                acknowledgeHandled();
+                if (!space.tryAcquire(FETCH_WAIT, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                report(e);
+                if (!sleep(RETRY_DELAY)) {
+                    return;
+                }
+                continue;
+            } catch (InterruptedException e) {
+                return;
+            }
+            int wanted = 1 + space.drainPermits();
+            int dispatched = 0;
+            try {
+                List<Message> messages = consumer.receiveMessages(wanted);
+                if (messages.isEmpty()) {
+                    messages = consumer.receiveMessage(FETCH_WAIT).map(Collections::singletonList).orElse(messages);
+                }
+                for (Message message : messages) {
+                    dispatch(message);
+                    dispatched++;
+                }
+            } catch (RuntimeException e) {
+                if (!closed) {
+                    report(e);
+                    sleep(RETRY_DELAY);
+                }
+            } finally {
+                space.release(wanted - dispatched);
+            }
+        }
+    }
+
+    private void dispatch(Message message) {
+        long offset;
+        synchronized (this) {
+            offset = received++;
+            inLanes++;
+            pending[(int) (offset % pending.length)] = message;
+        }
+        String key = message.getStringProperty(keyProperty);
+        int lane = key == null ? (int) (offset % lanes.length) : lane(key, lanes.length);
+        lanes[lane].execute(() -> handle(offset, message));
+    }
+
+    private void handle(long offset, Message message) {
+        boolean succeeded = false;
+        try {
+            if (!isAfterFailure(offset)) {
+                listener.onMessage(message);
+                succeeded = true;
+            }
+        } catch (RuntimeException e) {
+            report(e);
+        } finally {
+            finished(offset, succeeded);
+        }
+    }
+
+    private synchronized boolean isAfterFailure(long offset) {
+        return failedAt >= 0 && offset > failedAt;
+    }
+
+    /**
+     * Mark a message finished with by its lane. A message the listener failed for, or that was skipped after one, is
+     * never moved past, so it and those after it aren't acknowledged until the consumer has been recovered.
+     */
+    private synchronized void finished(long offset, boolean succeeded) {
+        inLanes--;
+        if (succeeded) {
+            handled(offset);
+        } else if (failedAt < 0 || offset < failedAt) {
+            failedAt = offset;
+        }
+        if (failedAt >= 0 && inLanes == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Mark a message handled, moving past it and any handled after it if it was the oldest message not yet handled.
+     * Each message's place is only freed for another once it has been moved past.
+     */
+    private void handled(long offset) {
+        handled[(int) (offset % handled.length)] = true;
+        int freed = 0;
+        while (handledUpTo < received && handled[(int) (handledUpTo % handled.length)]) {
+            int index = (int) (handledUpTo % handled.length);
+            handled[index] = false;
+            lastHandled = pending[index];
+            pending[index] = null;
+            handledUpTo++;
+            freed++;
+        }
+        space.release(freed);
+    }
+
+    /**
+     * If the listener failed for a message, wait for the lanes to finish with the messages received, acknowledge those
+     * before it, and recover the consumer so the broker sends the rest again. Their places are then freed, to receive
+     * them again.
+     */
+    private void recoverFailed() throws InterruptedException {
+        synchronized (this) {
+            if (failedAt < 0) {
+                return;
+            }
+            while (inLanes > 0) {
+                wait();
+            }
+        }
+        acknowledgeHandled();
+        consumer.recover();
+        synchronized (this) {
+            for (long offset = handledUpTo; offset < received; offset++) {
+                int index = (int) (offset % pending.length);
+                pending[index] = null;
+                handled[index] = false;
+            }
+            space.release((int) (received - handledUpTo));
+            received = handledUpTo;
+            failedAt = -1;
+        }
+    }
+
+    private void acknowledgeHandled() {
+        Message message;
+        long upTo;
+        synchronized (this) {
+            message = lastHandled;
+            upTo = handledUpTo;
+        }
+        if (upTo > acknowledgedUpTo) {
+            consumer.acknowledge(message);
+            acknowledgedUpTo = upTo;
+        }
+    }
+
+    private static void report(RuntimeException error) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, error);
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+}
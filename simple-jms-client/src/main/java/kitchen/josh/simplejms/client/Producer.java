@@ -1,11 +1,22 @@
 package kitchen.josh.simplejms.client;
 
 import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.MessageModel;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * A producer for sending messages to a broker's destination.
+ * <p>
+ * A batching producer doesn't send each message as it is given one. Messages are collected and sent in batches by a
+ * background thread, once <code>batchSize</code> messages are waiting or the first has waited
+ * <code>lingerMillis</code>. The broker still receives the producer's messages in the order they were sent. Once a
+ * batch fails, the messages sent after it are failed without being sent until {@link #flush()} has thrown the error,
+ * so the broker never receives them after a gap.
  */
 public class Producer implements AutoCloseable {
 
@@ -13,25 +24,128 @@ public class Producer implements AutoCloseable {
     private final RestTemplate restTemplate;
     private final ProducerId id;
     private final MessageModelFactory messageModelFactory;
+    private final Executor executor;
+    private final MessageBatcher batcher;
+    private CompletableFuture<Void> lastSend = CompletableFuture.completedFuture(null);
 
     public Producer(String brokerUrl, RestTemplate restTemplate, ProducerId id, MessageModelFactory messageModelFactory) {
+        this(brokerUrl, restTemplate, id, messageModelFactory, DaemonThreads.SHARED);
+    }
+
+    /**
+     * Create a producer whose asynchronous requests run on an executor.
+     *
+     * @param brokerUrl           the url of the broker
+     * @param restTemplate        the rest template to send requests with
+     * @param id                  the id of the producer
+     * @param messageModelFactory the factory for converting messages to send
+     * @param executor            the executor to run asynchronous requests on
+     */
+    public Producer(String brokerUrl, RestTemplate restTemplate, ProducerId id, MessageModelFactory messageModelFactory,
+                    Executor executor) {
+        this.brokerUrl = brokerUrl;
+        this.restTemplate = restTemplate;
+        this.id = id;
+        this.messageModelFactory = messageModelFactory;
+        this.executor = executor;
+        this.batcher = null;
+    }
+
+    /**
+     * Create a batching producer.
+     *
+     * @param brokerUrl           the url of the broker
+     * @param restTemplate        the rest template to send requests with
+     * @param id                  the id of the producer
+     * @param messageModelFactory the factory for converting messages to send
+     * @param executor            the executor to run asynchronous requests on
+     * @param batchSize           the most messages to send in one request
+     * @param lingerMillis        the longest time in milliseconds a message waits for others to be sent with it
+     * @throws IllegalArgumentException if <code>batchSize</code> isn't positive, or <code>lingerMillis</code> is
+     *                                  negative
+     */
+    public Producer(String brokerUrl, RestTemplate restTemplate, ProducerId id, MessageModelFactory messageModelFactory,
+                    Executor executor, int batchSize, long lingerMillis) {
+        MessageBatcher.validate(batchSize, lingerMillis);
         this.brokerUrl = brokerUrl;
         this.restTemplate = restTemplate;
         this.id = id;
         this.messageModelFactory = messageModelFactory;
+        this.executor = executor;
+        String sendBatchUrl = brokerUrl + "/producer/" + id.getId() + "/send-batch";
+        this.batcher = new MessageBatcher("simplejms-producer-" + id.getId(),
+                models -> restTemplate.postForEntity(sendBatchUrl, models, Void.class), batchSize, lingerMillis);
     }
 
     /**
      * Send a message to the producer's destination.
+     * <p>
+     * A batching producer only adds the message to its next batch, waiting if too many messages are waiting already.
+     * An error sending the batch is thrown by the next {@link #flush()} or {@link #close()}.
      *
      * @param message the message to send
+     * @throws IllegalStateException if the producer is batching and has been closed
      */
     public void sendMessage(Message message) {
+        if (batcher != null) {
+            batcher.add(messageModelFactory.create(message));
+            return;
+        }
         String sendUrl = brokerUrl + "/producer/" + id.getId() + "/send";
 
         restTemplate.postForEntity(sendUrl, messageModelFactory.create(message), Void.class);
     }
 
+    /**
+     * Send a message to the producer's destination without waiting for the broker.
+     * <p>
+     * The message is converted before this returns, so changing it afterwards doesn't change what is sent. Each message
+     * is only sent once the one sent before it by this method has been, whether or not that succeeded, so the broker
+     * receives them in order. A batching producer adds the message to its next batch, and the future is completed once
+     * the batch has been sent.
+     *
+     * @param message the message to send
+     * @return a future completed once the broker has the message, or completed exceptionally if sending failed
+     * @throws IllegalStateException if the producer is batching and has been closed
+     */
+    public CompletableFuture<Void> sendMessageAsync(Message message) {
+        String sendUrl = brokerUrl + "/producer/" + id.getId() + "/send";
+        MessageModel model = messageModelFactory.create(message);
+        if (batcher != null) {
+            return batcher.add(model);
+        }
+
+        synchronized (this) {
+            lastSend = lastSend.handle((result, e) -> null)
+                    .thenRunAsync(() -> restTemplate.postForEntity(sendUrl, model, Void.class), executor);
+            return lastSend;
+        }
+    }
+
+    /**
+     * Send a batch of messages to the producer's destination in a single request.
+     * <p>
+     * The broker adds the messages to the destination atomically, in order. A batching producer adds them to its
+     * batches instead, in order, so they may be split between requests.
+     *
+     * @param messages the messages to send
+     * @throws IllegalStateException if the producer is batching and has been closed
+     */
+    public void sendMessages(List<Message> messages) {
+        if (batcher != null) {
+            messages.forEach(message -> batcher.add(messageModelFactory.create(message)));
+            return;
+        }
+        String sendBatchUrl = brokerUrl + "/producer/" + id.getId() + "/send-batch";
+
+        // Sent as an array, not a list, so the converter for the request body can be chosen by its type.
+        MessageModel[] models = new MessageModel[messages.size()];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = messageModelFactory.create(messages.get(i));
+        }
+        restTemplate.postForEntity(sendBatchUrl, models, Void.class);
+    }
+
     /**
      * Get the id of the producer.
      *
@@ -41,13 +155,50 @@ public class Producer implements AutoCloseable {
         return id;
     }
 
+    /**
+     * Send every message a batching producer is holding, and wait until the broker has them. Does nothing if the
+     * producer isn't batching.
+     *
+     * @throws org.springframework.web.client.RestClientException the first error sending a batch since the last flush
+     */
+    public void flush() {
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
     /**
      * Close the producer, telling the broker that this producer no longer exists.
+     * <p>
+     * A batching producer sends every message it is holding first. Otherwise the messages given to
+     * {@link #sendMessageAsync(Message)} are sent first, and an error sending one is only passed to its future.
+     *
+     * @throws org.springframework.web.client.RestClientException the first error sending a batch since the last flush
      */
     @Override
     public void close() {
         String deleteUrl = brokerUrl + "/producer/" + id.getId();
 
-        restTemplate.delete(deleteUrl);
+        try {
+            if (batcher != null) {
+                batcher.close();
+            } else {
+                synchronized (this) {
+                    lastSend.handle((result, e) -> null).join();
+                }
+            }
+        } finally {
+            restTemplate.delete(deleteUrl);
+        }
+    }
+
+    /**
+     * Close the producer without waiting for the broker, once the messages given to {@link #sendMessageAsync(Message)}
+     * have been sent.
+     *
+     * @return a future completed once the broker has removed the producer, or completed exceptionally if that failed
+     */
+    public synchronized CompletableFuture<Void> closeAsync() {
+        return lastSend.handle((result, e) -> null).thenRunAsync(this::close, executor);
     }
 }
@@ -1,9 +1,11 @@
 package kitchen.josh.simplejms.client;
 
+import kitchen.josh.simplejms.common.ConsumerModel;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationModel;
 import kitchen.josh.simplejms.common.DestinationType;
 import kitchen.josh.simplejms.common.IdModel;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
 import kitchen.josh.simplejms.common.message.MessageFactory;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import kitchen.josh.simplejms.common.message.ObjectMessage;
@@ -18,27 +20,191 @@ import kitchen.josh.simplejms.common.message.headers.HeadersModelFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertiesFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import kitchen.josh.simplejms.common.message.properties.PropertyModelFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class implements the session for connecting to a SimpleJMS broker.
+ * <p>
+ * The producers and consumers of a session share its rest template, and run their asynchronous requests on its
+ * executor. An asynchronous request is the same blocking request as its synchronous form, run on one of the executor's
+ * threads, so each request in flight holds a thread until the broker answers.
+ * <p>
+ * By default each consumer with a message listener has the broker stream it messages, read on a thread of its own. A
+ * session that dispatches listeners instead passes every consumer's messages to its listener on a shared executor,
+ * with a limit on how many consumers are dispatched at once, so many consumers don't need many threads. A dispatching
+ * session polls the broker instead of being pushed messages, so it trades latency and requests for threads: a consumer
+ * that has been idle for a while is passed its next message up to the max idle delay late, by default
+ * {@value #DEFAULT_MAX_IDLE_DELAY_MILLIS} milliseconds, and every idle consumer sends an empty receive to the broker
+ * each max idle delay. Both can be tuned with
+ * {@link #Session(String, RestTemplate, Executor, Executor, int, long, long)}.
+ * <p>
+ * A session that creates its own rest template sends and receives messages in the compact binary encoding of a {@link
+ * BinaryMessageConverter}. A rest template passed to a session is used as it is, so messages are sent in JSON unless
+ * it has been given a <code>BinaryMessageConverter</code> ahead of its JSON converter.
  */
-public class Session {
+public class Session implements AutoCloseable {
+
+    /**
+     * The number of connections to the broker a session creating its own transport keeps open.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+    /**
+     * The delay in milliseconds before a dispatching session first receives again for a consumer that had no messages.
+     */
+    public static final long DEFAULT_MIN_IDLE_DELAY_MILLIS = MessageDispatcher.DEFAULT_MIN_IDLE_DELAY;
+
+    /**
+     * The most a dispatching session's delay before receiving again for an idle consumer doubles to, in milliseconds.
+     */
+    public static final long DEFAULT_MAX_IDLE_DELAY_MILLIS = MessageDispatcher.DEFAULT_MAX_IDLE_DELAY;
+
+    /**
+     * How long a pooled connection is kept idle, less than the broker keeps an idle connection open.
+     */
+    private static final long MAX_IDLE_MILLIS = 15_000;
+
+    /**
+     * How long a pooled connection can be idle before it is checked to still be open, before a request is sent on it.
+     */
+    private static final int VALIDATE_AFTER_INACTIVITY_MILLIS = 1_000;
 
     private final String host;
     private final RestTemplate restTemplate;
+    private final Executor executor;
+    private final CloseableHttpClient ownedHttpClient;
+    private final ExecutorService ownedExecutor;
+    private final MessageDispatcher dispatcher;
+
+    /**
+     * Create a new Session for a broker at the host, with its own pool of {@value #DEFAULT_MAX_CONNECTIONS}
+     * connections to the broker.
+     *
+     * @param host the host to connect to
+     */
+    public Session(String host) {
+        this(host, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Create a new Session for a broker at the host, with its own pool of connections to the broker.
+     * <p>
+     * Requests are sent with Apache HttpClient over keep-alive connections from a pool of at most
+     * <code>maxConnections</code>, and asynchronous requests are run on <code>maxConnections</code> threads, so at most
+     * that many are in flight at once and the rest wait for a thread. A request waits for a connection if they are all
+     * in use, and a consumer streaming messages to its listener holds one for as long as it streams. A connection that has been idle for a while is checked before it is used, and only idempotent
+     * requests are retried if a connection fails. Both the pool and the threads are closed when the session is.
+     *
+     * @param host           the host to connect to
+     * @param maxConnections the most connections to open to the broker, and the number of threads for asynchronous
+     *                       requests
+     * @throws IllegalArgumentException if <code>maxConnections</code> isn't positive
+     */
+    public Session(String host, int maxConnections) {
+        this(host, createHttpClient(maxConnections),
+                Executors.newFixedThreadPool(maxConnections, DaemonThreads.factory("simplejms-session")));
+    }
 
     /**
      * Create a new Session for a broker at the host
+     * <p>
+     * Asynchronous requests are run on a shared pool of daemon threads.
      *
      * @param host         the host to connect to
      * @param restTemplate a rest template to use
      */
     public Session(String host, RestTemplate restTemplate) {
+        this(host, restTemplate, DaemonThreads.SHARED);
+    }
+
+    /**
+     * Create a new Session for a broker at the host, running asynchronous requests on an executor.
+     *
+     * @param host         the host to connect to
+     * @param restTemplate a rest template to use
+     * @param executor     the executor to run asynchronous requests on
+     */
+    public Session(String host, RestTemplate restTemplate, Executor executor) {
+        this(host, restTemplate, executor, null, null, null);
+    }
+
+    /**
+     * Create a new Session for a broker at the host, whose consumers' listeners are passed messages on a listener
+     * executor.
+     * <p>
+     * At most <code>maxConcurrentListeners</code> consumers are dispatched at once, each passing a batch of messages to
+     * its listener in order before taking turns with the others. On Java 21 or later, the listener executor can run
+     * each dispatch on a virtual thread, for example <code>Executors.newVirtualThreadPerTaskExecutor()</code>. Closing
+     * the session stops dispatching, but leaves the listener executor for its owner to shut down.
+     * <p>
+     * A consumer with no messages is polled again after {@value #DEFAULT_MIN_IDLE_DELAY_MILLIS} milliseconds, doubling
+     * up to {@value #DEFAULT_MAX_IDLE_DELAY_MILLIS} while it stays idle.
+     *
+     * @param host                   the host to connect to
+     * @param restTemplate           a rest template to use
+     * @param executor               the executor to run asynchronous requests on
+     * @param listenerExecutor       the executor to receive messages and run listeners on, which shouldn't run them on
+     *                               the calling thread
+     * @param maxConcurrentListeners the most consumers to dispatch at once
+     * @throws IllegalArgumentException if <code>maxConcurrentListeners</code> isn't positive
+     */
+    public Session(String host, RestTemplate restTemplate, Executor executor, Executor listenerExecutor,
+                   int maxConcurrentListeners) {
+        this(host, restTemplate, executor, listenerExecutor, maxConcurrentListeners, DEFAULT_MIN_IDLE_DELAY_MILLIS,
+                DEFAULT_MAX_IDLE_DELAY_MILLIS);
+    }
+
+    /**
+     * Create a new Session for a broker at the host, whose consumers' listeners are passed messages on a listener
+     * executor, polling idle consumers within the given delays.
+     * <p>
+     * A consumer with no messages is polled again after <code>minIdleDelayMillis</code>, doubling up to
+     * <code>maxIdleDelayMillis</code> while it stays idle. A lower max idle delay passes an idle consumer's next message
+     * on sooner, at the cost of more empty receives: each idle consumer sends one every <code>maxIdleDelayMillis</code>.
+     *
+     * @param host                   the host to connect to
+     * @param restTemplate           a rest template to use
+     * @param executor               the executor to run asynchronous requests on
+     * @param listenerExecutor       the executor to receive messages and run listeners on, which shouldn't run them on
+     *                               the calling thread
+     * @param maxConcurrentListeners the most consumers to dispatch at once
+     * @param minIdleDelayMillis     the delay in milliseconds after a consumer first finds no messages
+     * @param maxIdleDelayMillis     the most the delay doubles to in milliseconds while a consumer stays idle
+     * @throws IllegalArgumentException if <code>maxConcurrentListeners</code> or <code>minIdleDelayMillis</code> isn't
+     *                                  positive, or <code>maxIdleDelayMillis</code> is less than
+     *                                  <code>minIdleDelayMillis</code>
+     */
+    public Session(String host, RestTemplate restTemplate, Executor executor, Executor listenerExecutor,
+                   int maxConcurrentListeners, long minIdleDelayMillis, long maxIdleDelayMillis) {
+        this(host, restTemplate, executor, null, null,
+                new MessageDispatcher(listenerExecutor, maxConcurrentListeners, minIdleDelayMillis, maxIdleDelayMillis));
+    }
+
+    private Session(String host, CloseableHttpClient httpClient, ExecutorService executor) {
+        this(host, createRestTemplate(httpClient), executor, httpClient, executor, null);
+    }
+
+    private Session(String host, RestTemplate restTemplate, Executor executor,
+                    CloseableHttpClient ownedHttpClient, ExecutorService ownedExecutor,
+                    MessageDispatcher dispatcher) {
         this.host = host;
         this.restTemplate = restTemplate;
+        this.executor = executor;
+        this.ownedHttpClient = ownedHttpClient;
+        this.ownedExecutor = ownedExecutor;
+        this.dispatcher = dispatcher;
     }
 
     /**
@@ -59,7 +225,24 @@ public class Session {
      */
     public Producer createProducer(Destination destination) {
         IdModel producerId = restTemplate.postForEntity(host + "/producer", new DestinationModel(destination), IdModel.class).getBody();
-        return new Producer(host, restTemplate, new ProducerId(destination, producerId.getId()), new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory()));
+        return new Producer(host, restTemplate, new ProducerId(destination, producerId.getId()), new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory()), executor);
+    }
+
+    /**
+     * Create a new batching producer for a destination, sending messages in batches of up to <code>batchSize</code>,
+     * after the first message of a batch has waited at most <code>lingerMillis</code>.
+     *
+     * @param destination  the destination to create a producer for
+     * @param batchSize    the most messages to send in one request
+     * @param lingerMillis the longest time in milliseconds a message waits for others to be sent with it
+     * @return the created producer
+     * @throws IllegalArgumentException if <code>batchSize</code> isn't positive, or <code>lingerMillis</code> is
+     *                                  negative
+     */
+    public Producer createProducer(Destination destination, int batchSize, long lingerMillis) {
+        MessageBatcher.validate(batchSize, lingerMillis);
+        IdModel producerId = restTemplate.postForEntity(host + "/producer", new DestinationModel(destination), IdModel.class).getBody();
+        return new Producer(host, restTemplate, new ProducerId(destination, producerId.getId()), new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory()), executor, batchSize, lingerMillis);
     }
 
     /**
@@ -68,8 +251,42 @@ public class Session {
      * @return the created consumer
      */
     public Consumer createConsumer(Destination destination) {
-        IdModel consumerId = restTemplate.postForEntity(host + "/consumer", new DestinationModel(destination), IdModel.class).getBody();
-        return new Consumer(host, restTemplate, new ConsumerId(destination, consumerId.getId()), new MessageFactory(new HeadersFactory(), new PropertiesFactory(), new BodyFactory()));
+        return createConsumer(destination, null);
+    }
+
+    /**
+     * Create a consumer for a destination, that only receives the messages its selector selects.
+     * <p>
+     * The selector is a JMS message selector over the messages' properties, such as
+     * <code>colour = 'red' AND size &gt; 10</code>. It is parsed by the broker, which rejects invalid selectors.
+     *
+     * @param destination     the destination to create a consumer for
+     * @param messageSelector the message selector, <code>null</code> or blank to receive every message
+     * @return the created consumer
+     */
+    public Consumer createConsumer(Destination destination, String messageSelector) {
+        IdModel consumerId = restTemplate.postForEntity(host + "/consumer", new ConsumerModel(destination, messageSelector), IdModel.class).getBody();
+        MessageFactory messageFactory = new MessageFactory(new HeadersFactory(), new PropertiesFactory(), new BodyFactory());
+        if (dispatcher != null) {
+            return new Consumer(host, restTemplate, new ConsumerId(destination, consumerId.getId()), messageFactory, executor, dispatcher);
+        }
+        return new Consumer(host, restTemplate, new ConsumerId(destination, consumerId.getId()), messageFactory, executor);
+    }
+
+    /**
+     * Create a prefetching consumer for a destination, that receives up to <code>prefetch</code> messages ahead of
+     * time.
+     *
+     * @param destination     the destination to create a consumer for
+     * @param messageSelector the message selector, <code>null</code> or blank to receive every message
+     * @param prefetch        the most messages to receive ahead of time
+     * @return the created consumer
+     * @throws IllegalArgumentException if <code>prefetch</code> isn't positive
+     */
+    public Consumer createConsumer(Destination destination, String messageSelector, int prefetch) {
+        MessagePrefetcher.validate(prefetch);
+        IdModel consumerId = restTemplate.postForEntity(host + "/consumer", new ConsumerModel(destination, messageSelector), IdModel.class).getBody();
+        return new Consumer(host, restTemplate, new ConsumerId(destination, consumerId.getId()), new MessageFactory(new HeadersFactory(), new PropertiesFactory(), new BodyFactory()), executor, prefetch);
     }
 
     public TextMessage createTextMessage() {
@@ -92,6 +309,48 @@ public class Session {
         return objectMessage;
     }
 
+    /**
+     * Close the connection pool and threads the session created for itself, if it did. Requests still running are
+     * left to finish, but no more asynchronous requests can be made. A session that dispatches listeners stops
+     * dispatching them.
+     */
+    @Override
+    public void close() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (ownedHttpClient != null) {
+            try {
+                ownedHttpClient.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static RestTemplate createRestTemplate(CloseableHttpClient httpClient) {
+        RestTemplate restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        restTemplate.getMessageConverters().add(0, new BinaryMessageConverter());
+        return restTemplate;
+    }
+
+    private static CloseableHttpClient createHttpClient(int maxConnections) {
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be positive: " + maxConnections);
+        }
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MILLIS);
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(MAX_IDLE_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     private String createDestinationUrl(DestinationType type) {
         return host + "/" + type.name().toLowerCase();
     }
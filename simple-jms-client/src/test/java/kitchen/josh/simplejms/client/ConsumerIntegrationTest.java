@@ -9,7 +9,6 @@ import kitchen.josh.simplejms.common.message.body.BodyFactory;
 import kitchen.josh.simplejms.common.message.body.TextBody;
 import kitchen.josh.simplejms.common.message.headers.HeadersFactory;
 import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
-import kitchen.josh.simplejms.common.message.properties.Properties;
 import kitchen.josh.simplejms.common.message.properties.PropertiesFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import org.junit.Before;
@@ -19,9 +18,14 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
+import javax.jms.JMSException;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
+import static java.util.Collections.list;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.client.ExpectedCount.once;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
@@ -40,6 +44,8 @@ public class ConsumerIntegrationTest {
     private static final String ACKNOWLEDGE_URL = HOST + "/consumer/" + CONSUMER_ID + "/acknowledge";
     private static final String RECOVER_URL = HOST + "/consumer/" + CONSUMER_ID + "/recover";
     private static final String CLOSE_URL = HOST + "/consumer/" + CONSUMER_ID;
+    private static final String STREAM_URL = HOST + "/consumer/" + CONSUMER_ID + "/stream";
+    private static final String CREDIT_URL = HOST + "/consumer/" + CONSUMER_ID + "/credit";
 
     private static final String TEXT = "hello world";
 
@@ -69,28 +75,108 @@ public class ConsumerIntegrationTest {
     }
 
     @Test
-    public void receiveMessage_message_returnsMessage() {
+    public void receiveMessage_message_returnsMessage() throws JMSException {
         String json = "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": [" +
                 "{\"name\": \"property 1\", \"type\": \"Float\", \"value\": 1.2}," +
                 "{\"name\": \"property 2\", \"type\": \"String\", \"value\": \"other property\"}]," +
                 "\"headers\": {\"JMSMessageID\": \"ID:1234\", \"JMSDestination\": \"topic:" + DESTINATION_ID + "\"}}";
-        Properties properties = new PropertiesImpl();
-        properties.setFloatProperty("property 1", 1.2f);
-        properties.setStringProperty("property 2", "other property");
 
         mockRestServiceServer.expect(once(), requestTo(RECEIVE_URL))
                 .andExpect(method(HttpMethod.POST))
                 .andRespond(withSuccess(json, MediaType.APPLICATION_JSON_UTF8));
 
-        Optional<Message> received = consumer.receiveMessage();
+        Message received = consumer.receiveMessage().get();
 
-        Message expected = new TextMessage(new HeadersImpl(), properties, new TextBody(TEXT));
-        expected.setId("ID:1234");
-        expected.setDestination(new Destination(DestinationType.TOPIC, DESTINATION_ID));
-        assertThat(received.get()).isEqualToComparingFieldByFieldRecursively(expected);
+        assertThat(received.getId()).isEqualTo("ID:1234");
+        assertThat(received.getDestination()).isEqualTo(new Destination(DestinationType.TOPIC, DESTINATION_ID));
+        assertThat(list(received.getPropertyNames())).containsExactlyInAnyOrder("property 1", "property 2");
+        assertThat(received.getFloatProperty("property 1")).isEqualTo(1.2f);
+        assertThat(received.getStringProperty("property 2")).isEqualTo("other property");
+        assertThat(received.getBody()).isEqualToComparingFieldByField(new TextBody(TEXT));
         mockRestServiceServer.verify();
     }
 
+    @Test
+    public void receiveMessageWithTimeout_message_returnsMessage() {
+        String json = "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []," +
+                "\"headers\": {\"JMSMessageID\": \"ID:1234\", \"JMSDestination\": \"queue:" + DESTINATION_ID + "\"}}";
+
+        mockRestServiceServer.expect(once(), requestTo(RECEIVE_URL + "?timeout=5000"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess(json, MediaType.APPLICATION_JSON_UTF8));
+
+        Optional<Message> received = consumer.receiveMessage(5000);
+
+        assertThat(received).isPresent();
+        assertThat(received.get().getId()).isEqualTo("ID:1234");
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    public void receiveMessages_messages_returnsMessagesInOrder() {
+        String json = "[" +
+                "{\"body\": {\"type\": \"text\", \"text\": \"first\"}, \"properties\": []," +
+                "\"headers\": {\"JMSMessageID\": \"ID:1\", \"JMSDestination\": \"queue:" + DESTINATION_ID + "\"}}," +
+                "{\"body\": {\"type\": \"text\", \"text\": \"second\"}, \"properties\": []," +
+                "\"headers\": {\"JMSMessageID\": \"ID:2\", \"JMSDestination\": \"queue:" + DESTINATION_ID + "\"}}]";
+
+        mockRestServiceServer.expect(once(), requestTo(RECEIVE_URL + "?max=2"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess(json, MediaType.APPLICATION_JSON_UTF8));
+
+        List<Message> received = consumer.receiveMessages(2);
+
+        assertThat(received).extracting(Message::getId).containsExactly("ID:1", "ID:2");
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    public void receiveMessages_noMessages_returnsEmpty() {
+        mockRestServiceServer.expect(once(), requestTo(RECEIVE_URL + "?max=2"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("[]", MediaType.APPLICATION_JSON_UTF8));
+
+        assertThat(consumer.receiveMessages(2)).isEmpty();
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    public void setMessageListener_streamsMessagesAndGrantsCreditEveryHalfWindow() throws Exception {
+        StringBuilder events = new StringBuilder();
+        for (int i = 0; i < 32; i++) {
+            events.append("event:message\nid:ID:").append(i).append("\ndata:")
+                    .append("{\"body\": {\"type\": \"text\", \"text\": \"").append(i).append("\"}, \"properties\": [],")
+                    .append("\"headers\": {\"JMSMessageID\": \"ID:").append(i).append("\", \"JMSDestination\": \"queue:")
+                    .append(DESTINATION_ID).append("\"}}\n\n");
+        }
+        mockRestServiceServer.expect(once(), requestTo(STREAM_URL + "?credit=64"))
+                .andExpect(method(HttpMethod.GET))
+                .andExpect(header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE))
+                .andRespond(withSuccess(events.toString(), MediaType.TEXT_EVENT_STREAM));
+        mockRestServiceServer.expect(once(), requestTo(CREDIT_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().json("{\"credit\": 32}", true))
+                .andRespond(withSuccess());
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch credited = new CountDownLatch(1);
+
+        consumer.setMessageListener(message -> received.add(message.getId()));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (credited.getCount() > 0) {
+            try {
+                mockRestServiceServer.verify();
+                credited.countDown();
+            } catch (AssertionError e) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                Thread.sleep(10);
+            }
+        }
+        assertThat(received).hasSize(32);
+        assertThat(received.get(0)).isEqualTo("ID:0");
+        assertThat(received.get(31)).isEqualTo("ID:31");
+    }
+
     @Test
     public void acknowledge() {
         String json = "{\"id\": \"ID:1234\"}";
@@ -13,17 +13,32 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -39,6 +54,7 @@ public class ConsumerTest {
     private static final String DELETE_URL = BROKER_URL + "/consumer/" + CONSUMER_ID;
     private static final String ACKNOWLEDGE_URL = BROKER_URL + "/consumer/" + CONSUMER_ID + "/acknowledge";
     private static final String RECOVER_URL = BROKER_URL + "/consumer/" + CONSUMER_ID + "/recover";
+    private static final String STREAM_URL = BROKER_URL + "/consumer/" + CONSUMER_ID + "/stream";
 
     private static final String TEXT = "hello world";
     private static final Message MESSAGE = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
@@ -53,11 +69,13 @@ public class ConsumerTest {
     @Mock
     private MessageFactory messageFactory;
 
+    private List<Runnable> tasks;
     private Consumer consumer;
 
     @Before
     public void setUp() {
-        consumer = new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory);
+        tasks = new ArrayList<>();
+        consumer = new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory, tasks::add);
     }
 
     @Test
@@ -95,6 +113,175 @@ public class ConsumerTest {
         verifyNoMoreInteractions(restTemplate, messageFactory);
     }
 
+    @Test
+    public void receiveMessages_createsEachMessageInOrder() throws Exception {
+        Message other = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("other"));
+        when(restTemplate.postForObject(anyString(), any(), any())).thenReturn(new MessageModel[]{MESSAGE_MODEL, MESSAGE_MODEL});
+        when(messageFactory.create(any())).thenReturn(MESSAGE, other);
+
+        List<Message> received = consumer.receiveMessages(10);
+
+        assertThat(received).containsExactly(MESSAGE, other);
+        verify(restTemplate).postForObject(RECEIVE_URL + "?max=10", null, MessageModel[].class);
+        verify(messageFactory, times(2)).create(MESSAGE_MODEL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessages_maxNotPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> consumer.receiveMessages(0));
+
+        verifyZeroInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_messageExists_returnsMessage() throws Exception {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(MESSAGE_MODEL));
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+
+        Optional<Message> received = consumer.receiveMessage(1000);
+
+        assertThat(received).contains(MESSAGE);
+        verify(restTemplate).postForEntity(RECEIVE_URL + "?timeout=1000", null, MessageModel.class);
+        verify(messageFactory).create(MESSAGE_MODEL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_noMessage_returnsEmpty() throws Exception {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(MESSAGE_MODEL));
+        when(messageFactory.create(any())).thenReturn(null);
+
+        Optional<Message> received = consumer.receiveMessage(1);
+
+        assertThat(received).isEmpty();
+        verify(restTemplate, atLeastOnce()).postForEntity(RECEIVE_URL + "?timeout=1", null, MessageModel.class);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_longTimeout_waitsAtMostThirtySecondsPerRequest() throws Exception {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(MESSAGE_MODEL));
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+
+        consumer.receiveMessage(60_000);
+
+        verify(restTemplate).postForEntity(RECEIVE_URL + "?timeout=30000", null, MessageModel.class);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_zeroTimeout_waitsUntilMessageArrives() throws Exception {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(MESSAGE_MODEL));
+        when(messageFactory.create(any())).thenReturn(null, null, MESSAGE);
+
+        Optional<Message> received = consumer.receiveMessage(0);
+
+        assertThat(received).contains(MESSAGE);
+        verify(restTemplate, times(3)).postForEntity(RECEIVE_URL + "?timeout=30000", null, MessageModel.class);
+        verify(messageFactory, times(3)).create(MESSAGE_MODEL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessageWithTimeout_negativeTimeout_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> consumer.receiveMessage(-1));
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void setMessageListener_null_closesStreamOnBroker() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch streamClosed = new CountDownLatch(1);
+        when(restTemplate.execute(anyString(), any(), any(), any())).then(invocation -> {
+            streaming.countDown();
+            streamClosed.await();
+            return null;
+        });
+        consumer.setMessageListener(message -> {
+        });
+        streaming.await();
+
+        consumer.setMessageListener(null);
+        streamClosed.countDown();
+
+        verify(restTemplate).execute(eq(STREAM_URL + "?credit=64"), eq(HttpMethod.GET), any(), any());
+        verify(restTemplate).delete(STREAM_URL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void setMessageListener_streamFails_closesStreamOnBrokerAndReportsAndReconnects() throws Exception {
+        CountDownLatch reconnected = new CountDownLatch(1);
+        CountDownLatch streamClosed = new CountDownLatch(1);
+        List<Throwable> reported = new CopyOnWriteArrayList<>();
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getBody()).thenReturn(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        when(restTemplate.execute(anyString(), any(), any(), any())).then(invocation -> {
+            try {
+                return invocation.<ResponseExtractor<?>>getArgument(3).extractData(response);
+            } catch (IOException e) {
+                throw new ResourceAccessException(e.getMessage(), e);
+            }
+        }).then(invocation -> {
+            reconnected.countDown();
+            streamClosed.await();
+            return null;
+        });
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> reported.add(error));
+        try {
+            consumer.setMessageListener(message -> {
+            });
+            reconnected.await();
+
+            consumer.setMessageListener(null);
+            streamClosed.countDown();
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(reported).extracting(Throwable::getCause).extracting(Throwable::getMessage)
+                .containsExactly("Connection reset");
+        verify(restTemplate, times(2)).execute(eq(STREAM_URL + "?credit=64"), eq(HttpMethod.GET), any(), any());
+        verify(restTemplate, times(2)).delete(STREAM_URL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void setMessageListener_streamRejected_reportsAndStopsStreaming() throws Exception {
+        CountDownLatch failureReported = new CountDownLatch(1);
+        List<Throwable> reported = new CopyOnWriteArrayList<>();
+        when(restTemplate.execute(anyString(), any(), any(), any()))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, error) -> {
+            reported.add(error);
+            failureReported.countDown();
+        });
+        try {
+            consumer.setMessageListener(message -> {
+            });
+            failureReported.await();
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+
+        assertThat(reported).hasOnlyElementsOfType(HttpClientErrorException.class).hasSize(1);
+        verify(restTemplate).execute(eq(STREAM_URL + "?credit=64"), eq(HttpMethod.GET), any(), any());
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void setMessageListener_notStreaming_null_doesNothing() {
+        consumer.setMessageListener(null);
+
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
     @Test
     public void acknowledge_restTemplateThrows_throws() {
         when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
@@ -143,4 +330,177 @@ public class ConsumerTest {
         verify(restTemplate).delete(DELETE_URL);
         verifyNoMoreInteractions(restTemplate, messageFactory);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void receiveMessageAsync_receivesOnExecutor() throws Exception {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(MESSAGE_MODEL));
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+
+        CompletableFuture<Optional<Message>> received = consumer.receiveMessageAsync();
+
+        verifyZeroInteractions(restTemplate, messageFactory);
+        assertThat(received).isNotDone();
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(received).isCompletedWithValue(Optional.of(MESSAGE));
+        verify(restTemplate).postForEntity(RECEIVE_URL, null, MessageModel.class);
+        verify(messageFactory).create(MESSAGE_MODEL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessageAsync_restTemplateThrows_completesExceptionally() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
+
+        CompletableFuture<Optional<Message>> received = consumer.receiveMessageAsync();
+        tasks.forEach(Runnable::run);
+
+        assertThatExceptionOfType(CompletionException.class).isThrownBy(received::join)
+                .withCauseInstanceOf(RestClientException.class);
+    }
+
+    @Test
+    public void acknowledgeAsync_callsBrokerOnExecutor() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok().build());
+
+        CompletableFuture<Void> acknowledged = consumer.acknowledgeAsync(MESSAGE);
+
+        verifyZeroInteractions(restTemplate);
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(acknowledged).isCompleted();
+        verify(restTemplate).postForEntity(eq(ACKNOWLEDGE_URL), messageIdModelCaptor.capture(), eq(Void.class));
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+        assertThat(messageIdModelCaptor.getValue()).isEqualToComparingFieldByField(new MessageIdModel(MESSAGE.getId()));
+    }
+
+    @Test
+    public void closeAsync_notifiesBrokerOnExecutor() {
+        CompletableFuture<Void> closed = consumer.closeAsync();
+
+        verifyZeroInteractions(restTemplate);
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(closed).isCompleted();
+        verify(restTemplate).delete(DELETE_URL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void receiveMessage_prefetching_takesMessagesReceivedAheadInOrder() throws Exception {
+        Message other = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody("other"));
+        when(restTemplate.postForObject(anyString(), any(), any())).thenReturn(new MessageModel[]{MESSAGE_MODEL, MESSAGE_MODEL});
+        when(messageFactory.create(any())).thenReturn(MESSAGE, other);
+        Consumer prefetching = prefetchingConsumer(2);
+
+        try {
+            assertThat(prefetching.receiveMessage(10_000)).contains(MESSAGE);
+            assertThat(prefetching.receiveMessage(10_000)).contains(other);
+        } finally {
+            prefetching.close();
+        }
+
+        verify(restTemplate, atLeastOnce()).postForObject(RECEIVE_URL + "?max=2", null, MessageModel[].class);
+    }
+
+    @Test
+    public void setMessageListener_prefetching_throwsIllegalState() {
+        Consumer prefetching = prefetchingConsumer(1);
+
+        try {
+            assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> prefetching.setMessageListener(message -> {
+            }));
+        } finally {
+            prefetching.close();
+        }
+    }
+
+    @Test
+    public void recover_prefetching_throwsAwayPrefetchedMessagesAndCallsBroker() throws Exception {
+        when(restTemplate.postForObject(anyString(), any(), any())).thenReturn(new MessageModel[]{MESSAGE_MODEL}).thenReturn(new MessageModel[0]);
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+        Consumer prefetching = prefetchingConsumer(1);
+        verify(restTemplate, timeout(10_000)).postForObject(RECEIVE_URL + "?max=1", null, MessageModel[].class);
+
+        try {
+            prefetching.recover();
+
+            assertThat(prefetching.receiveMessage()).isEmpty();
+        } finally {
+            prefetching.close();
+        }
+
+        verify(restTemplate).postForEntity(RECOVER_URL, null, Void.class);
+    }
+
+    @Test
+    public void close_prefetching_notifiesBroker() {
+        Consumer prefetching = prefetchingConsumer(1);
+
+        prefetching.close();
+
+        verify(restTemplate).delete(DELETE_URL);
+    }
+
+    @Test
+    public void constructor_prefetchNotPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> prefetchingConsumer(0));
+
+        verifyZeroInteractions(restTemplate, messageFactory);
+    }
+
+    private Consumer prefetchingConsumer(int prefetch) {
+        return new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory, tasks::add, prefetch);
+    }
+
+    @Test
+    public void setMessageListener_dispatching_passesBatchToListenerOnDispatcher() throws Exception {
+        when(restTemplate.postForObject(anyString(), any(), any())).thenReturn(new MessageModel[]{MESSAGE_MODEL});
+        when(messageFactory.create(any())).thenReturn(MESSAGE);
+        MessageDispatcher dispatcher = new MessageDispatcher(tasks::add, 1);
+        Consumer dispatching = new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory, tasks::add, dispatcher);
+        List<Message> received = new ArrayList<>();
+
+        dispatching.setMessageListener(received::add);
+        verifyZeroInteractions(restTemplate, messageFactory);
+        tasks.remove(0).run();
+        dispatcher.close();
+
+        assertThat(received).containsExactly(MESSAGE);
+        verify(restTemplate).postForObject(RECEIVE_URL + "?max=" + MessageDispatcher.BATCH_SIZE, null, MessageModel[].class);
+        verify(messageFactory).create(MESSAGE_MODEL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void setMessageListener_dispatching_null_stopsDispatchingWithoutBroker() {
+        MessageDispatcher dispatcher = new MessageDispatcher(tasks::add, 1);
+        Consumer dispatching = new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory, tasks::add, dispatcher);
+
+        dispatching.setMessageListener(message -> {
+        });
+        dispatching.setMessageListener(null);
+        tasks.forEach(Runnable::run);
+        dispatcher.close();
+
+        verifyZeroInteractions(restTemplate, messageFactory);
+    }
+
+    @Test
+    public void close_dispatching_stopsDispatchingAndNotifiesBroker() {
+        MessageDispatcher dispatcher = new MessageDispatcher(tasks::add, 1);
+        Consumer dispatching = new Consumer(BROKER_URL, restTemplate, new ConsumerId(DESTINATION, CONSUMER_ID), messageFactory, tasks::add, dispatcher);
+        dispatching.setMessageListener(message -> {
+        });
+
+        dispatching.close();
+        tasks.forEach(Runnable::run);
+        dispatcher.close();
+
+        verify(restTemplate).delete(DELETE_URL);
+        verifyNoMoreInteractions(restTemplate, messageFactory);
+    }
+}
@@ -0,0 +1,190 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.MessageModel;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static kitchen.josh.simplejms.client.MessageBatcher.MAX_PENDING_BATCHES;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MessageBatcherTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private final List<List<MessageModel>> batches = new CopyOnWriteArrayList<>();
+    private final Consumer<MessageModel[]> recordingSender = models -> batches.add(Arrays.asList(models));
+    private MessageBatcher batcher;
+
+    @After
+    public void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void validate_batchSizeNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> MessageBatcher.validate(0, 10));
+    }
+
+    @Test
+    public void validate_negativeLinger_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> MessageBatcher.validate(1, -1));
+    }
+
+    @Test
+    public void add_batchSizeReached_sendsBatchWithoutLingering() {
+        batcher = new MessageBatcher("test", recordingSender, 3, HOUR);
+        List<MessageModel> messages = messages(3);
+
+        CompletableFuture<?>[] sent = messages.stream().map(batcher::add).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sent).join();
+
+        assertThat(batches).containsExactly(messages);
+    }
+
+    @Test
+    public void add_lingerElapsed_sendsPartialBatch() {
+        batcher = new MessageBatcher("test", recordingSender, 10, 20);
+        List<MessageModel> messages = messages(2);
+
+        CompletableFuture<?>[] sent = messages.stream().map(batcher::add).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(sent).join();
+
+        assertThat(batches).containsExactly(messages);
+    }
+
+    @Test
+    public void add_manyMessages_sendsInOrderInBatchesOfAtMostBatchSize() {
+        batcher = new MessageBatcher("test", recordingSender, 7, 1);
+        List<MessageModel> messages = messages(1000);
+
+        messages.forEach(batcher::add);
+        batcher.flush();
+
+        assertThat(batches).allSatisfy(batch -> assertThat(batch.size()).isBetween(1, 7));
+        assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList())).isEqualTo(messages);
+    }
+
+    @Test
+    public void add_tooManyWaiting_waitsForBatchToBeSent() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = new MessageBatcher("test", models -> {
+            sending.countDown();
+            await(release);
+            recordingSender.accept(models);
+        }, 1, 0);
+        batcher.add(new MessageModel(null, null, null));
+        assertThat(sending.await(10, TimeUnit.SECONDS)).isTrue();
+        for (int i = 0; i < MAX_PENDING_BATCHES; i++) {
+            batcher.add(new MessageModel(null, null, null));
+        }
+
+        CompletableFuture<Void> added = CompletableFuture.runAsync(() -> batcher.add(new MessageModel(null, null, null)));
+        Thread.sleep(100);
+        assertThat(added).isNotDone();
+
+        release.countDown();
+        added.get(10, TimeUnit.SECONDS);
+        batcher.flush();
+        assertThat(batches).hasSize(MAX_PENDING_BATCHES + 2);
+    }
+
+    @Test
+    public void flush_sendsWithoutLingering() {
+        batcher = new MessageBatcher("test", recordingSender, 10, HOUR);
+        List<MessageModel> messages = messages(2);
+
+        messages.forEach(batcher::add);
+        batcher.flush();
+
+        assertThat(batches).containsExactly(messages);
+    }
+
+    @Test
+    public void flush_nothingAdded_returns() {
+        batcher = new MessageBatcher("test", recordingSender, 10, HOUR);
+
+        batcher.flush();
+
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    public void flush_sendFailed_throwsOnceAndFailsFutures() {
+        RestClientException error = new RestClientException("failed");
+        batcher = new MessageBatcher("test", models -> {
+            throw error;
+        }, 10, HOUR);
+
+        CompletableFuture<Void> sent = batcher.add(new MessageModel(null, null, null));
+
+        assertThatExceptionOfType(RestClientException.class).isThrownBy(batcher::flush).isSameAs(error);
+        assertThatExceptionOfType(CompletionException.class).isThrownBy(sent::join).withCause(error);
+        batcher.flush();
+    }
+
+    @Test
+    public void flush_sendFailed_failsLaterBatchesWithoutSendingUntilFlushed() {
+        RestClientException error = new RestClientException("failed");
+        List<MessageModel> messages = messages(4);
+        batcher = new MessageBatcher("test", models -> {
+            if (models[0] == messages.get(0)) {
+                throw error;
+            }
+            recordingSender.accept(models);
+        }, 1, HOUR);
+
+        List<CompletableFuture<Void>> sent = messages.subList(0, 3).stream()
+                .map(batcher::add)
+                .collect(Collectors.toList());
+        assertThatExceptionOfType(RestClientException.class).isThrownBy(batcher::flush).isSameAs(error);
+        batcher.add(messages.get(3)).join();
+
+        assertThat(sent).allSatisfy(future ->
+                assertThatExceptionOfType(CompletionException.class).isThrownBy(future::join).withCause(error));
+        assertThat(batches).containsExactly(messages.subList(3, 4));
+    }
+
+    @Test
+    public void close_sendsWaitingMessagesThenRejectsMore() {
+        batcher = new MessageBatcher("test", recordingSender, 10, HOUR);
+        List<MessageModel> messages = messages(3);
+        messages.forEach(batcher::add);
+
+        batcher.close();
+
+        assertThat(batches).containsExactly(messages);
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> batcher.add(new MessageModel(null, null, null)));
+    }
+
+    private static List<MessageModel> messages(int count) {
+        List<MessageModel> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(new MessageModel(null, null, null));
+        }
+        return messages;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
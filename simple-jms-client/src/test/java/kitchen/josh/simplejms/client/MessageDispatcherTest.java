@@ -0,0 +1,286 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static kitchen.josh.simplejms.client.MessageDispatcher.BATCH_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MessageDispatcherTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8, DaemonThreads.factory("test"));
+    private MessageDispatcher dispatcher;
+
+    @After
+    public void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void constructor_maxConcurrencyNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new MessageDispatcher(executor, 0));
+    }
+
+    @Test
+    public void constructor_minIdleDelayNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new MessageDispatcher(executor, 1, 0, 10));
+    }
+
+    @Test
+    public void constructor_maxIdleDelayLessThanMin_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new MessageDispatcher(executor, 1, 10, 5));
+    }
+
+    @Test
+    public void register_idleConsumer_receivesAgainWithinMaxIdleDelay() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1, 1, 5);
+        AtomicInteger receives = new AtomicInteger();
+
+        dispatcher.register(max -> {
+            receives.incrementAndGet();
+            return new ArrayList<>();
+        }, message -> {
+        });
+        Thread.sleep(500);
+
+        assertThat(receives.get()).isGreaterThan(50);
+    }
+
+    @Test
+    public void register_passesMessagesToListenerInOrder() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 4);
+        List<Message> messages = messages(100);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>(messages);
+        List<Integer> requested = new CopyOnWriteArrayList<>();
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        dispatcher.register(max -> {
+            requested.add(max);
+            return receive(source, max);
+        }, received::add);
+
+        List<Message> dispatched = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            dispatched.add(received.poll(10, TimeUnit.SECONDS));
+        }
+        assertThat(dispatched).isEqualTo(messages);
+        assertThat(requested).containsOnly(BATCH_SIZE);
+    }
+
+    @Test
+    public void register_manyConsumers_dispatchesAtMostMaxConcurrencyAtOnceInOrder() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 2);
+        AtomicInteger dispatching = new AtomicInteger();
+        AtomicInteger mostDispatching = new AtomicInteger();
+        List<Message> messages = messages(20);
+        List<List<Message>> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(6 * messages.size());
+
+        for (int i = 0; i < 6; i++) {
+            BlockingQueue<Message> source = new LinkedBlockingQueue<>(messages);
+            List<Message> consumerReceived = new CopyOnWriteArrayList<>();
+            received.add(consumerReceived);
+            dispatcher.register(max -> {
+                mostDispatching.accumulateAndGet(dispatching.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                    return receive(source, 3);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    dispatching.decrementAndGet();
+                }
+            }, message -> {
+                consumerReceived.add(message);
+                done.countDown();
+            });
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(mostDispatching.get()).isBetween(1, 2);
+        assertThat(received).allSatisfy(consumerReceived -> assertThat(consumerReceived).isEqualTo(messages));
+    }
+
+    @Test
+    public void register_noMessagesYet_dispatchesOnceTheyArrive() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>();
+        AtomicInteger receives = new AtomicInteger();
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        dispatcher.register(max -> {
+            receives.incrementAndGet();
+            return receive(source, max);
+        }, received::add);
+
+        Thread.sleep(100);
+        Message message = messages(1).get(0);
+        source.add(message);
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(message);
+        // Backing off, an idle consumer isn't received for every few milliseconds.
+        assertThat(receives.get()).isLessThan(20);
+    }
+
+    @Test
+    public void register_listenerThrows_goesOnWithNextMessage() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        List<Message> messages = messages(2);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>(messages);
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        dispatcher.register(max -> receive(source, max), message -> {
+            received.add(message);
+            if (message == messages.get(0)) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(messages.get(0));
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(messages.get(1));
+    }
+
+    @Test
+    public void register_receivingFails_triesAgainLater() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        Message message = messages(1).get(0);
+        AtomicInteger receives = new AtomicInteger();
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        dispatcher.register(max -> {
+            if (receives.incrementAndGet() == 1) {
+                throw new RestClientException("failed");
+            }
+            return receives.get() == 2 ? singleton(message) : new ArrayList<>();
+        }, received::add);
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(message);
+    }
+
+    @Test
+    public void register_executorRejectsDispatch_triesAgainLater() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        dispatcher = new MessageDispatcher(task -> {
+            if (executions.incrementAndGet() == 2) {
+                throw new RejectedExecutionException("busy");
+            }
+            executor.execute(task);
+        }, 1);
+        List<Message> messages = messages(2);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>(messages.subList(0, 1));
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        dispatcher.register(max -> receive(source, max), received::add);
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(messages.get(0));
+        source.add(messages.get(1));
+
+        assertThat(received.poll(10, TimeUnit.SECONDS)).isSameAs(messages.get(1));
+        assertThat(executions.get()).isGreaterThan(2);
+    }
+
+    @Test
+    public void register_closed_throwsIllegalStateException() {
+        dispatcher = new MessageDispatcher(executor, 1);
+        dispatcher.close();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+                .isThrownBy(() -> dispatcher.register(max -> new ArrayList<>(), message -> {
+                }));
+    }
+
+    @Test
+    public void setListener_passesNextMessagesToNewListener() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>();
+        BlockingQueue<Message> first = new LinkedBlockingQueue<>();
+        BlockingQueue<Message> second = new LinkedBlockingQueue<>();
+        MessageDispatcher.Registration registration = dispatcher.register(max -> receive(source, max), first::add);
+        Message message = messages(1).get(0);
+
+        registration.setListener(second::add);
+        source.add(message);
+
+        assertThat(second.poll(10, TimeUnit.SECONDS)).isSameAs(message);
+        assertThat(first).isEmpty();
+    }
+
+    @Test
+    public void cancel_stopsReceiving() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        AtomicInteger receives = new AtomicInteger();
+        CountDownLatch received = new CountDownLatch(1);
+        MessageDispatcher.Registration registration = dispatcher.register(max -> {
+            receives.incrementAndGet();
+            received.countDown();
+            return new ArrayList<>();
+        }, message -> {
+        });
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+
+        registration.cancel();
+        Thread.sleep(50);
+        int receivesAfterCancel = receives.get();
+        Thread.sleep(MessageDispatcher.DEFAULT_MAX_IDLE_DELAY + 100);
+
+        assertThat(receives.get()).isEqualTo(receivesAfterCancel);
+    }
+
+    @Test
+    public void close_stopsDispatching() throws Exception {
+        dispatcher = new MessageDispatcher(executor, 1);
+        BlockingQueue<Message> source = new LinkedBlockingQueue<>();
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+        dispatcher.register(max -> receive(source, max), received::add);
+
+        dispatcher.close();
+        Thread.sleep(50);
+        source.add(messages(1).get(0));
+        Thread.sleep(MessageDispatcher.DEFAULT_MAX_IDLE_DELAY + 100);
+
+        assertThat(received).isEmpty();
+        assertThat(source).hasSize(1);
+    }
+
+    private static List<Message> receive(BlockingQueue<Message> source, int max) {
+        List<Message> messages = new ArrayList<>();
+        source.drainTo(messages, max);
+        return messages;
+    }
+
+    private static List<Message> singleton(Message message) {
+        List<Message> messages = new ArrayList<>();
+        messages.add(message);
+        return messages;
+    }
+
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(Integer.toString(i))));
+        }
+        return messages;
+    }
+}
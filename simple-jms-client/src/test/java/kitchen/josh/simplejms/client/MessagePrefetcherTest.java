@@ -0,0 +1,184 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class MessagePrefetcherTest {
+
+    private static final long TIMEOUT = 10_000;
+
+    private final BlockingQueue<Message> broker = new LinkedBlockingQueue<>();
+    private final List<Integer> requested = new CopyOnWriteArrayList<>();
+    private MessagePrefetcher prefetcher;
+
+    @After
+    public void tearDown() {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    public void validate_prefetchNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> MessagePrefetcher.validate(0));
+    }
+
+    @Test
+    public void poll_receivesAheadUpToPrefetchInOrder() throws Exception {
+        List<Message> messages = messages(10);
+        broker.addAll(messages);
+        prefetcher = new MessagePrefetcher("test", 3, this::receive, this::receiveWaiting);
+
+        waitUntil(() -> broker.size() == 7);
+        Thread.sleep(50);
+        assertThat(broker).hasSize(7);
+        assertThat(requested).allSatisfy(max -> assertThat(max).isBetween(1, 3));
+
+        List<Message> received = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            received.add(prefetcher.poll(TIMEOUT).get());
+        }
+        assertThat(received).isEqualTo(messages);
+    }
+
+    @Test
+    public void poll_bufferEmpty_returnsEmpty() {
+        prefetcher = new MessagePrefetcher("test", 3, this::receive, this::receiveWaiting);
+
+        assertThat(prefetcher.poll()).isEmpty();
+        assertThat(prefetcher.poll(1)).isEmpty();
+        assertThat(prefetcher.poll(20L)).isEmpty();
+    }
+
+    @Test
+    public void poll_messagePrefetched_returnsMessage() {
+        Message message = messages(1).get(0);
+        broker.add(message);
+        prefetcher = new MessagePrefetcher("test", 3, this::receive, this::receiveWaiting);
+
+        waitUntil(broker::isEmpty);
+        waitUntil(() -> prefetcher.poll().map(message::equals).orElse(false));
+    }
+
+    @Test
+    public void poll_messageSentWhileWaiting_returnsMessage() {
+        prefetcher = new MessagePrefetcher("test", 3, this::receive, this::receiveWaiting);
+        Message message = messages(1).get(0);
+
+        broker.add(message);
+
+        assertThat(prefetcher.poll(TIMEOUT)).contains(message);
+    }
+
+    @Test
+    public void pollMax_returnsPrefetchedMessagesInOrder() {
+        List<Message> messages = messages(3);
+        broker.addAll(messages);
+        prefetcher = new MessagePrefetcher("test", 5, this::receive, this::receiveWaiting);
+        waitUntil(broker::isEmpty);
+
+        List<Message> received = new ArrayList<>();
+        while (received.size() < 3) {
+            received.addAll(prefetcher.poll(2));
+        }
+
+        assertThat(received).isEqualTo(messages);
+    }
+
+    @Test
+    public void poll_receivingFailed_throwsError() {
+        RestClientException error = new RestClientException("failed");
+        prefetcher = new MessagePrefetcher("test", 3, max -> {
+            throw error;
+        }, this::receiveWaiting);
+
+        assertThatExceptionOfType(RestClientException.class).isThrownBy(() -> prefetcher.poll(TIMEOUT)).isSameAs(error);
+    }
+
+    @Test
+    public void clear_throwsAwayPrefetchedMessagesBeforeAction() {
+        List<Message> messages = messages(2);
+        broker.addAll(messages);
+        prefetcher = new MessagePrefetcher("test", 5, this::receive, this::receiveWaiting);
+        waitUntil(broker::isEmpty);
+        Message next = messages(1).get(0);
+
+        prefetcher.clear(() -> broker.add(next));
+
+        assertThat(prefetcher.poll(TIMEOUT)).contains(next);
+    }
+
+    @Test
+    public void close_stopsReceiving() throws Exception {
+        AtomicInteger receives = new AtomicInteger();
+        prefetcher = new MessagePrefetcher("test", 1, max -> {
+            receives.incrementAndGet();
+            return receive(max);
+        }, this::receiveWaiting);
+        broker.addAll(messages(1));
+        waitUntil(broker::isEmpty);
+
+        prefetcher.close();
+        broker.addAll(messages(1));
+        int receivedBeforeClose = receives.get();
+        Thread.sleep(50);
+
+        assertThat(receives.get()).isEqualTo(receivedBeforeClose);
+        assertThat(prefetcher.poll()).isEmpty();
+        assertThat(broker).hasSize(1);
+    }
+
+    private List<Message> receive(int max) {
+        requested.add(max);
+        List<Message> messages = new ArrayList<>();
+        broker.drainTo(messages, max);
+        return messages;
+    }
+
+    private Optional<Message> receiveWaiting(long wait) {
+        try {
+            return Optional.ofNullable(broker.poll(wait, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    private static List<Message> messages(int count) {
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(Integer.toString(i))));
+        }
+        return messages;
+    }
+
+    private static void waitUntil(Condition condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.isTrue()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.yield();
+        }
+    }
+
+    private interface Condition {
+        boolean isTrue();
+    }
+}
@@ -0,0 +1,265 @@
+package kitchen.josh.simplejms.client;
+
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import kitchen.josh.simplejms.common.message.headers.HeadersImpl;
+import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartitionedListenerContainerTest {
+
+    private static final String KEY = "JMSXGroupID";
+
+    @Mock
+    private Consumer consumer;
+
+    private final BlockingQueue<Message> broker = new LinkedBlockingQueue<>();
+    private PartitionedListenerContainer container;
+
+    @Before
+    public void setUp() {
+        lenient().when(consumer.receiveMessages(anyInt())).then(invocation -> {
+            List<Message> messages = new ArrayList<>();
+            broker.drainTo(messages, invocation.getArgument(0));
+            return messages;
+        });
+        lenient().when(consumer.receiveMessage(anyLong())).then(invocation ->
+                Optional.ofNullable(broker.poll(invocation.getArgument(0), TimeUnit.MILLISECONDS)));
+    }
+
+    @After
+    public void tearDown() {
+        if (container != null) {
+            container.close();
+        }
+    }
+
+    @Test
+    public void constructor_lanesNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new PartitionedListenerContainer(consumer, KEY, 0, message -> {
+                }));
+        verifyZeroInteractions(consumer);
+    }
+
+    @Test
+    public void lane_isWithinLanesAndSameForSameKey() {
+        for (int i = 0; i < 1000; i++) {
+            String key = "key-" + i;
+            assertThat(PartitionedListenerContainer.lane(key, 7)).isBetween(0, 6).isEqualTo(PartitionedListenerContainer.lane(new String(key), 7));
+        }
+    }
+
+    @Test
+    public void messagesWithSameKey_areHandledInOrder() throws Exception {
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(8 * 50);
+        for (int i = 0; i < 50; i++) {
+            for (int key = 0; key < 8; key++) {
+                broker.add(message("key-" + key, Integer.toString(i)));
+            }
+        }
+
+        container = new PartitionedListenerContainer(consumer, KEY, 4, message -> {
+            received.computeIfAbsent(message.getStringProperty(KEY), key -> new CopyOnWriteArrayList<>())
+                    .add(((TextMessage) message).getText());
+            done.countDown();
+        });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add(Integer.toString(i));
+        }
+        assertThat(received).hasSize(8);
+        assertThat(received.values()).allSatisfy(texts -> assertThat(texts).isEqualTo(expected));
+    }
+
+    @Test
+    public void messagesWithKeysOnDifferentLanes_areHandledAtOnce() throws Exception {
+        String first = "key-0";
+        String second = keyOnOtherLane(first, 2);
+        CyclicBarrier bothHandling = new CyclicBarrier(2);
+        CountDownLatch done = new CountDownLatch(2);
+        broker.add(message(first, "a"));
+        broker.add(message(second, "b"));
+
+        container = new PartitionedListenerContainer(consumer, KEY, 2, message -> {
+            try {
+                bothHandling.await(10, TimeUnit.SECONDS);
+                done.countDown();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void messagesWithoutKey_areSpreadAcrossLanes() throws Exception {
+        CyclicBarrier bothHandling = new CyclicBarrier(2);
+        CountDownLatch done = new CountDownLatch(2);
+        broker.add(message(null, "a"));
+        broker.add(message(null, "b"));
+
+        container = new PartitionedListenerContainer(consumer, KEY, 2, message -> {
+            try {
+                bothHandling.await(10, TimeUnit.SECONDS);
+                done.countDown();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void acknowledgesOnlyUpToOldestMessageNotYetHandled() throws Exception {
+        String slow = "key-0";
+        String fast = keyOnOtherLane(slow, 2);
+        Message slowMessage = message(slow, "slow");
+        Message fastMessage = message(fast, "fast");
+        Message lastMessage = message(fast, "last");
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastHandled = new CountDownLatch(2);
+        broker.add(slowMessage);
+        broker.add(fastMessage);
+        broker.add(lastMessage);
+
+        container = new PartitionedListenerContainer(consumer, KEY, 2, message -> {
+            if (message == slowMessage) {
+                await(release);
+            } else {
+                fastHandled.countDown();
+            }
+        });
+        assertThat(fastHandled.await(10, TimeUnit.SECONDS)).isTrue();
+
+        verify(consumer, after(300).never()).acknowledge(any());
+
+        release.countDown();
+        verify(consumer, timeout(10_000)).acknowledge(lastMessage);
+        verify(consumer, never()).acknowledge(slowMessage);
+        verify(consumer, never()).acknowledge(fastMessage);
+    }
+
+    @Test
+    public void listenerThrows_recoversFromFailedMessageWithoutAcknowledgingIt() throws Exception {
+        Message before = message("other", "before");
+        Message failing = message("key", "failing");
+        Message next = message("key", "next");
+        List<Message> handled = new CopyOnWriteArrayList<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        CountDownLatch nextHandled = new CountDownLatch(1);
+        List<Object> calls = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> calls.add(invocation.getArgument(0))).when(consumer).acknowledge(any());
+        doAnswer(invocation -> {
+            calls.add("recover");
+            // The broker sends every unacknowledged message again.
+            broker.add(failing);
+            broker.add(next);
+            return null;
+        }).when(consumer).recover();
+        broker.add(before);
+        broker.add(failing);
+        broker.add(next);
+
+        container = new PartitionedListenerContainer(consumer, KEY, 1, message -> {
+            handled.add(message);
+            if (message == failing && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("listener failed");
+            }
+            if (message == next) {
+                nextHandled.countDown();
+            }
+        });
+
+        assertThat(nextHandled.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(handled).containsExactly(before, failing, failing, next);
+        verify(consumer, timeout(10_000)).acknowledge(next);
+        assertThat(calls).startsWith(before, "recover").endsWith(next);
+    }
+
+    @Test
+    public void close_waitsForReceivedMessagesAndAcknowledgesThemWithoutClosingConsumer() throws Exception {
+        List<Message> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch handling = new CountDownLatch(1);
+        Message message = message("key", "text");
+        broker.add(message);
+        container = new PartitionedListenerContainer(consumer, KEY, 1, received -> {
+            handling.countDown();
+            sleep(100);
+            handled.add(received);
+        });
+        assertThat(handling.await(10, TimeUnit.SECONDS)).isTrue();
+
+        container.close();
+
+        assertThat(handled).containsExactly(message);
+        verify(consumer).acknowledge(message);
+        verify(consumer, never()).close();
+    }
+
+    private static String keyOnOtherLane(String key, int lanes) {
+        int lane = PartitionedListenerContainer.lane(key, lanes);
+        for (int i = 0; ; i++) {
+            String other = "other-" + i;
+            if (PartitionedListenerContainer.lane(other, lanes) != lane) {
+                return other;
+            }
+        }
+    }
+
+    private static Message message(String key, String text) {
+        TextMessage message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(text));
+        if (key != null) {
+            message.setStringProperty(KEY, key);
+        }
+        return message;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
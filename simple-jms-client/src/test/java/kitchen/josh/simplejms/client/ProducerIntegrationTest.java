@@ -2,6 +2,8 @@ package kitchen.josh.simplejms.client;
 
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.BinaryMessageCodec;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
 import kitchen.josh.simplejms.common.message.Message;
 import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import kitchen.josh.simplejms.common.message.TextMessage;
@@ -18,6 +20,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 import static org.springframework.test.web.client.ExpectedCount.once;
@@ -36,6 +39,7 @@ public class ProducerIntegrationTest {
     private static final ProducerId PRODUCER_ID = new ProducerId(DESTINATION, PRODUCER_UUID);
 
     private static final String SEND_URL = HOST + "/producer/" + PRODUCER_UUID + "/send";
+    private static final String SEND_BATCH_URL = HOST + "/producer/" + PRODUCER_UUID + "/send-batch";
     private static final String CLOSE_URL = HOST + "/producer/" + PRODUCER_UUID;
 
     private static final String JSON = "{\"body\": {\"type\": \"text\", \"text\": \"" + TEXT + "\"}, \"properties\": []," +
@@ -72,6 +76,47 @@ public class ProducerIntegrationTest {
         mockRestServiceServer.verify();
     }
 
+    @Test
+    public void sendMessage_binaryMessageConverter_sendsBinary() {
+        RestTemplate restTemplate = new RestTemplate();
+        restTemplate.getMessageConverters().add(0, new BinaryMessageConverter());
+        mockRestServiceServer = MockRestServiceServer.bindTo(restTemplate).build();
+        producer = new Producer(HOST, restTemplate, PRODUCER_ID, MESSAGE_MODEL_FACTORY);
+        Message message = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+        message.setId("ID:1234");
+        message.setDestination(DESTINATION);
+
+        mockRestServiceServer.expect(once(), requestTo(SEND_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(BinaryMessageConverter.MEDIA_TYPE))
+                .andExpect(content().bytes(new BinaryMessageCodec().encode(MESSAGE_MODEL_FACTORY.create(message))))
+                .andRespond(withSuccess());
+
+        producer.sendMessage(message);
+
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    public void sendMessages() {
+        Message first = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+        first.setId("ID:1234");
+        first.setDestination(DESTINATION);
+        Message second = new TextMessage(new HeadersImpl(), new PropertiesImpl(), new TextBody(TEXT));
+        second.setId("ID:1234");
+        second.setDestination(DESTINATION);
+
+        mockRestServiceServer.expect(once(), requestTo(SEND_BATCH_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(content().json("[" + JSON + "," + JSON + "]", true))
+                .andRespond(withSuccess());
+
+        producer.sendMessages(Arrays.asList(first, second));
+
+        mockRestServiceServer.verify();
+    }
+
     @Test
     public void close() {
         mockRestServiceServer.expect(once(), requestTo(CLOSE_URL))
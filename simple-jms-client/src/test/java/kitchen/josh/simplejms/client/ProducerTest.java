@@ -12,13 +12,24 @@ import kitchen.josh.simplejms.common.message.properties.PropertiesImpl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -32,6 +43,7 @@ public class ProducerTest {
     private static final String BROKER_URL = "http://localhost:9999";
 
     private static final String SEND_URL = BROKER_URL + "/producer/" + PRODUCER_ID + "/send";
+    private static final String SEND_BATCH_URL = BROKER_URL + "/producer/" + PRODUCER_ID + "/send-batch";
     private static final String DELETE_URL = BROKER_URL + "/producer/" + PRODUCER_ID;
 
     private static final String TEXT = "hello world";
@@ -44,11 +56,13 @@ public class ProducerTest {
     @Mock
     private MessageModelFactory messageModelFactory;
 
+    private List<Runnable> tasks;
     private Producer producer;
 
     @Before
     public void setUp() {
-        producer = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory);
+        tasks = new ArrayList<>();
+        producer = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add);
     }
 
     @Test
@@ -73,6 +87,26 @@ public class ProducerTest {
         verifyNoMoreInteractions(restTemplate, messageModelFactory);
     }
 
+    @Test
+    public void sendMessages_postsBatchInOneRequest() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+
+        producer.sendMessages(asList(MESSAGE, MESSAGE));
+
+        verify(messageModelFactory, times(2)).create(MESSAGE);
+        verify(restTemplate).postForEntity(SEND_BATCH_URL, new MessageModel[]{MESSAGE_MODEL, MESSAGE_MODEL}, Void.class);
+        verifyNoMoreInteractions(restTemplate, messageModelFactory);
+    }
+
+    @Test
+    public void sendMessages_restTemplateThrows_throws() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+
+        assertThatExceptionOfType(RestClientException.class).isThrownBy(() -> producer.sendMessages(singletonList(MESSAGE)));
+        verify(restTemplate).postForEntity(SEND_BATCH_URL, new MessageModel[]{MESSAGE_MODEL}, Void.class);
+    }
+
     @Test
     public void close_notifiesBroker() {
         producer.close();
@@ -80,4 +114,184 @@ public class ProducerTest {
         verify(restTemplate).delete(DELETE_URL);
         verifyNoMoreInteractions(restTemplate, messageModelFactory);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sendMessageAsync_convertsMessageThenPostsOnExecutor() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+
+        CompletableFuture<Void> sent = producer.sendMessageAsync(MESSAGE);
+
+        verify(messageModelFactory).create(MESSAGE);
+        verifyZeroInteractions(restTemplate);
+        assertThat(sent).isNotDone();
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(sent).isCompleted();
+        verify(restTemplate).postForEntity(SEND_URL, MESSAGE_MODEL, Void.class);
+        verifyNoMoreInteractions(restTemplate, messageModelFactory);
+    }
+
+    @Test
+    public void sendMessageAsync_restTemplateThrows_completesExceptionally() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+
+        CompletableFuture<Void> sent = producer.sendMessageAsync(MESSAGE);
+        tasks.forEach(Runnable::run);
+
+        assertThatExceptionOfType(CompletionException.class).isThrownBy(sent::join)
+                .withCauseInstanceOf(RestClientException.class);
+    }
+
+    @Test
+    public void sendMessageAsync_previousSendNotComplete_postsAfterPreviousSend() {
+        MessageModel secondModel = new MessageModel(null, emptyList(), null);
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL, secondModel);
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class).thenReturn(null);
+
+        CompletableFuture<Void> first = producer.sendMessageAsync(MESSAGE);
+        CompletableFuture<Void> second = producer.sendMessageAsync(MESSAGE);
+
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isNotDone();
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+
+        assertThat(second).isCompleted();
+        InOrder inOrder = inOrder(restTemplate);
+        inOrder.verify(restTemplate).postForEntity(SEND_URL, MESSAGE_MODEL, Void.class);
+        inOrder.verify(restTemplate).postForEntity(SEND_URL, secondModel, Void.class);
+        verifyNoMoreInteractions(restTemplate);
+    }
+
+    @Test
+    public void closeAsync_notifiesBrokerOnExecutor() {
+        CompletableFuture<Void> closed = producer.closeAsync();
+
+        verifyZeroInteractions(restTemplate);
+
+        tasks.forEach(Runnable::run);
+
+        assertThat(closed).isCompleted();
+        verify(restTemplate).delete(DELETE_URL);
+        verifyNoMoreInteractions(restTemplate, messageModelFactory);
+    }
+
+    @Test
+    public void closeAsync_afterAsyncSend_notifiesBrokerOnceSent() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        CompletableFuture<Void> sent = producer.sendMessageAsync(MESSAGE);
+
+        CompletableFuture<Void> closed = producer.closeAsync();
+
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+        tasks.remove(0).run();
+
+        assertThat(sent).isCompleted();
+        assertThat(closed).isCompleted();
+        InOrder inOrder = inOrder(restTemplate);
+        inOrder.verify(restTemplate).postForEntity(SEND_URL, MESSAGE_MODEL, Void.class);
+        inOrder.verify(restTemplate).delete(DELETE_URL);
+    }
+
+    @Test
+    public void close_afterManyAsyncSends_sendsThemBeforeNotifyingBroker() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Producer async = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, executor);
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        when(restTemplate.postForEntity(anyString(), any(), any())).then(invocation -> {
+            Thread.sleep(1);
+            return null;
+        }).thenThrow(RestClientException.class).thenReturn(null);
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 100; i++) {
+                sent.add(async.sendMessageAsync(MESSAGE));
+            }
+            async.close();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(sent).allMatch(CompletableFuture::isDone);
+        assertThat(sent.get(1)).isCompletedExceptionally();
+        InOrder inOrder = inOrder(restTemplate);
+        inOrder.verify(restTemplate, times(100)).postForEntity(SEND_URL, MESSAGE_MODEL, Void.class);
+        inOrder.verify(restTemplate).delete(DELETE_URL);
+    }
+
+    @Test
+    public void constructor_batchSizeNotPositive_throwsIllegalArgumentException() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add, 0, 10));
+    }
+
+    @Test
+    public void sendMessage_batching_sendsBatchOnFlush() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        Producer batching = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add, 10, 60_000);
+
+        batching.sendMessage(MESSAGE);
+        batching.sendMessages(asList(MESSAGE, MESSAGE));
+        verifyZeroInteractions(restTemplate);
+        batching.flush();
+
+        verify(messageModelFactory, times(3)).create(MESSAGE);
+        verify(restTemplate).postForEntity(SEND_BATCH_URL, new MessageModel[]{MESSAGE_MODEL, MESSAGE_MODEL, MESSAGE_MODEL}, Void.class);
+        verifyNoMoreInteractions(restTemplate, messageModelFactory);
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void sendMessageAsync_batching_completesWhenBatchIsSent() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        Producer batching = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add, 2, 60_000);
+
+        CompletableFuture<Void> first = batching.sendMessageAsync(MESSAGE);
+        CompletableFuture<Void> second = batching.sendMessageAsync(MESSAGE);
+        CompletableFuture.allOf(first, second).join();
+
+        verify(restTemplate).postForEntity(SEND_BATCH_URL, new MessageModel[]{MESSAGE_MODEL, MESSAGE_MODEL}, Void.class);
+        verifyNoMoreInteractions(restTemplate);
+    }
+
+    @Test
+    public void close_batching_sendsWaitingMessagesThenNotifiesBroker() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        Producer batching = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add, 10, 60_000);
+        batching.sendMessage(MESSAGE);
+
+        batching.close();
+
+        InOrder inOrder = inOrder(restTemplate);
+        inOrder.verify(restTemplate).postForEntity(SEND_BATCH_URL, new MessageModel[]{MESSAGE_MODEL}, Void.class);
+        inOrder.verify(restTemplate).delete(DELETE_URL);
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> batching.sendMessage(MESSAGE));
+    }
+
+    @Test
+    public void close_batchingSendFails_notifiesBrokerAndThrows() {
+        when(messageModelFactory.create(any())).thenReturn(MESSAGE_MODEL);
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
+        Producer batching = new Producer(BROKER_URL, restTemplate, new ProducerId(DESTINATION, PRODUCER_ID), messageModelFactory, tasks::add, 10, 60_000);
+        batching.sendMessage(MESSAGE);
+
+        assertThatExceptionOfType(RestClientException.class).isThrownBy(batching::close);
+        verify(restTemplate).delete(DELETE_URL);
+    }
+
+    @Test
+    public void flush_notBatching_doesNothing() {
+        producer.flush();
+
+        verifyZeroInteractions(restTemplate, messageModelFactory);
+    }
+}
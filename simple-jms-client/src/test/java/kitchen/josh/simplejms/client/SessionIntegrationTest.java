@@ -2,21 +2,21 @@ package kitchen.josh.simplejms.client;
 
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.BinaryMessageConverter;
 import kitchen.josh.simplejms.common.message.MessageFactory;
-import kitchen.josh.simplejms.common.message.MessageModelFactory;
 import kitchen.josh.simplejms.common.message.body.BodyFactory;
-import kitchen.josh.simplejms.common.message.body.BodyModelFactory;
 import kitchen.josh.simplejms.common.message.headers.HeadersFactory;
-import kitchen.josh.simplejms.common.message.headers.HeadersModelFactory;
 import kitchen.josh.simplejms.common.message.properties.PropertiesFactory;
-import kitchen.josh.simplejms.common.message.properties.PropertyModelFactory;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -65,12 +65,40 @@ public class SessionIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(content().json("{\"destination\": \"topic:" + DESTINATION_ID + "\"}", true))
                 .andRespond(withSuccess("{\"id\": \"" + ID + "\"}", MediaType.APPLICATION_JSON_UTF8));
+        mockRestServiceServer.expect(once(), requestTo(HOST + "/producer/" + ID + "/send"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess());
         Session session = new Session(HOST, restTemplate);
 
         Producer producer = session.createProducer(TOPIC);
+        producer.sendMessage(session.createTextMessage("hello"));
+
+        assertThat(producer.getId()).isEqualToComparingFieldByField(new ProducerId(TOPIC, ID));
+        mockRestServiceServer.verify();
+    }
+
+    @Test
+    public void session_leavesRestTemplateConvertersUnchanged() {
+        List<HttpMessageConverter<?>> converters = new ArrayList<>(restTemplate.getMessageConverters());
+
+        new Session(HOST, restTemplate);
+
+        assertThat(restTemplate.getMessageConverters()).isEqualTo(converters);
+        assertThat(restTemplate.getMessageConverters()).noneMatch(BinaryMessageConverter.class::isInstance);
+    }
+
+    @Test
+    public void createProducer_sendsMessagesAsJsonThroughRestTemplate() {
+        mockRestServiceServer.expect(once(), requestTo(HOST + "/producer"))
+                .andRespond(withSuccess("{\"id\": \"" + ID + "\"}", MediaType.APPLICATION_JSON_UTF8));
+        mockRestServiceServer.expect(once(), requestTo(HOST + "/producer/" + ID + "/send"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.body.text").value("hello"))
+                .andRespond(withSuccess());
+        Session session = new Session(HOST, restTemplate);
+
+        session.createProducer(QUEUE).sendMessage(session.createTextMessage("hello"));
 
-        assertThat(producer).isEqualToComparingFieldByFieldRecursively(
-                new Producer(HOST, restTemplate, new ProducerId(TOPIC, ID), new MessageModelFactory(new HeadersModelFactory(), new PropertyModelFactory(), new BodyModelFactory())));
         mockRestServiceServer.verify();
     }
 }
@@ -1,5 +1,6 @@
 package kitchen.josh.simplejms.client;
 
+import kitchen.josh.simplejms.common.ConsumerModel;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationModel;
 import kitchen.josh.simplejms.common.DestinationType;
@@ -28,6 +29,8 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -84,17 +87,37 @@ public class SessionTest {
 
         Producer producer = session.createProducer(DESTINATION);
 
-        assertThat(producer).isEqualToComparingFieldByFieldRecursively(new Producer(HOST, restTemplate, PRODUCER_ID, MESSAGE_MODEL_FACTORY));
+        producer.sendMessage(TEXT_MESSAGE);
+
+        assertThat(producer.getId()).isEqualToComparingFieldByField(PRODUCER_ID);
+        verify(restTemplate).postForEntity(HOST + "/producer", new DestinationModel(DESTINATION), IdModel.class);
+        verify(restTemplate).postForEntity(HOST + "/producer/" + PRODUCER_ID.getId() + "/send", MESSAGE_MODEL_FACTORY.create(TEXT_MESSAGE), Void.class);
+        verifyNoMoreInteractions(restTemplate);
+    }
+
+    @Test
+    public void createProducer_batching_createsBatchingProducer() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(new IdModel(PRODUCER_ID.getId())));
+
+        Producer producer = session.createProducer(DESTINATION, 10, 5);
+
+        assertThat(producer.getId()).isEqualToComparingFieldByField(PRODUCER_ID);
         verify(restTemplate).postForEntity(HOST + "/producer", new DestinationModel(DESTINATION), IdModel.class);
         verifyNoMoreInteractions(restTemplate);
     }
 
+    @Test
+    public void createProducer_invalidBatchSize_throwsWithoutCreatingProducer() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> session.createProducer(DESTINATION, 0, 5));
+        verifyNoMoreInteractions(restTemplate);
+    }
+
     @Test
     public void createConsumer_restTemplateThrows_throws() {
         when(restTemplate.postForEntity(anyString(), any(), any())).thenThrow(RestClientException.class);
 
         assertThatExceptionOfType(RestClientException.class).isThrownBy(() -> session.createConsumer(DESTINATION));
-        verify(restTemplate).postForEntity(HOST + "/consumer", new DestinationModel(DESTINATION), IdModel.class);
+        verify(restTemplate).postForEntity(HOST + "/consumer", new ConsumerModel(DESTINATION, null), IdModel.class);
     }
 
     @Test
@@ -104,10 +127,72 @@ public class SessionTest {
         Consumer consumer = session.createConsumer(DESTINATION);
 
         assertThat(consumer).isEqualToComparingFieldByFieldRecursively(new Consumer(HOST, restTemplate, CONSUMER_ID, MESSAGE_FACTORY));
-        verify(restTemplate).postForEntity(HOST + "/consumer", new DestinationModel(DESTINATION), IdModel.class);
+        verify(restTemplate).postForEntity(HOST + "/consumer", new ConsumerModel(DESTINATION, null), IdModel.class);
+        verifyNoMoreInteractions(restTemplate);
+    }
+
+    @Test
+    public void createConsumer_selector_sendsSelectorAndReturnsConsumerUsingId() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(new IdModel(CONSUMER_ID.getId())));
+
+        Consumer consumer = session.createConsumer(DESTINATION, "colour = 'red'");
+
+        assertThat(consumer).isEqualToComparingFieldByFieldRecursively(new Consumer(HOST, restTemplate, CONSUMER_ID, MESSAGE_FACTORY));
+        verify(restTemplate).postForEntity(HOST + "/consumer", new ConsumerModel(DESTINATION, "colour = 'red'"), IdModel.class);
+        verifyNoMoreInteractions(restTemplate);
+    }
+
+    @Test
+    public void createConsumer_prefetching_returnsPrefetchingConsumerUsingId() {
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(new IdModel(CONSUMER_ID.getId())));
+
+        Consumer consumer = session.createConsumer(DESTINATION, null, 10);
+        consumer.close();
+
+        verify(restTemplate).postForEntity(HOST + "/consumer", new ConsumerModel(DESTINATION, null), IdModel.class);
+        verify(restTemplate).delete(HOST + "/consumer/" + CONSUMER_ID.getId());
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> consumer.setMessageListener(message -> {
+        }));
+    }
+
+    @Test
+    public void createConsumer_invalidPrefetch_throwsWithoutCreatingConsumer() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> session.createConsumer(DESTINATION, null, 0));
         verifyNoMoreInteractions(restTemplate);
     }
 
+    @Test
+    public void createConsumer_dispatchingSession_listenerIsPassedMessagesOnListenerExecutor() {
+        List<Runnable> listenerTasks = new ArrayList<>();
+        Session dispatching = new Session(HOST, restTemplate, Runnable::run, listenerTasks::add, 1);
+        when(restTemplate.postForEntity(anyString(), any(), any())).thenReturn(ResponseEntity.ok(new IdModel(CONSUMER_ID.getId())));
+        Consumer consumer = dispatching.createConsumer(DESTINATION);
+
+        consumer.setMessageListener(message -> {
+        });
+        dispatching.close();
+
+        assertThat(listenerTasks).hasSize(1);
+        verify(restTemplate).postForEntity(HOST + "/consumer", new ConsumerModel(DESTINATION, null), IdModel.class);
+        verify(restTemplate, never()).execute(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void constructor_maxConcurrentListenersNotPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new Session(HOST, restTemplate, Runnable::run, Runnable::run, 0));
+    }
+
+    @Test
+    public void constructor_maxIdleDelayLessThanMin_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> new Session(HOST, restTemplate, Runnable::run, Runnable::run, 1, 100, 10));
+    }
+
+    @Test
+    public void constructor_maxConnectionsNotPositive_throwsIllegalArgument() {
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new Session(HOST, 0));
+    }
+
     @Test
     public void createTextMessage_createsEmptyTextMessage() {
         TextMessage message = session.createTextMessage();
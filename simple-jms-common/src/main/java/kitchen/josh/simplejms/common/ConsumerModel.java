@@ -0,0 +1,50 @@
+package kitchen.josh.simplejms.common;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+/**
+ * The destination a consumer consumes from, and the message selector choosing which of its messages the consumer
+ * receives.
+ * <p>
+ * A consumer without a selector receives every message, and is written the same as a {@link DestinationModel}.
+ */
+public class ConsumerModel extends DestinationModel {
+
+    private final String selector;
+
+    public ConsumerModel(Destination destination, String selector) {
+        super(destination);
+        this.selector = selector;
+    }
+
+    public ConsumerModel(@JsonProperty("destination") String destination, @JsonProperty("selector") String selector) {
+        super(destination);
+        this.selector = selector;
+    }
+
+    /**
+     * @return the JMS message selector, or <code>null</code> if the consumer receives every message
+     */
+    @JsonGetter("selector")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getSelector() {
+        return selector;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!super.equals(o)) return false;
+        ConsumerModel model = (ConsumerModel) o;
+        return Objects.equals(selector, model.selector);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), selector);
+    }
+}
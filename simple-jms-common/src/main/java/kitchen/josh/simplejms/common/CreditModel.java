@@ -0,0 +1,19 @@
+package kitchen.josh.simplejms.common;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The number of further messages a streaming consumer is ready to be sent.
+ */
+public class CreditModel {
+
+    private final int credit;
+
+    public CreditModel(@JsonProperty("credit") int credit) {
+        this.credit = credit;
+    }
+
+    public int getCredit() {
+        return credit;
+    }
+}
@@ -0,0 +1,370 @@
+package kitchen.josh.simplejms.common.message;
+
+import kitchen.josh.simplejms.common.message.body.BodyModel;
+import kitchen.josh.simplejms.common.message.body.ObjectBodyModel;
+import kitchen.josh.simplejms.common.message.body.TextBodyModel;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import kitchen.josh.simplejms.common.message.properties.PropertyModel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact binary encoding of {@link MessageModel}, an alternative to JSON for sending messages over the wire.
+ * <p>
+ * A message is encoded as its headers, then its properties, then its body:
+ * <ul>
+ * <li>headers are a presence byte, with its second bit set if the message is redelivered, followed by the message id
+ * and destination as strings</li>
+ * <li>properties are a varint count, then each property's name, a one byte type tag and its value in a fixed width
+ * big-endian encoding, or as a string, with the top bit of the tag set instead of a value if the value is null</li>
+ * <li>the body is a one byte type tag, then the text as a string or the raw object bytes</li>
+ * </ul>
+ * Strings and byte arrays are prefixed with a varint of their length plus one, and lists with their size plus one, so
+ * that zero encodes <code>null</code>. A list of messages is a varint count followed by each message.
+ * <p>
+ * The lengths and counts are read from the input, so nothing is allocated up front for more than a small part of them.
+ * Lists and byte arrays grow as their elements are read, so a malformed length fails with an {@link EOFException} once
+ * the input runs out, rather than allocating memory for data that was never sent.
+ */
+public class BinaryMessageCodec {
+
+    private static final int ABSENT = 0;
+    private static final int PRESENT = 1;
+    private static final int REDELIVERED = 2;
+
+    private static final int TEXT_BODY = 1;
+    private static final int OBJECT_BODY = 2;
+
+    private static final int BOOLEAN = 1;
+    private static final int BYTE = 2;
+    private static final int SHORT = 3;
+    private static final int INTEGER = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
+    private static final int STRING = 8;
+    private static final int NULL_VALUE = 0x80;
+
+    private static final int INITIAL_LIST_CAPACITY = 16;
+    private static final int INITIAL_BYTES_CAPACITY = 8192;
+
+    public byte[] encode(MessageModel message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(message, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public byte[] encode(List<MessageModel> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(bytes);
+            writeVarInt(output, messages.size());
+            for (MessageModel message : messages) {
+                write(message, output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Join messages already encoded one at a time into the encoding of a list of them, without encoding them again.
+     *
+     * @param encodedMessages the encoding of each message, in order
+     * @return the same as encoding the list of messages
+     */
+    public byte[] join(List<byte[]> encodedMessages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream output = new DataOutputStream(bytes);
+            writeVarInt(output, encodedMessages.size());
+            for (byte[] encodedMessage : encodedMessages) {
+                output.write(encodedMessage);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the input ends early or isn't a valid encoding
+     */
+    public MessageModel decode(InputStream input) throws IOException {
+        return read(new DataInputStream(input));
+    }
+
+    /**
+     * @throws IOException if the input ends early or isn't a valid encoding
+     */
+    public List<MessageModel> decodeList(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        int size = readVarInt(data);
+        List<MessageModel> messages = new ArrayList<>(Math.min(size, INITIAL_LIST_CAPACITY));
+        for (int i = 0; i < size; i++) {
+            messages.add(read(data));
+        }
+        return messages;
+    }
+
+    private static void write(MessageModel message, DataOutput output) throws IOException {
+        writeHeaders(output, message.getHeaders());
+        writeProperties(output, message.getProperties());
+        writeBody(output, message.getBody());
+    }
+
+    private static MessageModel read(DataInput input) throws IOException {
+        HeadersModel headers = readHeaders(input);
+        List<PropertyModel> properties = readProperties(input);
+        BodyModel body = readBody(input);
+        return new MessageModel(headers, properties, body);
+    }
+
+    private static void writeHeaders(DataOutput output, HeadersModel headers) throws IOException {
+        if (headers == null) {
+            output.writeByte(ABSENT);
+            return;
+        }
+        output.writeByte(headers.isRedelivered() ? PRESENT | REDELIVERED : PRESENT);
+        writeString(output, headers.getId());
+        writeString(output, headers.getDestination());
+    }
+
+    private static HeadersModel readHeaders(DataInput input) throws IOException {
+        int presence = input.readUnsignedByte();
+        if (presence == ABSENT) {
+            return null;
+        }
+        if ((presence & ~REDELIVERED) != PRESENT) {
+            throw new IOException("Invalid headers marker " + presence);
+        }
+        return new HeadersModel(readString(input), readString(input), (presence & REDELIVERED) != 0);
+    }
+
+    private static void writeProperties(DataOutput output, List<PropertyModel> properties) throws IOException {
+        if (properties == null) {
+            writeVarInt(output, 0);
+            return;
+        }
+        writeVarInt(output, properties.size() + 1);
+        for (PropertyModel property : properties) {
+            writeString(output, property.getName());
+            writeValue(output, property.getType(), property.getValue());
+        }
+    }
+
+    private static List<PropertyModel> readProperties(DataInput input) throws IOException {
+        int size = readVarInt(input) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<PropertyModel> properties = new ArrayList<>(Math.min(size, INITIAL_LIST_CAPACITY));
+        for (int i = 0; i < size; i++) {
+            String name = readString(input);
+            int tag = input.readUnsignedByte();
+            if ((tag & NULL_VALUE) != 0) {
+                properties.add(new PropertyModel(name, typeName(tag & ~NULL_VALUE), null));
+            } else {
+                properties.add(new PropertyModel(name, typeName(tag), readValue(input, tag)));
+            }
+        }
+        return properties;
+    }
+
+    private static void writeValue(DataOutput output, String type, Object value) throws IOException {
+        int tag = tag(type);
+        if (value == null) {
+            output.writeByte(tag | NULL_VALUE);
+            return;
+        }
+        output.writeByte(tag);
+        switch (tag) {
+            case BOOLEAN:
+                output.writeBoolean((Boolean) value);
+                break;
+            case BYTE:
+                output.writeByte(((Number) value).byteValue());
+                break;
+            case SHORT:
+                output.writeShort(((Number) value).shortValue());
+                break;
+            case INTEGER:
+                output.writeInt(((Number) value).intValue());
+                break;
+            case LONG:
+                output.writeLong(((Number) value).longValue());
+                break;
+            case FLOAT:
+                output.writeFloat(((Number) value).floatValue());
+                break;
+            case DOUBLE:
+                output.writeDouble(((Number) value).doubleValue());
+                break;
+            default:
+                writeString(output, (String) value);
+                break;
+        }
+    }
+
+    private static int tag(String type) {
+        switch (type) {
+            case "Boolean":
+                return BOOLEAN;
+            case "Byte":
+                return BYTE;
+            case "Short":
+                return SHORT;
+            case "Integer":
+                return INTEGER;
+            case "Long":
+                return LONG;
+            case "Float":
+                return FLOAT;
+            case "Double":
+                return DOUBLE;
+            case "String":
+                return STRING;
+            default:
+                throw new IllegalArgumentException("Unknown property type " + type);
+        }
+    }
+
+    private static Object readValue(DataInput input, int tag) throws IOException {
+        switch (tag) {
+            case BOOLEAN:
+                return input.readBoolean();
+            case BYTE:
+                return input.readByte();
+            case SHORT:
+                return input.readShort();
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case FLOAT:
+                return input.readFloat();
+            case DOUBLE:
+                return input.readDouble();
+            case STRING:
+                return readString(input);
+            default:
+                throw new IOException("Unknown property type tag " + tag);
+        }
+    }
+
+    private static String typeName(int tag) throws IOException {
+        switch (tag) {
+            case BOOLEAN:
+                return "Boolean";
+            case BYTE:
+                return "Byte";
+            case SHORT:
+                return "Short";
+            case INTEGER:
+                return "Integer";
+            case LONG:
+                return "Long";
+            case FLOAT:
+                return "Float";
+            case DOUBLE:
+                return "Double";
+            case STRING:
+                return "String";
+            default:
+                throw new IOException("Unknown property type tag " + tag);
+        }
+    }
+
+    private static void writeBody(DataOutput output, BodyModel body) throws IOException {
+        if (body instanceof TextBodyModel) {
+            output.writeByte(TEXT_BODY);
+            writeString(output, ((TextBodyModel) body).getText());
+        } else if (body instanceof ObjectBodyModel) {
+            output.writeByte(OBJECT_BODY);
+            writeBytes(output, ((ObjectBodyModel) body).getBytes());
+        } else if (body == null) {
+            output.writeByte(ABSENT);
+        } else {
+            throw new IllegalArgumentException("Unknown body type " + body.getClass().getSimpleName());
+        }
+    }
+
+    private static BodyModel readBody(DataInput input) throws IOException {
+        int tag = input.readUnsignedByte();
+        switch (tag) {
+            case ABSENT:
+                return null;
+            case TEXT_BODY:
+                return new TextBodyModel(readString(input));
+            case OBJECT_BODY:
+                return new ObjectBodyModel(readBytes(input));
+            default:
+                throw new IOException("Unknown body type tag " + tag);
+        }
+    }
+
+    private static void writeString(DataOutput output, String string) throws IOException {
+        writeBytes(output, string == null ? null : string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        byte[] bytes = readBytes(input);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutput output, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            writeVarInt(output, 0);
+            return;
+        }
+        writeVarInt(output, bytes.length + 1);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput input) throws IOException {
+        int length = readVarInt(input) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.min(length, INITIAL_BYTES_CAPACITY)];
+        input.readFully(bytes);
+        while (bytes.length < length) {
+            int read = bytes.length;
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+            input.readFully(bytes, read, bytes.length - read);
+        }
+        return bytes;
+    }
+
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Negative length");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
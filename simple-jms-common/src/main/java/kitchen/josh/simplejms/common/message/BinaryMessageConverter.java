@@ -0,0 +1,98 @@
+package kitchen.josh.simplejms.common.message;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes messages in the {@link BinaryMessageCodec} encoding, as {@value #MEDIA_TYPE_VALUE}.
+ * <p>
+ * Converts a {@link MessageModel}, or a batch of them as a <code>MessageModel[]</code> or
+ * <code>List&lt;MessageModel&gt;</code>. Every other type is left to the JSON converter, so registering this converter
+ * ahead of it only changes how messages are sent, and only when both sides agree on the media type.
+ */
+public class BinaryMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.simplejms.message";
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    private final BinaryMessageCodec codec;
+
+    public BinaryMessageConverter() {
+        this(new BinaryMessageCodec());
+    }
+
+    public BinaryMessageConverter(BinaryMessageCodec codec) {
+        super(MEDIA_TYPE);
+        this.codec = codec;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MessageModel.class == clazz || MessageModel[].class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        if (isMessageList(type)) {
+            return canRead(mediaType);
+        }
+        return type instanceof Class && canRead((Class<?>) type, mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return isMessageList(type) ? canWrite(mediaType) : super.canWrite(type, clazz, mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return read(isMessageList(type) ? List.class : (Class<?>) type, inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            if (clazz == MessageModel.class) {
+                return codec.decode(inputMessage.getBody());
+            }
+            List<MessageModel> messages = codec.decodeList(inputMessage.getBody());
+            return clazz == MessageModel[].class ? messages.toArray(new MessageModel[0]) : messages;
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Malformed message: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        byte[] bytes;
+        if (object instanceof MessageModel) {
+            bytes = codec.encode((MessageModel) object);
+        } else if (object instanceof MessageModel[]) {
+            bytes = codec.encode(Arrays.asList((MessageModel[]) object));
+        } else {
+            bytes = codec.encode((List<MessageModel>) object);
+        }
+        outputMessage.getHeaders().setContentLength(bytes.length);
+        outputMessage.getBody().write(bytes);
+    }
+
+    private static boolean isMessageList(@Nullable Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        return parameterized.getRawType() == List.class
+                && parameterized.getActualTypeArguments()[0] == MessageModel.class;
+    }
+}
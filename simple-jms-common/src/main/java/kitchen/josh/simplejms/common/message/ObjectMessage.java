@@ -4,9 +4,11 @@ import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.message.body.ObjectBody;
 import kitchen.josh.simplejms.common.message.headers.Headers;
 import kitchen.josh.simplejms.common.message.properties.Properties;
+import kitchen.josh.simplejms.common.message.properties.PropertyVisitor;
 
 import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.io.Serializable;
 import java.util.Enumeration;
 
@@ -42,6 +44,16 @@ public class ObjectMessage implements Message {
         headers.setDestination(destination);
     }
 
+    @Override
+    public boolean isRedelivered() {
+        return headers.isRedelivered();
+    }
+
+    @Override
+    public void setRedelivered(boolean redelivered) {
+        headers.setRedelivered(redelivered);
+    }
+
     @Override
     public void clearProperties() {
         properties.clearProperties();
@@ -147,6 +159,11 @@ public class ObjectMessage implements Message {
         return properties.propertyExists(name);
     }
 
+    @Override
+    public void visitProperty(String name, PropertyVisitor visitor) {
+        properties.visitProperty(name, visitor);
+    }
+
     @Override
     public void clearBody() {
         body.clearBody();
@@ -166,10 +183,21 @@ public class ObjectMessage implements Message {
         body.setObject(serializable);
     }
 
-    public Serializable getObject() {
+    public Serializable getObject() throws MessageFormatException {
         return body.getObject();
     }
 
+    /**
+     * Make the message read-only, so that setting or clearing its headers, properties or body throws a
+     * {@link MessageNotWriteableRuntimeException}.
+     */
+    @Override
+    public void makeReadOnly() {
+        headers.makeReadOnly();
+        properties.makeReadOnly();
+        body.makeReadOnly();
+    }
+
     @Override
     public Headers getHeaders() {
         return headers;
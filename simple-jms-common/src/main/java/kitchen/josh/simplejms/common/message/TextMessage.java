@@ -4,9 +4,11 @@ import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.message.body.TextBody;
 import kitchen.josh.simplejms.common.message.headers.Headers;
 import kitchen.josh.simplejms.common.message.properties.Properties;
+import kitchen.josh.simplejms.common.message.properties.PropertyVisitor;
 
 import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.util.Enumeration;
 
 public class TextMessage implements Message {
@@ -41,6 +43,16 @@ public class TextMessage implements Message {
         headers.setDestination(destination);
     }
 
+    @Override
+    public boolean isRedelivered() {
+        return headers.isRedelivered();
+    }
+
+    @Override
+    public void setRedelivered(boolean redelivered) {
+        headers.setRedelivered(redelivered);
+    }
+
     @Override
     public void clearProperties() {
         properties.clearProperties();
@@ -146,6 +158,11 @@ public class TextMessage implements Message {
         return properties.propertyExists(name);
     }
 
+    @Override
+    public void visitProperty(String name, PropertyVisitor visitor) {
+        properties.visitProperty(name, visitor);
+    }
+
     @Override
     public void clearBody() {
         body.clearBody();
@@ -169,6 +186,17 @@ public class TextMessage implements Message {
         return body.getText();
     }
 
+    /**
+     * Make the message read-only, so that setting or clearing its headers, properties or body throws a
+     * {@link MessageNotWriteableRuntimeException}.
+     */
+    @Override
+    public void makeReadOnly() {
+        headers.makeReadOnly();
+        properties.makeReadOnly();
+        body.makeReadOnly();
+    }
+
     @Override
     public Headers getHeaders() {
         return headers;
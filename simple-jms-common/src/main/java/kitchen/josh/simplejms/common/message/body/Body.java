@@ -1,6 +1,7 @@
 package kitchen.josh.simplejms.common.message.body;
 
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 
 public interface Body {
 
@@ -9,4 +10,10 @@ public interface Body {
     <T> T getBody(Class<T> type) throws MessageFormatException;
 
     boolean isBodyAssignableTo(Class c);
+
+    /**
+     * Make the body read-only, so that setting or clearing it throws a
+     * {@link MessageNotWriteableRuntimeException}.
+     */
+    void makeReadOnly();
 }
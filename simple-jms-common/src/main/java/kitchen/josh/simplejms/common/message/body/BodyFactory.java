@@ -1,9 +1,5 @@
 package kitchen.josh.simplejms.common.message.body;
 
-import java.io.Serializable;
-
-import static org.springframework.util.SerializationUtils.deserialize;
-
 public class BodyFactory {
 
     public Body create(BodyModel bodyModel) {
@@ -22,6 +18,6 @@ public class BodyFactory {
     }
 
     private ObjectBody createObjectBody(ObjectBodyModel objectBodyModel) {
-        return new ObjectBody((Serializable) deserialize(objectBodyModel.getBytes()));
+        return ObjectBody.fromBytes(objectBodyModel.getBytes());
     }
 }
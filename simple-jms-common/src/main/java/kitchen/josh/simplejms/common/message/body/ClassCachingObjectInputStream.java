@@ -0,0 +1,58 @@
+package kitchen.josh.simplejms.common.message.body;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link ObjectInputStream} that remembers the classes it has resolved by name.
+ * <p>
+ * {@link ObjectInputStream#resolveClass(ObjectStreamClass)} walks the stack for a class loader and looks the class up
+ * for every class in every object read, so an application receiving the same payload types over and over pays for the
+ * same lookups each time. Instead each class is looked up once.
+ * <p>
+ * The class loader is the one {@link ObjectInputStream#resolveClass(ObjectStreamClass)} would find, the loader of the
+ * first class on the stack that isn't loaded by the bootstrap loader. That is always this class, as its
+ * <code>resolveClass</code> is the frame calling the lookup, so classes resolve exactly as they would without the
+ * cache. Classes the loader can't find by name, such as primitive types, are resolved as usual.
+ * <p>
+ * The cached classes are all found through this class's loader, so they can't be collected before this class is, and
+ * holding them strongly keeps nothing alive that wouldn't be anyway.
+ */
+class ClassCachingObjectInputStream extends ObjectInputStream {
+
+    private static final ClassLoader LOADER = ClassCachingObjectInputStream.class.getClassLoader();
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
+    ClassCachingObjectInputStream(InputStream in) throws IOException {
+        super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+        Class<?> resolved = CLASSES.get(desc.getName());
+        if (resolved != null) {
+            return resolved;
+        }
+        try {
+            resolved = Class.forName(desc.getName(), false, LOADER);
+        } catch (ClassNotFoundException e) {
+            return super.resolveClass(desc);
+        }
+        CLASSES.put(desc.getName(), resolved);
+        return resolved;
+    }
+
+    /**
+     * Get a class resolved so far.
+     *
+     * @param name the name of the class
+     * @return the class, or <code>null</code> if it hasn't been resolved
+     */
+    static Class<?> cachedClass(String name) {
+        return CLASSES.get(name);
+    }
+}
@@ -1,14 +1,27 @@
 package kitchen.josh.simplejms.common.message.body;
 
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
-import static org.springframework.util.SerializationUtils.deserialize;
 import static org.springframework.util.SerializationUtils.serialize;
 
+/**
+ * The body of an {@link kitchen.josh.simplejms.common.message.ObjectMessage}, held as the serialized object.
+ * <p>
+ * Every read returns a copy of the object deserialized for that read, so a caller can change the object it was given
+ * without changing the body, or another reader's object. The copy deserialized to check
+ * {@link #isBodyAssignableTo(Class)} is kept for the next read, so checking the body and then reading it only
+ * deserializes it once.
+ */
 public class ObjectBody implements Body {
 
     private byte[] bytes;
+    private Serializable unread;
+    private boolean readOnly;
 
     public ObjectBody() {
 
@@ -18,9 +31,25 @@ public class ObjectBody implements Body {
         setObject(serializable);
     }
 
+    private ObjectBody(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * Creates a body from an object that is already serialized, without deserializing it.
+     * <p>
+     * The object is only deserialized if it is read, so a body that is only passed along never needs the object's
+     * classes on the classpath.
+     */
+    public static ObjectBody fromBytes(byte[] bytes) {
+        return new ObjectBody(bytes);
+    }
+
     @Override
-    public void clearBody() {
+    public synchronized void clearBody() {
+        checkWritable();
         bytes = null;
+        unread = null;
     }
 
     @Override
@@ -32,23 +61,75 @@ public class ObjectBody implements Body {
         }
     }
 
+    /**
+     * Check whether the body can be read as a type.
+     *
+     * @param c the type to check
+     * @return true if the body is empty or its object is an instance of the type, false if it isn't or the object can't
+     * be deserialized
+     */
     @Override
-    public boolean isBodyAssignableTo(Class c) {
+    public synchronized boolean isBodyAssignableTo(Class c) {
         if (bytes == null) {
             return true;
         }
-        return c.isInstance(getObject());
+        if (unread == null) {
+            try {
+                unread = deserialize(bytes);
+            } catch (MessageFormatException e) {
+                return false;
+            }
+        }
+        return c.isInstance(unread);
     }
 
-    public void setObject(Serializable serializable) {
+    public synchronized void setObject(Serializable serializable) {
+        checkWritable();
         this.bytes = serialize(serializable);
+        this.unread = null;
     }
 
-    public Serializable getObject() {
-        return (Serializable) deserialize(bytes);
+    /**
+     * Deserialize a copy of the object.
+     *
+     * @return the object, or <code>null</code> if the body is empty
+     * @throws MessageFormatException if the object can't be deserialized
+     */
+    public synchronized Serializable getObject() throws MessageFormatException {
+        Serializable object = unread;
+        if (object == null) {
+            return deserialize(bytes);
+        }
+        unread = null;
+        return object;
     }
 
-    public byte[] getBytes() {
+    public synchronized byte[] getBytes() {
         return bytes;
     }
+
+    @Override
+    public void makeReadOnly() {
+        readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new MessageNotWriteableRuntimeException("Body is read-only");
+        }
+    }
+
+    private static Serializable deserialize(byte[] bytes) throws MessageFormatException {
+        if (bytes == null) {
+            return null;
+        }
+        try (ObjectInputStream input = new ClassCachingObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Serializable) input.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            MessageFormatException error = new MessageFormatException("Failed to deserialize object: " + e.getMessage());
+            error.setLinkedException(e);
+            error.initCause(e);
+            throw error;
+        }
+    }
 }
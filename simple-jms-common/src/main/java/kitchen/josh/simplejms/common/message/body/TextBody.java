@@ -1,10 +1,12 @@
 package kitchen.josh.simplejms.common.message.body;
 
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 
 public class TextBody implements Body {
 
     private String text;
+    private boolean readOnly;
 
     public TextBody() {
 
@@ -16,6 +18,7 @@ public class TextBody implements Body {
 
     @Override
     public void clearBody() {
+        checkWritable();
         this.text = null;
     }
 
@@ -37,10 +40,22 @@ public class TextBody implements Body {
     }
 
     public void setText(String text) {
+        checkWritable();
         this.text = text;
     }
 
     public String getText() {
         return text;
     }
+
+    @Override
+    public void makeReadOnly() {
+        readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new MessageNotWriteableRuntimeException("Body is read-only");
+        }
+    }
 }
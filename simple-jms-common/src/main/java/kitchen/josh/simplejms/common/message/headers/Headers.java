@@ -2,6 +2,8 @@ package kitchen.josh.simplejms.common.message.headers;
 
 import kitchen.josh.simplejms.common.Destination;
 
+import javax.jms.MessageNotWriteableRuntimeException;
+
 public interface Headers {
 
     String getId();
@@ -11,4 +13,17 @@ public interface Headers {
     Destination getDestination();
 
     void setDestination(Destination destination);
+
+    /**
+     * @return <code>true</code> if the message has been delivered to the consumer before, and is being delivered to it
+     * again after it recovered
+     */
+    boolean isRedelivered();
+
+    void setRedelivered(boolean redelivered);
+
+    /**
+     * Make the headers read-only, so that setting them throws a {@link MessageNotWriteableRuntimeException}.
+     */
+    void makeReadOnly();
 }
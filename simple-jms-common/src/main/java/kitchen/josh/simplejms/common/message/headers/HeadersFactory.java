@@ -11,6 +11,7 @@ public class HeadersFactory {
         Headers headers = new HeadersImpl();
         headers.setId(model.getId());
         headers.setDestination(parseDestination(model.getDestination()));
+        headers.setRedelivered(model.isRedelivered());
         return headers;
     }
 
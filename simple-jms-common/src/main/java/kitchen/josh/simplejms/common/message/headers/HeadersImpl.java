@@ -2,10 +2,14 @@ package kitchen.josh.simplejms.common.message.headers;
 
 import kitchen.josh.simplejms.common.Destination;
 
+import javax.jms.MessageNotWriteableRuntimeException;
+
 public class HeadersImpl implements Headers {
 
     private String id;
     private Destination destination;
+    private boolean redelivered;
+    private boolean readOnly;
 
     @Override
     public String getId() {
@@ -14,6 +18,7 @@ public class HeadersImpl implements Headers {
 
     @Override
     public void setId(String id) {
+        checkWritable();
         this.id = id;
     }
 
@@ -24,6 +29,29 @@ public class HeadersImpl implements Headers {
 
     @Override
     public void setDestination(Destination destination) {
+        checkWritable();
         this.destination = destination;
     }
+
+    @Override
+    public boolean isRedelivered() {
+        return redelivered;
+    }
+
+    @Override
+    public void setRedelivered(boolean redelivered) {
+        checkWritable();
+        this.redelivered = redelivered;
+    }
+
+    @Override
+    public void makeReadOnly() {
+        readOnly = true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new MessageNotWriteableRuntimeException("Headers are read-only");
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package kitchen.josh.simplejms.common.message.headers;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Objects;
@@ -9,11 +11,22 @@ public class HeadersModel {
 
     private final String id;
     private final String destination;
+    private final boolean redelivered;
 
+    public HeadersModel(String id, String destination) {
+        this(id, destination, false);
+    }
+
+    /**
+     * @param redelivered written only if <code>true</code>, and <code>false</code> if it isn't read
+     */
+    @JsonCreator
     public HeadersModel(@JsonProperty("JMSMessageID") String id,
-                        @JsonProperty("JMSDestination") String destination) {
+                        @JsonProperty("JMSDestination") String destination,
+                        @JsonProperty("JMSRedelivered") boolean redelivered) {
         this.id = id;
         this.destination = destination;
+        this.redelivered = redelivered;
     }
 
     @JsonGetter("JMSMessageID")
@@ -26,17 +39,24 @@ public class HeadersModel {
         return destination;
     }
 
+    @JsonGetter("JMSRedelivered")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isRedelivered() {
+        return redelivered;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         HeadersModel model = (HeadersModel) o;
-        return Objects.equals(id, model.id) &&
+        return redelivered == model.redelivered &&
+                Objects.equals(id, model.id) &&
                 Objects.equals(destination, model.destination);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, destination);
+        return Objects.hash(id, destination, redelivered);
     }
 }
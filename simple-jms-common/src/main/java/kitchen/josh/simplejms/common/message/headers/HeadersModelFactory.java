@@ -5,7 +5,7 @@ import java.util.Optional;
 public class HeadersModelFactory {
 
     public HeadersModel create(Headers headers) {
-        return new HeadersModel(headers.getId(), convert(headers).orElse(null));
+        return new HeadersModel(headers.getId(), convert(headers).orElse(null), headers.isRedelivered());
     }
 
     private static Optional<String> convert(Headers headers) {
@@ -0,0 +1,446 @@
+package kitchen.josh.simplejms.common.message.properties;
+
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * {@link Properties} held in a small open-addressed table, with the same conversions as {@link PropertiesImpl}.
+ * <p>
+ * Each slot has the property's name, a tag for its type, and its value: booleans and integral values in a
+ * <code>long</code>, floating point values as the raw bits of a <code>double</code> in the same <code>long</code>, and
+ * strings as themselves, so setting a primitive property doesn't box it. Messages rarely carry more than a handful of
+ * properties, so the table starts small, is probed linearly, and doubles once it is three quarters full. Properties
+ * can only be cleared all together, so a slot is never removed on its own.
+ * <p>
+ * A slot is in use once it has a type, so a <code>null</code> name is held like any other, as it is by
+ * {@link PropertiesImpl}.
+ */
+public class CompactPropertiesImpl implements Properties {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final byte EMPTY = 0;
+    private static final byte BOOLEAN = 1;
+    private static final byte BYTE = 2;
+    private static final byte SHORT = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte FLOAT = 6;
+    private static final byte DOUBLE = 7;
+    private static final byte STRING = 8;
+
+    private String[] names;
+    private byte[] types;
+    private long[] longs;
+    private String[] strings;
+    private int size;
+    private boolean readOnly;
+
+    public CompactPropertiesImpl() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void clearProperties() {
+        checkWritable();
+        Arrays.fill(names, null);
+        Arrays.fill(types, EMPTY);
+        Arrays.fill(strings, null);
+        size = 0;
+    }
+
+    @Override
+    public boolean getBooleanProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                return Boolean.valueOf(null);
+            case BOOLEAN:
+                return longs[slot] != 0;
+            case STRING:
+                return Boolean.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setBooleanProperty(String name, boolean value) {
+        putLong(name, BOOLEAN, value ? 1 : 0);
+    }
+
+    @Override
+    public byte getByteProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NumberFormatException("null");
+            case BYTE:
+                return (byte) longs[slot];
+            case STRING:
+                return Byte.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setByteProperty(String name, byte value) {
+        putLong(name, BYTE, value);
+    }
+
+    @Override
+    public short getShortProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NumberFormatException("null");
+            case BYTE:
+            case SHORT:
+                return (short) longs[slot];
+            case STRING:
+                return Short.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setShortProperty(String name, short value) {
+        putLong(name, SHORT, value);
+    }
+
+    @Override
+    public int getIntProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NumberFormatException("null");
+            case BYTE:
+            case SHORT:
+            case INT:
+                return (int) longs[slot];
+            case STRING:
+                return Integer.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setIntProperty(String name, int value) {
+        putLong(name, INT, value);
+    }
+
+    @Override
+    public long getLongProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NumberFormatException("null");
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return longs[slot];
+            case STRING:
+                return Long.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setLongProperty(String name, long value) {
+        putLong(name, LONG, value);
+    }
+
+    @Override
+    public float getFloatProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NullPointerException();
+            case FLOAT:
+                return (float) Double.longBitsToDouble(longs[slot]);
+            case STRING:
+                return Float.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setFloatProperty(String name, float value) {
+        putDouble(name, FLOAT, value);
+    }
+
+    @Override
+    public double getDoubleProperty(String name) throws JMSException {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                throw new NullPointerException();
+            case FLOAT:
+            case DOUBLE:
+                return Double.longBitsToDouble(longs[slot]);
+            case STRING:
+                return Double.valueOf(strings[slot]);
+            default:
+                throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public void setDoubleProperty(String name, double value) {
+        putDouble(name, DOUBLE, value);
+    }
+
+    @Override
+    public String getStringProperty(String name) {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                return null;
+            case BOOLEAN:
+                return Boolean.toString(longs[slot] != 0);
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                return Long.toString(longs[slot]);
+            case FLOAT:
+                return Float.toString((float) Double.longBitsToDouble(longs[slot]));
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(longs[slot]));
+            default:
+                return strings[slot];
+        }
+    }
+
+    @Override
+    public void setStringProperty(String name, String value) {
+        int slot = claim(name);
+        types[slot] = STRING;
+        strings[slot] = value;
+    }
+
+    @Override
+    public Object getObjectProperty(String name) {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                return null;
+            case BOOLEAN:
+                return longs[slot] != 0;
+            case BYTE:
+                return (byte) longs[slot];
+            case SHORT:
+                return (short) longs[slot];
+            case INT:
+                return (int) longs[slot];
+            case LONG:
+                return longs[slot];
+            case FLOAT:
+                return (float) Double.longBitsToDouble(longs[slot]);
+            case DOUBLE:
+                return Double.longBitsToDouble(longs[slot]);
+            default:
+                return strings[slot];
+        }
+    }
+
+    @Override
+    public void setObjectProperty(String name, Object value) throws MessageFormatException {
+        Class<?> type = value.getClass();
+        if (type == Boolean.class) {
+            setBooleanProperty(name, (boolean) value);
+        } else if (type == Byte.class) {
+            setByteProperty(name, (byte) value);
+        } else if (type == Short.class) {
+            setShortProperty(name, (short) value);
+        } else if (type == Integer.class) {
+            setIntProperty(name, (int) value);
+        } else if (type == Long.class) {
+            setLongProperty(name, (long) value);
+        } else if (type == Float.class) {
+            setFloatProperty(name, (float) value);
+        } else if (type == Double.class) {
+            setDoubleProperty(name, (double) value);
+        } else if (type == String.class) {
+            setStringProperty(name, (String) value);
+        } else {
+            throw new MessageFormatException("");
+        }
+    }
+
+    @Override
+    public Enumeration<String> getPropertyNames() {
+        String[] found = new String[size];
+        int count = 0;
+        for (int slot = 0; slot < names.length; slot++) {
+            if (types[slot] != EMPTY) {
+                found[count++] = names[slot];
+            }
+        }
+        return new Enumeration<String>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < found.length;
+            }
+
+            @Override
+            public String nextElement() {
+                if (next == found.length) {
+                    throw new NoSuchElementException();
+                }
+                return found[next++];
+            }
+        };
+    }
+
+    @Override
+    public boolean propertyExists(String name) {
+        return find(name) >= 0;
+    }
+
+    @Override
+    public void visitProperty(String name, PropertyVisitor visitor) {
+        int slot = find(name);
+        switch (typeOf(slot)) {
+            case EMPTY:
+                visitor.visitNull();
+                break;
+            case BOOLEAN:
+                visitor.visitBoolean(longs[slot] != 0);
+                break;
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                visitor.visitLong(longs[slot]);
+                break;
+            case FLOAT:
+            case DOUBLE:
+                visitor.visitDouble(Double.longBitsToDouble(longs[slot]));
+                break;
+            default:
+                if (strings[slot] == null) {
+                    visitor.visitNull();
+                } else {
+                    visitor.visitString(strings[slot]);
+                }
+        }
+    }
+
+    @Override
+    public void makeReadOnly() {
+        readOnly = true;
+    }
+
+    int getCapacity() {
+        return names.length;
+    }
+
+    private void putLong(String name, byte type, long value) {
+        int slot = claim(name);
+        types[slot] = type;
+        longs[slot] = value;
+        strings[slot] = null;
+    }
+
+    private void putDouble(String name, byte type, double value) {
+        int slot = claim(name);
+        types[slot] = type;
+        longs[slot] = Double.doubleToRawLongBits(value);
+        strings[slot] = null;
+    }
+
+    /**
+     * Find the slot of a property.
+     *
+     * @return the slot, or <code>-1</code> if there is no property with the name
+     */
+    private int find(String name) {
+        int mask = names.length - 1;
+        for (int slot = hash(name) & mask; types[slot] != EMPTY; slot = (slot + 1) & mask) {
+            if (Objects.equals(names[slot], name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the slot of a property to set it, taking an empty slot if it isn't set yet.
+     */
+    private int claim(String name) {
+        checkWritable();
+        int slot = find(name);
+        if (slot >= 0) {
+            return slot;
+        }
+        if ((size + 1) * 4 > names.length * 3) {
+            grow();
+        }
+        int mask = names.length - 1;
+        slot = hash(name) & mask;
+        while (types[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        names[slot] = name;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        byte[] oldTypes = types;
+        long[] oldLongs = longs;
+        String[] oldStrings = strings;
+        allocate(oldNames.length * 2);
+        int mask = names.length - 1;
+        for (int old = 0; old < oldNames.length; old++) {
+            if (oldTypes[old] == EMPTY) {
+                continue;
+            }
+            int slot = hash(oldNames[old]) & mask;
+            while (types[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            names[slot] = oldNames[old];
+            types[slot] = oldTypes[old];
+            longs[slot] = oldLongs[old];
+            strings[slot] = oldStrings[old];
+        }
+    }
+
+    private void allocate(int capacity) {
+        names = new String[capacity];
+        types = new byte[capacity];
+        longs = new long[capacity];
+        strings = new String[capacity];
+    }
+
+    private byte typeOf(int slot) {
+        return slot < 0 ? EMPTY : types[slot];
+    }
+
+    private static int hash(String name) {
+        int hash = Objects.hashCode(name);
+        return hash ^ (hash >>> 16);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new MessageNotWriteableRuntimeException("Properties are read-only");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package kitchen.josh.simplejms.common.message.properties;
 
 import javax.jms.JMSException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.util.Enumeration;
 
 public interface Properties {
@@ -46,4 +47,20 @@ public interface Properties {
     Enumeration<String> getPropertyNames();
 
     boolean propertyExists(String name);
+
+    /**
+     * Pass the value of a property to a visitor as its primitive type, without boxing it.
+     * <p>
+     * The visitor's <code>visitNull</code> is called if the property doesn't exist or is a null string.
+     *
+     * @param name    the name of the property
+     * @param visitor the visitor to pass the value to
+     */
+    void visitProperty(String name, PropertyVisitor visitor);
+
+    /**
+     * Make the properties read-only, so that setting or clearing them throws a
+     * {@link MessageNotWriteableRuntimeException}.
+     */
+    void makeReadOnly();
 }
@@ -2,6 +2,7 @@ package kitchen.josh.simplejms.common.message.properties;
 
 import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.util.*;
 
 import static java.util.Collections.enumeration;
@@ -12,6 +13,7 @@ public class PropertiesImpl implements Properties {
             Boolean.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, String.class);
 
     private final Map<String, Object> properties;
+    private boolean readOnly;
 
     public PropertiesImpl() {
         this.properties = new HashMap<>();
@@ -19,6 +21,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void clearProperties() {
+        checkWritable();
         properties.clear();
     }
 
@@ -39,7 +42,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setBooleanProperty(String name, boolean value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -59,7 +62,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setByteProperty(String name, byte value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -82,7 +85,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setShortProperty(String name, short value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -108,7 +111,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setIntProperty(String name, int value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -137,7 +140,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setLongProperty(String name, long value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -157,7 +160,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setFloatProperty(String name, float value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -180,7 +183,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setDoubleProperty(String name, double value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -192,7 +195,7 @@ public class PropertiesImpl implements Properties {
 
     @Override
     public void setStringProperty(String name, String value) {
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -205,7 +208,7 @@ public class PropertiesImpl implements Properties {
         if (!PROPERTY_TYPES.contains(value.getClass())) {
             throw new MessageFormatException("");
         }
-        properties.put(name, value);
+        put(name, value);
     }
 
     @Override
@@ -217,4 +220,36 @@ public class PropertiesImpl implements Properties {
     public boolean propertyExists(String name) {
         return properties.containsKey(name);
     }
+
+    @Override
+    public void visitProperty(String name, PropertyVisitor visitor) {
+        Object value = properties.get(name);
+        if (value == null) {
+            visitor.visitNull();
+        } else if (value.getClass() == Boolean.class) {
+            visitor.visitBoolean((boolean) value);
+        } else if (value.getClass() == Float.class || value.getClass() == Double.class) {
+            visitor.visitDouble(((Number) value).doubleValue());
+        } else if (value.getClass() == String.class) {
+            visitor.visitString((String) value);
+        } else {
+            visitor.visitLong(((Number) value).longValue());
+        }
+    }
+
+    @Override
+    public void makeReadOnly() {
+        readOnly = true;
+    }
+
+    private void put(String name, Object value) {
+        checkWritable();
+        properties.put(name, value);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new MessageNotWriteableRuntimeException("Properties are read-only");
+        }
+    }
 }
@@ -2,149 +2,156 @@ package kitchen.josh.simplejms.common.message.properties;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Optional;
-
-import static org.springframework.util.NumberUtils.convertNumberToTargetClass;
 
+/**
+ * Reads a property's <code>name</code>, <code>type</code> and <code>value</code> straight from the parser's tokens.
+ * <p>
+ * The fields can be in any order, so the value's token is held in local variables until the type is known, instead of
+ * reading the property into a tree first. The only objects created are the name, the type and the boxed value.
+ */
 public class PropertyModelDeserializer extends JsonDeserializer<PropertyModel> {
 
     @Override
     public PropertyModel deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
-        try {
-            Map<String, JsonNode> properties = parseProperties(parser);
-            String name = parseName(parser, properties);
-            String type = parseType(parser, properties);
-            Object value = parseValue(parser, properties, type);
-            return new PropertyModel(name, type, value);
-        } catch (IllegalArgumentException iae) {
-            throw new JsonParseException(parser, iae.getMessage());
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Expected a property object");
         }
-    }
 
-    private static Map<String, JsonNode> parseProperties(JsonParser parser) throws IOException {
-        ObjectNode node = parser.readValueAsTree();
-        Map<String, JsonNode> properties = toMap(node.fields());
-        if (properties.size() != 3) {
+        String name = null;
+        String type = null;
+        boolean hasName = false;
+        boolean hasType = false;
+        boolean hasValue = false;
+        int fields = 0;
+
+        JsonToken valueToken = null;
+        JsonParser.NumberType numberType = null;
+        long longValue = 0;
+        double doubleValue = 0;
+        String textValue = null;
+
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            String field = parser.getCurrentName();
+            JsonToken fieldToken = parser.nextToken();
+            fields++;
+            switch (field) {
+                case "name":
+                    hasName = true;
+                    name = fieldToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    break;
+                case "type":
+                    hasType = true;
+                    type = fieldToken == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    break;
+                case "value":
+                    hasValue = true;
+                    valueToken = fieldToken;
+                    if (fieldToken == JsonToken.VALUE_NUMBER_INT) {
+                        numberType = parser.getNumberType();
+                        if (numberType != JsonParser.NumberType.BIG_INTEGER) {
+                            longValue = parser.getLongValue();
+                        }
+                    } else if (fieldToken == JsonToken.VALUE_NUMBER_FLOAT) {
+                        doubleValue = parser.getDoubleValue();
+                    } else if (fieldToken == JsonToken.VALUE_STRING) {
+                        textValue = parser.getText();
+                    }
+                    break;
+                default:
+                    break;
+            }
+            parser.skipChildren();
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Expected end of property object");
+        }
+        if (fields != 3 || !hasName || !hasType || !hasValue) {
             throw new JsonParseException(parser, "Expected 3 properties");
         }
-        return properties;
-    }
-
-    private static String parseName(JsonParser parser, Map<String, JsonNode> properties) throws JsonParseException {
-        return (String) parsePropertyByNameAndType(parser, properties, "name", "String");
-    }
-
-    private static String parseType(JsonParser parser, Map<String, JsonNode> properties) throws JsonParseException {
-        return (String) parsePropertyByNameAndType(parser, properties, "type", "String");
-    }
-
-    private static Object parseValue(JsonParser parser, Map<String, JsonNode> properties, String type) throws JsonParseException {
-        return parsePropertyByNameAndType(parser, properties, "value", type);
-    }
-
-    private static Object parsePropertyByNameAndType(JsonParser parser, Map<String, JsonNode> properties, String name, String type) throws JsonParseException {
-        return parseValueWithType(properties.get(name), type)
-                .orElseThrow(() -> new JsonParseException(parser, "Expected field name'" + type + "'"));
+        if (name == null) {
+            throw expectedField(parser, "String");
+        }
+        if (type == null) {
+            throw expectedField(parser, "String");
+        }
+        return new PropertyModel(name, type,
+                parseValue(parser, type, valueToken, numberType, longValue, doubleValue, textValue));
     }
 
-    private static Optional<?> parseValueWithType(JsonNode valueNode, String type) {
+    private static Object parseValue(JsonParser parser, String type, JsonToken token, JsonParser.NumberType numberType,
+                                     long longValue, double doubleValue, String textValue) throws JsonParseException {
+        boolean isInt = token == JsonToken.VALUE_NUMBER_INT && numberType == JsonParser.NumberType.INT;
         switch (type) {
             case "Boolean":
-                return parseBooleanValue(valueNode);
+                if (token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE) {
+                    return token == JsonToken.VALUE_TRUE;
+                }
+                break;
             case "Byte":
-                return parseByteValue(valueNode);
+                if (isInt) {
+                    return (byte) checkRange(parser, longValue, Byte.MIN_VALUE, Byte.MAX_VALUE, Byte.class);
+                }
+                break;
             case "Short":
-                return parseShortValue(valueNode);
+                if (isInt) {
+                    return (short) checkRange(parser, longValue, Short.MIN_VALUE, Short.MAX_VALUE, Short.class);
+                }
+                break;
             case "Integer":
-                return parseIntValue(valueNode);
+                if (isInt) {
+                    return (int) longValue;
+                }
+                break;
             case "Long":
-                return parseLongValue(valueNode);
+                if (isInt || token == JsonToken.VALUE_NUMBER_INT && numberType == JsonParser.NumberType.LONG) {
+                    return longValue;
+                }
+                break;
             case "Float":
-                return parseFloatValue(valueNode);
+                if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return doubleToFloat(parser, doubleValue);
+                }
+                break;
             case "Double":
-                return parseDoubleValue(valueNode);
+                if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    return doubleValue;
+                }
+                break;
             case "String":
-                return parseStringValue(valueNode);
+                if (token == JsonToken.VALUE_STRING) {
+                    return textValue;
+                }
+                break;
             default:
-                return Optional.empty();
+                break;
         }
+        throw expectedField(parser, type);
     }
 
-    private static Optional<Boolean> parseBooleanValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isBoolean)
-                .map(JsonNode::asBoolean);
-    }
-
-    private static Optional<Byte> parseByteValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isInt)
-                .map(n -> convertNumberToTargetClass(n.asInt(), Byte.class));
-    }
-
-    private static Optional<Short> parseShortValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isInt)
-                .map(n -> convertNumberToTargetClass(n.asInt(), Short.class));
-    }
-
-    private static Optional<Integer> parseIntValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isInt)
-                .map(JsonNode::asInt);
-    }
-
-    private static Optional<Long> parseLongValue(JsonNode node) {
-        if (node.isInt()) {
-            return Optional.of((long) node.asInt());
-        }
-        if (node.isLong()) {
-            return Optional.of(node.asLong());
+    private static long checkRange(JsonParser parser, long value, long min, long max, Class<?> target) throws JsonParseException {
+        if (value < min || value > max) {
+            throw new JsonParseException(parser, "Could not convert number [" + value + "] of type [java.lang.Integer] " +
+                    "to target class [" + target.getName() + "]: overflow");
         }
-        return Optional.empty();
+        return value;
     }
 
-    private static Optional<Float> parseFloatValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isDouble)
-                .map(JsonNode::asDouble)
-                .map(PropertyModelDeserializer::doubleToFloat);
-    }
-
-    private static Optional<Double> parseDoubleValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isDouble)
-                .map(JsonNode::asDouble);
-    }
-
-    private static Optional<String> parseStringValue(JsonNode node) {
-        return Optional.ofNullable(node)
-                .filter(JsonNode::isTextual)
-                .map(JsonNode::asText);
-    }
-
-    private static <K, V> Map<K, V> toMap(Iterator<Map.Entry<K, V>> iterator) {
-        Map<K, V> map = new HashMap<>();
-        while (iterator.hasNext()) {
-            Map.Entry<K, V> entry = iterator.next();
-            map.put(entry.getKey(), entry.getValue());
-        }
-        return map;
+    private static JsonParseException expectedField(JsonParser parser, String type) {
+        return new JsonParseException(parser, "Expected field name'" + type + "'");
     }
 
-    private static float doubleToFloat(double d) {
+    private static float doubleToFloat(JsonParser parser, double d) throws JsonParseException {
         float f = Float.parseFloat(Double.toString(d));
         if (!Float.toString(f).equals(Double.toString(d))) {
-            throw new IllegalArgumentException("loss of precision casting double to float");
+            throw new JsonParseException(parser, "loss of precision casting double to float");
         }
         return f;
     }
@@ -0,0 +1,22 @@
+package kitchen.josh.simplejms.common.message.properties;
+
+/**
+ * Receives the value of a property as its primitive type, so it can be read without boxing.
+ * <p>
+ * Byte, short, int and long values are all passed as a <code>long</code>, float and double values as a
+ * <code>double</code>.
+ *
+ * @see Properties#visitProperty(String, PropertyVisitor)
+ */
+public interface PropertyVisitor {
+
+    void visitNull();
+
+    void visitBoolean(boolean value);
+
+    void visitLong(long value);
+
+    void visitDouble(double value);
+
+    void visitString(String value);
+}
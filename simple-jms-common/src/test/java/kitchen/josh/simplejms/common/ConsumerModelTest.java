@@ -0,0 +1,70 @@
+package kitchen.josh.simplejms.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.skyscreamer.jsonassert.JSONAssert.assertEquals;
+
+public class ConsumerModelTest {
+
+    private static final UUID ID = UUID.randomUUID();
+    private static final String SELECTOR = "colour = 'red' AND weight > 2.5";
+
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    public void readValue() throws Exception {
+        String json = "{\"destination\": \"topic:" + ID + "\", \"selector\": \"" + SELECTOR + "\"}";
+
+        ConsumerModel actual = objectMapper.readValue(json, ConsumerModel.class);
+
+        assertThat(actual).isEqualTo(new ConsumerModel(new Destination(DestinationType.TOPIC, ID), SELECTOR));
+    }
+
+    @Test
+    public void readValue_noSelector_nullSelector() throws Exception {
+        String json = "{\"destination\": \"queue:" + ID + "\"}";
+
+        ConsumerModel actual = objectMapper.readValue(json, ConsumerModel.class);
+
+        assertThat(actual).isEqualTo(new ConsumerModel(new Destination(DestinationType.QUEUE, ID), null));
+    }
+
+    @Test
+    public void readValue_invalidDestination_throws() {
+        String json = "{\"destination\": \"topic:abc\", \"selector\": \"" + SELECTOR + "\"}";
+
+        assertThatExceptionOfType(JsonProcessingException.class).isThrownBy(() -> objectMapper.readValue(json, ConsumerModel.class));
+    }
+
+    @Test
+    public void writeValueAsString() throws Exception {
+        ConsumerModel model = new ConsumerModel(new Destination(DestinationType.QUEUE, ID), SELECTOR);
+        String expected = "{\"destination\": \"queue:" + ID + "\", \"selector\": \"" + SELECTOR + "\"}";
+
+        String actual = objectMapper.writeValueAsString(model);
+
+        assertEquals(expected, actual, true);
+    }
+
+    @Test
+    public void writeValueAsString_noSelector_writesDestinationOnly() throws Exception {
+        ConsumerModel model = new ConsumerModel(new Destination(DestinationType.QUEUE, ID), null);
+        String expected = "{\"destination\": \"queue:" + ID + "\"}";
+
+        String actual = objectMapper.writeValueAsString(model);
+
+        assertEquals(expected, actual, true);
+    }
+}
@@ -0,0 +1,40 @@
+package kitchen.josh.simplejms.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.skyscreamer.jsonassert.JSONAssert.assertEquals;
+
+public class CreditModelTest {
+
+    private static final int CREDIT = 16;
+
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+    }
+
+    @Test
+    public void readValue() throws Exception {
+        String json = "{\"credit\": " + CREDIT + "}";
+        CreditModel expected = new CreditModel(CREDIT);
+
+        CreditModel actual = objectMapper.readValue(json, CreditModel.class);
+
+        assertThat(actual).isEqualToComparingFieldByField(expected);
+    }
+
+    @Test
+    public void writeValueAsString() throws Exception {
+        CreditModel model = new CreditModel(CREDIT);
+        String expected = "{\"credit\": " + CREDIT + "}";
+
+        String actual = objectMapper.writeValueAsString(model);
+
+        assertEquals(expected, actual, true);
+    }
+}
@@ -0,0 +1,175 @@
+package kitchen.josh.simplejms.common.message;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kitchen.josh.simplejms.common.message.body.ObjectBodyModel;
+import kitchen.josh.simplejms.common.message.body.TextBodyModel;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import kitchen.josh.simplejms.common.message.properties.PropertyModel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class BinaryMessageCodecTest {
+
+    private static final List<PropertyModel> PROPERTIES = Arrays.asList(
+            new PropertyModel("boolean", "Boolean", true),
+            new PropertyModel("byte", "Byte", (byte) -12),
+            new PropertyModel("short", "Short", (short) 1234),
+            new PropertyModel("integer", "Integer", -123456),
+            new PropertyModel("long", "Long", 12345678901L),
+            new PropertyModel("float", "Float", 1.5f),
+            new PropertyModel("double", "Double", 2.25),
+            new PropertyModel("string", "String", "héllo wörld"));
+
+    private BinaryMessageCodec codec;
+
+    @Before
+    public void setUp() {
+        codec = new BinaryMessageCodec();
+    }
+
+    @Test
+    public void decode_textMessage_returnsEqualMessage() throws Exception {
+        MessageModel message = new MessageModel(new HeadersModel("ID:1234", "queue:abcd"), PROPERTIES, new TextBodyModel("hello world"));
+
+        assertThat(roundTrip(message)).isEqualTo(message);
+    }
+
+    @Test
+    public void decode_redelivered_returnsRedelivered() throws Exception {
+        MessageModel message = new MessageModel(new HeadersModel("ID:1234", "queue:abcd", true), PROPERTIES, new TextBodyModel("hello world"));
+
+        assertThat(roundTrip(message)).isEqualTo(message);
+        assertThat(roundTrip(message).getHeaders().isRedelivered()).isTrue();
+    }
+
+    @Test
+    public void decode_objectMessage_returnsSameBytes() throws Exception {
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        MessageModel message = new MessageModel(new HeadersModel(null, null), emptyList(), new ObjectBodyModel(bytes));
+
+        MessageModel decoded = roundTrip(message);
+
+        assertThat(decoded.getHeaders()).isEqualTo(message.getHeaders());
+        assertThat(decoded.getProperties()).isEmpty();
+        assertThat(((ObjectBodyModel) decoded.getBody()).getBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    public void decode_nulls_returnsNulls() throws Exception {
+        MessageModel message = new MessageModel(null, null, null);
+
+        assertThat(roundTrip(message)).isEqualTo(message);
+    }
+
+    @Test
+    public void decode_nullText_returnsNullText() throws Exception {
+        MessageModel message = new MessageModel(null, emptyList(), new TextBodyModel(null));
+
+        assertThat(roundTrip(message)).isEqualTo(message);
+    }
+
+    @Test
+    public void decode_nullPropertyValues_returnsNullValuesOfSameType() throws Exception {
+        MessageModel message = new MessageModel(null, Arrays.asList(
+                new PropertyModel("integer", "Integer", null),
+                new PropertyModel("string", "String", null)), null);
+
+        assertThat(roundTrip(message)).isEqualTo(message);
+    }
+
+    @Test
+    public void decode_lengthLongerThanInput_throwsEOF() {
+        // Headers present, then an id claiming to be about 2GB long, followed by only a few bytes.
+        byte[] encoded = {1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 'I', 'D'};
+
+        assertThatExceptionOfType(EOFException.class).isThrownBy(() -> codec.decode(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void decode_objectBodyLongerThanInitialCapacity_returnsSameBytes() throws Exception {
+        byte[] bytes = new byte[100_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        MessageModel message = new MessageModel(null, emptyList(), new ObjectBodyModel(bytes));
+
+        assertThat(((ObjectBodyModel) roundTrip(message).getBody()).getBytes()).isEqualTo(bytes);
+    }
+
+    @Test
+    public void decodeList_countLongerThanInput_throwsEOF() {
+        byte[] encoded = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0};
+
+        assertThatExceptionOfType(EOFException.class).isThrownBy(() -> codec.decodeList(new ByteArrayInputStream(encoded)));
+    }
+
+    @Test
+    public void decodeList_returnsMessagesInOrder() throws Exception {
+        List<MessageModel> messages = Arrays.asList(
+                new MessageModel(new HeadersModel("ID:1", "topic:abcd"), PROPERTIES, new TextBodyModel("first")),
+                new MessageModel(null, emptyList(), null),
+                new MessageModel(new HeadersModel("ID:2", "topic:abcd"), emptyList(), new TextBodyModel("second")));
+
+        List<MessageModel> decoded = codec.decodeList(new ByteArrayInputStream(codec.encode(messages)));
+
+        assertThat(decoded).containsExactlyElementsOf(messages);
+    }
+
+    @Test
+    public void join_isSameAsEncodingList() {
+        MessageModel first = new MessageModel(new HeadersModel("ID:1", "topic:abcd"), PROPERTIES, new TextBodyModel("first"));
+        MessageModel second = new MessageModel(null, emptyList(), null);
+
+        assertThat(codec.join(Arrays.asList(codec.encode(first), codec.encode(second))))
+                .isEqualTo(codec.encode(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void encode_isSmallerThanJson() throws Exception {
+        MessageModel message = new MessageModel(new HeadersModel("ID:1234", "queue:abcd"), PROPERTIES, new ObjectBodyModel(new byte[1024]));
+
+        assertThat(codec.encode(message).length).isLessThan(new ObjectMapper().writeValueAsBytes(message).length);
+    }
+
+    @Test
+    public void encode_unknownPropertyType_throwsIllegalArgument() {
+        MessageModel message = new MessageModel(null, Arrays.asList(new PropertyModel("a", "Character", 'a')), null);
+
+        assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> codec.encode(message));
+    }
+
+    @Test
+    public void decode_truncated_throwsEOF() {
+        byte[] encoded = codec.encode(new MessageModel(new HeadersModel("ID:1234", "queue:abcd"), PROPERTIES, new TextBodyModel("hello")));
+
+        assertThatExceptionOfType(EOFException.class)
+                .isThrownBy(() -> codec.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 2))));
+    }
+
+    @Test
+    public void decode_unknownBodyTag_throwsIOException() {
+        byte[] encoded = codec.encode(new MessageModel(null, null, null));
+        encoded[encoded.length - 1] = 9;
+
+        assertThatExceptionOfType(IOException.class)
+                .isThrownBy(() -> codec.decode(new ByteArrayInputStream(encoded)))
+                .withMessage("Unknown body type tag 9");
+    }
+
+    private MessageModel roundTrip(MessageModel message) throws IOException {
+        return codec.decode(new ByteArrayInputStream(codec.encode(message)));
+    }
+}
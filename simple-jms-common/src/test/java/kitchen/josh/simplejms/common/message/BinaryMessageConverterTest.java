@@ -0,0 +1,103 @@
+package kitchen.josh.simplejms.common.message;
+
+import kitchen.josh.simplejms.common.DestinationModel;
+import kitchen.josh.simplejms.common.message.body.TextBodyModel;
+import kitchen.josh.simplejms.common.message.headers.HeadersModel;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class BinaryMessageConverterTest {
+
+    private static final Type MESSAGE_LIST = new ParameterizedTypeReference<List<MessageModel>>() {
+    }.getType();
+    private static final Type MESSAGE_SET = new ParameterizedTypeReference<Set<MessageModel>>() {
+    }.getType();
+    private static final MessageModel MESSAGE = new MessageModel(new HeadersModel("ID:1234", "queue:abcd"), emptyList(), new TextBodyModel("hello world"));
+
+    private BinaryMessageCodec codec;
+    private BinaryMessageConverter converter;
+
+    @Before
+    public void setUp() {
+        codec = new BinaryMessageCodec();
+        converter = new BinaryMessageConverter(codec);
+    }
+
+    @Test
+    public void canReadAndWrite_messages_true() {
+        assertThat(converter.canRead(MessageModel.class, BinaryMessageConverter.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(MessageModel.class, BinaryMessageConverter.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canRead(MessageModel[].class, BinaryMessageConverter.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canRead(MESSAGE_LIST, null, BinaryMessageConverter.MEDIA_TYPE)).isTrue();
+        assertThat(converter.canWrite(MESSAGE_LIST, List.class, BinaryMessageConverter.MEDIA_TYPE)).isTrue();
+    }
+
+    @Test
+    public void canReadAndWrite_otherTypes_false() {
+        assertThat(converter.canRead(DestinationModel.class, BinaryMessageConverter.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(DestinationModel.class, BinaryMessageConverter.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canRead(MESSAGE_SET, null, BinaryMessageConverter.MEDIA_TYPE)).isFalse();
+        assertThat(converter.canWrite(List.class, List.class, BinaryMessageConverter.MEDIA_TYPE)).isFalse();
+    }
+
+    @Test
+    public void canReadAndWrite_json_false() {
+        assertThat(converter.canRead(MessageModel.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(MessageModel.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    public void write_message_writesEncodedMessageWithLength() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(MESSAGE, BinaryMessageConverter.MEDIA_TYPE, output);
+
+        assertThat(output.getBodyAsBytes()).isEqualTo(codec.encode(MESSAGE));
+        assertThat(output.getHeaders().getContentType()).isEqualTo(BinaryMessageConverter.MEDIA_TYPE);
+        assertThat(output.getHeaders().getContentLength()).isEqualTo(codec.encode(MESSAGE).length);
+    }
+
+    @Test
+    public void write_array_writesEncodedList() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        converter.write(new MessageModel[]{MESSAGE, MESSAGE}, BinaryMessageConverter.MEDIA_TYPE, output);
+
+        assertThat(output.getBodyAsBytes()).isEqualTo(codec.encode(Arrays.asList(MESSAGE, MESSAGE)));
+    }
+
+    @Test
+    public void read_message_returnsDecodedMessage() throws Exception {
+        Object read = converter.read(MessageModel.class, null, new MockHttpInputMessage(codec.encode(MESSAGE)));
+
+        assertThat(read).isEqualTo(MESSAGE);
+    }
+
+    @Test
+    public void read_list_returnsDecodedList() throws Exception {
+        byte[] encoded = codec.encode(Arrays.asList(MESSAGE, MESSAGE));
+
+        assertThat(converter.read(MESSAGE_LIST, null, new MockHttpInputMessage(encoded))).isEqualTo(Arrays.asList(MESSAGE, MESSAGE));
+        assertThat((MessageModel[]) converter.read(MessageModel[].class, null, new MockHttpInputMessage(encoded))).containsExactly(MESSAGE, MESSAGE);
+    }
+
+    @Test
+    public void read_malformed_throwsNotReadable() {
+        assertThatExceptionOfType(HttpMessageNotReadableException.class)
+                .isThrownBy(() -> converter.read(MessageModel.class, null, new MockHttpInputMessage(new byte[]{1, 5})));
+    }
+}
@@ -5,6 +5,7 @@ import kitchen.josh.simplejms.common.DestinationType;
 import kitchen.josh.simplejms.common.message.body.ObjectBody;
 import kitchen.josh.simplejms.common.message.headers.Headers;
 import kitchen.josh.simplejms.common.message.properties.Properties;
+import kitchen.josh.simplejms.common.message.properties.PropertyVisitor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -77,6 +78,22 @@ public class ObjectMessageTest {
         verify(headers).setDestination(destination);
     }
 
+    @Test
+    public void isRedelivered() {
+        when(headers.isRedelivered()).thenReturn(true);
+
+        assertThat(objectMessage.isRedelivered()).isTrue();
+
+        verify(headers).isRedelivered();
+    }
+
+    @Test
+    public void setRedelivered() {
+        objectMessage.setRedelivered(true);
+
+        verify(headers).setRedelivered(true);
+    }
+
     @Test
     public void clearProperties() {
         objectMessage.clearProperties();
@@ -344,6 +361,16 @@ public class ObjectMessageTest {
         verifyNoMoreInteractions(properties, objectBody);
     }
 
+    @Test
+    public void visitProperty() {
+        PropertyVisitor visitor = mock(PropertyVisitor.class);
+
+        objectMessage.visitProperty("property", visitor);
+
+        verify(properties).visitProperty("property", visitor);
+        verifyNoMoreInteractions(properties, objectBody);
+    }
+
     @Test
     public void clearBody() {
         objectMessage.clearBody();
@@ -384,7 +411,7 @@ public class ObjectMessageTest {
     }
 
     @Test
-    public void getObject() {
+    public void getObject() throws MessageFormatException {
         when(objectBody.getObject()).thenReturn(2);
 
         assertThat(objectMessage.getObject()).isEqualTo(2);
@@ -400,4 +427,14 @@ public class ObjectMessageTest {
         verify(objectBody).setObject(2);
         verifyNoMoreInteractions(properties, objectBody);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void makeReadOnly_makesHeadersPropertiesAndBodyReadOnly() {
+        objectMessage.makeReadOnly();
+
+        verify(headers).makeReadOnly();
+        verify(properties).makeReadOnly();
+        verify(objectBody).makeReadOnly();
+        verifyNoMoreInteractions(headers, properties, objectBody);
+    }
+}
@@ -5,6 +5,7 @@ import kitchen.josh.simplejms.common.DestinationType;
 import kitchen.josh.simplejms.common.message.body.TextBody;
 import kitchen.josh.simplejms.common.message.headers.Headers;
 import kitchen.josh.simplejms.common.message.properties.Properties;
+import kitchen.josh.simplejms.common.message.properties.PropertyVisitor;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -76,6 +77,22 @@ public class TextMessageTest {
         verify(headers).setDestination(destination);
     }
 
+    @Test
+    public void isRedelivered() {
+        when(headers.isRedelivered()).thenReturn(true);
+
+        assertThat(textMessage.isRedelivered()).isTrue();
+
+        verify(headers).isRedelivered();
+    }
+
+    @Test
+    public void setRedelivered() {
+        textMessage.setRedelivered(true);
+
+        verify(headers).setRedelivered(true);
+    }
+
     @Test
     public void clearProperties() {
         textMessage.clearProperties();
@@ -344,6 +361,16 @@ public class TextMessageTest {
         verifyNoMoreInteractions(properties, textBody);
     }
 
+    @Test
+    public void visitProperty() {
+        PropertyVisitor visitor = mock(PropertyVisitor.class);
+
+        textMessage.visitProperty("property", visitor);
+
+        verify(properties).visitProperty("property", visitor);
+        verifyNoMoreInteractions(properties, textBody);
+    }
+
     @Test
     public void clearBody() {
         textMessage.clearBody();
@@ -400,4 +427,14 @@ public class TextMessageTest {
         verify(textBody).setText("hello world");
         verifyNoMoreInteractions(properties, textBody);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void makeReadOnly_makesHeadersPropertiesAndBodyReadOnly() {
+        textMessage.makeReadOnly();
+
+        verify(headers).makeReadOnly();
+        verify(properties).makeReadOnly();
+        verify(textBody).makeReadOnly();
+        verifyNoMoreInteractions(headers, properties, textBody);
+    }
+}
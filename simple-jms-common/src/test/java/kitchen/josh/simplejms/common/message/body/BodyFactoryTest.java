@@ -4,8 +4,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.springframework.util.SerializationUtils.serialize;
 
 public class BodyFactoryTest {
@@ -38,4 +40,27 @@ public class BodyFactoryTest {
 
         assertThat(body).isEqualToComparingFieldByField(new ObjectBody(OBJECT));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void create_objectBodyModel_keepsBytesWithoutDeserializing() {
+        byte[] bytes = serializedObjectOfMissingClass();
+
+        Body body = bodyFactory.create(new ObjectBodyModel(bytes));
+
+        assertThat(((ObjectBody) body).getBytes()).isSameAs(bytes);
+        assertThat(new BodyModelFactory().create(body)).isEqualToComparingFieldByField(new ObjectBodyModel(bytes));
+        assertThatThrownBy(((ObjectBody) body)::getObject).hasCauseInstanceOf(ClassNotFoundException.class);
+    }
+
+    /**
+     * Serializes a {@link Payload} and renames its class to one that doesn't exist, like an object sent by a client
+     * whose classes aren't on this classpath.
+     */
+    private static byte[] serializedObjectOfMissingClass() {
+        String serialized = new String(serialize(new Payload()), StandardCharsets.ISO_8859_1);
+        return serialized.replace("$Payload", "$Missing").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static class Payload implements Serializable {
+    }
+}
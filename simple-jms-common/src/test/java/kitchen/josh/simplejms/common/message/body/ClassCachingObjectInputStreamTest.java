@@ -0,0 +1,69 @@
+package kitchen.josh.simplejms.common.message.body;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.util.SerializationUtils.serialize;
+
+public class ClassCachingObjectInputStreamTest {
+
+    @Test
+    public void readObject_readsObject() throws Exception {
+        assertThat(read(serialize(new Payload("hello")))).isEqualToComparingFieldByField(new Payload("hello"));
+    }
+
+    @Test
+    public void readObject_cachesResolvedClasses() throws Exception {
+        read(serialize(new Payload("hello")));
+
+        assertThat(ClassCachingObjectInputStream.cachedClass(Payload.class.getName())).isSameAs(Payload.class);
+    }
+
+    @Test
+    public void readObject_primitiveArray_resolvesAsUsual() throws Exception {
+        assertThat(read(serialize(new int[]{1, 2}))).isEqualTo(new int[]{1, 2});
+    }
+
+    @Test
+    public void readObject_otherContextClassLoader_resolvesSameClassAsObjectInputStream() throws Exception {
+        byte[] bytes = serialize(new Payload("hello"));
+        URL classes = Payload.class.getProtectionDomain().getCodeSource().getLocation();
+        ClassLoader original = Thread.currentThread().getContextClassLoader();
+
+        try (URLClassLoader other = new URLClassLoader(new URL[]{classes}, ClassLoader.getSystemClassLoader().getParent())) {
+            Thread.currentThread().setContextClassLoader(other);
+            Object read = read(bytes);
+            Object readUncached;
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                readUncached = input.readObject();
+            }
+
+            assertThat(read).isInstanceOf(Payload.class);
+            assertThat(read.getClass()).isSameAs(readUncached.getClass());
+        } finally {
+            Thread.currentThread().setContextClassLoader(original);
+        }
+    }
+
+    private static Object read(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ClassCachingObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return input.readObject();
+        }
+    }
+
+    private static class Payload implements Serializable {
+
+        private final String text;
+
+        private Payload(String text) {
+            this.text = text;
+        }
+    }
+}
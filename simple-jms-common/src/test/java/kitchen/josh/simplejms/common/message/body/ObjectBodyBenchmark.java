@@ -0,0 +1,95 @@
+package kitchen.josh.simplejms.common.message.body;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.jms.MessageFormatException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.SerializationUtils.deserialize;
+import static org.springframework.util.SerializationUtils.serialize;
+
+/**
+ * Measures reading the object from an object message the way a client does, checking the body is assignable and then
+ * getting it:
+ * <ul>
+ * <li><code>sameBody</code> reads the same body over and over, as repeated access to one message does</li>
+ * <li><code>newBody</code> reads a new body each time, as receiving a new message with the same payload type does</li>
+ * <li><code>deserializeEachAccess</code> deserializes for each call with a plain <code>ObjectInputStream</code>, as
+ * {@link ObjectBody} did before it kept the object</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ObjectBodyBenchmark {
+
+    private byte[] bytes;
+    private ObjectBody body;
+
+    @Setup
+    public void setUp() {
+        bytes = serialize(new Order());
+        body = ObjectBody.fromBytes(bytes);
+    }
+
+    @Benchmark
+    public Order sameBody() throws MessageFormatException {
+        return read(body);
+    }
+
+    @Benchmark
+    public Order newBody() throws MessageFormatException {
+        return read(ObjectBody.fromBytes(bytes));
+    }
+
+    @Benchmark
+    public Order deserializeEachAccess() {
+        if (!(deserialize(bytes) instanceof Order)) {
+            throw new IllegalStateException();
+        }
+        return (Order) deserialize(bytes);
+    }
+
+    private static Order read(ObjectBody body) throws MessageFormatException {
+        if (!body.isBodyAssignableTo(Order.class)) {
+            throw new IllegalStateException();
+        }
+        return body.getBody(Order.class);
+    }
+
+    public static class Order implements Serializable {
+
+        private final String id = "order-1234";
+        private final Map<String, String> attributes = new HashMap<>();
+        private final List<Line> lines = new ArrayList<>();
+
+        private Order() {
+            attributes.put("customer", "customer-5678");
+            attributes.put("channel", "web");
+            for (int i = 0; i < 5; i++) {
+                lines.add(new Line("sku-" + i, i + 1, 9.99 * i));
+            }
+        }
+    }
+
+    public static class Line implements Serializable {
+
+        private final String sku;
+        private final int quantity;
+        private final double price;
+
+        private Line(String sku, int quantity, double price) {
+            this.sku = sku;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+}
@@ -4,6 +4,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.List;
 import java.util.UUID;
@@ -21,14 +24,87 @@ public class ObjectBodyTest {
     }
 
     @Test
-    public void setObject_canReadObject() {
+    public void setObject_canReadObject() throws MessageFormatException {
         objectBody.setObject(2);
 
         assertThat(objectBody.getObject()).isEqualTo(2);
     }
 
     @Test
-    public void clearBody_objectIsNull() {
+    public void fromBytes_canReadObject() throws MessageFormatException {
+        objectBody = ObjectBody.fromBytes(new ObjectBody(2).getBytes());
+
+        assertThat(objectBody.getObject()).isEqualTo(2);
+    }
+
+    @Test
+    public void getObject_calledTwice_returnsSeparateCopies() throws MessageFormatException {
+        objectBody.setObject(new StringBuilder("hello"));
+
+        StringBuilder first = (StringBuilder) objectBody.getObject();
+        first.append(" world");
+
+        assertThat(objectBody.getObject()).isNotSameAs(first).hasToString("hello");
+    }
+
+    @Test
+    public void getObject_afterIsBodyAssignable_deserializesOnce() throws MessageFormatException {
+        objectBody.setObject(new Counted());
+        Counted.reads = 0;
+
+        objectBody.isBodyAssignableTo(Counted.class);
+        objectBody.getObject();
+
+        assertThat(Counted.reads).isEqualTo(1);
+    }
+
+    @Test
+    public void getObject_cannotDeserialize_throwsMessageFormat() {
+        objectBody = ObjectBody.fromBytes(new byte[]{1, 2, 3});
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(objectBody::getObject)
+                .withCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void isBodyAssignable_cannotDeserialize_returnsFalse() {
+        objectBody = ObjectBody.fromBytes(new byte[]{1, 2, 3});
+
+        assertThat(objectBody.isBodyAssignableTo(Serializable.class)).isFalse();
+    }
+
+    @Test
+    public void setObject_afterRead_readsNewObject() throws MessageFormatException {
+        objectBody.setObject(2);
+        objectBody.getObject();
+
+        objectBody.setObject(3);
+
+        assertThat(objectBody.getObject()).isEqualTo(3);
+    }
+
+    @Test
+    public void setObject_objectChangedAfterSet_readsObjectAsSet() throws MessageFormatException {
+        StringBuilder object = new StringBuilder("hello");
+        objectBody.setObject(object);
+
+        object.append(" world");
+
+        assertThat(objectBody.getObject().toString()).isEqualTo("hello");
+    }
+
+    @Test
+    public void clearBody_afterRead_objectIsNull() throws MessageFormatException {
+        objectBody.setObject(2);
+        objectBody.getObject();
+
+        objectBody.clearBody();
+
+        assertThat(objectBody.getObject()).isNull();
+    }
+
+    @Test
+    public void clearBody_objectIsNull() throws MessageFormatException {
         objectBody.setObject(2);
 
         objectBody.clearBody();
@@ -101,4 +177,25 @@ public class ObjectBodyTest {
         assertThat(objectBody.isBodyAssignableTo(UUID.class)).isTrue();
         assertThat(objectBody.isBodyAssignableTo(List.class)).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void makeReadOnly_setOrClearObject_throwsNotWriteable() throws MessageFormatException {
+        objectBody.setObject(2);
+
+        objectBody.makeReadOnly();
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> objectBody.setObject(3));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(objectBody::clearBody);
+        assertThat(objectBody.getObject()).isEqualTo(2);
+    }
+
+    private static class Counted implements Serializable {
+
+        private static int reads;
+
+        private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+            input.defaultReadObject();
+            reads++;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -104,4 +105,15 @@ public class TextBodyTest {
         assertThat(textBody.isBodyAssignableTo(LocalDateTime.class)).isTrue();
         assertThat(textBody.isBodyAssignableTo(List.class)).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void makeReadOnly_setOrClearText_throwsNotWriteable() {
+        TextBody textBody = new TextBody("hello world");
+
+        textBody.makeReadOnly();
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> textBody.setText("abcd"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(textBody::clearBody);
+        assertThat(textBody.getText()).isEqualTo("hello world");
+    }
+}
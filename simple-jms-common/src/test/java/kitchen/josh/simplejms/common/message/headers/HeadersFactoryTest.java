@@ -32,4 +32,11 @@ public class HeadersFactoryTest {
 
         assertThat(actual).isEqualToComparingFieldByField(expected);
     }
+
+    @Test
+    public void create_redelivered() {
+        Headers actual = headersFactory.create(new HeadersModel(MESSAGE_ID, DESTINATION_STRING, true));
+
+        assertThat(actual.isRedelivered()).isTrue();
+    }
 }
\ No newline at end of file
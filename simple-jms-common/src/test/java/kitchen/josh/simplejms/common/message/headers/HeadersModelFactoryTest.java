@@ -32,4 +32,16 @@ public class HeadersModelFactoryTest {
 
         assertThat(model).isEqualToComparingFieldByField(new HeadersModel(MESSAGE_ID, DESTINATION_STRING));
     }
+
+    @Test
+    public void create_redelivered() {
+        Headers headers = new HeadersImpl();
+        headers.setId(MESSAGE_ID);
+        headers.setDestination(DESTINATION);
+        headers.setRedelivered(true);
+
+        HeadersModel model = headersModelFactory.create(headers);
+
+        assertThat(model).isEqualToComparingFieldByField(new HeadersModel(MESSAGE_ID, DESTINATION_STRING, true));
+    }
 }
\ No newline at end of file
@@ -40,4 +40,23 @@ public class HeadersModelTest {
 
         assertEquals(expected, actual, true);
     }
+
+    @Test
+    public void readValue_redelivered() throws Exception {
+        String json = "{\"JMSMessageID\": \"ID:" + ID + "\", \"JMSDestination\": \"topic:" + TOPIC + "\", \"JMSRedelivered\": true}";
+
+        HeadersModel actual = objectMapper.readValue(json, HeadersModel.class);
+
+        assertThat(actual).isEqualToComparingFieldByField(new HeadersModel("ID:" + ID, "topic:" + TOPIC, true));
+    }
+
+    @Test
+    public void writeValueAsString_redelivered() throws Exception {
+        HeadersModel model = new HeadersModel("ID:" + ID, "topic:" + TOPIC, true);
+        String expected = "{\"JMSMessageID\": \"ID:" + ID + "\", \"JMSDestination\": \"topic:" + TOPIC + "\", \"JMSRedelivered\": true}";
+
+        String actual = objectMapper.writeValueAsString(model);
+
+        assertEquals(expected, actual, true);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,365 @@
+package kitchen.josh.simplejms.common.message.properties;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import javax.jms.JMSException;
+import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.list;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+public class CompactPropertiesImplTest {
+
+    private static final String PROPERTY_1 = "hello";
+    private static final String PROPERTY_2 = "world";
+
+    private CompactPropertiesImpl properties;
+
+    @Before
+    public void setUp() {
+        properties = new CompactPropertiesImpl();
+    }
+
+    @Test
+    public void clearProperties_noProperties_doesNothing() {
+        properties.clearProperties();
+
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isNull();
+        assertThat(properties.getObjectProperty(PROPERTY_2)).isNull();
+    }
+
+    @Test
+    public void clearProperties_propertiesExist_removesProperties() {
+        properties.setBooleanProperty(PROPERTY_1, true);
+        properties.setDoubleProperty(PROPERTY_2, 2.3);
+
+        properties.clearProperties();
+
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isNull();
+        assertThat(properties.getObjectProperty(PROPERTY_2)).isNull();
+    }
+
+    @Test
+    public void booleanProperty_conversions() throws JMSException {
+        properties.setBooleanProperty(PROPERTY_1, false);
+
+        assertThat(properties.getBooleanProperty(PROPERTY_1)).isFalse();
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("false");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo(false);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getLongProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void byteProperty_conversions() throws JMSException {
+        properties.setByteProperty(PROPERTY_1, (byte) 3);
+
+        assertThat(properties.getByteProperty(PROPERTY_1)).isEqualTo((byte) 3);
+        assertThat(properties.getShortProperty(PROPERTY_1)).isEqualTo((short) 3);
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo(3);
+        assertThat(properties.getLongProperty(PROPERTY_1)).isEqualTo((long) 3);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("3");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo((byte) 3);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void shortProperty_conversions() throws JMSException {
+        properties.setShortProperty(PROPERTY_1, (short) 3);
+
+        assertThat(properties.getShortProperty(PROPERTY_1)).isEqualTo((short) 3);
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo((int) 3);
+        assertThat(properties.getLongProperty(PROPERTY_1)).isEqualTo((long) 3);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("3");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo((short) 3);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void intProperty_conversions() throws JMSException {
+        properties.setIntProperty(PROPERTY_1, 4);
+
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo(4);
+        assertThat(properties.getLongProperty(PROPERTY_1)).isEqualTo((long) 4);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("4");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo(4);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void longProperty_conversions() throws JMSException {
+        properties.setLongProperty(PROPERTY_1, (long) 5);
+
+        assertThat(properties.getLongProperty(PROPERTY_1)).isEqualTo((long) 5);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("5");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo((long) 5);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void floatProperty_conversions() throws JMSException {
+        properties.setFloatProperty(PROPERTY_1, (float) 1.2);
+
+        assertThat(properties.getFloatProperty(PROPERTY_1)).isEqualTo((float) 1.2);
+        assertThat(properties.getDoubleProperty(PROPERTY_1)).isEqualTo((double) (float) 1.2);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("1.2");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo((float) 1.2);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getLongProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void doubleProperty_conversions() throws JMSException {
+        properties.setDoubleProperty(PROPERTY_1, 2.3);
+
+        assertThat(properties.getDoubleProperty(PROPERTY_1)).isEqualTo(2.3);
+        assertThat(properties.getStringProperty(PROPERTY_1)).isEqualTo("2.3");
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo(2.3);
+
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getBooleanProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getLongProperty(PROPERTY_1));
+        assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void stringProperty_nonNumeric_conversions() throws JMSException {
+        properties.setStringProperty(PROPERTY_1, "hello world");
+
+        assertThat(properties.getBooleanProperty(PROPERTY_1)).isFalse();
+
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getLongProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void stringProperty_numeric_conversions() throws JMSException {
+        properties.setStringProperty(PROPERTY_1, "10");
+
+        assertThat(properties.getBooleanProperty(PROPERTY_1)).isFalse();
+        assertThat(properties.getByteProperty(PROPERTY_1)).isEqualTo((byte) 10);
+        assertThat(properties.getShortProperty(PROPERTY_1)).isEqualTo((short) 10);
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo(10);
+        assertThat(properties.getLongProperty(PROPERTY_1)).isEqualTo((long) 10);
+        assertThat(properties.getFloatProperty(PROPERTY_1)).isEqualTo((float) 10);
+        assertThat(properties.getDoubleProperty(PROPERTY_1)).isEqualTo((double) 10);
+    }
+
+    @Test
+    public void nullProperty_conversions() throws JMSException {
+        assertThat(properties.getBooleanProperty(PROPERTY_1)).isFalse();
+        assertThat(properties.getStringProperty(PROPERTY_1)).isNull();
+        assertThat(properties.getObjectProperty(PROPERTY_1)).isNull();
+
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getByteProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getShortProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getIntProperty(PROPERTY_1));
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getLongProperty(PROPERTY_1));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> properties.getFloatProperty(PROPERTY_1));
+        assertThatExceptionOfType(NullPointerException.class).isThrownBy(() -> properties.getDoubleProperty(PROPERTY_1));
+    }
+
+    @Test
+    public void setObjectProperty() {
+        Stream.of(false, (byte) 1, (short) 2, 3, (long) 4, (float) 5, (double) 6, "hello world").forEach(value -> {
+            try {
+                properties.setObjectProperty(PROPERTY_1, value);
+            } catch (MessageFormatException e) {
+                throw new RuntimeException(e);
+            }
+            assertThat(properties.getObjectProperty(PROPERTY_1)).isEqualTo(value);
+        });
+
+        Stream.of(new ArrayList<Integer>(), emptyMap(), new java.util.Properties(), 'c').forEach(value ->
+                assertThatExceptionOfType(MessageFormatException.class).isThrownBy(() -> properties.setObjectProperty(PROPERTY_1, value)));
+    }
+
+    @Test
+    public void propertyNames() {
+        properties.setByteProperty(PROPERTY_1, (byte) 3);
+        properties.setStringProperty(PROPERTY_2, "hello world");
+
+        assertThat(list(properties.getPropertyNames())).containsExactlyInAnyOrder(PROPERTY_1, PROPERTY_2);
+    }
+
+    @Test
+    public void propertyExists() {
+        properties.setDoubleProperty(PROPERTY_1, 2.3);
+
+        assertThat(properties.propertyExists(PROPERTY_1)).isTrue();
+        assertThat(properties.propertyExists(PROPERTY_2)).isFalse();
+    }
+
+    @Test
+    public void visitProperty_passesPrimitiveValues() {
+        properties.setBooleanProperty("boolean", true);
+        properties.setByteProperty("byte", (byte) 1);
+        properties.setShortProperty("short", (short) 2);
+        properties.setIntProperty("int", 3);
+        properties.setLongProperty("long", 4L);
+        properties.setFloatProperty("float", 1.5f);
+        properties.setDoubleProperty("double", 2.5);
+        properties.setStringProperty("string", "hello");
+        properties.setStringProperty("null string", null);
+        PropertyVisitor visitor = mock(PropertyVisitor.class);
+
+        Stream.of("boolean", "byte", "short", "int", "long", "float", "double", "string", "null string", "missing")
+                .forEach(name -> properties.visitProperty(name, visitor));
+
+        InOrder inOrder = inOrder(visitor);
+        inOrder.verify(visitor).visitBoolean(true);
+        inOrder.verify(visitor).visitLong(1);
+        inOrder.verify(visitor).visitLong(2);
+        inOrder.verify(visitor).visitLong(3);
+        inOrder.verify(visitor).visitLong(4);
+        inOrder.verify(visitor).visitDouble(1.5);
+        inOrder.verify(visitor).visitDouble(2.5);
+        inOrder.verify(visitor).visitString("hello");
+        inOrder.verify(visitor, times(2)).visitNull();
+        verifyNoMoreInteractions(visitor);
+    }
+
+    @Test
+    public void makeReadOnly_setOrClearProperties_throwsNotWriteable() throws JMSException {
+        properties.setIntProperty(PROPERTY_1, 2);
+
+        properties.makeReadOnly();
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setIntProperty(PROPERTY_1, 3));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setStringProperty(PROPERTY_2, "a"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setObjectProperty(PROPERTY_2, 2.3));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(properties::clearProperties);
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo(2);
+        assertThat(properties.propertyExists(PROPERTY_2)).isFalse();
+    }
+
+    @Test
+    public void setProperty_moreThanCapacity_keepsEveryProperty() throws JMSException {
+        for (int i = 0; i < 100; i++) {
+            properties.setIntProperty("int " + i, i);
+            properties.setDoubleProperty("double " + i, i + 0.5);
+            properties.setStringProperty("string " + i, "value " + i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(properties.getIntProperty("int " + i)).isEqualTo(i);
+            assertThat(properties.getDoubleProperty("double " + i)).isEqualTo(i + 0.5);
+            assertThat(properties.getStringProperty("string " + i)).isEqualTo("value " + i);
+        }
+        assertThat(list(properties.getPropertyNames())).hasSize(300);
+        assertThat(properties.getCapacity()).isEqualTo(512);
+    }
+
+    @Test
+    public void setProperty_existingProperty_replacesValueAndType() throws JMSException {
+        properties.setStringProperty("property", "hello");
+        properties.setLongProperty("property", 7L);
+
+        assertThat(properties.getObjectProperty("property")).isEqualTo(7L);
+        assertThat(properties.getStringProperty("property")).isEqualTo("7");
+        assertThat(list(properties.getPropertyNames())).containsExactly("property");
+    }
+
+    @Test
+    public void setProperty_typicalMessage_fitsInitialCapacity() {
+        for (int i = 0; i < 12; i++) {
+            properties.setIntProperty("property " + i, i);
+        }
+
+        assertThat(properties.getCapacity()).isEqualTo(16);
+    }
+
+    @Test
+    public void clearProperties_thenSet_reusesTable() throws JMSException {
+        properties.setIntProperty("first", 1);
+        properties.clearProperties();
+        properties.setIntProperty("second", 2);
+
+        assertThat(properties.propertyExists("first")).isFalse();
+        assertThat(properties.getIntProperty("second")).isEqualTo(2);
+        assertThat(list(properties.getPropertyNames())).containsExactly("second");
+    }
+
+    @Test
+    public void stringProperty_null_existsWithNullValue() throws JMSException {
+        properties.setStringProperty("property", null);
+
+        assertThat(properties.propertyExists("property")).isTrue();
+        assertThat(properties.getObjectProperty("property")).isNull();
+        assertThat(properties.getStringProperty("property")).isNull();
+        assertThat(properties.getBooleanProperty("property")).isFalse();
+    }
+
+    @Test
+    public void nullName_notSet_doesNotExist() throws JMSException {
+        properties.setIntProperty(PROPERTY_1, 1);
+
+        assertThat(properties.propertyExists(null)).isFalse();
+        assertThat(properties.getObjectProperty(null)).isNull();
+        assertThat(properties.getStringProperty(null)).isNull();
+        assertThat(properties.getBooleanProperty(null)).isFalse();
+        assertThatExceptionOfType(NumberFormatException.class).isThrownBy(() -> properties.getIntProperty(null));
+    }
+
+    @Test
+    public void nullName_set_isHeldLikeAnyOtherName() throws JMSException {
+        properties.setIntProperty(null, 1);
+        properties.setStringProperty(PROPERTY_1, "hello");
+
+        assertThat(properties.propertyExists(null)).isTrue();
+        assertThat(properties.getIntProperty(null)).isEqualTo(1);
+        assertThat(list(properties.getPropertyNames())).containsExactlyInAnyOrder(null, PROPERTY_1);
+    }
+
+    @Test
+    public void nullName_sameAsPropertiesImpl() throws JMSException {
+        PropertiesImpl expected = new PropertiesImpl();
+        expected.setLongProperty(null, 7L);
+        properties.setLongProperty(null, 7L);
+
+        assertThat(properties.propertyExists(null)).isEqualTo(expected.propertyExists(null));
+        assertThat(properties.getObjectProperty(null)).isEqualTo(expected.getObjectProperty(null));
+        assertThat(properties.getStringProperty(null)).isEqualTo(expected.getStringProperty(null));
+    }
+}
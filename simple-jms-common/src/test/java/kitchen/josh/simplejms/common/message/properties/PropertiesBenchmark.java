@@ -0,0 +1,72 @@
+package kitchen.josh.simplejms.common.message.properties;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.jms.JMSException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares setting then reading back a message's properties with {@link CompactPropertiesImpl} against
+ * {@link PropertiesImpl}, for messages with 4 and 12 int, double and string properties.
+ * <p>
+ * Run with <code>-prof gc</code> to compare the bytes allocated per message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertiesBenchmark {
+
+    @Param({"4", "12"})
+    private int properties;
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        names = new String[properties];
+        for (int i = 0; i < properties; i++) {
+            names[i] = "property" + i;
+        }
+    }
+
+    @Benchmark
+    public void compact(Blackhole blackhole) throws JMSException {
+        setAndGet(new CompactPropertiesImpl(), blackhole);
+    }
+
+    @Benchmark
+    public void hashMap(Blackhole blackhole) throws JMSException {
+        setAndGet(new PropertiesImpl(), blackhole);
+    }
+
+    private void setAndGet(Properties target, Blackhole blackhole) throws JMSException {
+        for (int i = 0; i < names.length; i++) {
+            switch (i % 3) {
+                case 0:
+                    target.setIntProperty(names[i], i * 1000);
+                    break;
+                case 1:
+                    target.setDoubleProperty(names[i], i * 1.5);
+                    break;
+                default:
+                    target.setStringProperty(names[i], names[i]);
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            switch (i % 3) {
+                case 0:
+                    blackhole.consume(target.getLongProperty(names[i]));
+                    break;
+                case 1:
+                    blackhole.consume(target.getDoubleProperty(names[i]));
+                    break;
+                default:
+                    blackhole.consume(target.getStringProperty(names[i]));
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package kitchen.josh.simplejms.common.message.properties;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 import javax.jms.JMSException;
 import javax.jms.MessageFormatException;
+import javax.jms.MessageNotWriteableRuntimeException;
 import java.util.ArrayList;
 import java.util.stream.Stream;
 
@@ -12,6 +14,7 @@ import static java.util.Collections.emptyMap;
 import static java.util.Collections.list;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
 
 public class PropertiesImplTest {
 
@@ -227,4 +230,47 @@ public class PropertiesImplTest {
         assertThat(properties.propertyExists(PROPERTY_1)).isTrue();
         assertThat(properties.propertyExists(PROPERTY_2)).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void visitProperty_passesPrimitiveValues() {
+        properties.setBooleanProperty("boolean", true);
+        properties.setByteProperty("byte", (byte) 1);
+        properties.setShortProperty("short", (short) 2);
+        properties.setIntProperty("int", 3);
+        properties.setLongProperty("long", 4L);
+        properties.setFloatProperty("float", 1.5f);
+        properties.setDoubleProperty("double", 2.5);
+        properties.setStringProperty("string", "hello");
+        properties.setStringProperty("null string", null);
+        PropertyVisitor visitor = mock(PropertyVisitor.class);
+
+        Stream.of("boolean", "byte", "short", "int", "long", "float", "double", "string", "null string", "missing")
+                .forEach(name -> properties.visitProperty(name, visitor));
+
+        InOrder inOrder = inOrder(visitor);
+        inOrder.verify(visitor).visitBoolean(true);
+        inOrder.verify(visitor).visitLong(1);
+        inOrder.verify(visitor).visitLong(2);
+        inOrder.verify(visitor).visitLong(3);
+        inOrder.verify(visitor).visitLong(4);
+        inOrder.verify(visitor).visitDouble(1.5);
+        inOrder.verify(visitor).visitDouble(2.5);
+        inOrder.verify(visitor).visitString("hello");
+        inOrder.verify(visitor, times(2)).visitNull();
+        verifyNoMoreInteractions(visitor);
+    }
+
+    @Test
+    public void makeReadOnly_setOrClearProperties_throwsNotWriteable() throws JMSException {
+        properties.setIntProperty(PROPERTY_1, 2);
+
+        properties.makeReadOnly();
+
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setIntProperty(PROPERTY_1, 3));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setStringProperty(PROPERTY_2, "a"));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(() -> properties.setObjectProperty(PROPERTY_2, 2.3));
+        assertThatExceptionOfType(MessageNotWriteableRuntimeException.class).isThrownBy(properties::clearProperties);
+        assertThat(properties.getIntProperty(PROPERTY_1)).isEqualTo(2);
+        assertThat(properties.propertyExists(PROPERTY_2)).isFalse();
+    }
+}
@@ -0,0 +1,131 @@
+package kitchen.josh.simplejms.common.message.properties;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.util.NumberUtils.convertNumberToTargetClass;
+
+/**
+ * Compares reading a message's properties with {@link PropertyModelDeserializer} against the tree based deserializer
+ * it replaced, for messages with 1, 10 and 100 properties of mixed types.
+ * <p>
+ * Run with <code>-prof gc</code> and divide <code>gc.alloc.rate.norm</code> by the number of properties for the bytes
+ * allocated per property.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertyModelDeserializerBenchmark {
+
+    private static final TypeReference<List<PropertyModel>> PROPERTY_LIST = new TypeReference<List<PropertyModel>>() {
+    };
+
+    @Param({"1", "10", "100"})
+    private int properties;
+
+    private ObjectReader streaming;
+    private ObjectReader tree;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        streaming = new ObjectMapper().readerFor(PROPERTY_LIST);
+        tree = new ObjectMapper().addMixIn(PropertyModel.class, TreeDeserialized.class).readerFor(PROPERTY_LIST);
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < properties; i++) {
+            builder.append(i == 0 ? "" : ",").append(property(i));
+        }
+        json = builder.append("]").toString().getBytes("UTF-8");
+    }
+
+    @Benchmark
+    public List<PropertyModel> streaming() throws IOException {
+        return streaming.readValue(json);
+    }
+
+    @Benchmark
+    public List<PropertyModel> tree() throws IOException {
+        return tree.readValue(json);
+    }
+
+    private static String property(int i) {
+        switch (i % 4) {
+            case 0:
+                return "{\"name\": \"property " + i + "\", \"type\": \"String\", \"value\": \"value " + i + "\"}";
+            case 1:
+                return "{\"type\": \"Integer\", \"name\": \"property " + i + "\", \"value\": " + i + "}";
+            case 2:
+                return "{\"value\": 2.5, \"name\": \"property " + i + "\", \"type\": \"Double\"}";
+            default:
+                return "{\"name\": \"property " + i + "\", \"type\": \"Boolean\", \"value\": true}";
+        }
+    }
+
+    @JsonDeserialize(using = TreePropertyModelDeserializer.class)
+    private interface TreeDeserialized {
+    }
+
+    /**
+     * The deserializer before it read tokens straight from the parser, reading each property into a tree and copying
+     * its fields into a map before converting the value.
+     */
+    public static class TreePropertyModelDeserializer extends JsonDeserializer<PropertyModel> {
+
+        @Override
+        public PropertyModel deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
+            ObjectNode node = parser.readValueAsTree();
+            Map<String, JsonNode> fields = new HashMap<>();
+            node.fields().forEachRemaining(field -> fields.put(field.getKey(), field.getValue()));
+            if (fields.size() != 3) {
+                throw new JsonParseException(parser, "Expected 3 properties");
+            }
+            String name = (String) parse(parser, fields.get("name"), "String");
+            String type = (String) parse(parser, fields.get("type"), "String");
+            return new PropertyModel(name, type, parse(parser, fields.get("value"), type));
+        }
+
+        private static Object parse(JsonParser parser, JsonNode node, String type) throws JsonParseException {
+            return parseWithType(node, type).orElseThrow(() -> new JsonParseException(parser, "Expected field name'" + type + "'"));
+        }
+
+        private static Optional<?> parseWithType(JsonNode node, String type) {
+            Optional<JsonNode> value = Optional.ofNullable(node);
+            switch (type) {
+                case "Boolean":
+                    return value.filter(JsonNode::isBoolean).map(JsonNode::asBoolean);
+                case "Byte":
+                    return value.filter(JsonNode::isInt).map(n -> convertNumberToTargetClass(n.asInt(), Byte.class));
+                case "Short":
+                    return value.filter(JsonNode::isInt).map(n -> convertNumberToTargetClass(n.asInt(), Short.class));
+                case "Integer":
+                    return value.filter(JsonNode::isInt).map(JsonNode::asInt);
+                case "Long":
+                    return value.filter(n -> n.isInt() || n.isLong()).map(JsonNode::asLong);
+                case "Float":
+                    return value.filter(JsonNode::isDouble).map(n -> Float.parseFloat(Double.toString(n.asDouble())));
+                case "Double":
+                    return value.filter(JsonNode::isDouble).map(JsonNode::asDouble);
+                case "String":
+                    return value.filter(JsonNode::isTextual).map(JsonNode::asText);
+                default:
+                    return Optional.empty();
+            }
+        }
+    }
+}
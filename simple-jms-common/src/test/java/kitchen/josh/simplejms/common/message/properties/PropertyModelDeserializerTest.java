@@ -160,6 +160,44 @@ public class PropertyModelDeserializerTest {
         }
     }
 
+    @Test
+    public void fieldsInAnyOrder_returnsProperty() throws Exception {
+        String[] orders = {
+                "{\"value\": 2.5, \"type\": \"Double\", \"name\": \"" + NAME + "\"}",
+                "{\"type\": \"Double\", \"value\": 2.5, \"name\": \"" + NAME + "\"}",
+                "{\"name\": \"" + NAME + "\", \"value\": 2.5, \"type\": \"Double\"}",
+        };
+
+        for (String json : orders) {
+            assertThat(objectMapper.readValue(json, PropertyModel.class)).isEqualToComparingFieldByField(new PropertyModel(NAME, "Double", 2.5));
+        }
+    }
+
+    @Test
+    public void propertiesInArray_readsEachProperty() throws Exception {
+        String json = "[" + json(Integer.class, INT) + ", " + json(String.class, STRING) + ", " + json(Boolean.class, BOOLEAN) + "]";
+
+        PropertyModel[] models = objectMapper.readValue(json, PropertyModel[].class);
+
+        assertThat(models).containsExactly(
+                new PropertyModel(NAME, "Integer", INT),
+                new PropertyModel(NAME, "String", "hello world"),
+                new PropertyModel(NAME, "Boolean", BOOLEAN));
+    }
+
+    @Test
+    public void byteType_outOfRange_throwsJsonParse() {
+        assertThatExceptionOfType(JsonParseException.class)
+                .isThrownBy(() -> objectMapper.readValue(json(Byte.class, 128), PropertyModel.class));
+    }
+
+    @Test
+    public void floatType_losesPrecision_throwsJsonParse() {
+        assertThatExceptionOfType(JsonParseException.class)
+                .isThrownBy(() -> objectMapper.readValue(json(Float.class, "1.0000000001"), PropertyModel.class))
+                .withMessageContaining("loss of precision casting double to float");
+    }
+
     @Test
     public void missingProperty_throwsJsonParse() {
         String[] missingProperty = {
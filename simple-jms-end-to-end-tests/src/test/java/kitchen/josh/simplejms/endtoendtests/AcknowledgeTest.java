@@ -66,6 +66,26 @@ public class AcknowledgeTest {
         assertThat(((TextMessage) consumer.receiveMessage().get()).getText()).isEqualTo(TEXTS[5]);
     }
 
+    /**
+     * Messages re-sent on Consumer.recover() are marked as redelivered, and new messages are not.
+     */
+    @Test
+    public void reSentMessagesAreRedelivered() {
+        Destination destination = session.createDestination(DestinationType.TOPIC);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+
+        producer.sendMessage(session.createTextMessage(TEXTS[0]));
+        producer.sendMessage(session.createTextMessage(TEXTS[1]));
+
+        assertThat(consumer.receiveMessage().get().isRedelivered()).isFalse();
+
+        consumer.recover();
+
+        assertThat(consumer.receiveMessage().get().isRedelivered()).isTrue();
+        assertThat(consumer.receiveMessage().get().isRedelivered()).isFalse();
+    }
+
     /**
      * Acknowledged messages are not re-sent on Consumer.recover().
      */
@@ -0,0 +1,187 @@
+package kitchen.josh.simplejms.endtoendtests;
+
+import kitchen.josh.simplejms.broker.Broker;
+import kitchen.josh.simplejms.client.Consumer;
+import kitchen.josh.simplejms.client.Producer;
+import kitchen.josh.simplejms.client.Session;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import kitchen.josh.simplejms.common.message.body.TextBody;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Broker.class, webEnvironment = RANDOM_PORT)
+public class AsyncTest {
+
+    private static final int MESSAGES = 100;
+
+    @LocalServerPort
+    private int port;
+
+    private Session session;
+
+    @Before
+    public void setUp() {
+        session = new Session("http://localhost:" + port, 4);
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    /**
+     * Messages sent without waiting from many producers sharing a session's connections are all received.
+     */
+    @Test
+    public void messagesSentAsynchronouslyAreAllReceived() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Consumer consumer = session.createConsumer(destination);
+        List<Producer> producers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            producers.add(session.createProducer(destination));
+        }
+
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            sent.add(producers.get(i % producers.size()).sendMessageAsync(session.createTextMessage(Integer.toString(i))));
+        }
+        CompletableFuture.allOf(sent.toArray(new CompletableFuture[0])).join();
+
+        List<String> received = new ArrayList<>();
+        Optional<Message> message;
+        while ((message = consumer.receiveMessageAsync().join()).isPresent()) {
+            received.add(((TextMessage) message.get()).getText());
+        }
+        assertThat(received).hasSize(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            assertThat(received).contains(Integer.toString(i));
+        }
+        CompletableFuture.allOf(producers.stream().map(Producer::closeAsync).toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Messages sent without waiting by one producer are received in the order they were sent.
+     */
+    @Test
+    public void messagesSentAsynchronouslyByOneProducerAreReceivedInOrder() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Consumer consumer = session.createConsumer(destination);
+        Producer producer = session.createProducer(destination);
+
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < MESSAGES; i++) {
+            last = producer.sendMessageAsync(session.createTextMessage(Integer.toString(i)));
+        }
+        last.join();
+
+        for (int i = 0; i < MESSAGES; i++) {
+            assertThat(((TextMessage) consumer.receiveMessage().get()).getText()).isEqualTo(Integer.toString(i));
+        }
+        producer.close();
+    }
+
+    /**
+     * A message acknowledged without waiting isn't received again on recover, and a closed consumer gets nothing.
+     */
+    @Test
+    public void acknowledgeAsyncAndCloseAsync() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+        producer.sendMessageAsync(session.createTextMessage("a")).join();
+        producer.sendMessageAsync(session.createTextMessage("b")).join();
+
+        Message a = consumer.receiveMessageAsync().join().get();
+        consumer.acknowledgeAsync(a).join();
+        consumer.recover();
+
+        assertThat(((TextMessage) consumer.receiveMessageAsync().join().get()).getText()).isEqualTo("b");
+        consumer.closeAsync().join();
+        producer.closeAsync().join();
+    }
+
+    /**
+     * A message listener's stream shares the session's pool with requests sent while it is open.
+     */
+    @Test
+    public void messageListenerOverPooledConnections() throws Exception {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        consumer.setMessageListener(received::add);
+        for (int i = 0; i < 10; i++) {
+            producer.sendMessage(session.createTextMessage(Integer.toString(i)));
+            assertThat(received.poll(10, TimeUnit.SECONDS).getBody())
+                    .isEqualToComparingFieldByField(new TextBody(Integer.toString(i)));
+        }
+        consumer.setMessageListener(null);
+
+        producer.sendMessage(session.createTextMessage("after"));
+        assertThat(consumer.receiveMessage(10_000).get().getBody()).isEqualToComparingFieldByField(new TextBody("after"));
+    }
+
+    /**
+     * The listeners of many consumers are each passed their messages in order by a session dispatching them on a few
+     * threads.
+     */
+    @Test
+    public void manyListenersAreDispatchedInOrderOnFewThreads() throws Exception {
+        ExecutorService listenerExecutor = Executors.newFixedThreadPool(2);
+        Session dispatching = new Session("http://localhost:" + port, new RestTemplate(), listenerExecutor, listenerExecutor, 2);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        List<List<String>> received = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(50 * 4);
+        for (int i = 0; i < 50; i++) {
+            Destination destination = session.createDestination(DestinationType.QUEUE);
+            Producer producer = session.createProducer(destination);
+            for (int j = 0; j < 4; j++) {
+                producer.sendMessage(session.createTextMessage(Integer.toString(j)));
+            }
+            List<String> consumerReceived = new CopyOnWriteArrayList<>();
+            received.add(consumerReceived);
+            dispatching.createConsumer(destination).setMessageListener(message -> {
+                threads.add(Thread.currentThread());
+                consumerReceived.add(((TextMessage) message).getText());
+                done.countDown();
+            });
+        }
+
+        try {
+            assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            dispatching.close();
+            listenerExecutor.shutdown();
+        }
+        assertThat(received).allSatisfy(consumerReceived -> assertThat(consumerReceived).containsExactly("0", "1", "2", "3"));
+        assertThat(threads.size()).isBetween(1, 2);
+    }
+}
@@ -0,0 +1,103 @@
+package kitchen.josh.simplejms.endtoendtests;
+
+import kitchen.josh.simplejms.broker.Broker;
+import kitchen.josh.simplejms.client.Consumer;
+import kitchen.josh.simplejms.client.PartitionedListenerContainer;
+import kitchen.josh.simplejms.client.Producer;
+import kitchen.josh.simplejms.client.Session;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures messages handled per second by a {@link PartitionedListenerContainer} with 1 to 32 lanes, for a queue on a
+ * broker on the same machine.
+ * <p>
+ * The messages are spread over {@value #KEYS} keys. With <code>cpu</code> work the listener spins for a while on each
+ * message, so lanes help up to the number of cores. With <code>blocking</code> work it waits a millisecond, as if
+ * calling another service, so lanes help until receiving from the broker is the limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartitionedListenerBenchmark {
+
+    private static final String KEY = "JMSXGroupID";
+    private static final int KEYS = 64;
+    private static final int MESSAGES = 256;
+    private static final long CPU_TOKENS = 20_000;
+    private static final long BLOCKING_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int lanes;
+
+    @Param({"cpu", "blocking"})
+    private String work;
+
+    private ConfigurableApplicationContext broker;
+    private Session session;
+    private Producer producer;
+    private Consumer consumer;
+    private PartitionedListenerContainer container;
+    private List<Message> messages;
+    private volatile CountDownLatch handled;
+
+    @Setup
+    public void setUp() {
+        broker = SpringApplication.run(Broker.class, "--server.port=0", "--logging.level.root=WARN");
+        session = new Session("http://localhost:" + broker.getEnvironment().getProperty("local.server.port"));
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        producer = session.createProducer(destination);
+        consumer = session.createConsumer(destination);
+        messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            TextMessage message = session.createTextMessage("hello world");
+            message.setStringProperty(KEY, "key-" + i % KEYS);
+            messages.add(message);
+        }
+        boolean cpu = "cpu".equals(work);
+        container = new PartitionedListenerContainer(consumer, KEY, lanes, message -> {
+            if (cpu) {
+                Blackhole.consumeCPU(CPU_TOKENS);
+            } else {
+                LockSupport.parkNanos(BLOCKING_NANOS);
+            }
+            handled.countDown();
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        container.close();
+        consumer.close();
+        producer.close();
+        session.close();
+        broker.close();
+    }
+
+    /**
+     * {@value #MESSAGES} messages are sent in one batch, and the invocation is done when the listener has handled all
+     * of them.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void handle() throws InterruptedException {
+        handled = new CountDownLatch(MESSAGES);
+        producer.sendMessages(messages);
+        handled.await();
+    }
+}
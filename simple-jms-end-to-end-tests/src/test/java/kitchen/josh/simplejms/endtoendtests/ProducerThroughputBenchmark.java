@@ -0,0 +1,96 @@
+package kitchen.josh.simplejms.endtoendtests;
+
+import kitchen.josh.simplejms.broker.Broker;
+import kitchen.josh.simplejms.client.Producer;
+import kitchen.josh.simplejms.client.Session;
+import kitchen.josh.simplejms.common.Destination;
+import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.TextMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures messages sent per second by 1, 8 and 64 producers sharing one session with a broker on the same machine.
+ * Each producer sends its next message once the last has been sent, so as many messages are in flight as there are
+ * producers.
+ * <p>
+ * The <code>pooled</code> transport is a session's own pool of keep-alive connections, and <code>default</code> is a
+ * plain {@link RestTemplate} with as many threads. Messages go to a topic without subscribers, so the broker does as
+ * little as it can with them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProducerThroughputBenchmark {
+
+    private static final int MAX_CONNECTIONS = 64;
+    private static final int MESSAGES = 64;
+
+    @Param({"1", "8", "64"})
+    private int producers;
+
+    @Param({"pooled", "default"})
+    private String transport;
+
+    private ConfigurableApplicationContext broker;
+    private ExecutorService executor;
+    private Session session;
+    private Producer[] producerArray;
+    private TextMessage message;
+
+    @Setup
+    public void setUp() {
+        broker = SpringApplication.run(Broker.class, "--server.port=0", "--logging.level.root=WARN");
+        String host = "http://localhost:" + broker.getEnvironment().getProperty("local.server.port");
+        if ("pooled".equals(transport)) {
+            session = new Session(host, MAX_CONNECTIONS);
+        } else {
+            executor = Executors.newFixedThreadPool(MAX_CONNECTIONS);
+            session = new Session(host, new RestTemplate(), executor);
+        }
+        Destination destination = session.createDestination(DestinationType.TOPIC);
+        producerArray = new Producer[producers];
+        for (int i = 0; i < producers; i++) {
+            producerArray[i] = session.createProducer(destination);
+        }
+        message = session.createTextMessage("hello world");
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.close();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        broker.close();
+    }
+
+    /**
+     * The producers send {@value #MESSAGES} messages between them, and the invocation is done when the broker has all
+     * of them.
+     */
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void send() {
+        CompletableFuture<?>[] sent = new CompletableFuture[producers];
+        for (int i = 0; i < producers; i++) {
+            Producer producer = producerArray[i];
+            CompletableFuture<Void> last = null;
+            for (int j = 0; j < MESSAGES / producers; j++) {
+                last = producer.sendMessageAsync(message);
+            }
+            sent[i] = last;
+        }
+        CompletableFuture.allOf(sent).join();
+    }
+}
@@ -2,10 +2,13 @@ package kitchen.josh.simplejms.endtoendtests;
 
 import kitchen.josh.simplejms.broker.Broker;
 import kitchen.josh.simplejms.client.Consumer;
+import kitchen.josh.simplejms.client.PartitionedListenerContainer;
 import kitchen.josh.simplejms.client.Producer;
 import kitchen.josh.simplejms.client.Session;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.Message;
+import kitchen.josh.simplejms.common.message.TextMessage;
 import kitchen.josh.simplejms.common.message.body.ObjectBody;
 import kitchen.josh.simplejms.common.message.body.TextBody;
 import org.junit.Before;
@@ -17,7 +20,21 @@ import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -89,4 +106,224 @@ public class QueueTest {
         assertThat(consumer2.receiveMessage()).isEmpty();
         assertThat(consumer2.receiveMessage()).isEmpty();
     }
+
+    /**
+     * A receive with a timeout waits for the next message sent, instead of returning nothing straight away.
+     */
+    @Test
+    public void receiveWithTimeoutWaitsForNextMessage() throws Exception {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+
+        CompletableFuture<Optional<Message>> received = CompletableFuture.supplyAsync(() -> consumer.receiveMessage(10_000));
+        Thread.sleep(200);
+        producer.sendMessage(session.createTextMessage(TEXTS[0]));
+
+        assertThat(received.get(10, TimeUnit.SECONDS).get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[0]));
+    }
+
+    /**
+     * A receive with a timeout returns nothing once the timeout elapses.
+     */
+    @Test
+    public void receiveWithTimeoutReturnsNothingAfterTimeout() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Consumer consumer = session.createConsumer(destination);
+
+        long start = System.currentTimeMillis();
+        assertThat(consumer.receiveMessage(200)).isEmpty();
+        assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(200);
+    }
+
+    /**
+     * A message listener is pushed messages already on the queue and messages sent afterwards, in order.
+     */
+    @Test
+    public void messageListenerIsPushedMessagesAsTheyAreSent() throws Exception {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+        producer.sendMessage(session.createTextMessage(TEXTS[0]));
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        consumer.setMessageListener(received::add);
+        assertThat(received.poll(10, TimeUnit.SECONDS).getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[0]));
+        producer.sendMessage(session.createTextMessage(TEXTS[1]));
+        assertThat(received.poll(10, TimeUnit.SECONDS).getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[1]));
+
+        consumer.setMessageListener(null);
+        producer.sendMessage(session.createObjectMessage(OBJECTS[0]));
+        assertThat(consumer.receiveMessage(10_000).get().getBody()).isEqualToComparingFieldByField(new ObjectBody(OBJECTS[0]));
+        assertThat(received).isEmpty();
+    }
+
+    /**
+     * A batch of messages is received in the order it was sent.
+     */
+    @Test
+    public void batchIsReceivedInOrder() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+
+        producer.sendMessages(Arrays.asList(
+                session.createTextMessage(TEXTS[0]),
+                session.createObjectMessage(OBJECTS[0]),
+                session.createTextMessage(TEXTS[1])));
+
+        assertThat(consumer.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[0]));
+        assertThat(consumer.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new ObjectBody(OBJECTS[0]));
+        assertThat(consumer.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[1]));
+        assertThat(consumer.receiveMessage()).isEmpty();
+    }
+
+    /**
+     * A batching producer's messages are all received in the order they were sent once it is closed.
+     */
+    @Test
+    public void batchingProducerMessagesAreReceivedInOrder() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination, 7, 5);
+        Consumer consumer = session.createConsumer(destination);
+
+        for (int i = 0; i < 50; i++) {
+            producer.sendMessage(session.createTextMessage(Integer.toString(i)));
+        }
+        producer.close();
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(consumer.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(Integer.toString(i)));
+        }
+        assertThat(consumer.receiveMessage()).isEmpty();
+    }
+
+    /**
+     * Messages received in a batch are acknowledged together by acknowledging the last of them.
+     */
+    @Test
+    public void batchReceiveIsAcknowledgedByLastMessage() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+        producer.sendMessages(Arrays.asList(
+                session.createTextMessage("first"),
+                session.createTextMessage("second"),
+                session.createTextMessage("third")));
+
+        List<Message> first = consumer.receiveMessages(2);
+        consumer.acknowledge(first.get(1));
+        List<Message> rest = consumer.receiveMessages(5);
+        consumer.recover();
+
+        assertThat(first).extracting(Message::getBody)
+                .usingFieldByFieldElementComparator()
+                .containsExactly(new TextBody("first"), new TextBody("second"));
+        assertThat(rest).extracting(Message::getBody)
+                .usingFieldByFieldElementComparator()
+                .containsExactly(new TextBody("third"));
+        assertThat(consumer.receiveMessages(5)).extracting(Message::getBody)
+                .usingFieldByFieldElementComparator()
+                .containsExactly(new TextBody("third"));
+    }
+
+    /**
+     * A prefetching consumer receives every message in the order it was sent.
+     */
+    @Test
+    public void prefetchingConsumerReceivesInOrder() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination, null, 5);
+
+        for (int i = 0; i < 20; i++) {
+            producer.sendMessage(session.createTextMessage(Integer.toString(i)));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(consumer.receiveMessage(10_000).get().getBody()).isEqualToComparingFieldByField(new TextBody(Integer.toString(i)));
+        }
+        assertThat(consumer.receiveMessage(100)).isEmpty();
+        consumer.close();
+    }
+
+    /**
+     * Closing a prefetching consumer puts the messages it prefetched but didn't acknowledge back on the queue.
+     */
+    @Test
+    public void closingPrefetchingConsumerReturnsUnacknowledgedMessages() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer prefetching = session.createConsumer(destination, null, 10);
+        for (int i = 0; i < 5; i++) {
+            producer.sendMessage(session.createTextMessage(Integer.toString(i)));
+        }
+
+        prefetching.acknowledge(prefetching.receiveMessage(10_000).get());
+        prefetching.close();
+        Consumer consumer = session.createConsumer(destination);
+
+        for (int i = 1; i < 5; i++) {
+            assertThat(consumer.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(Integer.toString(i)));
+        }
+        assertThat(consumer.receiveMessage()).isEmpty();
+    }
+
+    /**
+     * Recovering a prefetching consumer receives its unacknowledged messages again once each, in order.
+     */
+    @Test
+    public void recoveringPrefetchingConsumerRedeliversWithoutDuplicates() {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination, null, 10);
+        for (int i = 0; i < 3; i++) {
+            producer.sendMessage(session.createTextMessage(Integer.toString(i)));
+        }
+
+        consumer.acknowledge(consumer.receiveMessage(10_000).get());
+        consumer.receiveMessage(10_000);
+        consumer.recover();
+
+        assertThat(consumer.receiveMessage(10_000).get().getBody()).isEqualToComparingFieldByField(new TextBody("1"));
+        assertThat(consumer.receiveMessage(10_000).get().getBody()).isEqualToComparingFieldByField(new TextBody("2"));
+        assertThat(consumer.receiveMessage(100)).isEmpty();
+        consumer.close();
+    }
+
+    /**
+     * A partitioned listener container handles messages with the same key in order, and acknowledges every message it
+     * has handled once closed.
+     */
+    @Test
+    public void partitionedListenerContainerKeepsOrderPerKey() throws Exception {
+        Destination destination = session.createDestination(DestinationType.QUEUE);
+        Producer producer = session.createProducer(destination);
+        Consumer consumer = session.createConsumer(destination);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            for (int key = 0; key < 4; key++) {
+                TextMessage message = session.createTextMessage(Integer.toString(i));
+                message.setStringProperty("JMSXGroupID", "key-" + key);
+                messages.add(message);
+            }
+        }
+        producer.sendMessages(messages);
+        Map<String, List<String>> received = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(messages.size());
+
+        PartitionedListenerContainer container = new PartitionedListenerContainer(consumer, "JMSXGroupID", 4, message -> {
+            received.computeIfAbsent(message.getStringProperty("JMSXGroupID"), key -> new CopyOnWriteArrayList<>())
+                    .add(((TextMessage) message).getText());
+            done.countDown();
+        });
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        container.close();
+        consumer.recover();
+
+        List<String> expected = IntStream.range(0, 25).mapToObj(Integer::toString).collect(Collectors.toList());
+        assertThat(received).hasSize(4);
+        assertThat(received.values()).allSatisfy(texts -> assertThat(texts).isEqualTo(expected));
+        assertThat(consumer.receiveMessage()).isEmpty();
+    }
 }
@@ -6,6 +6,7 @@ import kitchen.josh.simplejms.client.Producer;
 import kitchen.josh.simplejms.client.Session;
 import kitchen.josh.simplejms.common.Destination;
 import kitchen.josh.simplejms.common.DestinationType;
+import kitchen.josh.simplejms.common.message.TextMessage;
 import kitchen.josh.simplejms.common.message.body.ObjectBody;
 import kitchen.josh.simplejms.common.message.body.TextBody;
 import org.junit.Before;
@@ -88,4 +89,34 @@ public class TopicTest {
         assertThat(consumer2.receiveMessage()).isEmpty();
         assertThat(consumer2.receiveMessage()).isEmpty();
     }
+
+    /**
+     * A consumer with a selector only receives the messages its selector selects.
+     */
+    @Test
+    public void consumersWithSelectorsReceiveSelectedMessages() {
+        Destination destination = session.createDestination(DestinationType.TOPIC);
+        Producer producer = session.createProducer(destination);
+        Consumer red = session.createConsumer(destination, "colour = 'red'");
+        Consumer large = session.createConsumer(destination, "size > 10");
+        Consumer all = session.createConsumer(destination);
+
+        producer.sendMessage(createTextMessage(TEXTS[0], "red", 5));
+        producer.sendMessage(createTextMessage(TEXTS[1], "blue", 20));
+
+        assertThat(red.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[0]));
+        assertThat(red.receiveMessage()).isEmpty();
+        assertThat(large.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[1]));
+        assertThat(large.receiveMessage()).isEmpty();
+        assertThat(all.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[0]));
+        assertThat(all.receiveMessage().get().getBody()).isEqualToComparingFieldByField(new TextBody(TEXTS[1]));
+        assertThat(all.receiveMessage()).isEmpty();
+    }
+
+    private TextMessage createTextMessage(String text, String colour, int size) {
+        TextMessage message = session.createTextMessage(text);
+        message.setStringProperty("colour", colour);
+        message.setIntProperty("size", size);
+        return message;
+    }
 }